@@ -0,0 +1,156 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Periodically samples the worker threads of a run and counts where they are blocked.
+ * <p/>
+ * A worker is counted when it is blocked entering a monitor or parked on a lock (including {@code java.util.concurrent}
+ * locks and futures). Each sample is attributed to the lock type and the first library frame on the stack, e.g.
+ * {@code DNSConfigurationFactory.setEnvironmentConfiguration}. Timed sleeps, such as simulated lookup latency, and
+ * waits with no library frame on the stack are not counted.
+ * <p/>
+ * Only platform threads can be sampled, the JVM does not report virtual threads through {@link ThreadMXBean}.
+ * <p/>
+ * Copyright (C) 2011 Edmunds.com
+ */
+public class ContentionSampler implements Runnable {
+
+    private static final String LIBRARY_PACKAGE = "com.edmunds.common.configuration.";
+    private static final String HARNESS_PACKAGE = "com.edmunds.common.configuration.benchmark.";
+    private static final int STACK_DEPTH = 32;
+
+    private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    private final long[] threadIds;
+    private final long intervalNanos;
+    private final Map<String, Integer> hotspots = new HashMap<String, Integer>();
+
+    private volatile boolean stopped;
+    private int samples;
+
+    /**
+     * Creates a sampler.
+     *
+     * @param threadIds     the ids of the threads to sample.
+     * @param intervalNanos the time between samples.
+     */
+    public ContentionSampler(long[] threadIds, long intervalNanos) {
+        this.threadIds = threadIds.clone();
+        this.intervalNanos = intervalNanos;
+    }
+
+    @Override
+    public void run() {
+        while (!stopped) {
+            sample();
+            LockSupport.parkNanos(intervalNanos);
+        }
+    }
+
+    /**
+     * Stops sampling, the thread running the sampler exits after its current sample.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    private void sample() {
+        final ThreadInfo[] infos = threadMXBean.getThreadInfo(threadIds, STACK_DEPTH);
+        synchronized (hotspots) {
+            for (ThreadInfo info : infos) {
+                if (info == null) {
+                    continue;
+                }
+                samples++;
+                final String hotspot = hotspot(info);
+                if (hotspot != null) {
+                    final Integer count = hotspots.get(hotspot);
+                    hotspots.put(hotspot, count == null ? 1 : count + 1);
+                }
+            }
+        }
+    }
+
+    private static String hotspot(ThreadInfo info) {
+        final Thread.State state = info.getThreadState();
+        final boolean contended = state == Thread.State.BLOCKED
+                || ((state == Thread.State.WAITING || state == Thread.State.TIMED_WAITING) && info.getLockName() != null);
+        if (!contended) {
+            return null;
+        }
+
+        final String frame = libraryFrame(info.getStackTrace());
+        if (frame == null) {
+            // Blocked in the harness itself.
+            return null;
+        }
+
+        final String lockName = info.getLockName();
+        final String lockType = lockName == null ? "unknown" : lockName.replaceAll("@[0-9a-f]+$", "");
+        return lockType + " in " + frame;
+    }
+
+    private static String libraryFrame(StackTraceElement[] stack) {
+        for (StackTraceElement frame : stack) {
+            final String className = frame.getClassName();
+            if (className.startsWith(LIBRARY_PACKAGE) && !className.startsWith(HARNESS_PACKAGE)) {
+                return className.substring(className.lastIndexOf('.') + 1) + "." + frame.getMethodName();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the number of thread samples taken.
+     *
+     * @return the number of samples, one per worker per interval.
+     */
+    public int getSamples() {
+        synchronized (hotspots) {
+            return samples;
+        }
+    }
+
+    /**
+     * Returns the contended locations, most frequent first.
+     *
+     * @return the number of samples that were blocked at each location.
+     */
+    public List<Map.Entry<String, Integer>> getHotspots() {
+        final List<Map.Entry<String, Integer>> entries;
+        synchronized (hotspots) {
+            entries = new ArrayList<Map.Entry<String, Integer>>(new HashMap<String, Integer>(hotspots).entrySet());
+        }
+        Collections.sort(entries, new Comparator<Map.Entry<String, Integer>>() {
+            @Override
+            public int compare(Map.Entry<String, Integer> o1, Map.Entry<String, Integer> o2) {
+                return o2.getValue().compareTo(o1.getValue());
+            }
+        });
+        return entries;
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.benchmark;
+
+import com.edmunds.common.configuration.api.ConfigurationUtil;
+import com.edmunds.common.configuration.api.EnvironmentPropertyFactory;
+import com.edmunds.common.configuration.dns.EnvironmentBootstrap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link EnvironmentPropertyFactory#getObject()} on a shared factory (the normal singleton case), the
+ * uncached {@link EnvironmentPropertyFactory#getProperty()} path and creating a new factory per value.
+ * <p/>
+ * Copyright (C) 2011 Edmunds.com
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EnvironmentPropertyFactoryBenchmark {
+
+    private static final String LOCAL = "http://localhost:8080/[LOCAL_ENVIRONMENT_NAME]/service";
+    private static final String MANAGED = "http://[URL_PREFIX]service.[LOCAL_ENVIRONMENT_DATA_CENTER].edmunds.com/";
+
+    private ConfigurationUtil configurationUtil;
+    private EnvironmentPropertyFactory factory;
+
+    @Setup
+    public void setup() {
+        configurationUtil = EnvironmentBootstrap.resolve(new StubConfigurationEntryReader(0L)).getConfigurationUtil();
+        factory = newFactory();
+    }
+
+    @Benchmark
+    public Object getObject() {
+        return factory.getObject();
+    }
+
+    @Benchmark
+    public String getProperty() {
+        return factory.getProperty();
+    }
+
+    @Benchmark
+    public Object newFactoryGetObject() {
+        return newFactory().getObject();
+    }
+
+    private EnvironmentPropertyFactory newFactory() {
+        final EnvironmentPropertyFactory propertyFactory = new EnvironmentPropertyFactory(configurationUtil);
+        propertyFactory.setLocal(LOCAL);
+        propertyFactory.setManaged(MANAGED);
+        return propertyFactory;
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.benchmark;
+
+import com.edmunds.common.configuration.dns.FileConfigurationEntryReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link FileConfigurationEntryReader#getEntry(String)} for present and missing entries.
+ * <p/>
+ * The reader always loads a fixed path, so the properties are injected directly rather than read from disk.
+ * <p/>
+ * Copyright (C) 2011 Edmunds.com
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FileConfigurationEntryReaderBenchmark {
+
+    private FileConfigurationEntryReader reader;
+
+    @Setup
+    public void setup() throws Exception {
+        reader = Workloads.newFileReader();
+    }
+
+    @Benchmark
+    public String getEntryFound() {
+        return reader.getEntry("environment-name.edmunds.com");
+    }
+
+    @Benchmark
+    public String getEntryMissing() {
+        return reader.getEntry("environment-site.edmunds.com");
+    }
+}
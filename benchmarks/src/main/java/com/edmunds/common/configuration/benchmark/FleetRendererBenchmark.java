@@ -0,0 +1,107 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.benchmark;
+
+import com.edmunds.common.configuration.api.EnvironmentSnapshot;
+import com.edmunds.common.configuration.render.EnvironmentMatrix;
+import com.edmunds.common.configuration.render.FleetRenderer;
+import com.edmunds.common.configuration.render.RenderedEnvironment;
+import com.edmunds.common.configuration.render.TemplateSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures rendering a template set for every combination of an environment matrix.
+ * <p/>
+ * Copyright (C) 2011 Edmunds.com
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FleetRendererBenchmark {
+
+    /**
+     * Number of sites in the matrix, each adds 40 combinations.
+     */
+    @Param({"25"})
+    private int sites;
+
+    /**
+     * Number of templates rendered per combination.
+     */
+    @Param({"100", "1000"})
+    private int templates;
+
+    @Param({"1", "4"})
+    private int threads;
+
+    private FleetRenderer renderer;
+    private List<EnvironmentSnapshot> environments;
+
+    @Setup
+    public void setup() {
+        final List<String> environmentNames = new ArrayList<String>();
+        environmentNames.add("di");
+        environmentNames.add("ti");
+        environmentNames.add("pi");
+        environmentNames.add("prod");
+        for (int i = 1; i <= 6; i++) {
+            environmentNames.add("dev-epe" + i);
+        }
+
+        final List<String> dataCenters = new ArrayList<String>();
+        dataCenters.add("lax1");
+        dataCenters.add("las1");
+        dataCenters.add("sjc1");
+        dataCenters.add("iad1");
+
+        final List<String> siteNames = new ArrayList<String>();
+        for (int i = 0; i < sites; i++) {
+            siteNames.add("site" + i);
+        }
+
+        environments = new EnvironmentMatrix(environmentNames, dataCenters, siteNames).getSnapshots();
+
+        final Map<String, String> values = new LinkedHashMap<String, String>();
+        for (int i = 0; i < templates; i++) {
+            values.put("property" + i, ReplaceTokensBenchmark.buildValue(64 + i % 64, 1 + i % 10));
+        }
+        renderer = new FleetRenderer(TemplateSet.of(values), threads);
+    }
+
+    @Benchmark
+    public List<RenderedEnvironment> renderFleet() {
+        return renderer.render(environments);
+    }
+}
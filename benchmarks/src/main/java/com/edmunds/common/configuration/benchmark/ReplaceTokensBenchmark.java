@@ -0,0 +1,115 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.benchmark;
+
+import com.edmunds.common.configuration.api.ConfigurationUtil;
+import com.edmunds.common.configuration.api.EnvironmentPropertyFactory;
+import com.edmunds.common.configuration.dns.EnvironmentBootstrap;
+import com.edmunds.common.configuration.token.TokenVariables;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link ConfigurationUtil#replaceTokens(String)}, {@link TokenVariables#replaceTokens} and
+ * {@link ConfigurationUtil#replacePropertyTokens} for values of different lengths and token densities.
+ * <p/>
+ * Copyright (C) 2011 Edmunds.com
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReplaceTokensBenchmark {
+
+    private static final String[] TOKENS = {
+            EnvironmentPropertyFactory.TOKEN_URL_PREFIX,
+            EnvironmentPropertyFactory.ENVIRONMENT_REPLACE_TOKEN,
+            EnvironmentPropertyFactory.TOKEN_LOGICAL_ENVIRONMENT_NAME,
+            EnvironmentPropertyFactory.TOKEN_LOCAL_ENVIRONMENT_DATA_CENTER,
+            EnvironmentPropertyFactory.HOST_REPLACE_TOKEN};
+
+    /**
+     * Length of the value in characters.
+     */
+    @Param({"16", "256", "4096"})
+    private int size;
+
+    /**
+     * Number of tokens per 100 characters of value.
+     */
+    @Param({"0", "1", "10"})
+    private int density;
+
+    private static final TokenVariables VARIABLES = TokenVariables.of("[TENANT]", "[LOCALE]");
+
+    private ConfigurationUtil configurationUtil;
+    private String value;
+    private String managed;
+    private String requestValue;
+
+    @Setup
+    public void setup() {
+        configurationUtil = EnvironmentBootstrap.resolve(new StubConfigurationEntryReader(0L)).getConfigurationUtil();
+        value = buildValue(size, density);
+        managed = buildValue(size, density) + "/managed";
+        requestValue = value + "/[LOCALE]/[TENANT]";
+    }
+
+    @Benchmark
+    public String replaceTokens() {
+        return configurationUtil.replaceTokens(value);
+    }
+
+    @Benchmark
+    public String replaceTokensWithVariables() {
+        return VARIABLES.replaceTokens(configurationUtil, requestValue, "acme", "en-US");
+    }
+
+    @Benchmark
+    public String replacePropertyTokens() {
+        return configurationUtil.replacePropertyTokens(value, managed);
+    }
+
+    static String buildValue(int size, int density) {
+        final StringBuilder sb = new StringBuilder(size);
+        final int spacing = density == 0 ? Integer.MAX_VALUE : Math.max(1, 100 / density);
+        int next = density == 0 ? Integer.MAX_VALUE : spacing / 2;
+        int token = 0;
+
+        while (sb.length() < size) {
+            if (sb.length() >= next) {
+                sb.append(TOKENS[token++ % TOKENS.length]);
+                next += spacing;
+            } else {
+                sb.append((char) ('a' + sb.length() % 26));
+            }
+        }
+        return sb.toString();
+    }
+}
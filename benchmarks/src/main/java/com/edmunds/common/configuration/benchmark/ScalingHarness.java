@@ -0,0 +1,381 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.benchmark;
+
+import com.edmunds.common.configuration.metrics.HistogramSnapshot;
+import com.edmunds.common.configuration.metrics.LatencyHistogram;
+import org.apache.log4j.BasicConfigurator;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drives the library from an increasing number of threads and reports throughput, tail latency and lock contention
+ * for each thread count.
+ * <p/>
+ * Each workload is run with platform threads and, on JVMs that support them, with virtual threads. For platform
+ * threads the harness also reports the time workers spent blocked on monitors and samples where they were blocked, so
+ * contention hotspots such as synchronized setters, lock based caches or appender locks are named in the output.
+ * <p/>
+ * Usage:
+ * <pre>
+ *  java -cp target/benchmarks.jar com.edmunds.common.configuration.benchmark.ScalingHarness \
+ *      [--threads 1,2,4,8] [--max-threads 64] [--duration 2000] [--warmup 1000] [--workloads replaceTokens,...] \
+ *      [--latency-micros 100] [--log-level WARN] [--no-virtual]
+ * </pre>
+ * <p/>
+ * Copyright (C) 2011 Edmunds.com
+ */
+public final class ScalingHarness {
+
+    private static final int TOP_HOTSPOTS = 3;
+    private static final long SAMPLE_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final int[] threadCounts;
+    private final long warmupMillis;
+    private final long durationMillis;
+    private final boolean virtualThreads;
+    private final PrintStream out;
+
+    /**
+     * Creates a harness.
+     *
+     * @param threadCounts   the thread counts to run each workload with.
+     * @param warmupMillis   the time each workload runs before it is measured, per thread count.
+     * @param durationMillis the time each workload is measured for, per thread count.
+     * @param virtualThreads true to also run with virtual threads when the JVM supports them.
+     * @param out            where to print the results.
+     */
+    public ScalingHarness(
+            int[] threadCounts, long warmupMillis, long durationMillis, boolean virtualThreads, PrintStream out) {
+        this.threadCounts = threadCounts.clone();
+        this.warmupMillis = warmupMillis;
+        this.durationMillis = durationMillis;
+        this.virtualThreads = virtualThreads;
+        this.out = out;
+    }
+
+    public static void main(String[] args) throws Exception {
+        final int cores = Runtime.getRuntime().availableProcessors();
+        int[] threadCounts = null;
+        int maxThreads = cores * 2;
+        long durationMillis = 2000L;
+        long warmupMillis = 1000L;
+        long latencyMicros = 100L;
+        boolean virtual = true;
+        Level logLevel = Level.WARN;
+        List<String> names = null;
+
+        for (int i = 0; i < args.length; i++) {
+            final String arg = args[i];
+            if ("--threads".equals(arg)) {
+                final String[] values = args[++i].split(",");
+                threadCounts = new int[values.length];
+                for (int j = 0; j < values.length; j++) {
+                    threadCounts[j] = Integer.parseInt(values[j].trim());
+                }
+            } else if ("--max-threads".equals(arg)) {
+                maxThreads = Integer.parseInt(args[++i]);
+            } else if ("--duration".equals(arg)) {
+                durationMillis = Long.parseLong(args[++i]);
+            } else if ("--warmup".equals(arg)) {
+                warmupMillis = Long.parseLong(args[++i]);
+            } else if ("--latency-micros".equals(arg)) {
+                latencyMicros = Long.parseLong(args[++i]);
+            } else if ("--workloads".equals(arg)) {
+                names = Arrays.asList(args[++i].split(","));
+            } else if ("--log-level".equals(arg)) {
+                logLevel = Level.toLevel(args[++i]);
+            } else if ("--no-virtual".equals(arg)) {
+                virtual = false;
+            } else {
+                throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+
+        if (threadCounts == null) {
+            threadCounts = powersOfTwo(maxThreads);
+        }
+
+        BasicConfigurator.configure();
+        Logger.getRootLogger().setLevel(logLevel);
+
+        final List<Workload> workloads = new ArrayList<Workload>();
+        for (Workload workload : Workloads.all(TimeUnit.MICROSECONDS.toNanos(latencyMicros))) {
+            if (names == null || names.contains(workload.getName())) {
+                workloads.add(workload);
+            }
+        }
+
+        new ScalingHarness(threadCounts, warmupMillis, durationMillis, virtual, System.out).run(workloads);
+    }
+
+    /**
+     * Runs each workload at each thread count and prints the results.
+     *
+     * @param workloads the workloads to run.
+     * @return the results in the order they were run.
+     * @throws InterruptedException if interrupted while waiting for the workers.
+     */
+    public List<ScalingResult> run(List<Workload> workloads) throws InterruptedException {
+        final ThreadFactory virtualFactory = virtualThreads ? virtualThreadFactory() : null;
+        if (virtualThreads && virtualFactory == null) {
+            out.println("Virtual threads are not available on this JVM, running platform threads only");
+        }
+
+        final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        if (threadMXBean.isThreadContentionMonitoringSupported()) {
+            threadMXBean.setThreadContentionMonitoringEnabled(true);
+        }
+
+        final List<ScalingResult> results = new ArrayList<ScalingResult>();
+        printHeader();
+        for (Workload workload : workloads) {
+            for (int threads : threadCounts) {
+                results.add(runAndPrint(workload, threads, null));
+                if (virtualFactory != null) {
+                    results.add(runAndPrint(workload, threads, virtualFactory));
+                }
+            }
+        }
+        return results;
+    }
+
+    private ScalingResult runAndPrint(Workload workload, int threads, ThreadFactory virtualFactory)
+            throws InterruptedException {
+
+        measure(workload, threads, virtualFactory, warmupMillis);
+        final ScalingResult result = measure(workload, threads, virtualFactory, durationMillis);
+        print(result);
+        return result;
+    }
+
+    /**
+     * Runs a workload for a fixed time.
+     *
+     * @param workload       the workload.
+     * @param threads        the number of threads to run it on.
+     * @param virtualFactory the factory for virtual threads, null to use platform threads.
+     * @param millis         how long to run.
+     * @return the result.
+     * @throws InterruptedException if interrupted while waiting for the workers.
+     */
+    ScalingResult measure(Workload workload, int threads, ThreadFactory virtualFactory, long millis)
+            throws InterruptedException {
+
+        final Worker[] workers = new Worker[threads];
+        final Thread[] workerThreads = new Thread[threads];
+        final CountDownLatch ready = new CountDownLatch(threads);
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch finished = new CountDownLatch(threads);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Worker(workload, ready, start, finished, release);
+            workerThreads[i] = virtualFactory == null
+                    ? new Thread(workers[i], "scaling-worker-" + i) : virtualFactory.newThread(workers[i]);
+            workerThreads[i].start();
+        }
+        ready.await();
+
+        final long begin = System.nanoTime();
+        start.countDown();
+        ContentionSampler sampler = null;
+        Thread samplerThread = null;
+        if (virtualFactory == null) {
+            final long[] ids = new long[threads];
+            for (int i = 0; i < threads; i++) {
+                ids[i] = workerThreads[i].getId();
+            }
+            sampler = new ContentionSampler(ids, SAMPLE_INTERVAL_NANOS);
+            samplerThread = new Thread(sampler, "scaling-contention-sampler");
+            samplerThread.setDaemon(true);
+            samplerThread.start();
+        }
+
+        Thread.sleep(millis);
+
+        if (sampler != null) {
+            sampler.stop();
+            samplerThread.join();
+        }
+
+        for (Worker worker : workers) {
+            worker.stop = true;
+        }
+        finished.await();
+        final long elapsed = System.nanoTime() - begin;
+
+        long blockedCount = -1L;
+        long blockedMillis = -1L;
+        final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        if (virtualFactory == null && threadMXBean.isThreadContentionMonitoringEnabled()) {
+            blockedCount = 0L;
+            blockedMillis = 0L;
+            for (Thread thread : workerThreads) {
+                final ThreadInfo info = threadMXBean.getThreadInfo(thread.getId());
+                if (info != null) {
+                    blockedCount += info.getBlockedCount();
+                    blockedMillis += Math.max(0L, info.getBlockedTime());
+                }
+            }
+        }
+
+        release.countDown();
+        for (Thread thread : workerThreads) {
+            thread.join();
+        }
+
+        long operations = 0L;
+        HistogramSnapshot latency = null;
+        for (Worker worker : workers) {
+            operations += worker.operations;
+            latency = latency == null ? worker.histogram.snapshot() : latency.merge(worker.histogram.snapshot());
+        }
+
+        final List<Map.Entry<String, Integer>> hotspots = sampler == null
+                ? Collections.<Map.Entry<String, Integer>>emptyList() : sampler.getHotspots();
+        final int samples = sampler == null ? 0 : sampler.getSamples();
+
+        return new ScalingResult(workload.getName(), virtualFactory != null, threads, operations, elapsed, latency,
+                blockedCount, blockedMillis, samples, hotspots);
+    }
+
+    private void printHeader() {
+        out.println(String.format("%-28s %-8s %7s %14s %10s %10s %10s %10s %10s %9s",
+                "workload", "threads", "count", "ops/s", "p50(us)", "p99(us)", "p999(us)", "max(us)",
+                "blocked", "contended"));
+    }
+
+    private void print(ScalingResult result) {
+        final HistogramSnapshot latency = result.getLatency();
+        out.println(String.format("%-28s %-8s %7d %14.0f %10.2f %10.2f %10.2f %10.2f %10s %8.1f%%",
+                result.getWorkload(),
+                result.isVirtualThreads() ? "virtual" : "platform",
+                result.getThreads(),
+                result.getThroughput(),
+                latency.getValueAtPercentile(50.0) / 1000.0,
+                latency.getValueAtPercentile(99.0) / 1000.0,
+                latency.getValueAtPercentile(99.9) / 1000.0,
+                latency.getMax() / 1000.0,
+                result.getBlockedMillis() < 0 ? "n/a" : result.getBlockedMillis() + "ms",
+                result.getContention() * 100.0));
+
+        final List<Map.Entry<String, Integer>> hotspots = result.getHotspots();
+        for (int i = 0; i < hotspots.size() && i < TOP_HOTSPOTS; i++) {
+            final Map.Entry<String, Integer> hotspot = hotspots.get(i);
+            out.println(String.format("    %5.1f%% %s",
+                    hotspot.getValue() * 100.0 / result.getSamples(), hotspot.getKey()));
+        }
+    }
+
+    /**
+     * Returns a factory for virtual threads, looked up reflectively so the harness also runs on older JVMs.
+     *
+     * @return the factory, null if virtual threads are not available.
+     */
+    static ThreadFactory virtualThreadFactory() {
+        try {
+            final Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            final Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static int[] powersOfTwo(int max) {
+        final List<Integer> counts = new ArrayList<Integer>();
+        for (int threads = 1; threads < max; threads *= 2) {
+            counts.add(threads);
+        }
+        counts.add(max);
+
+        final int[] array = new int[counts.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = counts.get(i);
+        }
+        return array;
+    }
+
+    /**
+     * Runs the workload in a loop, timing each operation into its own histogram.
+     */
+    private static final class Worker implements Runnable {
+
+        private final Workload workload;
+        private final CountDownLatch ready;
+        private final CountDownLatch start;
+        private final CountDownLatch finished;
+        private final CountDownLatch release;
+        private final LatencyHistogram histogram = new LatencyHistogram();
+
+        private volatile boolean stop;
+        private long operations;
+        private int sink;
+
+        private Worker(Workload workload, CountDownLatch ready, CountDownLatch start, CountDownLatch finished,
+                       CountDownLatch release) {
+            this.workload = workload;
+            this.ready = ready;
+            this.start = start;
+            this.finished = finished;
+            this.release = release;
+        }
+
+        @Override
+        public void run() {
+            try {
+                ready.countDown();
+                start.await();
+
+                long iteration = 0L;
+                while (!stop) {
+                    final long begin = System.nanoTime();
+                    final Object result = workload.execute(iteration++);
+                    histogram.record(System.nanoTime() - begin);
+                    if (result != null) {
+                        sink += result.hashCode();
+                    }
+                }
+                operations = iteration;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                finished.countDown();
+            }
+
+            // Stay alive until the harness has read this thread's contention statistics.
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.benchmark;
+
+import com.edmunds.common.configuration.metrics.HistogramSnapshot;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The outcome of running one workload with a given number of threads.
+ * <p/>
+ * Copyright (C) 2011 Edmunds.com
+ */
+public class ScalingResult {
+
+    private final String workload;
+    private final boolean virtualThreads;
+    private final int threads;
+    private final long operations;
+    private final long elapsedNanos;
+    private final HistogramSnapshot latency;
+    private final long blockedCount;
+    private final long blockedMillis;
+    private final int samples;
+    private final List<Map.Entry<String, Integer>> hotspots;
+
+    ScalingResult(String workload, boolean virtualThreads, int threads, long operations, long elapsedNanos,
+                  HistogramSnapshot latency, long blockedCount, long blockedMillis, int samples,
+                  List<Map.Entry<String, Integer>> hotspots) {
+        this.workload = workload;
+        this.virtualThreads = virtualThreads;
+        this.threads = threads;
+        this.operations = operations;
+        this.elapsedNanos = elapsedNanos;
+        this.latency = latency;
+        this.blockedCount = blockedCount;
+        this.blockedMillis = blockedMillis;
+        this.samples = samples;
+        this.hotspots = hotspots;
+    }
+
+    public String getWorkload() {
+        return workload;
+    }
+
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public long getOperations() {
+        return operations;
+    }
+
+    /**
+     * Returns the throughput of all threads combined.
+     *
+     * @return operations per second.
+     */
+    public double getThroughput() {
+        return operations * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * Returns the latency of individual operations.
+     *
+     * @return the latency histogram in nanoseconds.
+     */
+    public HistogramSnapshot getLatency() {
+        return latency;
+    }
+
+    /**
+     * Returns the number of times workers blocked entering a monitor, -1 if not measured.
+     *
+     * @return the blocked count.
+     */
+    public long getBlockedCount() {
+        return blockedCount;
+    }
+
+    /**
+     * Returns the total time workers spent blocked entering a monitor, -1 if not measured.
+     *
+     * @return the blocked time in milliseconds.
+     */
+    public long getBlockedMillis() {
+        return blockedMillis;
+    }
+
+    /**
+     * Returns the fraction of worker samples that found the worker blocked on a lock.
+     *
+     * @return the contended fraction, between 0 and 1.
+     */
+    public double getContention() {
+        if (samples == 0) {
+            return 0.0;
+        }
+        int blocked = 0;
+        for (Map.Entry<String, Integer> hotspot : hotspots) {
+            blocked += hotspot.getValue();
+        }
+        return (double) blocked / samples;
+    }
+
+    public int getSamples() {
+        return samples;
+    }
+
+    /**
+     * Returns the contended locations, most frequent first.
+     *
+     * @return the sample count per location.
+     */
+    public List<Map.Entry<String, Integer>> getHotspots() {
+        return hotspots;
+    }
+}
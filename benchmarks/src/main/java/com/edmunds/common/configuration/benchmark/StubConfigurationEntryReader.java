@@ -0,0 +1,57 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.benchmark;
+
+import com.edmunds.common.configuration.dns.ConfigurationEntryReader;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * In-memory reader that answers every lookup after a fixed delay, standing in for DNS in benchmarks.
+ * <p/>
+ * Copyright (C) 2011 Edmunds.com
+ */
+public class StubConfigurationEntryReader implements ConfigurationEntryReader {
+
+    private final Map<String, String> entries = new HashMap<String, String>();
+    private final long latencyNanos;
+
+    /**
+     * Creates a reader holding a typical production environment.
+     *
+     * @param latencyNanos the time each lookup takes.
+     */
+    public StubConfigurationEntryReader(long latencyNanos) {
+        this.latencyNanos = latencyNanos;
+
+        entries.put("environment-name.edmunds.com", "prod-a");
+        entries.put("logical-environment-name.edmunds.com", "prod");
+        entries.put("environment-index.edmunds.com", "a");
+        entries.put("environment-datacenter.edmunds.com", "lax1");
+        entries.put("environment-site.edmunds.com", "edmunds");
+        entries.put("url-prefix.edmunds.com", "prod");
+    }
+
+    @Override
+    public String getEntry(String entryName) {
+        if (latencyNanos > 0) {
+            LockSupport.parkNanos(latencyNanos);
+        }
+        return entries.get(entryName);
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.benchmark;
+
+/**
+ * A single operation driven concurrently by the {@link ScalingHarness}.
+ * <p/>
+ * One instance is shared by all threads of a run, so any contention inside the library shows up in the results.
+ * <p/>
+ * Copyright (C) 2011 Edmunds.com
+ */
+public interface Workload {
+
+    /**
+     * Returns the name used to select and report the workload.
+     *
+     * @return the workload name.
+     */
+    String getName();
+
+    /**
+     * Performs one operation.
+     *
+     * @param iteration the number of operations the calling thread has already performed.
+     * @return the result of the operation, consumed by the harness so it cannot be optimized away.
+     */
+    Object execute(long iteration);
+}
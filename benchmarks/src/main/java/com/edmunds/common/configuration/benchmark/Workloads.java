@@ -0,0 +1,165 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.benchmark;
+
+import com.edmunds.common.configuration.api.ConfigurationUtil;
+import com.edmunds.common.configuration.dns.CoalescingConfigurationEntryReader;
+import com.edmunds.common.configuration.dns.ConfigurationEntryReader;
+import com.edmunds.common.configuration.dns.ConfigurationFactoryWorkload;
+import com.edmunds.common.configuration.dns.EnvironmentBootstrap;
+import com.edmunds.common.configuration.dns.FileConfigurationEntryReader;
+import com.edmunds.common.configuration.dns.InstrumentedConfigurationEntryReader;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * The standard workloads run by the {@link ScalingHarness}.
+ * <p/>
+ * Copyright (C) 2011 Edmunds.com
+ */
+public final class Workloads {
+
+    private static final String[] VALUES = {
+            "http://[URL_PREFIX]www.edmunds.com/",
+            "jdbc:oracle:thin:@db-[LOCAL_ENVIRONMENT_DATA_CENTER]:1521/[LOGICAL_ENVIRONMENT_NAME]",
+            "/deployments/edmunds/_ENV_/logs/_HOST_.log",
+            "no tokens in this value"};
+
+    private static final String[] ENTRY_NAMES = {
+            "environment-name.edmunds.com",
+            "logical-environment-name.edmunds.com",
+            "environment-datacenter.edmunds.com",
+            "url-prefix.edmunds.com"};
+
+    private Workloads() {
+    }
+
+    /**
+     * Creates all the standard workloads.
+     *
+     * @param latencyNanos the latency of each stub reader lookup.
+     * @return the workloads.
+     * @throws Exception if a workload cannot be set up.
+     */
+    public static List<Workload> all(long latencyNanos) throws Exception {
+        final ConfigurationUtil util =
+                EnvironmentBootstrap.resolve(new StubConfigurationEntryReader(0L)).getConfigurationUtil();
+
+        final List<Workload> workloads = new ArrayList<Workload>();
+        workloads.add(replaceTokens(util));
+        workloads.add(replacePropertyTokens(util));
+        workloads.add(missingDualProperty(util));
+        workloads.add(getEntry("coalescedGetEntry", new CoalescingConfigurationEntryReader(
+                new StubConfigurationEntryReader(latencyNanos))));
+        workloads.add(getEntry("instrumentedGetEntry", new InstrumentedConfigurationEntryReader(
+                new StubConfigurationEntryReader(latencyNanos))));
+        workloads.add(getEntry("fileGetEntry", newFileReader()));
+        workloads.add(new ConfigurationFactoryWorkload());
+        return workloads;
+    }
+
+    /**
+     * Replaces the tokens in a rotating set of values.
+     */
+    public static Workload replaceTokens(final ConfigurationUtil util) {
+        return new Workload() {
+            @Override
+            public String getName() {
+                return "replaceTokens";
+            }
+
+            @Override
+            public Object execute(long iteration) {
+                return util.replaceTokens(VALUES[(int) (iteration & 3)]);
+            }
+        };
+    }
+
+    /**
+     * Selects and resolves a local/managed pair.
+     */
+    public static Workload replacePropertyTokens(final ConfigurationUtil util) {
+        return new Workload() {
+            @Override
+            public String getName() {
+                return "replacePropertyTokens";
+            }
+
+            @Override
+            public Object execute(long iteration) {
+                final int index = (int) (iteration & 3);
+                return util.replacePropertyTokens(VALUES[index], VALUES[3 - index]);
+            }
+        };
+    }
+
+    /**
+     * Resolves a property with no managed value, which logs a warning.
+     */
+    public static Workload missingDualProperty(final ConfigurationUtil util) {
+        return new Workload() {
+            @Override
+            public String getName() {
+                return "missingDualProperty";
+            }
+
+            @Override
+            public Object execute(long iteration) {
+                return util.replacePropertyTokens(VALUES[(int) (iteration & 3)], null);
+            }
+        };
+    }
+
+    /**
+     * Looks up a rotating set of entries.
+     */
+    public static Workload getEntry(final String name, final ConfigurationEntryReader reader) {
+        return new Workload() {
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public Object execute(long iteration) {
+                return reader.getEntry(ENTRY_NAMES[(int) (iteration & 3)]);
+            }
+        };
+    }
+
+    /**
+     * Creates a file reader with in-memory properties, since the reader always loads a fixed path.
+     *
+     * @return the reader.
+     * @throws Exception if the properties cannot be injected.
+     */
+    public static FileConfigurationEntryReader newFileReader() throws Exception {
+        final Properties properties = new Properties();
+        properties.setProperty("environment-name", "prod-a");
+        properties.setProperty("logical-environment-name", "prod");
+        properties.setProperty("environment-datacenter", "lax1");
+        properties.setProperty("url-prefix", "prod");
+
+        final FileConfigurationEntryReader reader = new FileConfigurationEntryReader();
+        final Field field = FileConfigurationEntryReader.class.getDeclaredField("properties");
+        field.setAccessible(true);
+        field.set(reader, properties);
+        return reader;
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.dns;
+
+import com.edmunds.common.configuration.api.EnvironmentConfiguration;
+import com.edmunds.common.configuration.benchmark.StubConfigurationEntryReader;
+import com.edmunds.common.configuration.benchmark.Workload;
+
+/**
+ * Reads the configuration from a shared {@link DNSConfigurationFactory}, replacing it once every
+ * {@value #WRITE_INTERVAL} operations.
+ * <p/>
+ * Exercises {@link DNSConfigurationFactory#setEnvironmentConfiguration(EnvironmentConfiguration)}, which is a
+ * monitor, against concurrent readers. Lives in the {@code dns} package because the factory is package private.
+ * <p/>
+ * Copyright (C) 2011 Edmunds.com
+ */
+public class ConfigurationFactoryWorkload implements Workload {
+
+    static final int WRITE_INTERVAL = 64;
+
+    private final DNSConfigurationFactory factory;
+    private final EnvironmentConfiguration[] configurations = new EnvironmentConfiguration[2];
+
+    public ConfigurationFactoryWorkload() throws Exception {
+        factory = new DNSConfigurationFactory(new StubConfigurationEntryReader(0L));
+        factory.afterPropertiesSet();
+        configurations[0] = factory.getEnvironmentConfiguration();
+        configurations[1] = factory.getEnvironmentConfiguration();
+    }
+
+    @Override
+    public String getName() {
+        return "setEnvironmentConfiguration";
+    }
+
+    @Override
+    public Object execute(long iteration) {
+        if (iteration % WRITE_INTERVAL == 0) {
+            factory.setEnvironmentConfiguration(configurations[(int) (iteration / WRITE_INTERVAL) & 1]);
+        }
+        return factory.getEnvironmentConfiguration().getEnvironmentName();
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.dns;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link DNSConfigurationEntryReader#getEntry(String)} against the {@link StubDnsServer} on localhost, with
+ * injected latency, packet loss and truncation.
+ * <p/>
+ * Copyright (C) 2011 Edmunds.com
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DNSConfigurationEntryReaderBenchmark {
+
+    /**
+     * Server side delay of each response.
+     */
+    @Param({"0", "1"})
+    private long latencyMillis;
+
+    /**
+     * Fault injected by the server: none, 10% UDP loss or truncation (forcing TCP).
+     */
+    @Param({"none", "loss", "truncate"})
+    private String fault;
+
+    private StubDnsServer server;
+    private DNSConfigurationEntryReader reader;
+    private ConfigurationEntryReader coalescingReader;
+
+    @Setup
+    public void setup() throws Exception {
+        server = new StubDnsServer(new Random(42L));
+        server.setTxtValue("environment-name.edmunds.com", "prod-a");
+        server.setLatencyMillis(latencyMillis);
+        server.setLossRate("loss".equals(fault) ? 0.1 : 0.0);
+        server.setTruncateUdp("truncate".equals(fault));
+        server.start();
+
+        reader = new DNSConfigurationEntryReader(server.getProviderUrl(), 20, 4);
+        coalescingReader = new CoalescingConfigurationEntryReader(reader);
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.stop();
+    }
+
+    @Benchmark
+    public String getEntry() {
+        return reader.getEntry("environment-name.edmunds.com");
+    }
+
+    @Benchmark
+    public String getEntryNxDomain() {
+        return reader.getEntry("environment-site.edmunds.com");
+    }
+
+    @Benchmark
+    public String coalescedGetEntry() {
+        return coalescingReader.getEntry("environment-name.edmunds.com");
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.dns;
+
+import com.edmunds.common.configuration.api.EnvironmentConfiguration;
+import com.edmunds.common.configuration.benchmark.StubConfigurationEntryReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link DNSConfigurationFactory#afterPropertiesSet()}, and the whole {@link EnvironmentBootstrap}, against
+ * a stub reader with a configurable lookup latency.
+ * <p/>
+ * Lives in the {@code dns} package because the factory is package private.
+ * <p/>
+ * Copyright (C) 2011 Edmunds.com
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DNSConfigurationFactoryBenchmark {
+
+    /**
+     * Latency of each reader lookup in microseconds.
+     */
+    @Param({"0", "100", "1000"})
+    private long latencyMicros;
+
+    private ConfigurationEntryReader reader;
+
+    @Setup
+    public void setup() {
+        reader = new StubConfigurationEntryReader(TimeUnit.MICROSECONDS.toNanos(latencyMicros));
+    }
+
+    @Benchmark
+    public EnvironmentConfiguration afterPropertiesSet() throws Exception {
+        final DNSConfigurationFactory factory = new DNSConfigurationFactory(reader);
+        factory.afterPropertiesSet();
+        return factory.getEnvironmentConfiguration();
+    }
+
+    @Benchmark
+    public EnvironmentBootstrap bootstrap() {
+        return EnvironmentBootstrap.resolve(reader);
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.api;
+
+import org.springframework.beans.factory.FactoryBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Spring factory that selects a property value from an ordered table of environment rules, a generalisation of the
+ * local/managed choice made by {@link EnvironmentPropertyFactory}.
+ * <p/>
+ * The rules are compiled once (see {@link EnvironmentRules} for the syntax) and evaluated once per environment
+ * snapshot. The selected value, with its tokens replaced, is cached together with the snapshot it was selected for,
+ * so repeated calls to {@link #getProperty()} only read that cached value until the environment changes.
+ * <p/>
+ * Usage:
+ * <pre>
+ *  &lt;bean id="searchUrl" class="com.edmunds.common.configuration.api.ConditionalPropertyFactory"&gt;
+ *      &lt;property name="rules"&gt;
+ *          &lt;value&gt;
+ *              prod &amp;&amp; lax1 -&gt; http://search-lax1.edmunds.com/
+ *              prod -&gt; http://search.edmunds.com/
+ *              logical=qa -&gt; http://[URL_PREFIX]search.edmunds.com/
+ *              * -&gt; http://localhost:8080/search/
+ *          &lt;/value&gt;
+ *      &lt;/property&gt;
+ *  &lt;/bean&gt;
+ * </pre>
+ * <p/>
+ * Copyright (C) 2011 Edmunds.com
+ */
+public class ConditionalPropertyFactory implements FactoryBean, InitializingBean {
+
+    /**
+     * Delegate used to read the environment and replace tokens.
+     */
+    @Autowired
+    private ConfigurationUtil configurationUtil;
+
+    /**
+     * The rule table as configured.
+     */
+    private String rules;
+
+    /**
+     * The compiled rules, compiled on first use.
+     */
+    private volatile EnvironmentRules compiled;
+
+    /**
+     * The value selected for the most recent snapshot.
+     */
+    private final SnapshotSelection selection = new SnapshotSelection();
+
+    /**
+     * Default Constructor.
+     */
+    public ConditionalPropertyFactory() {
+    }
+
+    /**
+     * Unit test constructor.
+     *
+     * @param configurationUtil configuration util object to use.
+     */
+    public ConditionalPropertyFactory(ConfigurationUtil configurationUtil) {
+        this.configurationUtil = configurationUtil;
+    }
+
+    /**
+     * Compiles the rules and selects the value for the current environment so configuration errors are reported
+     * when the context starts.
+     */
+    @Override
+    public void afterPropertiesSet() {
+        getProperty();
+    }
+
+    /**
+     * Returns the value of the first rule that matches the current environment, with its tokens replaced.
+     *
+     * @return the property value.
+     * @throws IllegalStateException if no rule matches the current environment.
+     */
+    public String getProperty() {
+        final EnvironmentSnapshot snapshot = EnvironmentSnapshot.of(configurationUtil);
+        final String selected = selection.get(snapshot);
+        if (selected != null) {
+            return selected;
+        }
+
+        final String value = getCompiledRules().select(snapshot);
+        if (value == null) {
+            throw new IllegalStateException("No environment rule matches " + describe(snapshot) + ": " + rules);
+        }
+
+        return selection.set(snapshot, configurationUtil.replaceTokens(value));
+    }
+
+    /**
+     * Returns the compiled rules.
+     *
+     * @return the compiled rules.
+     * @throws IllegalStateException if no rules have been set.
+     * @throws IllegalArgumentException if the rules cannot be parsed.
+     */
+    public EnvironmentRules getCompiledRules() {
+        EnvironmentRules current = compiled;
+        if (current == null) {
+            if (rules == null) {
+                throw new IllegalStateException("No environment rules have been set");
+            }
+            current = EnvironmentRules.compile(rules);
+            compiled = current;
+        }
+        return current;
+    }
+
+    private static String describe(EnvironmentSnapshot snapshot) {
+        return "environment '" + snapshot.getEnvironmentName() + "' (logical: " + snapshot.getLogicalEnvironmentName()
+                + ", data center: " + snapshot.getDataCenter() + ", site: " + snapshot.getSite()
+                + ", index: " + snapshot.getEnvironmentIndex() + ", local: " + snapshot.isLocalEnvironment() + ")";
+    }
+
+    /**
+     * Spring factory method to return the Object being manufactured by this Factory.
+     *
+     * @return the property value.
+     */
+    @Override
+    public Object getObject() {
+        return getProperty();
+    }
+
+    @Override
+    public Class getObjectType() {
+        return String.class;
+    }
+
+    @Override
+    public boolean isSingleton() {
+        return true;
+    }
+
+    /**
+     * Returns the rule table.
+     *
+     * @return the rules, one per line.
+     */
+    public String getRules() {
+        return rules;
+    }
+
+    /**
+     * Sets the rule table, one rule per line.
+     *
+     * @param rules the rules.
+     */
+    public void setRules(String rules) {
+        this.rules = rules;
+        this.compiled = null;
+        this.selection.clear();
+    }
+}
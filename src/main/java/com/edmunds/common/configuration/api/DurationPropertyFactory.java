@@ -0,0 +1,81 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.api;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Produces a duration, as a {@code Long} in the configured unit, from a dual (local, managed) property value.
+ * <p/>
+ * Usage:
+ * <pre>
+ *  &lt;bean id="timeoutMillis" class="com.edmunds.common.configuration.api.DurationPropertyFactory"&gt;
+ *      &lt;property name="local" value="30s"/&gt;
+ *      &lt;property name="managed" value="500ms"/&gt;
+ *      &lt;property name="unit" value="MILLISECONDS"/&gt;
+ *  &lt;/bean&gt;
+ * </pre>
+ * See {@link PropertyType#DURATION} for the accepted values.
+ * <p/>
+ * Copyright (C) 2011 Edmunds.com
+ */
+public class DurationPropertyFactory extends TypedEnvironmentPropertyFactory<Long> {
+
+    /**
+     * The unit of the produced value.
+     */
+    private TimeUnit unit = TimeUnit.MILLISECONDS;
+
+    /**
+     * Default Constructor.
+     */
+    public DurationPropertyFactory() {
+        super(PropertyType.DURATION);
+    }
+
+    /**
+     * Unit test constructor.
+     *
+     * @param configurationUtil configuration util object to use.
+     */
+    public DurationPropertyFactory(ConfigurationUtil configurationUtil) {
+        super(PropertyType.DURATION, configurationUtil);
+    }
+
+    @Override
+    protected Long convert(Long millis) {
+        return unit.convert(millis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns the unit of the produced value.
+     *
+     * @return the unit (default: milliseconds).
+     */
+    public TimeUnit getUnit() {
+        return unit;
+    }
+
+    /**
+     * Sets the unit of the produced value, the duration is truncated to it.
+     *
+     * @param unit the unit.
+     */
+    public void setUnit(TimeUnit unit) {
+        this.unit = unit;
+        resetValue();
+    }
+}
@@ -0,0 +1,397 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.api;
+
+import com.edmunds.common.configuration.token.TokenTemplate;
+import com.edmunds.common.configuration.trace.ResolutionTrace;
+import org.apache.log4j.Logger;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.MutablePropertyValues;
+import org.springframework.beans.PropertyValue;
+import org.springframework.beans.factory.BeanDefinitionStoreException;
+import org.springframework.beans.factory.BeanNameAware;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinitionVisitor;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.config.InstantiationAwareBeanPostProcessorAdapter;
+import org.springframework.beans.factory.config.TypedStringValue;
+import org.springframework.beans.factory.support.AbstractBeanDefinition;
+import org.springframework.core.Ordered;
+import org.springframework.util.StringValueResolver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves all {@link EnvironmentPropertyFactory} definitions, and optionally the environment tokens found in any
+ * other bean definition, in a single pass before the beans are created.
+ * <p/>
+ * Each {@code EnvironmentPropertyFactory} definition is given its resolved value so that the factory does no work
+ * when the bean is created. Definitions whose values cannot be determined statically (bean references, nested
+ * beans) are left untouched and resolved by the factory as usual.
+ * <p/>
+ * Usage:
+ * <pre>
+ *  &lt;bean class="com.edmunds.common.configuration.api.EnvironmentPropertyConfigurer"/&gt;
+ * </pre>
+ * This configurer runs after any {@code PropertyPlaceholderConfigurer} or {@code PropertyOverrideConfigurer} so
+ * overridden {@code local} and {@code managed} values are honoured.
+ * <p/>
+ * Beans that rely on {@code @Autowired} injection are not created while the bean factory is being post-processed,
+ * since they would miss the bean post processors that are registered afterwards. The {@link ConfigurationUtil} bean
+ * is used if it already exists or is wired with explicit constructor arguments (as in
+ * {@code configuration-common-spring.xml}); when there are several, the one marked primary is used. Otherwise
+ * resolution is deferred: the factories resolve their values through their own injected delegate, and inline
+ * tokens are replaced as each bean is instantiated, which requires this configurer to also be registered as a bean
+ * post processor (an application context does so automatically).
+ * <p/>
+ * Copyright (C) 2011 Edmunds.com
+ */
+public class EnvironmentPropertyConfigurer extends InstantiationAwareBeanPostProcessorAdapter
+        implements BeanFactoryPostProcessor, BeanNameAware, Ordered {
+
+    /**
+     * Logger for this class.
+     */
+    private static final Logger log = Logger.getLogger(EnvironmentPropertyConfigurer.class);
+
+    private static final String LOCAL_PROPERTY = "local";
+    private static final String MANAGED_PROPERTY = "managed";
+    private static final String RESOLVED_PROPERTY = "property";
+
+    /**
+     * Delegate used to resolve values, looked up from the bean factory if not set.
+     */
+    private ConfigurationUtil configurationUtil;
+
+    /**
+     * Should tokens embedded in the values of other bean definitions be replaced.
+     */
+    private boolean resolveInlineTokens = true;
+
+    private int order = Ordered.LOWEST_PRECEDENCE;
+
+    private String beanName;
+
+    /**
+     * Bean factory whose inline tokens are replaced as beans are instantiated, null unless resolution is deferred.
+     */
+    private volatile ConfigurableListableBeanFactory deferredBeanFactory;
+
+    /**
+     * Name of the configuration util bean looked up when resolution is deferred.
+     */
+    private String deferredUtilName;
+
+    /**
+     * The configuration util looked up when resolution is deferred, null until the first bean is instantiated.
+     */
+    private volatile ConfigurationUtil deferredUtil;
+
+    /**
+     * Is the deferred configuration util being created.
+     */
+    private boolean creatingDeferredUtil;
+
+    /**
+     * Names of the beans whose definitions have had their inline tokens replaced when resolution is deferred.
+     */
+    private final Set<String> deferredResolved =
+            Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    /**
+     * Default Constructor.
+     */
+    public EnvironmentPropertyConfigurer() {
+    }
+
+    /**
+     * Unit test constructor.
+     *
+     * @param configurationUtil configuration util object to use.
+     */
+    public EnvironmentPropertyConfigurer(ConfigurationUtil configurationUtil) {
+        this.configurationUtil = configurationUtil;
+    }
+
+    @Override
+    public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) throws BeansException {
+        final ConfigurationUtil util = getConfigurationUtil(beanFactory);
+        if (util == null) {
+            log.debug("ConfigurationUtil not created yet, deferring resolution until beans are instantiated");
+            deferredBeanFactory = beanFactory;
+            return;
+        }
+
+        final BeanDefinitionVisitor visitor = resolveInlineTokens ? newVisitor(util) : null;
+
+        final long start = System.nanoTime();
+        int resolved = 0;
+
+        for (String name : beanFactory.getBeanDefinitionNames()) {
+            if (name.equals(beanName)) {
+                continue;
+            }
+
+            final BeanDefinition definition = beanFactory.getBeanDefinition(name);
+            final BeanDefinition merged = beanFactory.getMergedBeanDefinition(name);
+
+            try {
+                if (EnvironmentPropertyFactory.class.getName().equals(merged.getBeanClassName())) {
+                    if (resolveFactory(util, name, merged, definition)) {
+                        resolved++;
+                    }
+                } else if (visitor != null) {
+                    visitor.visitBeanDefinition(definition);
+                }
+            } catch (RuntimeException e) {
+                throw new BeanDefinitionStoreException(definition.getResourceDescription(), name, e.getMessage(), e);
+            }
+        }
+
+        final long nanos = System.nanoTime() - start;
+        if (log.isDebugEnabled()) {
+            log.debug("Resolved " + resolved + " environment properties in " + (nanos / 1000000L) + "ms");
+        }
+
+        final ResolutionTrace trace = ResolutionTrace.getInstance();
+        if (trace.isEnabled()) {
+            trace.record("EnvironmentPropertyConfigurer", "resolvedProperties", String.valueOf(resolved),
+                    null, false, nanos);
+        }
+    }
+
+    private boolean resolveFactory(
+            ConfigurationUtil util, String name, BeanDefinition merged, BeanDefinition definition) {
+
+        if (merged.isAbstract()) {
+            return false;
+        }
+
+        final MutablePropertyValues values = merged.getPropertyValues();
+        if (values.contains(RESOLVED_PROPERTY)) {
+            return false;
+        }
+
+        final PropertyValue local = values.getPropertyValue(LOCAL_PROPERTY);
+        final PropertyValue managed = values.getPropertyValue(MANAGED_PROPERTY);
+        if (!isStatic(local) || !isStatic(managed)) {
+            log.debug("Skipping non static environment property: " + name);
+            return false;
+        }
+
+        final String property = util.replacePropertyTokens(stringValue(local), stringValue(managed));
+        if (property == null) {
+            return false;
+        }
+
+        definition.getPropertyValues().addPropertyValue(RESOLVED_PROPERTY, property);
+        return true;
+    }
+
+    private static boolean isStatic(PropertyValue propertyValue) {
+        if (propertyValue == null) {
+            return true;
+        }
+        final Object value = propertyValue.getValue();
+        return value == null || value instanceof String || value instanceof TypedStringValue;
+    }
+
+    private static String stringValue(PropertyValue propertyValue) {
+        if (propertyValue == null) {
+            return null;
+        }
+        final Object value = propertyValue.getValue();
+        if (value instanceof TypedStringValue) {
+            return ((TypedStringValue) value).getValue();
+        }
+        return (String) value;
+    }
+
+    private static BeanDefinitionVisitor newVisitor(final ConfigurationUtil util) {
+        return new BeanDefinitionVisitor(new StringValueResolver() {
+            @Override
+            public String resolveStringValue(String value) {
+                return util.replaceTokens(value);
+            }
+        });
+    }
+
+    /**
+     * Replaces the inline tokens of a bean definition just before the bean is instantiated, when resolution has been
+     * deferred.
+     */
+    @Override
+    public Object postProcessBeforeInstantiation(Class beanClass, String beanName) throws BeansException {
+        final ConfigurableListableBeanFactory beanFactory = deferredBeanFactory;
+        if (beanFactory == null || !resolveInlineTokens
+                || !beanFactory.containsBeanDefinition(beanName) || deferredResolved.contains(beanName)) {
+            return null;
+        }
+
+        final BeanDefinition merged = beanFactory.getMergedBeanDefinition(beanName);
+        if (EnvironmentPropertyFactory.class.getName().equals(merged.getBeanClassName()) || !hasTokens(merged)) {
+            // Factories resolve through their own delegate, and the configuration beans themselves have no tokens.
+            deferredResolved.add(beanName);
+            return null;
+        }
+
+        final ConfigurationUtil util = getDeferredUtil(beanFactory);
+        if (util != null) {
+            newVisitor(util).visitBeanDefinition(merged);
+            deferredResolved.add(beanName);
+        }
+        return null;
+    }
+
+    private static boolean hasTokens(BeanDefinition definition) {
+        final boolean[] found = new boolean[1];
+        new BeanDefinitionVisitor(new StringValueResolver() {
+            @Override
+            public String resolveStringValue(String value) {
+                if (!found[0] && value != null && TokenTemplate.compile(value).hasTokens()) {
+                    found[0] = true;
+                }
+                return value;
+            }
+        }).visitBeanDefinition(definition);
+        return found[0];
+    }
+
+    private ConfigurationUtil getDeferredUtil(ConfigurableListableBeanFactory beanFactory) {
+        final ConfigurationUtil util = deferredUtil;
+        if (util != null) {
+            return util;
+        }
+
+        synchronized (this) {
+            if (deferredUtil == null && !creatingDeferredUtil) {
+                creatingDeferredUtil = true;
+                try {
+                    deferredUtil = (ConfigurationUtil) beanFactory.getBean(deferredUtilName);
+                } finally {
+                    creatingDeferredUtil = false;
+                }
+            }
+            return deferredUtil;
+        }
+    }
+
+    /**
+     * Returns the configuration util if it is available without creating a bean that needs annotation driven
+     * injection.
+     * <p/>
+     * A util bean whose definition has explicit constructor arguments, as in {@code configuration-common-spring.xml},
+     * is created here; the beans it depends on must then be wired explicitly too.
+     *
+     * @return the configuration util or null if its bean has not been created yet.
+     */
+    private ConfigurationUtil getConfigurationUtil(ConfigurableListableBeanFactory beanFactory) {
+        if (configurationUtil != null) {
+            return configurationUtil;
+        }
+
+        final String name = findConfigurationUtilName(beanFactory);
+        if (beanFactory.containsSingleton(name)
+                || !beanFactory.getMergedBeanDefinition(name).getConstructorArgumentValues().isEmpty()) {
+            return (ConfigurationUtil) beanFactory.getBean(name);
+        }
+        deferredUtilName = name;
+        return null;
+    }
+
+    /**
+     * Returns the name of the configuration util bean, the primary one if there are several.
+     */
+    private static String findConfigurationUtilName(ConfigurableListableBeanFactory beanFactory) {
+        final String[] names = beanFactory.getBeanNamesForType(ConfigurationUtil.class, false, false);
+        if (names.length == 1) {
+            return names[0];
+        }
+
+        final List<String> primary = new ArrayList<String>();
+        for (String name : names) {
+            if (beanFactory.containsBeanDefinition(name)
+                    && isPrimary(beanFactory.getMergedBeanDefinition(name))) {
+                primary.add(name);
+            }
+        }
+        if (primary.size() != 1) {
+            throw new IllegalStateException("Expected a single (or a single primary) ConfigurationUtil bean but found "
+                    + names.length + ": " + Arrays.asList(names));
+        }
+        return primary.get(0);
+    }
+
+    private static boolean isPrimary(BeanDefinition definition) {
+        return definition instanceof AbstractBeanDefinition && ((AbstractBeanDefinition) definition).isPrimary();
+    }
+
+    /**
+     * Returns the delegate used to resolve values.
+     *
+     * @return the configuration util, null if it will be looked up from the bean factory.
+     */
+    public ConfigurationUtil getConfigurationUtil() {
+        return configurationUtil;
+    }
+
+    /**
+     * Sets the delegate used to resolve values.
+     *
+     * @param configurationUtil the configuration util.
+     */
+    public void setConfigurationUtil(ConfigurationUtil configurationUtil) {
+        this.configurationUtil = configurationUtil;
+    }
+
+    /**
+     * Should tokens embedded in the string values of other bean definitions be replaced.
+     *
+     * @return true if inline tokens are replaced (default: true).
+     */
+    public boolean isResolveInlineTokens() {
+        return resolveInlineTokens;
+    }
+
+    /**
+     * Sets if tokens embedded in the string values of other bean definitions should be replaced.
+     *
+     * @param resolveInlineTokens true to replace inline tokens.
+     */
+    public void setResolveInlineTokens(boolean resolveInlineTokens) {
+        this.resolveInlineTokens = resolveInlineTokens;
+    }
+
+    @Override
+    public int getOrder() {
+        return order;
+    }
+
+    public void setOrder(int order) {
+        this.order = order;
+    }
+
+    @Override
+    public void setBeanName(String beanName) {
+        this.beanName = beanName;
+    }
+}
@@ -129,6 +129,16 @@ public class EnvironmentPropertyFactory implements FactoryBean {
      */
     private String managed;
 
+    /**
+     * The pre-resolved property value, set by {@link EnvironmentPropertyConfigurer}.
+     */
+    private String property;
+
+    /**
+     * The value returned by {@link #getObject()}, computed on first use.
+     */
+    private volatile String object;
+
     /**
      * Default Constructor.
      */
@@ -147,14 +157,31 @@ public class EnvironmentPropertyFactory implements FactoryBean {
     /**
      * Gets the appropriate property depending on the current environment and performs any variable replacements
      * necessary on it before returning it.
+     * <p/>
+     * If the property has already been resolved (see {@link #setProperty(String)}) that value is returned as is.
      *
      * @return the processed property value.
      */
     public String getProperty() {
-        log.debug("managed value: '" + managed + "'");
+        if (property != null) {
+            return property;
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("managed value: '" + managed + "'");
+        }
         return configurationUtil.replacePropertyTokens(local, managed);
     }
 
+    /**
+     * Sets the already resolved property value, bypassing the local/managed selection and token replacement.
+     *
+     * @param property the resolved property value.
+     */
+    public void setProperty(String property) {
+        this.property = property;
+        this.object = null;
+    }
+
     /**
      * Parses the given value and replaces standard variables with their values. (environment name, host name, etc)
      *
@@ -167,13 +194,21 @@ public class EnvironmentPropertyFactory implements FactoryBean {
 
     /**
      * Spring factory method to return the Object being manufactured by this Factory.
+     * <p/>
+     * The value is computed on the first call and cached, since this factory is a singleton.
      *
-     * @return the security context.
+     * @return the processed property value.
      */
     public Object getObject() {
-        String property = getProperty();
-        log.debug("Using property value: '" + property + "'");
-        return property;
+        String value = object;
+        if (value == null) {
+            value = getProperty();
+            object = value;
+            if (log.isDebugEnabled()) {
+                log.debug("Using property value: '" + value + "'");
+            }
+        }
+        return value;
     }
 
     /**
@@ -210,6 +245,7 @@ public class EnvironmentPropertyFactory implements FactoryBean {
      */
     public void setLocal(String local) {
         this.local = local;
+        this.object = null;
     }
 
     /**
@@ -228,5 +264,6 @@ public class EnvironmentPropertyFactory implements FactoryBean {
      */
     public void setManaged(String managed) {
         this.managed = managed;
+        this.object = null;
     }
 }
@@ -0,0 +1,328 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.api;
+
+import org.apache.commons.lang.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An ordered table of environment conditions and the values to use when they match, compiled into bit masks.
+ * <p/>
+ * Each line of the table has the form {@code condition -> value}, the value of the first matching line is selected.
+ * A condition is a {@code ||} separated list of clauses, each a {@code &&} separated list of terms, and {@code *}
+ * matches every environment. A term is either {@code attribute=value} or a bare value, optionally negated with
+ * {@code !}:
+ * <ul>
+ * <li>{@code env}, {@code logical}, {@code dc}, {@code index}, {@code site}: the environment name, logical
+ * environment name, data center, environment index and site.
+ * <li>{@code local}: {@code true} or {@code false}, a bare {@code local} is short for {@code local=true}.
+ * <li>a bare value matches if any of the named attributes above has that value.
+ * </ul>
+ * Values are compared ignoring case. For example:
+ * <pre>
+ *  prod &amp;&amp; lax1 -&gt; http://lax1.edmunds.com/
+ *  logical=qa || logical=pi -&gt; http://[URL_PREFIX]qa.edmunds.com/
+ *  !local &amp;&amp; site=insideline -&gt; http://[URL_PREFIX]www.insideline.com/
+ *  * -&gt; http://localhost/
+ * </pre>
+ * Every distinct term is given one bit; selecting a value evaluates each term once against the environment and
+ * then tests each clause with a single mask comparison. A table can contain at most 64 distinct terms.
+ * <p/>
+ * Copyright (C) 2011 Edmunds.com
+ */
+public final class EnvironmentRules {
+
+    /**
+     * Separator between a condition and its value.
+     */
+    public static final String ARROW = "->";
+
+    private static final int MAX_TERMS = 64;
+
+    private final Term[] terms;
+
+    /**
+     * Terms that must hold for each clause, clauses of a rule are consecutive.
+     */
+    private final long[] requiredMasks;
+
+    /**
+     * Terms that must not hold for each clause.
+     */
+    private final long[] forbiddenMasks;
+
+    /**
+     * The rule each clause belongs to.
+     */
+    private final int[] clauseRules;
+
+    private final String[] values;
+
+    private EnvironmentRules(List<Term> terms, List<long[]> clauses, List<Integer> clauseRules, List<String> values) {
+        this.terms = terms.toArray(new Term[terms.size()]);
+        this.requiredMasks = new long[clauses.size()];
+        this.forbiddenMasks = new long[clauses.size()];
+        this.clauseRules = new int[clauses.size()];
+        for (int i = 0; i < clauses.size(); i++) {
+            requiredMasks[i] = clauses.get(i)[0];
+            forbiddenMasks[i] = clauses.get(i)[1];
+            this.clauseRules[i] = clauseRules.get(i);
+        }
+        this.values = values.toArray(new String[values.size()]);
+    }
+
+    /**
+     * Compiles a rule table with one rule per line, blank lines and lines starting with {@code #} are ignored.
+     *
+     * @param rules the rule table.
+     * @return the compiled rules.
+     * @throws IllegalArgumentException if a rule cannot be parsed.
+     */
+    public static EnvironmentRules compile(String rules) {
+        return compile(Arrays.asList(rules.split("[\r\n]+")));
+    }
+
+    /**
+     * Compiles a list of rules.
+     *
+     * @param rules the rules, blank rules and rules starting with {@code #} are ignored.
+     * @return the compiled rules.
+     * @throws IllegalArgumentException if a rule cannot be parsed.
+     */
+    public static EnvironmentRules compile(List<String> rules) {
+        final List<Term> terms = new ArrayList<Term>();
+        final List<long[]> clauses = new ArrayList<long[]>();
+        final List<Integer> clauseRules = new ArrayList<Integer>();
+        final List<String> values = new ArrayList<String>();
+
+        for (String rule : rules) {
+            final String trimmed = rule.trim();
+            if (trimmed.length() == 0 || trimmed.startsWith("#")) {
+                continue;
+            }
+
+            final int arrow = trimmed.indexOf(ARROW);
+            if (arrow < 0) {
+                throw new IllegalArgumentException("Missing '" + ARROW + "' in environment rule: " + rule);
+            }
+            final String condition = trimmed.substring(0, arrow).trim();
+            final int ruleIndex = values.size();
+            values.add(trimmed.substring(arrow + ARROW.length()).trim());
+
+            if ("*".equals(condition)) {
+                clauses.add(new long[]{0L, 0L});
+                clauseRules.add(ruleIndex);
+                continue;
+            }
+            for (String clause : StringUtils.splitByWholeSeparator(condition, "||")) {
+                clauses.add(compileClause(clause, terms, rule));
+                clauseRules.add(ruleIndex);
+            }
+        }
+        return new EnvironmentRules(terms, clauses, clauseRules, values);
+    }
+
+    private static long[] compileClause(String clause, List<Term> terms, String rule) {
+        long required = 0L;
+        long forbidden = 0L;
+
+        for (String text : StringUtils.splitByWholeSeparator(clause, "&&")) {
+            String term = text.trim();
+            boolean negated = false;
+            if (term.startsWith("!")) {
+                negated = true;
+                term = term.substring(1).trim();
+            }
+            if (term.length() == 0) {
+                throw new IllegalArgumentException("Empty term in environment rule: " + rule);
+            }
+
+            final long bit = 1L << termIndex(Term.parse(term, rule), terms);
+            if (negated) {
+                forbidden |= bit;
+            } else {
+                required |= bit;
+            }
+        }
+        return new long[]{required, forbidden};
+    }
+
+    private static int termIndex(Term term, List<Term> terms) {
+        final int index = terms.indexOf(term);
+        if (index >= 0) {
+            return index;
+        }
+        if (terms.size() == MAX_TERMS) {
+            throw new IllegalArgumentException("Environment rules can contain at most " + MAX_TERMS + " terms");
+        }
+        terms.add(term);
+        return terms.size() - 1;
+    }
+
+    /**
+     * Evaluates every term against an environment.
+     *
+     * @param environment the environment.
+     * @return a mask with the bit of each term that holds set.
+     */
+    long evaluate(EnvironmentSnapshot environment) {
+        long mask = 0L;
+        for (int i = 0; i < terms.length; i++) {
+            if (terms[i].matches(environment)) {
+                mask |= 1L << i;
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Returns the index of the first rule that matches an environment.
+     *
+     * @param environment the environment.
+     * @return the rule index or -1 if no rule matches.
+     */
+    public int indexOf(EnvironmentSnapshot environment) {
+        final long mask = evaluate(environment);
+        for (int i = 0; i < clauseRules.length; i++) {
+            if ((mask & requiredMasks[i]) == requiredMasks[i] && (mask & forbiddenMasks[i]) == 0L) {
+                return clauseRules[i];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the value of the first rule that matches an environment.
+     *
+     * @param environment the environment.
+     * @return the value, tokens are not replaced, or null if no rule matches.
+     */
+    public String select(EnvironmentSnapshot environment) {
+        final int index = indexOf(environment);
+        return index < 0 ? null : values[index];
+    }
+
+    /**
+     * Returns the number of rules.
+     *
+     * @return the number of rules.
+     */
+    public int size() {
+        return values.length;
+    }
+
+    /**
+     * Returns the value of a rule.
+     *
+     * @param index the rule index.
+     * @return the value.
+     */
+    public String getValue(int index) {
+        return values[index];
+    }
+
+    private enum Attribute {
+        ENVIRONMENT("env"),
+        LOGICAL("logical"),
+        DATA_CENTER("dc"),
+        INDEX("index"),
+        SITE("site"),
+        LOCAL("local"),
+        ANY(null);
+
+        private final String name;
+
+        Attribute(String name) {
+            this.name = name;
+        }
+
+        static Attribute forName(String name, String rule) {
+            for (Attribute attribute : values()) {
+                if (name.equalsIgnoreCase(attribute.name)) {
+                    return attribute;
+                }
+            }
+            throw new IllegalArgumentException("Unknown attribute '" + name + "' in environment rule: " + rule);
+        }
+    }
+
+    private static final class Term {
+        private final Attribute attribute;
+        private final String value;
+
+        Term(Attribute attribute, String value) {
+            this.attribute = attribute;
+            this.value = value;
+        }
+
+        static Term parse(String term, String rule) {
+            final int equals = term.indexOf('=');
+            if (equals < 0) {
+                if (term.equalsIgnoreCase(Attribute.LOCAL.name)) {
+                    return new Term(Attribute.LOCAL, "true");
+                }
+                return new Term(Attribute.ANY, term);
+            }
+
+            final Attribute attribute = Attribute.forName(term.substring(0, equals).trim(), rule);
+            final String value = term.substring(equals + 1).trim();
+            if (attribute == Attribute.LOCAL && !"true".equalsIgnoreCase(value) && !"false".equalsIgnoreCase(value)) {
+                throw new IllegalArgumentException("Expected local=true or local=false in environment rule: " + rule);
+            }
+            return new Term(attribute, value);
+        }
+
+        boolean matches(EnvironmentSnapshot environment) {
+            switch (attribute) {
+                case ENVIRONMENT:
+                    return value.equalsIgnoreCase(environment.getEnvironmentName());
+                case LOGICAL:
+                    return value.equalsIgnoreCase(environment.getLogicalEnvironmentName());
+                case DATA_CENTER:
+                    return value.equalsIgnoreCase(environment.getDataCenter());
+                case INDEX:
+                    return value.equalsIgnoreCase(environment.getEnvironmentIndex());
+                case SITE:
+                    return value.equalsIgnoreCase(environment.getSite());
+                case LOCAL:
+                    return Boolean.valueOf(value.toLowerCase()) == environment.isLocalEnvironment();
+                default:
+                    return value.equalsIgnoreCase(environment.getEnvironmentName())
+                            || value.equalsIgnoreCase(environment.getLogicalEnvironmentName())
+                            || value.equalsIgnoreCase(environment.getDataCenter())
+                            || value.equalsIgnoreCase(environment.getEnvironmentIndex())
+                            || value.equalsIgnoreCase(environment.getSite());
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Term)) {
+                return false;
+            }
+            final Term other = (Term) o;
+            return attribute == other.attribute && value.equalsIgnoreCase(other.value);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * attribute.hashCode() + value.toLowerCase().hashCode();
+        }
+    }
+}
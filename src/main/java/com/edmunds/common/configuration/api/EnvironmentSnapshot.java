@@ -0,0 +1,332 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.api;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Immutable copy of an {@link EnvironmentConfiguration} and its {@link EnvironmentConnection}.
+ * <p/>
+ * Every snapshot is given a version that is unique within the process and increases each time a new snapshot is
+ * captured, so caches can be keyed on {@link #getVersion()} instead of the values themselves. The
+ * {@link #getContentHash() content hash} is computed once and lets two snapshots be compared cheaply.
+ * <p/>
+ * The getters match those of the configuration and connection beans, so a snapshot can be read in their place.
+ * <p/>
+ * The {@link #getSelectionKeys() selection keys} used to look the environment up in per environment value tables
+ * are also computed once, when the snapshot is captured.
+ * <p/>
+ * Copyright (C) 2011 Edmunds.com
+ */
+public final class EnvironmentSnapshot {
+
+    /**
+     * Selection key matched by every environment.
+     */
+    public static final String DEFAULT_KEY = "default";
+
+    /**
+     * Selection key matched by developer workstations.
+     */
+    public static final String LOCAL_KEY = "local";
+
+    /**
+     * Separator between an environment name and a data center in a selection key.
+     */
+    public static final char DATA_CENTER_SEPARATOR = '/';
+
+    private static final AtomicLong VERSIONS = new AtomicLong();
+
+    private final long version;
+    private final long contentHash;
+
+    private final boolean localEnvironment;
+    private final String environmentName;
+    private final String logicalEnvironmentName;
+    private final String environmentIndex;
+    private final String dataCenter;
+    private final String site;
+    private final String urlPrefix;
+    private final String urlLegacyPrefix;
+    private final String internalEnvironmentName;
+    private final String internalDataCenter;
+
+    private final String[] selectionKeys;
+
+    private EnvironmentSnapshot(EnvironmentConfiguration configuration, EnvironmentConnection connection) {
+        this.localEnvironment = configuration.isLocalEnvironment();
+        this.environmentName = configuration.getEnvironmentName();
+        this.logicalEnvironmentName = configuration.getLogicalEnvironmentName();
+        this.environmentIndex = configuration.getEnvironmentIndex();
+        this.dataCenter = configuration.getDataCenter();
+        this.site = configuration.getSite();
+        this.urlPrefix = configuration.getUrlPrefix();
+        this.urlLegacyPrefix = configuration.getUrlLegacyPrefix();
+        this.internalEnvironmentName = connection.getInternalEnvironmentName();
+        this.internalDataCenter = connection.getInternalDataCenter();
+
+        long hash = localEnvironment ? 1L : 0L;
+        hash = hash(hash, environmentName);
+        hash = hash(hash, logicalEnvironmentName);
+        hash = hash(hash, environmentIndex);
+        hash = hash(hash, dataCenter);
+        hash = hash(hash, site);
+        hash = hash(hash, urlPrefix);
+        hash = hash(hash, urlLegacyPrefix);
+        hash = hash(hash, internalEnvironmentName);
+        hash = hash(hash, internalDataCenter);
+        this.contentHash = hash;
+        this.selectionKeys = buildSelectionKeys();
+
+        this.version = VERSIONS.incrementAndGet();
+    }
+
+    /**
+     * Captures the current values of a configuration and connection.
+     *
+     * @param configuration the configuration.
+     * @param connection    the connection.
+     * @return a new snapshot with the next version.
+     */
+    public static EnvironmentSnapshot capture(
+            EnvironmentConfiguration configuration, EnvironmentConnection connection) {
+        return new EnvironmentSnapshot(configuration, connection);
+    }
+
+    /**
+     * Returns the environment a configuration util currently replaces its tokens with.
+     *
+     * @param configurationUtil a configuration util that implements {@link SnapshotConfigurationUtil}.
+     * @return the current environment snapshot.
+     * @throws IllegalArgumentException if the configuration util does not provide snapshots.
+     */
+    public static EnvironmentSnapshot of(ConfigurationUtil configurationUtil) {
+        if (configurationUtil instanceof SnapshotConfigurationUtil) {
+            return ((SnapshotConfigurationUtil) configurationUtil).getEnvironmentSnapshot();
+        }
+        throw new IllegalArgumentException("ConfigurationUtil does not provide environment snapshots: "
+                + configurationUtil);
+    }
+
+    private String[] buildSelectionKeys() {
+        final List<String> keys = new ArrayList<String>();
+        if (localEnvironment) {
+            keys.add(LOCAL_KEY);
+        }
+        addSelectionKey(keys, environmentName, dataCenter);
+        addSelectionKey(keys, environmentName, null);
+        addSelectionKey(keys, logicalEnvironmentName, dataCenter);
+        addSelectionKey(keys, logicalEnvironmentName, null);
+        addSelectionKey(keys, dataCenter, null);
+        keys.add(DEFAULT_KEY);
+        return keys.toArray(new String[keys.size()]);
+    }
+
+    private static void addSelectionKey(List<String> keys, String name, String dataCenter) {
+        if (name == null || name.length() == 0) {
+            return;
+        }
+        final String key = dataCenter == null || dataCenter.length() == 0
+                ? name.toLowerCase()
+                : name.toLowerCase() + DATA_CENTER_SEPARATOR + dataCenter.toLowerCase();
+        if (!keys.contains(key)) {
+            keys.add(key);
+        }
+    }
+
+    private static long hash(long hash, String value) {
+        return hash * 1000003L ^ (value == null ? 0L : value.hashCode());
+    }
+
+    /**
+     * Returns the version of this snapshot, later snapshots have higher versions.
+     *
+     * @return the version.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns a hash of the values held by this snapshot, equal for snapshots with the same content.
+     *
+     * @return the content hash.
+     */
+    public long getContentHash() {
+        return contentHash;
+    }
+
+    /**
+     * Indicates if another snapshot holds the same values, regardless of version.
+     *
+     * @param other the snapshot to compare to.
+     * @return true if all values are equal.
+     */
+    public boolean hasSameContent(EnvironmentSnapshot other) {
+        if (other == this) {
+            return true;
+        }
+        return other != null
+                && contentHash == other.contentHash
+                && localEnvironment == other.localEnvironment
+                && equal(environmentName, other.environmentName)
+                && equal(logicalEnvironmentName, other.logicalEnvironmentName)
+                && equal(environmentIndex, other.environmentIndex)
+                && equal(dataCenter, other.dataCenter)
+                && equal(site, other.site)
+                && equal(urlPrefix, other.urlPrefix)
+                && equal(urlLegacyPrefix, other.urlLegacyPrefix)
+                && equal(internalEnvironmentName, other.internalEnvironmentName)
+                && equal(internalDataCenter, other.internalDataCenter);
+    }
+
+    /**
+     * Returns the keys this environment is looked up by in a per environment value table, most specific first.
+     * <p/>
+     * The keys are lower case and in this order: {@code local} (local mode only), {@code <environment>/<dataCenter>},
+     * {@code <environment>}, {@code <logical>/<dataCenter>}, {@code <logical>}, {@code <dataCenter>} and
+     * {@code default}. Duplicate keys are dropped.
+     *
+     * @return the selection keys.
+     */
+    public List<String> getSelectionKeys() {
+        return Collections.unmodifiableList(Arrays.asList(selectionKeys));
+    }
+
+    /**
+     * Returns the selection keys without copying them, callers must not modify the array.
+     *
+     * @return the selection keys.
+     */
+    String[] selectionKeys() {
+        return selectionKeys;
+    }
+
+    private static boolean equal(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    /**
+     * Returns a new, mutable configuration holding the values of this snapshot.
+     *
+     * @return the configuration.
+     */
+    public EnvironmentConfiguration toEnvironmentConfiguration() {
+        final EnvironmentConfiguration configuration = new EnvironmentConfiguration();
+        configuration.setLocalEnvironment(localEnvironment);
+        configuration.setEnvironmentName(environmentName);
+        configuration.setLogicalEnvironmentName(logicalEnvironmentName);
+        configuration.setEnvironmentIndex(environmentIndex);
+        configuration.setDataCenter(dataCenter);
+        configuration.setSite(site);
+        configuration.setUrlPrefix(urlPrefix);
+        configuration.setUrlLegacyPrefix(urlLegacyPrefix);
+        return configuration;
+    }
+
+    /**
+     * Returns a new, mutable connection holding the values of this snapshot.
+     *
+     * @return the connection.
+     */
+    public EnvironmentConnection toEnvironmentConnection() {
+        final EnvironmentConnection connection = new EnvironmentConnection();
+        connection.setInternalEnvironmentName(internalEnvironmentName);
+        connection.setInternalDataCenter(internalDataCenter);
+        return connection;
+    }
+
+    /**
+     * See {@link EnvironmentConfiguration#isLocalEnvironment()}.
+     */
+    public boolean isLocalEnvironment() {
+        return localEnvironment;
+    }
+
+    /**
+     * See {@link EnvironmentConfiguration#getEnvironmentName()}.
+     */
+    public String getEnvironmentName() {
+        return environmentName;
+    }
+
+    /**
+     * See {@link EnvironmentConfiguration#getLogicalEnvironmentName()}.
+     */
+    public String getLogicalEnvironmentName() {
+        return logicalEnvironmentName;
+    }
+
+    /**
+     * See {@link EnvironmentConfiguration#getEnvironmentIndex()}.
+     */
+    public String getEnvironmentIndex() {
+        return environmentIndex;
+    }
+
+    /**
+     * See {@link EnvironmentConfiguration#getDataCenter()}.
+     */
+    public String getDataCenter() {
+        return dataCenter;
+    }
+
+    /**
+     * See {@link EnvironmentConfiguration#getSite()}.
+     */
+    public String getSite() {
+        return site;
+    }
+
+    /**
+     * See {@link EnvironmentConfiguration#getUrlPrefix()}.
+     */
+    public String getUrlPrefix() {
+        return urlPrefix;
+    }
+
+    /**
+     * See {@link EnvironmentConfiguration#getUrlLegacyPrefix()}.
+     */
+    public String getUrlLegacyPrefix() {
+        return urlLegacyPrefix;
+    }
+
+    /**
+     * See {@link EnvironmentConnection#getInternalEnvironmentName()}.
+     */
+    public String getInternalEnvironmentName() {
+        return internalEnvironmentName;
+    }
+
+    /**
+     * See {@link EnvironmentConnection#getInternalDataCenter()}.
+     */
+    public String getInternalDataCenter() {
+        return internalDataCenter;
+    }
+
+    @Override
+    public String toString() {
+        return "EnvironmentSnapshot{version=" + version + ", environmentName=" + environmentName
+                + ", logicalEnvironmentName=" + logicalEnvironmentName + ", dataCenter=" + dataCenter
+                + ", site=" + site + ", localEnvironment=" + localEnvironment + "}";
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.api;
+
+import org.springframework.beans.factory.FactoryBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Spring factory that selects a property value from a table keyed by environment, replacing nested local/managed
+ * beans that are switched by hand.
+ * <p/>
+ * The table keys are matched, ignoring case, against the {@link EnvironmentSnapshot#getSelectionKeys() selection
+ * keys} of the current environment, most specific first: {@code local} in local mode, then
+ * {@code <environment>/<dataCenter>}, {@code <environment>}, {@code <logical>/<dataCenter>}, {@code <logical>},
+ * {@code <dataCenter>} and finally {@code default}. The selection keys are computed once per snapshot and the
+ * selected value, with its tokens replaced, is cached until the snapshot changes.
+ * <p/>
+ * Usage:
+ * <pre>
+ *  &lt;bean id="searchUrl" class="com.edmunds.common.configuration.api.EnvironmentTablePropertyFactory"&gt;
+ *      &lt;property name="values"&gt;
+ *          &lt;map&gt;
+ *              &lt;entry key="local" value="http://localhost:8080/search/"/&gt;
+ *              &lt;entry key="prod/lax1" value="http://search-lax1.edmunds.com/"/&gt;
+ *              &lt;entry key="prod" value="http://search.edmunds.com/"/&gt;
+ *              &lt;entry key="default" value="http://[URL_PREFIX]search.edmunds.com/"/&gt;
+ *          &lt;/map&gt;
+ *      &lt;/property&gt;
+ *  &lt;/bean&gt;
+ * </pre>
+ * <p/>
+ * Copyright (C) 2011 Edmunds.com
+ */
+public class EnvironmentTablePropertyFactory implements FactoryBean, InitializingBean {
+
+    /**
+     * Delegate used to read the environment and replace tokens.
+     */
+    @Autowired
+    private ConfigurationUtil configurationUtil;
+
+    /**
+     * The table as configured.
+     */
+    private Map<String, String> values;
+
+    /**
+     * The table keyed by lower case key, built on first use.
+     */
+    private volatile Map<String, String> index;
+
+    /**
+     * The value selected for the most recent snapshot.
+     */
+    private final SnapshotSelection selection = new SnapshotSelection();
+
+    /**
+     * Default Constructor.
+     */
+    public EnvironmentTablePropertyFactory() {
+    }
+
+    /**
+     * Unit test constructor.
+     *
+     * @param configurationUtil configuration util object to use.
+     */
+    public EnvironmentTablePropertyFactory(ConfigurationUtil configurationUtil) {
+        this.configurationUtil = configurationUtil;
+    }
+
+    /**
+     * Selects the value for the current environment so configuration errors are reported when the context starts.
+     */
+    @Override
+    public void afterPropertiesSet() {
+        getProperty();
+    }
+
+    /**
+     * Returns the value for the current environment, with its tokens replaced.
+     *
+     * @return the property value.
+     * @throws IllegalStateException if the table has no value for the current environment.
+     */
+    public String getProperty() {
+        final EnvironmentSnapshot snapshot = EnvironmentSnapshot.of(configurationUtil);
+        final String selected = selection.get(snapshot);
+        if (selected != null) {
+            return selected;
+        }
+
+        final Map<String, String> table = getIndex();
+        String value = null;
+        for (String key : snapshot.selectionKeys()) {
+            value = table.get(key);
+            if (value != null) {
+                break;
+            }
+        }
+        if (value == null) {
+            throw new IllegalStateException(
+                    "No value for any of " + snapshot.getSelectionKeys() + " in environment table " + table.keySet());
+        }
+
+        return selection.set(snapshot, configurationUtil.replaceTokens(value));
+    }
+
+    private Map<String, String> getIndex() {
+        Map<String, String> current = index;
+        if (current == null) {
+            if (values == null) {
+                throw new IllegalStateException("No environment values have been set");
+            }
+            current = new HashMap<String, String>();
+            for (Map.Entry<String, String> entry : values.entrySet()) {
+                final String key = entry.getKey().trim().toLowerCase();
+                if (current.put(key, entry.getValue()) != null) {
+                    throw new IllegalArgumentException("Duplicate key '" + key + "' in environment table");
+                }
+            }
+            index = current;
+        }
+        return current;
+    }
+
+    /**
+     * Spring factory method to return the Object being manufactured by this Factory.
+     *
+     * @return the property value.
+     */
+    @Override
+    public Object getObject() {
+        return getProperty();
+    }
+
+    @Override
+    public Class getObjectType() {
+        return String.class;
+    }
+
+    @Override
+    public boolean isSingleton() {
+        return true;
+    }
+
+    /**
+     * Returns the value table.
+     *
+     * @return the values keyed by environment.
+     */
+    public Map<String, String> getValues() {
+        return values;
+    }
+
+    /**
+     * Sets the value table.
+     *
+     * @param values the values keyed by environment, see the class description for the keys.
+     */
+    public void setValues(Map<String, String> values) {
+        this.values = values;
+        this.index = null;
+        this.selection.clear();
+    }
+}
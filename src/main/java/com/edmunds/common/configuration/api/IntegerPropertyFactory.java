@@ -0,0 +1,49 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.api;
+
+/**
+ * Produces an {@code Integer} from a dual (local, managed) property value.
+ * <p/>
+ * Usage:
+ * <pre>
+ *  &lt;bean id="poolSize" class="com.edmunds.common.configuration.api.IntegerPropertyFactory"&gt;
+ *      &lt;property name="local" value="2"/&gt;
+ *      &lt;property name="managed" value="20"/&gt;
+ *  &lt;/bean&gt;
+ * </pre>
+ * See {@link PropertyType#INTEGER} for the accepted values.
+ * <p/>
+ * Copyright (C) 2011 Edmunds.com
+ */
+public class IntegerPropertyFactory extends TypedEnvironmentPropertyFactory<Integer> {
+
+    /**
+     * Default Constructor.
+     */
+    public IntegerPropertyFactory() {
+        super(PropertyType.INTEGER);
+    }
+
+    /**
+     * Unit test constructor.
+     *
+     * @param configurationUtil configuration util object to use.
+     */
+    public IntegerPropertyFactory(ConfigurationUtil configurationUtil) {
+        super(PropertyType.INTEGER, configurationUtil);
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.api;
+
+import java.util.List;
+
+/**
+ * Produces an unmodifiable {@code List} of {@code String}s from a dual (local, managed) property value.
+ * <p/>
+ * Usage:
+ * <pre>
+ *  &lt;bean id="servers" class="com.edmunds.common.configuration.api.ListPropertyFactory"&gt;
+ *      &lt;property name="local" value="localhost"/&gt;
+ *      &lt;property name="managed" value="web1.[URL_PREFIX]edmunds.com, web2.[URL_PREFIX]edmunds.com"/&gt;
+ *  &lt;/bean&gt;
+ * </pre>
+ * See {@link PropertyType#LIST} for the accepted values.
+ * <p/>
+ * Copyright (C) 2011 Edmunds.com
+ */
+public class ListPropertyFactory extends TypedEnvironmentPropertyFactory<List<String>> {
+
+    /**
+     * Default Constructor.
+     */
+    public ListPropertyFactory() {
+        super(PropertyType.LIST);
+    }
+
+    /**
+     * Unit test constructor.
+     *
+     * @param configurationUtil configuration util object to use.
+     */
+    public ListPropertyFactory(ConfigurationUtil configurationUtil) {
+        super(PropertyType.LIST, configurationUtil);
+    }
+}
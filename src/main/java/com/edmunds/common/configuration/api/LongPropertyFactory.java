@@ -0,0 +1,49 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.api;
+
+/**
+ * Produces a {@code Long} from a dual (local, managed) property value.
+ * <p/>
+ * Usage:
+ * <pre>
+ *  &lt;bean id="maxBytes" class="com.edmunds.common.configuration.api.LongPropertyFactory"&gt;
+ *      &lt;property name="local" value="1048576"/&gt;
+ *      &lt;property name="managed" value="104857600"/&gt;
+ *  &lt;/bean&gt;
+ * </pre>
+ * See {@link PropertyType#LONG} for the accepted values.
+ * <p/>
+ * Copyright (C) 2011 Edmunds.com
+ */
+public class LongPropertyFactory extends TypedEnvironmentPropertyFactory<Long> {
+
+    /**
+     * Default Constructor.
+     */
+    public LongPropertyFactory() {
+        super(PropertyType.LONG);
+    }
+
+    /**
+     * Unit test constructor.
+     *
+     * @param configurationUtil configuration util object to use.
+     */
+    public LongPropertyFactory(ConfigurationUtil configurationUtil) {
+        super(PropertyType.LONG, configurationUtil);
+    }
+}
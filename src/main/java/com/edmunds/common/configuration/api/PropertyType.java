@@ -0,0 +1,199 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.api;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Converts a resolved property value into a typed value.
+ * <p/>
+ * Values are trimmed before they are parsed. A value that cannot be parsed, including a null value, causes an
+ * {@code IllegalArgumentException} that names the offending value.
+ * <p/>
+ * Copyright (C) 2011 Edmunds.com
+ *
+ * @param <T> the type of the parsed value.
+ */
+public abstract class PropertyType<T> {
+
+    /**
+     * A decimal {@code int}.
+     */
+    public static final PropertyType<Integer> INTEGER = new PropertyType<Integer>("integer", Integer.class) {
+        @Override
+        protected Integer parseValue(String value) {
+            return Integer.valueOf(value);
+        }
+    };
+
+    /**
+     * A decimal {@code long}.
+     */
+    public static final PropertyType<Long> LONG = new PropertyType<Long>("long", Long.class) {
+        @Override
+        protected Long parseValue(String value) {
+            return Long.valueOf(value);
+        }
+    };
+
+    /**
+     * {@code true} or {@code false}, ignoring case. Any other value is rejected rather than treated as false.
+     */
+    public static final PropertyType<Boolean> BOOLEAN = new PropertyType<Boolean>("boolean", Boolean.class) {
+        @Override
+        protected Boolean parseValue(String value) {
+            if ("true".equalsIgnoreCase(value)) {
+                return Boolean.TRUE;
+            }
+            if ("false".equalsIgnoreCase(value)) {
+                return Boolean.FALSE;
+            }
+            throw new IllegalArgumentException("expected true or false");
+        }
+    };
+
+    /**
+     * A duration in milliseconds, written as a number with an optional unit: {@code ms}, {@code s}, {@code m},
+     * {@code h} or {@code d}, for example {@code 250ms} or {@code 30s}. A number without a unit is in milliseconds.
+     */
+    public static final PropertyType<Long> DURATION = new PropertyType<Long>("duration", Long.class) {
+        @Override
+        protected Long parseValue(String value) {
+            int end = value.length();
+            while (end > 0 && !Character.isDigit(value.charAt(end - 1))) {
+                end--;
+            }
+            final long amount = Long.parseLong(value.substring(0, end).trim());
+            if (amount < 0) {
+                throw new IllegalArgumentException("negative duration");
+            }
+            return durationUnit(value.substring(end).trim()).toMillis(amount);
+        }
+    };
+
+    /**
+     * An absolute or relative {@link URI}.
+     */
+    public static final PropertyType<URI> URI = new PropertyType<URI>("URI", URI.class) {
+        @Override
+        protected URI parseValue(String value) {
+            try {
+                return new URI(value);
+            } catch (URISyntaxException e) {
+                throw new IllegalArgumentException(e.getMessage(), e);
+            }
+        }
+    };
+
+    /**
+     * A comma separated list, each element is trimmed and empty elements are dropped. The list is unmodifiable.
+     */
+    @SuppressWarnings("unchecked")
+    public static final PropertyType<List<String>> LIST =
+            new PropertyType<List<String>>("list", (Class<List<String>>) (Class) List.class) {
+                @Override
+                protected List<String> parseValue(String value) {
+                    final List<String> list = new ArrayList<String>();
+                    for (String element : value.split(",")) {
+                        final String trimmed = element.trim();
+                        if (trimmed.length() != 0) {
+                            list.add(trimmed);
+                        }
+                    }
+                    return Collections.unmodifiableList(list);
+                }
+            };
+
+    private final String name;
+    private final Class<T> type;
+
+    /**
+     * Creates a property type.
+     *
+     * @param name the name used in error messages.
+     * @param type the class of the parsed values.
+     */
+    protected PropertyType(String name, Class<T> type) {
+        this.name = name;
+        this.type = type;
+    }
+
+    /**
+     * Parses a resolved property value.
+     *
+     * @param value the value.
+     * @return the parsed value, never null.
+     * @throws IllegalArgumentException if the value is null or cannot be parsed.
+     */
+    public final T parse(String value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Missing " + name + " property value");
+        }
+        try {
+            return parseValue(value.trim());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid " + name + " property value '" + value + "': "
+                    + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Parses a trimmed, non null value.
+     *
+     * @param value the value.
+     * @return the parsed value.
+     * @throws IllegalArgumentException if the value cannot be parsed.
+     */
+    protected abstract T parseValue(String value);
+
+    /**
+     * Returns the class of the parsed values.
+     *
+     * @return the value class.
+     */
+    public Class<T> getType() {
+        return type;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    private static TimeUnit durationUnit(String unit) {
+        if (unit.length() == 0 || "ms".equals(unit)) {
+            return TimeUnit.MILLISECONDS;
+        }
+        if ("s".equals(unit)) {
+            return TimeUnit.SECONDS;
+        }
+        if ("m".equals(unit)) {
+            return TimeUnit.MINUTES;
+        }
+        if ("h".equals(unit)) {
+            return TimeUnit.HOURS;
+        }
+        if ("d".equals(unit)) {
+            return TimeUnit.DAYS;
+        }
+        throw new IllegalArgumentException("unknown duration unit '" + unit + "'");
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.api;
+
+/**
+ * A {@link ConfigurationUtil} that can also return the environment its tokens are replaced with.
+ * <p/>
+ * The configuration utils created by this library implement this interface. Code that accepts any
+ * {@code ConfigurationUtil} should read the snapshot through {@link EnvironmentSnapshot#of(ConfigurationUtil)}.
+ * <p/>
+ * Copyright (C) 2011 Edmunds.com
+ */
+public interface SnapshotConfigurationUtil extends ConfigurationUtil {
+
+    /**
+     * Returns an immutable snapshot of the environment the tokens are currently replaced with.
+     * <p/>
+     * The snapshot version only changes when the environment changes, so it can be used to key derived values.
+     *
+     * @return the current environment snapshot.
+     */
+    public EnvironmentSnapshot getEnvironmentSnapshot();
+}
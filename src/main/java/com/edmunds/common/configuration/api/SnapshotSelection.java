@@ -0,0 +1,69 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.api;
+
+/**
+ * Holds the value a property factory selected for the most recent environment snapshot.
+ * <p/>
+ * Snapshots are compared by identity, so the value is reused until the configuration util publishes a new
+ * snapshot. The value and its snapshot are published together, a reader never sees a value for another snapshot.
+ * <p/>
+ * Copyright (C) 2011 Edmunds.com
+ */
+final class SnapshotSelection {
+
+    private volatile Selection selection;
+
+    /**
+     * Returns the value selected for the given snapshot.
+     *
+     * @param snapshot the current snapshot.
+     * @return the value, or null if no value has been selected for this snapshot.
+     */
+    String get(EnvironmentSnapshot snapshot) {
+        final Selection current = selection;
+        return current != null && current.snapshot == snapshot ? current.value : null;
+    }
+
+    /**
+     * Records the value selected for a snapshot.
+     *
+     * @param snapshot the snapshot the value was selected for.
+     * @param value    the selected value.
+     * @return the value.
+     */
+    String set(EnvironmentSnapshot snapshot, String value) {
+        selection = new Selection(snapshot, value);
+        return value;
+    }
+
+    /**
+     * Forgets the selected value, for example when the factory's table changes.
+     */
+    void clear() {
+        selection = null;
+    }
+
+    private static final class Selection {
+        private final EnvironmentSnapshot snapshot;
+        private final String value;
+
+        Selection(EnvironmentSnapshot snapshot, String value) {
+            this.snapshot = snapshot;
+            this.value = value;
+        }
+    }
+}
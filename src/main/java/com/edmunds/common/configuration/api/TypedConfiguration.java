@@ -0,0 +1,208 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.api;
+
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Typed access to dual (local, managed) property values.
+ * <p/>
+ * Values are resolved with {@link ConfigurationUtil#replacePropertyTokens(String, String)} and parsed once, the
+ * parsed value is cached until the environment snapshot changes. Parsed values are immutable, so callers in hot
+ * loops get the same instance without any parsing.
+ * <p/>
+ * Usage:
+ * <pre>
+ *  TypedConfiguration typed = new TypedConfiguration(configurationUtil);
+ *  int port = typed.getInt("8080", "80");
+ *  long timeout = typed.getDuration("1s", "30s", TimeUnit.MILLISECONDS);
+ * </pre>
+ * <p/>
+ * Copyright (C) 2011 Edmunds.com
+ */
+public class TypedConfiguration {
+
+    /**
+     * Upper bound on the number of parsed values cached per snapshot.
+     */
+    static final int MAX_CACHED_VALUES = 16384;
+
+    private final ConfigurationUtil configurationUtil;
+
+    private final AtomicReference<VersionCache> cache = new AtomicReference<VersionCache>();
+
+    /**
+     * Creates typed access to the properties of a configuration util.
+     *
+     * @param configurationUtil the configuration util.
+     */
+    public TypedConfiguration(ConfigurationUtil configurationUtil) {
+        this.configurationUtil = configurationUtil;
+    }
+
+    /**
+     * Resolves and parses a property.
+     *
+     * @param local   the value used in local mode.
+     * @param managed the value used in managed mode.
+     * @param type    the type to parse the value as.
+     * @param <T>     the parsed type.
+     * @return the parsed value.
+     * @throws IllegalArgumentException if the resolved value is missing or cannot be parsed.
+     */
+    public <T> T get(String local, String managed, PropertyType<T> type) {
+        final ConcurrentMap<Key, Object> values = getCache();
+        final Key key = new Key(type, local, managed);
+
+        final Object cached = values.get(key);
+        if (cached != null) {
+            return type.getType().cast(cached);
+        }
+
+        final T value = type.parse(configurationUtil.replacePropertyTokens(local, managed));
+        if (values.size() < MAX_CACHED_VALUES) {
+            values.putIfAbsent(key, value);
+        }
+        return value;
+    }
+
+    /**
+     * Resolves and parses an {@code int}.
+     *
+     * @param local   the value used in local mode.
+     * @param managed the value used in managed mode.
+     * @return the parsed value.
+     */
+    public int getInt(String local, String managed) {
+        return get(local, managed, PropertyType.INTEGER);
+    }
+
+    /**
+     * Resolves and parses a {@code long}.
+     *
+     * @param local   the value used in local mode.
+     * @param managed the value used in managed mode.
+     * @return the parsed value.
+     */
+    public long getLong(String local, String managed) {
+        return get(local, managed, PropertyType.LONG);
+    }
+
+    /**
+     * Resolves and parses a {@code boolean} (see {@link PropertyType#BOOLEAN}).
+     *
+     * @param local   the value used in local mode.
+     * @param managed the value used in managed mode.
+     * @return the parsed value.
+     */
+    public boolean getBoolean(String local, String managed) {
+        return get(local, managed, PropertyType.BOOLEAN);
+    }
+
+    /**
+     * Resolves and parses a duration (see {@link PropertyType#DURATION}).
+     *
+     * @param local   the value used in local mode.
+     * @param managed the value used in managed mode.
+     * @param unit    the unit to return the duration in.
+     * @return the duration, truncated to the unit.
+     */
+    public long getDuration(String local, String managed, TimeUnit unit) {
+        return unit.convert(get(local, managed, PropertyType.DURATION), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Resolves and parses a {@link URI}.
+     *
+     * @param local   the value used in local mode.
+     * @param managed the value used in managed mode.
+     * @return the parsed value.
+     */
+    public URI getUri(String local, String managed) {
+        return get(local, managed, PropertyType.URI);
+    }
+
+    /**
+     * Resolves and parses a comma separated list (see {@link PropertyType#LIST}).
+     *
+     * @param local   the value used in local mode.
+     * @param managed the value used in managed mode.
+     * @return the unmodifiable list.
+     */
+    public List<String> getList(String local, String managed) {
+        return get(local, managed, PropertyType.LIST);
+    }
+
+    private ConcurrentMap<Key, Object> getCache() {
+        final long version = EnvironmentSnapshot.of(configurationUtil).getVersion();
+        final VersionCache current = cache.get();
+
+        if (current != null && current.version == version) {
+            return current.values;
+        }
+
+        final VersionCache created = new VersionCache(version);
+        return cache.compareAndSet(current, created) ? created.values : getCache();
+    }
+
+    private static final class VersionCache {
+        private final long version;
+        private final ConcurrentMap<Key, Object> values = new ConcurrentHashMap<Key, Object>();
+
+        VersionCache(long version) {
+            this.version = version;
+        }
+    }
+
+    private static final class Key {
+        private final PropertyType<?> type;
+        private final String local;
+        private final String managed;
+        private final int hash;
+
+        Key(PropertyType<?> type, String local, String managed) {
+            this.type = type;
+            this.local = local;
+            this.managed = managed;
+            this.hash = 31 * (31 * type.hashCode() + (local == null ? 0 : local.hashCode()))
+                    + (managed == null ? 0 : managed.hashCode());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) o;
+            return hash == other.hash && type == other.type
+                    && (local == null ? other.local == null : local.equals(other.local))
+                    && (managed == null ? other.managed == null : managed.equals(other.managed));
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.api;
+
+import org.springframework.beans.factory.InitializingBean;
+
+/**
+ * Base class of the {@link EnvironmentPropertyFactory} siblings that produce typed values.
+ * <p/>
+ * The property is resolved and parsed once when the bean factory initializes the factory, so an invalid value
+ * stops the application context from starting rather than failing on first use.
+ * <p/>
+ * Copyright (C) 2011 Edmunds.com
+ *
+ * @param <T> the type of the produced values.
+ */
+public abstract class TypedEnvironmentPropertyFactory<T> extends EnvironmentPropertyFactory
+        implements InitializingBean {
+
+    private final PropertyType<T> type;
+
+    /**
+     * The parsed value, computed on first use.
+     */
+    private volatile T value;
+
+    protected TypedEnvironmentPropertyFactory(PropertyType<T> type) {
+        this.type = type;
+    }
+
+    protected TypedEnvironmentPropertyFactory(PropertyType<T> type, ConfigurationUtil configurationUtil) {
+        super(configurationUtil);
+        this.type = type;
+    }
+
+    /**
+     * Parses the property so that invalid values are reported during startup.
+     */
+    @Override
+    public void afterPropertiesSet() {
+        getValue();
+    }
+
+    /**
+     * Returns the parsed property value.
+     *
+     * @return the parsed value.
+     * @throws IllegalArgumentException if the value is missing or cannot be parsed.
+     */
+    public T getValue() {
+        T parsed = value;
+        if (parsed == null) {
+            parsed = convert(type.parse(getProperty()));
+            value = parsed;
+        }
+        return parsed;
+    }
+
+    /**
+     * Converts the parsed value before it is returned, the default implementation returns it unchanged.
+     *
+     * @param parsed the parsed value.
+     * @return the value to return.
+     */
+    protected T convert(T parsed) {
+        return parsed;
+    }
+
+    /**
+     * Discards the parsed value, for subclasses whose settings affect it.
+     */
+    protected void resetValue() {
+        this.value = null;
+    }
+
+    @Override
+    public Object getObject() {
+        return getValue();
+    }
+
+    @Override
+    public Class getObjectType() {
+        return type.getType();
+    }
+
+    @Override
+    public void setProperty(String property) {
+        super.setProperty(property);
+        resetValue();
+    }
+
+    @Override
+    public void setLocal(String local) {
+        super.setLocal(local);
+        resetValue();
+    }
+
+    @Override
+    public void setManaged(String managed) {
+        super.setManaged(managed);
+        resetValue();
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.api;
+
+import java.net.URI;
+
+/**
+ * Produces a {@link URI} from a dual (local, managed) property value.
+ * <p/>
+ * Usage:
+ * <pre>
+ *  &lt;bean id="serviceUri" class="com.edmunds.common.configuration.api.UriPropertyFactory"&gt;
+ *      &lt;property name="local" value="http://localhost:8080/"/&gt;
+ *      &lt;property name="managed" value="http://[URL_PREFIX]api.edmunds.com/"/&gt;
+ *  &lt;/bean&gt;
+ * </pre>
+ * See {@link PropertyType#URI} for the accepted values.
+ * <p/>
+ * Copyright (C) 2011 Edmunds.com
+ */
+public class UriPropertyFactory extends TypedEnvironmentPropertyFactory<URI> {
+
+    /**
+     * Default Constructor.
+     */
+    public UriPropertyFactory() {
+        super(PropertyType.URI);
+    }
+
+    /**
+     * Unit test constructor.
+     *
+     * @param configurationUtil configuration util object to use.
+     */
+    public UriPropertyFactory(ConfigurationUtil configurationUtil) {
+        super(PropertyType.URI, configurationUtil);
+    }
+}
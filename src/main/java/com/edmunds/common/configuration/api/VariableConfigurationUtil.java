@@ -0,0 +1,41 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.api;
+
+import com.edmunds.common.configuration.token.TokenVariables;
+
+/**
+ * A {@link ConfigurationUtil} that can replace caller defined variables in the same pass as the standard variables.
+ * <p/>
+ * The configuration utils created by this library implement this interface. Code that accepts any
+ * {@code ConfigurationUtil} should call {@link TokenVariables#replaceTokens(ConfigurationUtil, String, String...)}.
+ * <p/>
+ * Copyright (C) 2011 Edmunds.com
+ */
+public interface VariableConfigurationUtil extends ConfigurationUtil {
+
+    /**
+     * Replaces the standard variables and caller defined variables in a single pass.
+     * <p/>
+     * Use this for values that also depend on the current request, such as the tenant or locale.
+     *
+     * @param value          the value to parse.
+     * @param variables      the caller defined variables.
+     * @param variableValues the value of each variable, in the order of the variables.
+     * @return the parsed value.
+     */
+    public String replaceTokens(String value, TokenVariables variables, String... variableValues);
+}
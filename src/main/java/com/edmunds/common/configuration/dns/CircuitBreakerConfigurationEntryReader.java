@@ -0,0 +1,223 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.dns;
+
+import com.edmunds.common.configuration.metrics.ConfigurationMetrics;
+import com.edmunds.common.configuration.metrics.StripedCounter;
+import org.apache.log4j.Logger;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Decorator that stops calling a failing reader for a while instead of waiting out its timeout on every lookup.
+ * <p/>
+ * A lookup fails if the delegate throws, or finds no value and takes longer than {@code slowCallMillis}; the DNS reader
+ * reports resolver timeouts as a missing entry, so a slow empty answer is the only sign of an unreachable resolver. A
+ * slow lookup that returns a value shows the resolver is reachable and counts as a success. After
+ * {@code failureThreshold} consecutive failures the circuit opens and lookups return null, as if the entry was not
+ * set, without calling the delegate. Callers that must tell a rejected lookup from an entry that is not set check
+ * {@link #isRejectingLookups()} after reading a null value. Once {@code openMillis} have passed a single trial lookup
+ * is let through: if it succeeds the circuit closes, otherwise it stays open for another period.
+ * <p/>
+ * State changes are logged and counted in {@link ConfigurationMetrics} as {@code reader.circuit.opened}, and the
+ * lookups that were not attempted as {@code reader.circuit.rejected}.
+ * <p/>
+ * Copyright (C) 2011 Edmunds.com
+ */
+public class CircuitBreakerConfigurationEntryReader implements ConfigurationEntryReader {
+
+    /**
+     * Default number of consecutive failures that open the circuit.
+     */
+    public static final int DEFAULT_FAILURE_THRESHOLD = 3;
+
+    /**
+     * Default time the circuit stays open before a trial lookup.
+     */
+    public static final long DEFAULT_OPEN_MILLIS = 30000L;
+
+    /**
+     * Default duration above which a lookup that finds no value is counted as a failure.
+     */
+    public static final long DEFAULT_SLOW_CALL_MILLIS = 2000L;
+
+    /**
+     * State of the circuit.
+     */
+    public enum State {
+        /**
+         * Lookups are passed to the delegate.
+         */
+        CLOSED,
+        /**
+         * Lookups return null without calling the delegate.
+         */
+        OPEN,
+        /**
+         * A single trial lookup is in progress, other lookups are rejected.
+         */
+        HALF_OPEN
+    }
+
+    /**
+     * Logger for this class.
+     */
+    private static final Logger log = Logger.getLogger(CircuitBreakerConfigurationEntryReader.class);
+
+    private static final ConfigurationMetrics METRICS = ConfigurationMetrics.getInstance();
+    private static final StripedCounter OPENED = METRICS.counter("reader.circuit.opened");
+    private static final StripedCounter REJECTED = METRICS.counter("reader.circuit.rejected");
+
+    private final ConfigurationEntryReader delegate;
+    private final int failureThreshold;
+    private final long openNanos;
+    private final long slowCallNanos;
+
+    private final AtomicReference<State> state = new AtomicReference<State>(State.CLOSED);
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private volatile long openedAt;
+
+    /**
+     * Creates a breaker with the default settings.
+     *
+     * @param delegate the reader that performs the lookups.
+     */
+    public CircuitBreakerConfigurationEntryReader(ConfigurationEntryReader delegate) {
+        this(delegate, DEFAULT_FAILURE_THRESHOLD, DEFAULT_OPEN_MILLIS, DEFAULT_SLOW_CALL_MILLIS);
+    }
+
+    /**
+     * Creates a breaker with the given settings.
+     *
+     * @param delegate         the reader that performs the lookups.
+     * @param failureThreshold number of consecutive failures that open the circuit, at least one.
+     * @param openMillis       time the circuit stays open before a trial lookup.
+     * @param slowCallMillis   duration above which a lookup that finds no value is counted as a failure.
+     */
+    public CircuitBreakerConfigurationEntryReader(
+            ConfigurationEntryReader delegate, int failureThreshold, long openMillis, long slowCallMillis) {
+        if (failureThreshold < 1) {
+            throw new IllegalArgumentException("failureThreshold must be at least 1: " + failureThreshold);
+        }
+        this.delegate = delegate;
+        this.failureThreshold = failureThreshold;
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMillis);
+        this.slowCallNanos = TimeUnit.MILLISECONDS.toNanos(slowCallMillis);
+    }
+
+    /**
+     * Looks an entry up through the delegate unless the circuit is open.
+     *
+     * @param entryName the name of the entry.
+     * @return the value of the entry, null if it is not set or the circuit is open.
+     */
+    @Override
+    public String getEntry(String entryName) {
+        if (!allowLookup()) {
+            METRICS.increment(REJECTED);
+            if (log.isDebugEnabled()) {
+                log.debug("Circuit open, not looking up: " + entryName);
+            }
+            return null;
+        }
+
+        final long start = System.nanoTime();
+        final String value;
+        try {
+            value = delegate.getEntry(entryName);
+        } catch (RuntimeException e) {
+            recordFailure(entryName);
+            throw e;
+        }
+
+        if (value == null && System.nanoTime() - start >= slowCallNanos) {
+            recordFailure(entryName);
+        } else {
+            recordSuccess();
+        }
+        return value;
+    }
+
+    private boolean allowLookup() {
+        switch (state.get()) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                return System.nanoTime() - openedAt >= openNanos && state.compareAndSet(State.OPEN, State.HALF_OPEN);
+            default:
+                return false;
+        }
+    }
+
+    private void recordSuccess() {
+        consecutiveFailures.set(0);
+        if (state.getAndSet(State.CLOSED) != State.CLOSED) {
+            log.info("Configuration entry lookups recovered, circuit closed");
+        }
+    }
+
+    private void recordFailure(String entryName) {
+        final int failures = consecutiveFailures.incrementAndGet();
+        final State current = state.get();
+        if (current == State.HALF_OPEN || (current == State.CLOSED && failures >= failureThreshold)) {
+            openedAt = System.nanoTime();
+            if (state.compareAndSet(current, State.OPEN)) {
+                METRICS.increment(OPENED);
+                log.warn("Configuration entry lookups failing (" + failures + " in a row, last: " + entryName
+                        + "), circuit open for " + TimeUnit.NANOSECONDS.toMillis(openNanos) + "ms");
+            }
+        }
+    }
+
+    /**
+     * Returns the current state of the circuit.
+     *
+     * @return the state.
+     */
+    public State getState() {
+        return state.get();
+    }
+
+    /**
+     * Indicates if lookups are currently being rejected, so a null value may not mean the entry is not set.
+     *
+     * @return true unless the circuit is closed.
+     */
+    public boolean isRejectingLookups() {
+        return state.get() != State.CLOSED;
+    }
+
+    /**
+     * Returns the number of consecutive failed lookups.
+     *
+     * @return the failure count, zero after a successful lookup.
+     */
+    public int getConsecutiveFailures() {
+        return consecutiveFailures.get();
+    }
+
+    /**
+     * Returns the reader that performs the lookups.
+     *
+     * @return the decorated reader.
+     */
+    ConfigurationEntryReader getDelegate() {
+        return delegate;
+    }
+
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.dns;
+
+import org.apache.log4j.Logger;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decorator that allows only one lookup per entry name to be in flight at a time.
+ * <p/>
+ * Threads that ask for an entry while another thread is already fetching it wait for, and share, that result instead
+ * of issuing their own lookup. Nothing is cached once the lookup completes.
+ * <p/>
+ * A waiting thread gives up after {@code waitTimeoutMillis} and performs its own lookup.
+ * <p/>
+ * Copyright (C) 2011 Edmunds.com
+ */
+public class CoalescingConfigurationEntryReader implements ConfigurationEntryReader {
+
+    /**
+     * Logger for this class.
+     */
+    private static final Logger log = Logger.getLogger(CoalescingConfigurationEntryReader.class);
+
+    private final ConfigurationEntryReader delegate;
+
+    private final ConcurrentMap<String, FutureTask<String>> inFlight = new ConcurrentHashMap<String, FutureTask<String>>();
+
+    /**
+     * Maximum time to wait for another thread's lookup, zero or less waits indefinitely.
+     */
+    private volatile long waitTimeoutMillis;
+
+    private final AtomicLong coalescedCount = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+
+    /**
+     * Creates a reader that waits indefinitely for in flight lookups.
+     *
+     * @param delegate the reader that performs the lookups.
+     */
+    public CoalescingConfigurationEntryReader(ConfigurationEntryReader delegate) {
+        this(delegate, 0L);
+    }
+
+    /**
+     * Creates a reader with the given wait timeout.
+     *
+     * @param delegate          the reader that performs the lookups.
+     * @param waitTimeoutMillis maximum time to wait for another thread's lookup, zero or less waits indefinitely.
+     */
+    public CoalescingConfigurationEntryReader(ConfigurationEntryReader delegate, long waitTimeoutMillis) {
+        this.delegate = delegate;
+        this.waitTimeoutMillis = waitTimeoutMillis;
+    }
+
+    @Override
+    public String getEntry(final String entryName) {
+        if (entryName == null) {
+            return delegate.getEntry(null);
+        }
+
+        final FutureTask<String> task = new FutureTask<String>(new Callable<String>() {
+            @Override
+            public String call() {
+                return delegate.getEntry(entryName);
+            }
+        });
+
+        final FutureTask<String> existing = inFlight.putIfAbsent(entryName, task);
+
+        if (existing == null) {
+            try {
+                task.run();
+            } finally {
+                inFlight.remove(entryName, task);
+            }
+            return getResult(task);
+        }
+
+        coalescedCount.incrementAndGet();
+        return await(entryName, existing);
+    }
+
+    private String await(String entryName, FutureTask<String> task) {
+        final long timeout = waitTimeoutMillis;
+
+        try {
+            return timeout > 0 ? task.get(timeout, TimeUnit.MILLISECONDS) : task.get();
+        } catch (TimeoutException e) {
+            timeoutCount.incrementAndGet();
+            log.debug("Timed out waiting for lookup of '" + entryName + "', fetching directly");
+            return delegate.getEntry(entryName);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for configuration entry: " + entryName, e);
+        } catch (ExecutionException e) {
+            throw launderCause(e);
+        }
+    }
+
+    private static String getResult(FutureTask<String> task) {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            // The task has already completed on this thread.
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            throw launderCause(e);
+        }
+    }
+
+    private static RuntimeException launderCause(ExecutionException e) {
+        final Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return new IllegalStateException(cause);
+    }
+
+    /**
+     * Returns the maximum time to wait for another thread's lookup.
+     *
+     * @return the timeout in milliseconds, zero or less waits indefinitely.
+     */
+    public long getWaitTimeoutMillis() {
+        return waitTimeoutMillis;
+    }
+
+    /**
+     * Sets the maximum time to wait for another thread's lookup.
+     *
+     * @param waitTimeoutMillis the timeout in milliseconds, zero or less waits indefinitely.
+     */
+    public void setWaitTimeoutMillis(long waitTimeoutMillis) {
+        this.waitTimeoutMillis = waitTimeoutMillis;
+    }
+
+    /**
+     * Returns the number of lookups that were satisfied by another thread's lookup (or timed out waiting for one).
+     *
+     * @return the number of coalesced lookups.
+     */
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    /**
+     * Returns the number of waiting threads that timed out and performed their own lookup.
+     *
+     * @return the number of timeouts.
+     */
+    public long getTimeoutCount() {
+        return timeoutCount.get();
+    }
+
+    /**
+     * Returns the reader that performs the lookups.
+     *
+     * @return the decorated reader.
+     */
+    ConfigurationEntryReader getDelegate() {
+        return delegate;
+    }
+}
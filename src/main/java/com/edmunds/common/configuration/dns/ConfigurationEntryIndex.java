@@ -0,0 +1,171 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.dns;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Properties;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Immutable, sorted index of configuration entries that supports prefix and dot-path queries.
+ * <p/>
+ * The entry names are held in a sorted array, so the entries that share a prefix are contiguous and are found with
+ * two binary searches. A prefix query costs {@code O(log n + k)} for {@code k} results.
+ * <p/>
+ * Copyright (C) 2011 Edmunds.com
+ */
+public final class ConfigurationEntryIndex {
+
+    /**
+     * Separator between the segments of a hierarchical entry name.
+     */
+    public static final char PATH_SEPARATOR = '.';
+
+    private final String[] names;
+    private final String[] values;
+
+    private ConfigurationEntryIndex(SortedMap<String, String> entries) {
+        this.names = entries.keySet().toArray(new String[entries.size()]);
+        this.values = entries.values().toArray(new String[entries.size()]);
+    }
+
+    /**
+     * Indexes the given entries.
+     *
+     * @param entries the entries, null values are ignored.
+     * @return the index.
+     */
+    public static ConfigurationEntryIndex of(Map<String, String> entries) {
+        final SortedMap<String, String> sorted = new TreeMap<String, String>();
+        for (Map.Entry<String, String> entry : entries.entrySet()) {
+            if (entry.getKey() != null && entry.getValue() != null) {
+                sorted.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return new ConfigurationEntryIndex(sorted);
+    }
+
+    /**
+     * Indexes the given properties, including any defaults.
+     *
+     * @param properties the properties.
+     * @return the index.
+     */
+    public static ConfigurationEntryIndex of(Properties properties) {
+        final SortedMap<String, String> sorted = new TreeMap<String, String>();
+        for (String name : properties.stringPropertyNames()) {
+            sorted.put(name, properties.getProperty(name));
+        }
+        return new ConfigurationEntryIndex(sorted);
+    }
+
+    /**
+     * Returns the value of an entry.
+     *
+     * @param name the full entry name.
+     * @return the value or null if there is no such entry.
+     */
+    public String get(String name) {
+        final int index = Arrays.binarySearch(names, name);
+        return index < 0 ? null : values[index];
+    }
+
+    /**
+     * Returns the number of entries.
+     *
+     * @return the number of entries.
+     */
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * Returns the names of all entries.
+     *
+     * @return the sorted entry names.
+     */
+    public SortedSet<String> getNames() {
+        final SortedSet<String> result = new TreeSet<String>();
+        Collections.addAll(result, names);
+        return Collections.unmodifiableSortedSet(result);
+    }
+
+    /**
+     * Returns the entries whose names start with a prefix.
+     *
+     * @param prefix the prefix, the empty string returns every entry.
+     * @return the matching entries sorted by name.
+     */
+    public SortedMap<String, String> getEntriesByPrefix(String prefix) {
+        final SortedMap<String, String> result = new TreeMap<String, String>();
+        for (int i = first(prefix); i < names.length && names[i].startsWith(prefix); i++) {
+            result.put(names[i], values[i]);
+        }
+        return Collections.unmodifiableSortedMap(result);
+    }
+
+    /**
+     * Returns the entries below a dot-path, for example {@code search} returns {@code search.url} and
+     * {@code search.pool.size} but not {@code search} or {@code searchable}.
+     *
+     * @param path the path, the empty string returns every entry.
+     * @return the entries below the path sorted by full name.
+     */
+    public SortedMap<String, String> getEntriesByPath(String path) {
+        return getEntriesByPrefix(path.length() == 0 ? path : path + PATH_SEPARATOR);
+    }
+
+    /**
+     * Returns the names of the immediate children of a dot-path, for example the children of {@code search} given
+     * the entries {@code search.url} and {@code search.pool.size} are {@code url} and {@code pool}.
+     *
+     * @param path the path, the empty string returns the top level segments.
+     * @return the sorted child segment names.
+     */
+    public SortedSet<String> getChildNames(String path) {
+        final String prefix = path.length() == 0 ? path : path + PATH_SEPARATOR;
+        final SortedSet<String> result = new TreeSet<String>();
+
+        int i = first(prefix);
+        while (i < names.length && names[i].startsWith(prefix)) {
+            final String name = names[i];
+            final int end = name.indexOf(PATH_SEPARATOR, prefix.length());
+            final String child = end < 0 ? name.substring(prefix.length()) : name.substring(prefix.length(), end);
+            if (child.length() != 0) {
+                result.add(child);
+            }
+            i++;
+            if (end >= 0) {
+                // skip the rest of this child's subtree
+                final String subtree = name.substring(0, end + 1);
+                while (i < names.length && names[i].startsWith(subtree)) {
+                    i++;
+                }
+            }
+        }
+        return Collections.unmodifiableSortedSet(result);
+    }
+
+    private int first(String prefix) {
+        final int index = Arrays.binarySearch(names, prefix);
+        return index < 0 ? -index - 1 : index;
+    }
+}
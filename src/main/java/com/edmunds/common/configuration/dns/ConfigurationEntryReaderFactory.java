@@ -34,13 +34,77 @@ public class ConfigurationEntryReaderFactory extends AbstractFactoryBean {
 
     @Override
     protected Object createInstance() throws Exception {
+        return newConfigurationEntryReader();
+    }
+
+    /**
+     * Creates the appropriate reader for this host.
+     *
+     * @return a file reader if its properties file is present, otherwise a DNS reader.
+     */
+    static ConfigurationEntryReader newConfigurationEntryReader() {
         // Use the file reader if it's file is present.
         if(FileConfigurationEntryReader.propertiesFileExists()) {
-            return new FileConfigurationEntryReader();
+            return new InstrumentedConfigurationEntryReader(new FileConfigurationEntryReader());
         } else {
-            return new DNSConfigurationEntryReader();
+            // Concurrent lookups of the same entry share a single DNS query, and an unreachable resolver is only
+            // waited on until the circuit opens.
+            return new CoalescingConfigurationEntryReader(new CircuitBreakerConfigurationEntryReader(
+                    new InstrumentedConfigurationEntryReader(new DNSConfigurationEntryReader())));
         }
+    }
+
+    /**
+     * Returns the reader that can enumerate its entries behind any decorators added by this factory.
+     *
+     * @param reader the reader, possibly decorated.
+     * @return the indexed reader or null if the underlying reader cannot enumerate its entries (e.g. DNS).
+     */
+    public static IndexedConfigurationEntryReader findIndexedReader(ConfigurationEntryReader reader) {
+        final ConfigurationEntryReader undecorated = undecorated(reader);
+        return undecorated instanceof IndexedConfigurationEntryReader
+                ? (IndexedConfigurationEntryReader) undecorated : null;
+    }
 
+    /**
+     * Returns the circuit breaker among the decorators of a reader.
+     *
+     * @param reader the reader, possibly decorated.
+     * @return the circuit breaker or null if the reader has none.
+     */
+    static CircuitBreakerConfigurationEntryReader findCircuitBreaker(ConfigurationEntryReader reader) {
+        ConfigurationEntryReader current = reader;
+        while (true) {
+            if (current instanceof CircuitBreakerConfigurationEntryReader) {
+                return (CircuitBreakerConfigurationEntryReader) current;
+            } else if (current instanceof CoalescingConfigurationEntryReader) {
+                current = ((CoalescingConfigurationEntryReader) current).getDelegate();
+            } else if (current instanceof InstrumentedConfigurationEntryReader) {
+                current = ((InstrumentedConfigurationEntryReader) current).getDelegate();
+            } else {
+                return null;
+            }
+        }
     }
 
+    /**
+     * Returns the reader that actually performs the lookups, looking through any decorators.
+     *
+     * @param reader the reader, possibly decorated.
+     * @return the undecorated reader.
+     */
+    static ConfigurationEntryReader undecorated(ConfigurationEntryReader reader) {
+        ConfigurationEntryReader current = reader;
+        while (true) {
+            if (current instanceof CoalescingConfigurationEntryReader) {
+                current = ((CoalescingConfigurationEntryReader) current).getDelegate();
+            } else if (current instanceof CircuitBreakerConfigurationEntryReader) {
+                current = ((CircuitBreakerConfigurationEntryReader) current).getDelegate();
+            } else if (current instanceof InstrumentedConfigurationEntryReader) {
+                current = ((InstrumentedConfigurationEntryReader) current).getDelegate();
+            } else {
+                return current;
+            }
+        }
+    }
 }
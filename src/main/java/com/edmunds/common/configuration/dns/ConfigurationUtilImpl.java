@@ -18,7 +18,18 @@ package com.edmunds.common.configuration.dns;
 import com.edmunds.common.configuration.api.ConfigurationUtil;
 import com.edmunds.common.configuration.api.EnvironmentConfiguration;
 import com.edmunds.common.configuration.api.EnvironmentConnection;
-import org.apache.commons.lang.StringUtils;
+import com.edmunds.common.configuration.api.EnvironmentSnapshot;
+import com.edmunds.common.configuration.api.SnapshotConfigurationUtil;
+import com.edmunds.common.configuration.api.VariableConfigurationUtil;
+import com.edmunds.common.configuration.logging.ThrottledLogger;
+import com.edmunds.common.configuration.metrics.ConfigurationMetrics;
+import com.edmunds.common.configuration.metrics.StripedCounter;
+import com.edmunds.common.configuration.metrics.Timer;
+import com.edmunds.common.configuration.token.EnvironmentToken;
+import com.edmunds.common.configuration.token.TokenTable;
+import com.edmunds.common.configuration.token.TokenTemplate;
+import com.edmunds.common.configuration.token.TokenVariables;
+import com.edmunds.common.configuration.trace.ResolutionTrace;
 import org.apache.commons.lang.Validate;
 import org.apache.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -26,22 +37,12 @@ import org.springframework.stereotype.Component;
 
 import java.net.InetAddress;
 import java.net.UnknownHostException;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.Map;
-
-import static com.edmunds.common.configuration.api.EnvironmentPropertyFactory.CANONICAL_HOST_REPLACE_TOKEN;
-import static com.edmunds.common.configuration.api.EnvironmentPropertyFactory.ENVIRONMENT_REPLACE_TOKEN;
-import static com.edmunds.common.configuration.api.EnvironmentPropertyFactory.HOST_REPLACE_TOKEN;
-import static com.edmunds.common.configuration.api.EnvironmentPropertyFactory.TOKEN_INTERNAL_ENVIRONMENT_DATA_CENTER;
-import static com.edmunds.common.configuration.api.EnvironmentPropertyFactory.TOKEN_INTERNAL_ENVIRONMENT_NAME;
-import static com.edmunds.common.configuration.api.EnvironmentPropertyFactory.TOKEN_LOCAL_ENVIRONMENT_DATA_CENTER;
-import static com.edmunds.common.configuration.api.EnvironmentPropertyFactory.TOKEN_LOCAL_ENVIRONMENT_NAME;
-import static com.edmunds.common.configuration.api.EnvironmentPropertyFactory.TOKEN_LOCAL_ENVIRONMENT_SITE;
-import static com.edmunds.common.configuration.api.EnvironmentPropertyFactory.TOKEN_URL_PREFIX;
-import static com.edmunds.common.configuration.api.EnvironmentPropertyFactory.TOKEN_URL_PREFIX_NODASH;
-import static com.edmunds.common.configuration.api.EnvironmentPropertyFactory.URL_PREFIX_REPLACE_TOKEN;
-import static com.edmunds.common.configuration.api.EnvironmentPropertyFactory.TOKEN_LOGICAL_ENVIRONMENT_NAME;
-import static com.edmunds.common.configuration.api.EnvironmentPropertyFactory.TOKEN_ENVIRONMENT_INDEX;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Implementation of configuration functions.
@@ -49,13 +50,33 @@ import static com.edmunds.common.configuration.api.EnvironmentPropertyFactory.TO
  * Copyright (C) 2010 Edmunds.com
  */
 @Component
-class ConfigurationUtilImpl implements ConfigurationUtil {
+class ConfigurationUtilImpl implements SnapshotConfigurationUtil, VariableConfigurationUtil {
 
     /**
      * Logger for this class.
      */
     private static final Logger log = Logger.getLogger(ConfigurationUtilImpl.class);
 
+    /**
+     * Logger for warnings that can repeat on every lookup.
+     */
+    private static final ThrottledLogger throttledLog = new ThrottledLogger(log);
+
+    /**
+     * Upper bound on the number of resolved properties interned per snapshot.
+     */
+    static final int MAX_INTERNED_PROPERTIES = 16384;
+
+    private static final ConfigurationMetrics METRICS = ConfigurationMetrics.getInstance();
+    private static final Timer REPLACE_TOKENS_TIMER = METRICS.timer("tokens.replaceTokens");
+    private static final Timer REPLACE_PROPERTY_TOKENS_TIMER = METRICS.timer("tokens.replacePropertyTokens");
+    private static final StripedCounter SNAPSHOT_HITS = METRICS.counter("cache.snapshot.hit");
+    private static final StripedCounter SNAPSHOT_REBUILDS = METRICS.counter("cache.snapshot.rebuild");
+    private static final StripedCounter PROPERTY_HITS = METRICS.counter("cache.property.hit");
+    private static final StripedCounter PROPERTY_MISSES = METRICS.counter("cache.property.miss");
+
+    private static final String TRACE_COMPONENT = "ConfigurationUtilImpl";
+
     /**
      * The configuration.
      */
@@ -68,6 +89,11 @@ class ConfigurationUtilImpl implements ConfigurationUtil {
     @Autowired
     private EnvironmentConnection connection;
 
+    /**
+     * The token values built from the current configuration and connection.
+     */
+    private final AtomicReference<TokenSnapshot> snapshot = new AtomicReference<TokenSnapshot>();
+
     /**
      * Default constructor (no-op).
      */
@@ -102,68 +128,168 @@ class ConfigurationUtilImpl implements ConfigurationUtil {
             return null;
         }
 
-        Map<String, String> tokenMap = buildTokenMap();
+        final long start = System.nanoTime();
+        final String result = TokenTemplate.valueOf(value).render(getTokenTable());
+        REPLACE_TOKENS_TIMER.recordSince(start);
+        return result;
+    }
+
+    /**
+     * Replaces the standard variables and caller defined variables in a single pass.
+     * <p/>
+     * The standard values come from the current snapshot, the only allocation is the result.
+     *
+     * @param value          the value to parse.
+     * @param variables      the caller defined variables.
+     * @param variableValues the value of each variable, in the order of the variables.
+     * @return the parsed value.
+     */
+    @Override
+    public String replaceTokens(String value, TokenVariables variables, String... variableValues) {
+        if (value == null) {
+            return null;
+        }
+
+        final long start = System.nanoTime();
+        final String result = TokenTemplate.valueOf(value, variables).render(getTokenTable(), variableValues);
+        REPLACE_TOKENS_TIMER.recordSince(start);
+        return result;
+    }
+
+    /**
+     * Returns a view of this configuration with some token values replaced.
+     * <p/>
+     * The view only holds the overridden values and follows any change made to this configuration.
+     *
+     * @param overrides the token values to replace.
+     * @return the scoped configuration util.
+     */
+    public ScopedConfigurationUtil withOverrides(Map<EnvironmentToken, String> overrides) {
+        return new ScopedConfigurationUtil(this, overrides);
+    }
+
+    /**
+     * Returns a view of this configuration that renders values for another site.
+     *
+     * @param site the site that replaces the {@code [LOCAL_ENVIRONMENT_SITE]} token.
+     * @return the scoped configuration util.
+     */
+    public ScopedConfigurationUtil forSite(String site) {
+        return withOverrides(Collections.singletonMap(EnvironmentToken.LOCAL_ENVIRONMENT_SITE, site));
+    }
+
+    /**
+     * Returns the token values for the current configuration.
+     *
+     * @return the current token values.
+     */
+    TokenTable getTokenTable() {
+        return getSnapshot().table;
+    }
 
-        return replaceTokens(value, tokenMap);
+    /**
+     * Returns an immutable snapshot of the current configuration and connection.
+     * <p/>
+     * The snapshot is captured once and reused until the configuration or connection is modified.
+     *
+     * @return the current snapshot.
+     */
+    @Override
+    public EnvironmentSnapshot getEnvironmentSnapshot() {
+        return getSnapshot().environment;
     }
 
-    private Map<String, String> buildTokenMap() {
+    /**
+     * Returns the snapshot of the current configuration.
+     * <p/>
+     * The snapshot is built once and reused until the configuration or connection is modified. Readers never lock,
+     * a modification is detected by the thread that next reads the snapshot and the rebuilt snapshot is published
+     * with a single compare and set.
+     *
+     * @return the current snapshot.
+     */
+    private TokenSnapshot getSnapshot() {
         Validate.notNull(configuration, "ConfigurationUtilImpl.configuration is null");
         Validate.notNull(connection, "ConfigurationUtilImpl.connection is null");
 
-        Map<String, String> tokenMap = new HashMap<String, String>();
+        final TokenSnapshot current = snapshot.get();
+        if (current != null && current.matches(configuration, connection)) {
+            METRICS.increment(SNAPSHOT_HITS);
+            return current;
+        }
 
-        tokenMap.put(ENVIRONMENT_REPLACE_TOKEN, getLegacyEnvironmentName());
-        tokenMap.put(URL_PREFIX_REPLACE_TOKEN, configuration.getUrlLegacyPrefix());
-        tokenMap.put(TOKEN_LOGICAL_ENVIRONMENT_NAME, configuration.getLogicalEnvironmentName());
-        tokenMap.put(TOKEN_ENVIRONMENT_INDEX, configuration.getEnvironmentIndex());
+        METRICS.increment(SNAPSHOT_REBUILDS);
+        final TokenSnapshot rebuilt = rebuild(current);
 
-        final String urlPrefix = configuration.getUrlPrefix();
-        tokenMap.put(TOKEN_URL_PREFIX, urlPrefix);
-        tokenMap.put(TOKEN_LOCAL_ENVIRONMENT_NAME, configuration.getEnvironmentName());
-        tokenMap.put(TOKEN_LOCAL_ENVIRONMENT_DATA_CENTER, configuration.getDataCenter());
-        tokenMap.put(TOKEN_LOCAL_ENVIRONMENT_SITE, configuration.getSite());
-        tokenMap.put(TOKEN_INTERNAL_ENVIRONMENT_NAME, connection.getInternalEnvironmentName());
-        tokenMap.put(TOKEN_INTERNAL_ENVIRONMENT_DATA_CENTER, connection.getInternalDataCenter());
-        String prefixNoDash = null;
-        if(urlPrefix != null) {
-            prefixNoDash = urlPrefix.endsWith("-") ? urlPrefix.substring(0, urlPrefix.length()-1) : urlPrefix;
+        if (!snapshot.compareAndSet(current, rebuilt)) {
+            // Another thread published first, prefer its snapshot if it is still current.
+            final TokenSnapshot published = snapshot.get();
+            if (published != null && published.matches(configuration, connection)) {
+                return published;
+            }
         }
-        tokenMap.put(TOKEN_URL_PREFIX_NODASH, prefixNoDash);
+        return rebuilt;
+    }
 
+    private TokenSnapshot rebuild(TokenSnapshot previous) {
+        // Record the source values before capturing them, a concurrent modification then causes another rebuild.
+        final String[] sourceValues = TokenSnapshot.sourceValues(configuration, connection);
+        final boolean localEnvironment = configuration.isLocalEnvironment();
+        final EnvironmentSnapshot environment = EnvironmentSnapshot.capture(configuration, connection);
+
+        if (previous != null && previous.environment.hasSameContent(environment)) {
+            // Values were replaced with equal ones, keep the version and everything cached against it.
+            return new TokenSnapshot(previous, configuration, connection, localEnvironment, sourceValues);
+        }
+        return new TokenSnapshot(environment, configuration, connection, localEnvironment, sourceValues,
+                buildTokenTable(environment));
+    }
+
+    private TokenTable buildTokenTable(EnvironmentSnapshot environment) {
+        final ResolutionTrace trace = ResolutionTrace.getInstance();
+        final long start = trace.isEnabled() ? System.nanoTime() : 0L;
+
+        final Map<EnvironmentToken, String> tokenMap = EnvironmentTokenTables.environmentTokens(environment);
+
+        long hostStart = trace.isEnabled() ? System.nanoTime() : 0L;
         try {
             String hostName = InetAddress.getLocalHost().getHostName();
-            tokenMap.put(HOST_REPLACE_TOKEN, hostName);
+            tokenMap.put(EnvironmentToken.HOST_NAME, hostName);
         } catch (UnknownHostException exc) {
-            log.warn("Error looking up host name. No substitution will be performed: " + exc.getMessage(), exc);
+            throttledLog.warn(EnvironmentToken.HOST_NAME, exc,
+                    "Error looking up host name. No substitution will be performed: %s", exc.getMessage());
+        }
+        if (trace.isEnabled()) {
+            trace.record(TRACE_COMPONENT, EnvironmentToken.HOST_NAME.getToken(),
+                    tokenMap.get(EnvironmentToken.HOST_NAME), "InetAddress", false, System.nanoTime() - hostStart);
+            hostStart = System.nanoTime();
         }
 
         try {
             String canonicalHostName = InetAddress.getLocalHost().getCanonicalHostName();
-            tokenMap.put(CANONICAL_HOST_REPLACE_TOKEN, canonicalHostName);
+            tokenMap.put(EnvironmentToken.CANONICAL_HOST_NAME, canonicalHostName);
         } catch (UnknownHostException exc) {
-            log.warn("Error looking up host name. No substitution will be performed: " + exc.getMessage(), exc);
+            throttledLog.warn(EnvironmentToken.CANONICAL_HOST_NAME, exc,
+                    "Error looking up host name. No substitution will be performed: %s", exc.getMessage());
+        }
+        if (trace.isEnabled()) {
+            trace.record(TRACE_COMPONENT, EnvironmentToken.CANONICAL_HOST_NAME.getToken(),
+                    tokenMap.get(EnvironmentToken.CANONICAL_HOST_NAME), "InetAddress", false,
+                    System.nanoTime() - hostStart);
         }
 
-        return tokenMap;
-    }
-
-    private String replaceTokens(String value, Map<String, String> tokenMap) {
-        for (Map.Entry<String, String> entry : tokenMap.entrySet()) {
-            String token = entry.getKey();
-            String replace = entry.getValue();
-
-            if (StringUtils.isBlank(replace)) {
-                replace = "";
-            }
-
-            value = StringUtils.replace(value, token, replace);
+        final TokenTable table = new TokenTable(tokenMap);
+        if (trace.isEnabled()) {
+            trace.recordStep(TRACE_COMPONENT, "buildTokenTable", System.nanoTime() - start);
         }
-        return value;
+        return table;
     }
 
     /**
      * Similar to {@code replaceTokens}, however takes two parameters and returns the active version.
+     * <p/>
+     * Results are interned per configuration snapshot, so identical (local, managed) pairs are only resolved once and
+     * share the same String instance until the configuration changes.
      *
      * @param local   string to be replaced when in local mode.
      * @param managed string to be replaced when running in managed mode.
@@ -172,10 +298,153 @@ class ConfigurationUtilImpl implements ConfigurationUtil {
     @Override
     public String replacePropertyTokens(String local, String managed) {
         if (local == null || managed == null) {
-            log.warn("Missing dual property value. local='" + local + "' managed='" + managed + "'");
+            throttledLog.warn(local != null ? local : managed,
+                    "Missing dual property value. local='%s' managed='%s'", local, managed);
+        }
+
+        final long start = System.nanoTime();
+        final TokenSnapshot current = getSnapshot();
+        final String value = current.localEnvironment ? local : managed;
+
+        if (value == null) {
+            return null;
         }
 
-        return replaceTokens(configuration.isLocalEnvironment() ? local : managed);
+        final PropertyKey key = new PropertyKey(local, managed);
+        String property = current.properties.get(key);
+
+        if (property != null) {
+            METRICS.increment(PROPERTY_HITS);
+        } else {
+            METRICS.increment(PROPERTY_MISSES);
+            property = TokenTemplate.valueOf(value).render(current.table);
+
+            if (current.properties.size() < MAX_INTERNED_PROPERTIES) {
+                final String existing = current.properties.putIfAbsent(key, property);
+                if (existing != null) {
+                    property = existing;
+                }
+            }
+        }
+        REPLACE_PROPERTY_TOKENS_TIMER.recordSince(start);
+        return property;
     }
-}
 
+    /**
+     * Returns the version of the current configuration snapshot.
+     * <p/>
+     * The version changes every time the content of the configuration or connection changes.
+     *
+     * @return the snapshot version.
+     */
+    long getSnapshotVersion() {
+        return getSnapshot().environment.getVersion();
+    }
+
+    /**
+     * Token values together with the configuration field values they were built from.
+     * <p/>
+     * The configuration beans are mutable so the snapshot records the values it was built from and is rebuilt when any
+     * of them is replaced. A setter call that changes a value always stores a different instance so identity
+     * comparisons are sufficient.
+     */
+    private static final class TokenSnapshot {
+        private final EnvironmentSnapshot environment;
+        private final EnvironmentConfiguration configuration;
+        private final EnvironmentConnection connection;
+        private final boolean localEnvironment;
+        private final String[] sourceValues;
+        private final TokenTable table;
+        private final ConcurrentMap<PropertyKey, String> properties;
+
+        TokenSnapshot(EnvironmentSnapshot environment, EnvironmentConfiguration configuration,
+                      EnvironmentConnection connection, boolean localEnvironment, String[] sourceValues,
+                      TokenTable table) {
+            this.environment = environment;
+            this.configuration = configuration;
+            this.connection = connection;
+            this.localEnvironment = localEnvironment;
+            this.sourceValues = sourceValues;
+            this.table = table;
+            this.properties = new ConcurrentHashMap<PropertyKey, String>();
+        }
+
+        /**
+         * Reuses the environment, token values and interned properties of a snapshot with the same content.
+         */
+        TokenSnapshot(TokenSnapshot previous, EnvironmentConfiguration configuration,
+                      EnvironmentConnection connection, boolean localEnvironment, String[] sourceValues) {
+            this.environment = previous.environment;
+            this.configuration = configuration;
+            this.connection = connection;
+            this.localEnvironment = localEnvironment;
+            this.sourceValues = sourceValues;
+            this.table = previous.table;
+            this.properties = previous.properties;
+        }
+
+        boolean matches(EnvironmentConfiguration configuration, EnvironmentConnection connection) {
+            if (this.configuration != configuration || this.connection != connection
+                    || localEnvironment != configuration.isLocalEnvironment()) {
+                return false;
+            }
+
+            return sourceValues[0] == configuration.getEnvironmentName()
+                    && sourceValues[1] == configuration.getDataCenter()
+                    && sourceValues[2] == configuration.getSite()
+                    && sourceValues[3] == configuration.getUrlPrefix()
+                    && sourceValues[4] == configuration.getUrlLegacyPrefix()
+                    && sourceValues[5] == configuration.getLogicalEnvironmentName()
+                    && sourceValues[6] == configuration.getEnvironmentIndex()
+                    && sourceValues[7] == connection.getInternalEnvironmentName()
+                    && sourceValues[8] == connection.getInternalDataCenter();
+        }
+
+        static String[] sourceValues(EnvironmentConfiguration configuration, EnvironmentConnection connection) {
+            return new String[]{
+                    configuration.getEnvironmentName(),
+                    configuration.getDataCenter(),
+                    configuration.getSite(),
+                    configuration.getUrlPrefix(),
+                    configuration.getUrlLegacyPrefix(),
+                    configuration.getLogicalEnvironmentName(),
+                    configuration.getEnvironmentIndex(),
+                    connection.getInternalEnvironmentName(),
+                    connection.getInternalDataCenter()};
+        }
+    }
+
+    /**
+     * Key of an interned (local, managed) pair, the snapshot holding the map supplies the version.
+     */
+    private static final class PropertyKey {
+        private final String local;
+        private final String managed;
+        private final int hash;
+
+        PropertyKey(String local, String managed) {
+            this.local = local;
+            this.managed = managed;
+            this.hash = 31 * (local == null ? 0 : local.hashCode()) + (managed == null ? 0 : managed.hashCode());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof PropertyKey)) {
+                return false;
+            }
+            final PropertyKey other = (PropertyKey) o;
+            return hash == other.hash
+                    && (local == null ? other.local == null : local.equals(other.local))
+                    && (managed == null ? other.managed == null : managed.equals(other.managed));
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -15,8 +15,10 @@
  */
 package com.edmunds.common.configuration.dns;
 
+import com.edmunds.common.configuration.logging.ThrottledLogger;
 import org.apache.log4j.Logger;
 
+import javax.naming.Context;
 import javax.naming.NamingException;
 import javax.naming.directory.Attribute;
 import javax.naming.directory.Attributes;
@@ -33,7 +35,47 @@ class DNSConfigurationEntryReader implements ConfigurationEntryReader {
     /**
      * Logger for this class.
      */
-    private static final Logger log = Logger.getLogger(DNSConfigurationEntryReader.class);
+    private static final ThrottledLogger log =
+            new ThrottledLogger(Logger.getLogger(DNSConfigurationEntryReader.class));
+
+    private static final String DNS_CONTEXT_FACTORY = "com.sun.jndi.dns.DnsContextFactory";
+    private static final String TIMEOUT_INITIAL = "com.sun.jndi.dns.timeout.initial";
+    private static final String TIMEOUT_RETRIES = "com.sun.jndi.dns.timeout.retries";
+    private static final String[] TXT = new String[]{"TXT"};
+
+    /**
+     * JNDI environment, built once and copied by each context.
+     */
+    private final Hashtable<String, String> env;
+
+    /**
+     * Creates a reader that uses the system resolvers with the JNDI default timeouts.
+     */
+    DNSConfigurationEntryReader() {
+        this(null, 0, -1);
+    }
+
+    /**
+     * Creates a reader that queries the given DNS servers.
+     *
+     * @param providerUrl          the servers to query, e.g. {@code dns://127.0.0.1:5353}, null for the system
+     *                             resolvers.
+     * @param initialTimeoutMillis time to wait for the first response before retrying, zero for the JNDI default.
+     * @param retries              number of times to retry each server, negative for the JNDI default.
+     */
+    DNSConfigurationEntryReader(String providerUrl, int initialTimeoutMillis, int retries) {
+        env = new Hashtable<String, String>(4);
+        env.put(Context.INITIAL_CONTEXT_FACTORY, DNS_CONTEXT_FACTORY);
+        if (providerUrl != null) {
+            env.put(Context.PROVIDER_URL, providerUrl);
+        }
+        if (initialTimeoutMillis > 0) {
+            env.put(TIMEOUT_INITIAL, String.valueOf(initialTimeoutMillis));
+        }
+        if (retries >= 0) {
+            env.put(TIMEOUT_RETRIES, String.valueOf(retries));
+        }
+    }
 
     /**
      * Fetches the configuration entry.
@@ -48,21 +90,32 @@ class DNSConfigurationEntryReader implements ConfigurationEntryReader {
         }
 
         String returnValue = null;
+        DirContext initialContext = null;
         try {
-            Hashtable<String, String> env = new Hashtable<String, String>(1);
-            env.put("java.naming.factory.initial", "com.sun.jndi.dns.DnsContextFactory");
-            DirContext initialContext = new InitialDirContext(env);
-            Attributes attributes = initialContext.getAttributes(entryName, new String[]{"TXT"});
+            initialContext = new InitialDirContext(env);
+            Attributes attributes = initialContext.getAttributes(entryName, TXT);
             Attribute attribute = attributes.get("TXT");
             if (attribute == null || attribute.size() == 0) {
-                log.warn("No TXT attribute found for DNS entry: '" + entryName + "'.");
+                log.warn(entryName, "No TXT attribute found for DNS entry: '%s'.", entryName);
             } else {
                 returnValue = (String) attribute.get(0);
             }
         } catch (NamingException exc) {
-            log.warn("NamingException looking up TXT entry '" + entryName + "' from DNS: " + exc.getMessage());
+            log.warn(entryName, "NamingException looking up TXT entry '%s' from DNS: %s", entryName, exc.getMessage());
+        } finally {
+            close(initialContext);
         }
 
         return returnValue;
     }
+
+    private static void close(DirContext context) {
+        if (context != null) {
+            try {
+                context.close();
+            } catch (NamingException e) {
+                // Nothing useful to do.
+            }
+        }
+    }
 }
@@ -16,15 +16,35 @@
 package com.edmunds.common.configuration.dns;
 
 import com.edmunds.common.configuration.api.EnvironmentConfiguration;
+import com.edmunds.common.configuration.metrics.ConfigurationMetrics;
+import com.edmunds.common.configuration.metrics.StripedCounter;
+import com.edmunds.common.configuration.metrics.Timer;
+import com.edmunds.common.configuration.trace.ResolutionTrace;
 import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.Logger;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
 /**
  * Factory that builds {@code EnvironmentConfiguration} objects using values read from DNS.
  * <p/>
+ * Each entry is looked up in turn, so an unreachable resolver can delay startup by several lookup timeouts. Setting a
+ * {@link #setResolutionDeadlineMillis(long) resolution deadline} bounds that delay: if the configuration is not
+ * resolved in time the {@link #setFallbackConfiguration(EnvironmentConfiguration) fallback configuration}, or the
+ * local defaults, are used instead, an error is logged and {@link #isFallback()} returns true. The same happens when
+ * the environment name or url prefix are missing while the entry reader's
+ * {@link CircuitBreakerConfigurationEntryReader circuit is open}, since the environment cannot be identified. Other
+ * attributes that are missing while the circuit is open take their defaults, as they do when the entry is not set.
+ * <p/>
  * Copyright (C) 2010 Edmunds.com
  */
 @Component("dnsConfigurationFactory")
@@ -51,6 +71,14 @@ class DNSConfigurationFactory implements InitializingBean {
      */
     private static final Logger log = Logger.getLogger(DNSConfigurationFactory.class);
 
+    private static final ConfigurationMetrics METRICS = ConfigurationMetrics.getInstance();
+    private static final Timer RESOLVE_TIMER = METRICS.timer("configuration.resolve");
+    private static final StripedCounter RESOLVE_FAILURES = METRICS.counter("configuration.resolve.failure");
+    private static final StripedCounter RESOLVE_FALLBACKS = METRICS.counter("configuration.resolve.fallback");
+
+    private static final ResolutionTrace TRACE = ResolutionTrace.getInstance();
+    private static final String TRACE_COMPONENT = "DNSConfigurationFactory";
+
     /**
      * Configuration reader that implements the low level logic to actually read the DNS entry.
      */
@@ -58,9 +86,30 @@ class DNSConfigurationFactory implements InitializingBean {
     private ConfigurationEntryReader configurationEntryReader;
 
     /**
-     * The configuration object build by this factory.
+     * The configuration object build by this factory, read without locking.
+     */
+    private final AtomicReference<EnvironmentConfiguration> environmentConfiguration =
+            new AtomicReference<EnvironmentConfiguration>();
+
+    /**
+     * Should the configuration be resolved on a background thread.
+     */
+    private boolean backgroundResolution;
+
+    /**
+     * Maximum time to spend resolving the configuration, zero or less waits indefinitely.
+     */
+    private long resolutionDeadlineMillis;
+
+    /**
+     * Configuration used when the deadline passes, null for the local defaults.
+     */
+    private EnvironmentConfiguration fallbackConfiguration;
+
+    /**
+     * Was the fallback configuration used.
      */
-    private volatile EnvironmentConfiguration environmentConfiguration;
+    private volatile boolean fallback;
 
     /**
      * Default Constructor (No-op).
@@ -85,7 +134,7 @@ class DNSConfigurationFactory implements InitializingBean {
      * @return the configuration.
      */
     public EnvironmentConfiguration getEnvironmentConfiguration() {
-        return environmentConfiguration;
+        return environmentConfiguration.get();
     }
 
     /**
@@ -93,8 +142,78 @@ class DNSConfigurationFactory implements InitializingBean {
      *
      * @param environmentConfiguration the configuration.
      */
-    public synchronized void setEnvironmentConfiguration(EnvironmentConfiguration environmentConfiguration) {
-        this.environmentConfiguration = environmentConfiguration;
+    public void setEnvironmentConfiguration(EnvironmentConfiguration environmentConfiguration) {
+        this.environmentConfiguration.set(environmentConfiguration);
+    }
+
+    /**
+     * Should the configuration be resolved on a background thread.
+     * <p/>
+     * When enabled the configuration is a {@link DeferredEnvironmentConfiguration} that only blocks when it is first
+     * read, and any resolution failure is reported at that point rather than during startup.
+     *
+     * @return true if background resolution is enabled (default: false).
+     */
+    public boolean isBackgroundResolution() {
+        return backgroundResolution;
+    }
+
+    /**
+     * Sets if the configuration should be resolved on a background thread.
+     *
+     * @param backgroundResolution true to enable background resolution.
+     */
+    public void setBackgroundResolution(boolean backgroundResolution) {
+        this.backgroundResolution = backgroundResolution;
+    }
+
+    /**
+     * Returns the maximum time to spend resolving the configuration.
+     *
+     * @return the deadline in milliseconds, zero or less if there is no deadline (default: 0).
+     */
+    public long getResolutionDeadlineMillis() {
+        return resolutionDeadlineMillis;
+    }
+
+    /**
+     * Sets the maximum time to spend resolving the configuration, after which the fallback configuration is used.
+     * <p/>
+     * When the deadline passes the resolution is cancelled: no further entries are looked up and the configuration
+     * it was building is discarded, so it never replaces the fallback configuration.
+     *
+     * @param resolutionDeadlineMillis the deadline in milliseconds, zero or less to wait indefinitely.
+     */
+    public void setResolutionDeadlineMillis(long resolutionDeadlineMillis) {
+        this.resolutionDeadlineMillis = resolutionDeadlineMillis;
+    }
+
+    /**
+     * Returns the configuration used when the resolution deadline passes.
+     *
+     * @return the fallback configuration, null if the local defaults are used.
+     */
+    public EnvironmentConfiguration getFallbackConfiguration() {
+        return fallbackConfiguration;
+    }
+
+    /**
+     * Sets the configuration used when the resolution deadline passes, for example the last known configuration
+     * restored with {@link com.edmunds.common.configuration.api.EnvironmentSnapshot#toEnvironmentConfiguration()}.
+     *
+     * @param fallbackConfiguration the fallback configuration, null to use the local defaults.
+     */
+    public void setFallbackConfiguration(EnvironmentConfiguration fallbackConfiguration) {
+        this.fallbackConfiguration = fallbackConfiguration;
+    }
+
+    /**
+     * Indicates if the resolution deadline passed and the fallback configuration is in use.
+     *
+     * @return true if the configuration was not resolved from the entry reader.
+     */
+    public boolean isFallback() {
+        return fallback;
     }
 
     /**
@@ -104,11 +223,115 @@ class DNSConfigurationFactory implements InitializingBean {
     public void afterPropertiesSet() throws Exception {
         // Only set the configuration if it is null.
         if (getEnvironmentConfiguration() == null) {
-            setEnvironmentConfiguration(buildConfiguration());
+            if (backgroundResolution) {
+                setEnvironmentConfiguration(resolveInBackground());
+            } else {
+                setEnvironmentConfiguration(buildConfigurationWithinDeadline());
+            }
+        }
+    }
+
+    private EnvironmentConfiguration resolveInBackground() {
+        final FutureTask<EnvironmentConfiguration> task = new FutureTask<EnvironmentConfiguration>(
+                new Callable<EnvironmentConfiguration>() {
+                    @Override
+                    public EnvironmentConfiguration call() {
+                        return buildConfigurationWithinDeadline();
+                    }
+                });
+        startResolver(task);
+
+        return new DeferredEnvironmentConfiguration(task);
+    }
+
+    private static void startResolver(Runnable task) {
+        final Thread thread = new Thread(task, "environment-configuration-resolver");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private EnvironmentConfiguration buildConfigurationWithinDeadline() {
+        final long deadline = resolutionDeadlineMillis;
+        if (deadline <= 0) {
+            return buildConfiguration();
+        }
+
+        final FutureTask<EnvironmentConfiguration> task = new FutureTask<EnvironmentConfiguration>(
+                new Callable<EnvironmentConfiguration>() {
+                    @Override
+                    public EnvironmentConfiguration call() {
+                        return buildConfiguration();
+                    }
+                });
+        startResolver(task);
+
+        try {
+            return task.get(deadline, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // Stop the resolver from issuing further lookups, a cancelled task never publishes its result.
+            task.cancel(true);
+            return useFallback("Environment configuration not resolved within " + deadline + "ms");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted resolving the environment configuration", e);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException("Failed to resolve the environment configuration", cause);
         }
     }
 
+    private EnvironmentConfiguration useFallback(String reason) {
+        final EnvironmentConfiguration configured = fallbackConfiguration;
+        final EnvironmentConfiguration configuration = configured != null ? configured : newDefaultConfiguration();
+        final String source = configured != null ? "fallbackConfiguration" : "default";
+
+        fallback = true;
+        METRICS.increment(RESOLVE_FALLBACKS);
+        log.error(reason + ", using the " + (configured != null ? "fallback configuration" : "local defaults")
+                + " for environment '" + configuration.getEnvironmentName() + "'");
+        trace("environmentName", configuration.getEnvironmentName(), source, true);
+        return configuration;
+    }
+
+    private static EnvironmentConfiguration newDefaultConfiguration() {
+        final EnvironmentConfiguration config = new EnvironmentConfiguration();
+        config.setLocalEnvironment(true);
+        config.setEnvironmentName(LOCAL_ENVIRONMENT_NAME);
+        config.setUrlPrefix("");
+        config.setUrlLegacyPrefix("");
+        config.setDataCenter(DEFAULT_DATA_CENTER);
+        config.setSite(DEFAULT_SITE);
+        config.setLogicalEnvironmentName(LOCAL_ENVIRONMENT_NAME);
+        config.setEnvironmentIndex(DEFAULT_ENVIRONMENT_INDEX);
+        return config;
+    }
+
     private EnvironmentConfiguration buildConfiguration() {
+        final long start = System.nanoTime();
+        boolean success = false;
+        try {
+            final EnvironmentConfiguration configuration = resolveConfiguration();
+            success = true;
+            return configuration;
+        } finally {
+            final long nanos = System.nanoTime() - start;
+            RESOLVE_TIMER.record(nanos);
+            if (TRACE.isEnabled()) {
+                TRACE.recordStep(TRACE_COMPONENT, "resolve", nanos);
+            }
+            if (!success) {
+                METRICS.increment(RESOLVE_FAILURES);
+            }
+        }
+    }
+
+    private EnvironmentConfiguration resolveConfiguration() {
         final String legacyEnvironmentName =
                 DNSLegacyUtil.getActualEnvironmentName(getEntry(LEGACY_DNS_ENVIRONMENT_NAME));
 
@@ -121,11 +344,16 @@ class DNSConfigurationFactory implements InitializingBean {
             log.warn("The environment name DNS entry was not found. Checking legacy setting");
 
             if (StringUtils.isBlank(legacyEnvironmentName)) {
+                if (isRejectingLookups()) {
+                    return useFallback("Environment name lookup rejected, configuration entry lookups are failing");
+                }
                 log.warn("The environment name DNS entry was not found. Defaulting to local environment value");
                 environmentName = LOCAL_ENVIRONMENT_NAME;
                 localMode = true;
+                trace("environmentName", environmentName, "default", true);
             } else {
                 environmentName = legacyEnvironmentName;
+                trace("environmentName", environmentName, LEGACY_DNS_ENVIRONMENT_NAME, false);
             }
         }
 
@@ -134,6 +362,9 @@ class DNSConfigurationFactory implements InitializingBean {
             urlPrefix = "";
         } else {
             if (StringUtils.isBlank(urlPrefix)) {
+                if (isRejectingLookups()) {
+                    return useFallback("Url prefix lookup rejected, configuration entry lookups are failing");
+                }
                 //a blank environment name outside of dev is very bad. abort everything.
                 throw new IllegalStateException("Cannot have a blank url prefix outside of dev!!!!");
             }
@@ -193,7 +424,43 @@ class DNSConfigurationFactory implements InitializingBean {
     }
 
     private String getEntry(final String entryName, final String defaultValue) {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("Environment configuration resolution cancelled before: " + entryName);
+        }
+        if (!TRACE.isEnabled()) {
+            final String value = configurationEntryReader.getEntry(entryName);
+            return StringUtils.isNotBlank(value) ? value.toLowerCase() : defaultValue;
+        }
+
+        final long start = System.nanoTime();
         final String value = configurationEntryReader.getEntry(entryName);
-        return StringUtils.isNotBlank(value) ? value.toLowerCase() : defaultValue;
+        final boolean found = StringUtils.isNotBlank(value);
+        final String result = found ? value.toLowerCase() : defaultValue;
+
+        TRACE.record(TRACE_COMPONENT, entryName, result, sourceName(configurationEntryReader), !found,
+                System.nanoTime() - start);
+        return result;
+    }
+
+    /**
+     * Indicates if the entry reader is rejecting lookups, in which case a missing entry may be set.
+     */
+    private boolean isRejectingLookups() {
+        final CircuitBreakerConfigurationEntryReader breaker =
+                ConfigurationEntryReaderFactory.findCircuitBreaker(configurationEntryReader);
+        return breaker != null && breaker.isRejectingLookups();
+    }
+
+    private void trace(String attribute, String value, String source, boolean defaulted) {
+        if (TRACE.isEnabled()) {
+            TRACE.record(TRACE_COMPONENT, attribute, value, source, defaulted, 0L);
+        }
+    }
+
+    /**
+     * Returns the type of the reader that actually performs the lookups, looking through any decorators.
+     */
+    private static String sourceName(ConfigurationEntryReader reader) {
+        return ConfigurationEntryReaderFactory.undecorated(reader).getClass().getSimpleName();
     }
 }
@@ -22,6 +22,9 @@ import org.springframework.stereotype.Component;
 
 import com.edmunds.common.configuration.api.EnvironmentConfiguration;
 import com.edmunds.common.configuration.api.EnvironmentConnection;
+import com.edmunds.common.configuration.metrics.ConfigurationMetrics;
+import com.edmunds.common.configuration.metrics.Timer;
+import com.edmunds.common.configuration.trace.ResolutionTrace;
 
 /**
  *
@@ -41,6 +44,8 @@ public class DNSConnectionFactory implements InitializingBean {
      */
     private static final Logger log = Logger.getLogger(DNSConnectionFactory.class);
 
+    private static final Timer BUILD_TIMER = ConfigurationMetrics.getInstance().timer("connection.build");
+
     /**
      * Auto-wired constructor.
      *
@@ -60,7 +65,21 @@ public class DNSConnectionFactory implements InitializingBean {
      */
     @Override
     public void afterPropertiesSet() throws Exception {
+        if (environmentConfiguration instanceof DeferredEnvironmentConfiguration) {
+            // Don't block startup waiting for the configuration.
+            environmentConnection = new DeferredEnvironmentConnection(this);
+        } else {
+            environmentConnection = buildConnection();
+        }
+    }
 
+    /**
+     * Builds the environment connection from the environment configuration.
+     *
+     * @return the environment connection.
+     */
+    EnvironmentConnection buildConnection() {
+        final long start = System.nanoTime();
         final String environmentName = environmentConfiguration.getEnvironmentName();
         log.debug("DNSConnectionFactory environmentName: " + environmentName);
         final String internalEnvironmentName;
@@ -71,10 +90,23 @@ public class DNSConnectionFactory implements InitializingBean {
             internalEnvironmentName = "pi";
         }
 
-        environmentConnection = new EnvironmentConnection();
+        final EnvironmentConnection connection = new EnvironmentConnection();
         log.debug("DNSConnectionFactory internalEnvironmentName: " + internalEnvironmentName);
-        environmentConnection.setInternalEnvironmentName(internalEnvironmentName);
-        environmentConnection.setInternalDataCenter(environmentConfiguration.getDataCenter());
+        connection.setInternalEnvironmentName(internalEnvironmentName);
+        connection.setInternalDataCenter(environmentConfiguration.getDataCenter());
+
+        final long nanos = System.nanoTime() - start;
+        BUILD_TIMER.record(nanos);
+
+        final ResolutionTrace trace = ResolutionTrace.getInstance();
+        if (trace.isEnabled()) {
+            trace.record("DNSConnectionFactory", "internalEnvironmentName", internalEnvironmentName,
+                    "environmentName", false, 0L);
+            trace.record("DNSConnectionFactory", "internalDataCenter", connection.getInternalDataCenter(),
+                    "dataCenter", false, 0L);
+            trace.recordStep("DNSConnectionFactory", "buildConnection", nanos);
+        }
+        return connection;
     }
 
     /**
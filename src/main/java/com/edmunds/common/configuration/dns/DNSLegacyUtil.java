@@ -71,8 +71,17 @@ abstract class DNSLegacyUtil {
             return null;
         }
 
-        String environmentName = configuration.getEnvironmentName();
+        return getLegacyEnvironmentName(configuration.getEnvironmentName(), configuration.getDataCenter());
+    }
 
+    /**
+     * Takes an environment name and data center and converts them to the legacy environment name.
+     *
+     * @param environmentName the environment name.
+     * @param dataCenter      the data center, only used for production.
+     * @return the legacy environment name.
+     */
+    static String getLegacyEnvironmentName(String environmentName, String dataCenter) {
         if (environmentName == null) {
             return null;
         }
@@ -85,8 +94,6 @@ abstract class DNSLegacyUtil {
         final String lowerEnvironmentName = environmentName.toLowerCase();
 
         if (PRODUCTION_ENVIRONMENT_NAME.equals(lowerEnvironmentName)) {
-            String dataCenter = configuration.getDataCenter();
-
             if (StringUtils.isBlank(dataCenter)) {
                 dataCenter = "lax1";
             }
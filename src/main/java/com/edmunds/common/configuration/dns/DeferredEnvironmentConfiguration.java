@@ -0,0 +1,199 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.dns;
+
+import com.edmunds.common.configuration.api.EnvironmentConfiguration;
+import com.edmunds.common.configuration.metrics.ConfigurationMetrics;
+import com.edmunds.common.configuration.metrics.Timer;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An {@code EnvironmentConfiguration} whose values are still being resolved in the background.
+ * <p/>
+ * All getters and setters delegate to the resolved configuration, waiting for it the first time it is needed.
+ * Once resolved no further waiting or synchronization takes place.
+ * <p/>
+ * The time callers actually spent waiting is recorded, see {@link #getWaitCount()} and {@link #getWaitNanos()}.
+ * <p/>
+ * Copyright (C) 2011 Edmunds.com
+ */
+public class DeferredEnvironmentConfiguration extends EnvironmentConfiguration {
+
+    private static final Timer WAIT_TIMER = ConfigurationMetrics.getInstance().timer("configuration.deferred.wait");
+
+    private final Future<EnvironmentConfiguration> future;
+
+    private volatile EnvironmentConfiguration resolved;
+
+    private final AtomicLong waitCount = new AtomicLong();
+    private final AtomicLong waitNanos = new AtomicLong();
+
+    /**
+     * Creates a configuration backed by the given future.
+     *
+     * @param future the configuration being resolved.
+     */
+    DeferredEnvironmentConfiguration(Future<EnvironmentConfiguration> future) {
+        this.future = future;
+    }
+
+    /**
+     * Indicates if the configuration has been resolved, reading values will not block if this returns true.
+     *
+     * @return true if the configuration is available.
+     */
+    public boolean isResolved() {
+        return resolved != null || future.isDone();
+    }
+
+    /**
+     * Returns the number of callers that had to wait for the configuration to be resolved.
+     *
+     * @return the number of blocked reads.
+     */
+    public long getWaitCount() {
+        return waitCount.get();
+    }
+
+    /**
+     * Returns the total time callers spent waiting for the configuration to be resolved.
+     *
+     * @return the total wait time in nanoseconds.
+     */
+    public long getWaitNanos() {
+        return waitNanos.get();
+    }
+
+    /**
+     * Returns the resolved configuration, waiting for it if necessary.
+     *
+     * @return the resolved configuration.
+     * @throws IllegalStateException if the configuration could not be resolved.
+     */
+    EnvironmentConfiguration getResolved() {
+        EnvironmentConfiguration configuration = resolved;
+
+        if (configuration == null) {
+            final boolean wait = !future.isDone();
+            final long start = wait ? System.nanoTime() : 0L;
+
+            try {
+                configuration = future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted waiting for the environment configuration", e);
+            } catch (ExecutionException e) {
+                final Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new IllegalStateException("Failed to resolve the environment configuration", cause);
+            } finally {
+                if (wait) {
+                    final long nanos = System.nanoTime() - start;
+                    waitCount.incrementAndGet();
+                    waitNanos.addAndGet(nanos);
+                    WAIT_TIMER.record(nanos);
+                }
+            }
+            resolved = configuration;
+        }
+        return configuration;
+    }
+
+    @Override
+    public boolean isLocalEnvironment() {
+        return getResolved().isLocalEnvironment();
+    }
+
+    @Override
+    public void setLocalEnvironment(boolean localEnvironment) {
+        getResolved().setLocalEnvironment(localEnvironment);
+    }
+
+    @Override
+    public String getEnvironmentName() {
+        return getResolved().getEnvironmentName();
+    }
+
+    @Override
+    public void setEnvironmentName(String environmentName) {
+        getResolved().setEnvironmentName(environmentName);
+    }
+
+    @Override
+    public String getDataCenter() {
+        return getResolved().getDataCenter();
+    }
+
+    @Override
+    public void setDataCenter(String dataCenter) {
+        getResolved().setDataCenter(dataCenter);
+    }
+
+    @Override
+    public String getSite() {
+        return getResolved().getSite();
+    }
+
+    @Override
+    public void setSite(String site) {
+        getResolved().setSite(site);
+    }
+
+    @Override
+    public String getUrlPrefix() {
+        return getResolved().getUrlPrefix();
+    }
+
+    @Override
+    public void setUrlPrefix(String urlPrefix) {
+        getResolved().setUrlPrefix(urlPrefix);
+    }
+
+    @Override
+    public String getUrlLegacyPrefix() {
+        return getResolved().getUrlLegacyPrefix();
+    }
+
+    @Override
+    public void setUrlLegacyPrefix(String urlLegacyPrefix) {
+        getResolved().setUrlLegacyPrefix(urlLegacyPrefix);
+    }
+
+    @Override
+    public String getLogicalEnvironmentName() {
+        return getResolved().getLogicalEnvironmentName();
+    }
+
+    @Override
+    public void setLogicalEnvironmentName(String logicalEnvironmentName) {
+        getResolved().setLogicalEnvironmentName(logicalEnvironmentName);
+    }
+
+    @Override
+    public String getEnvironmentIndex() {
+        return getResolved().getEnvironmentIndex();
+    }
+
+    @Override
+    public void setEnvironmentIndex(String environmentIndex) {
+        getResolved().setEnvironmentIndex(environmentIndex);
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.dns;
+
+import com.edmunds.common.configuration.api.EnvironmentConnection;
+
+/**
+ * An {@code EnvironmentConnection} that is built the first time it is read.
+ * <p/>
+ * Used together with {@link DeferredEnvironmentConfiguration} so that creating the connection does not wait for the
+ * configuration to be resolved.
+ * <p/>
+ * Copyright (C) 2011 Edmunds.com
+ */
+class DeferredEnvironmentConnection extends EnvironmentConnection {
+
+    private final DNSConnectionFactory connectionFactory;
+
+    private volatile EnvironmentConnection resolved;
+
+    DeferredEnvironmentConnection(DNSConnectionFactory connectionFactory) {
+        this.connectionFactory = connectionFactory;
+    }
+
+    private EnvironmentConnection getResolved() {
+        EnvironmentConnection connection = resolved;
+
+        if (connection == null) {
+            synchronized (this) {
+                connection = resolved;
+                if (connection == null) {
+                    connection = connectionFactory.buildConnection();
+                    resolved = connection;
+                }
+            }
+        }
+        return connection;
+    }
+
+    @Override
+    public String getInternalEnvironmentName() {
+        return getResolved().getInternalEnvironmentName();
+    }
+
+    @Override
+    public void setInternalEnvironmentName(String internalEnvironmentName) {
+        getResolved().setInternalEnvironmentName(internalEnvironmentName);
+    }
+
+    @Override
+    public String getInternalDataCenter() {
+        return getResolved().getInternalDataCenter();
+    }
+
+    @Override
+    public void setInternalDataCenter(String internalDataCenter) {
+        getResolved().setInternalDataCenter(internalDataCenter);
+    }
+}
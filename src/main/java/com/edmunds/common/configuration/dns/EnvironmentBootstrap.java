@@ -0,0 +1,167 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.dns;
+
+import com.edmunds.common.configuration.api.ConfigurationUtil;
+import com.edmunds.common.configuration.api.EnvironmentConfiguration;
+import com.edmunds.common.configuration.api.EnvironmentConnection;
+import com.edmunds.common.configuration.api.EnvironmentSnapshot;
+import com.edmunds.common.configuration.api.SnapshotConfigurationUtil;
+import org.springframework.beans.factory.InitializingBean;
+
+/**
+ * Resolves the environment without a Spring application context.
+ * <p/>
+ * Wires the same objects as {@code configuration-common-spring.xml} directly, for use by command line tools and
+ * batch jobs:
+ * <pre>
+ *  ConfigurationUtil util = EnvironmentBootstrap.resolve().getConfigurationUtil();
+ *  String url = util.replaceTokens("http://[URL_PREFIX]www.edmunds.com/");
+ * </pre>
+ * <p/>
+ * Copyright (C) 2011 Edmunds.com
+ */
+public final class EnvironmentBootstrap {
+
+    private final EnvironmentConfiguration environmentConfiguration;
+    private final EnvironmentConnection environmentConnection;
+    private final SnapshotConfigurationUtil configurationUtil;
+    private final boolean fallback;
+
+    private EnvironmentBootstrap(EnvironmentConfiguration environmentConfiguration,
+                                 EnvironmentConnection environmentConnection, boolean fallback) {
+        this.environmentConfiguration = environmentConfiguration;
+        this.environmentConnection = environmentConnection;
+        this.fallback = fallback;
+        this.configurationUtil = new ConfigurationUtilImpl(environmentConfiguration, environmentConnection);
+    }
+
+    /**
+     * Resolves the environment using the standard reader (the properties file if present, otherwise DNS).
+     *
+     * @return the resolved environment.
+     */
+    public static EnvironmentBootstrap resolve() {
+        return resolve(ConfigurationEntryReaderFactory.newConfigurationEntryReader());
+    }
+
+    /**
+     * Resolves the environment using the given reader.
+     *
+     * @param configurationEntryReader the reader used to fetch the configuration entries.
+     * @return the resolved environment.
+     */
+    public static EnvironmentBootstrap resolve(ConfigurationEntryReader configurationEntryReader) {
+        return resolve(configurationEntryReader, 0L);
+    }
+
+    /**
+     * Resolves the environment using the given reader, falling back to the local defaults if the configuration is
+     * not resolved within a deadline (see {@link #isFallback()}).
+     *
+     * @param configurationEntryReader the reader used to fetch the configuration entries.
+     * @param deadlineMillis           maximum time to spend resolving the configuration, zero or less to wait
+     *                                 indefinitely.
+     * @return the resolved environment.
+     */
+    public static EnvironmentBootstrap resolve(ConfigurationEntryReader configurationEntryReader, long deadlineMillis) {
+        final DNSConfigurationFactory configurationFactory = new DNSConfigurationFactory(configurationEntryReader);
+        configurationFactory.setResolutionDeadlineMillis(deadlineMillis);
+        initialize(configurationFactory);
+        final EnvironmentConfiguration configuration = configurationFactory.getEnvironmentConfiguration();
+
+        final DNSConnectionFactory connectionFactory = new DNSConnectionFactory(configuration);
+        initialize(connectionFactory);
+
+        return new EnvironmentBootstrap(
+                configuration, connectionFactory.getEnvironmentConnection(), configurationFactory.isFallback());
+    }
+
+    /**
+     * Captures the environment resolved by the given reader, without building a configuration util.
+     * <p/>
+     * Unlike {@link #resolve(ConfigurationEntryReader)} this makes no host name lookups and builds no token table,
+     * which suits callers that only need the values, such as rendering many synthetic environments.
+     *
+     * @param configurationEntryReader the reader used to fetch the configuration entries.
+     * @return a snapshot of the resolved environment.
+     */
+    public static EnvironmentSnapshot capture(ConfigurationEntryReader configurationEntryReader) {
+        final DNSConfigurationFactory configurationFactory = new DNSConfigurationFactory(configurationEntryReader);
+        initialize(configurationFactory);
+        final EnvironmentConfiguration configuration = configurationFactory.getEnvironmentConfiguration();
+
+        final DNSConnectionFactory connectionFactory = new DNSConnectionFactory(configuration);
+        initialize(connectionFactory);
+
+        return EnvironmentSnapshot.capture(configuration, connectionFactory.getEnvironmentConnection());
+    }
+
+    private static void initialize(InitializingBean factory) {
+        try {
+            factory.afterPropertiesSet();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to resolve the environment: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Indicates if the resolution deadline passed and the local defaults are in use.
+     *
+     * @return true if the configuration was not resolved from the entry reader.
+     */
+    public boolean isFallback() {
+        return fallback;
+    }
+
+    /**
+     * Returns the resolved configuration.
+     *
+     * @return the environment configuration.
+     */
+    public EnvironmentConfiguration getEnvironmentConfiguration() {
+        return environmentConfiguration;
+    }
+
+    /**
+     * Returns the connections to other environments.
+     *
+     * @return the environment connection.
+     */
+    public EnvironmentConnection getEnvironmentConnection() {
+        return environmentConnection;
+    }
+
+    /**
+     * Returns an immutable snapshot of the resolved environment.
+     *
+     * @return the environment snapshot.
+     */
+    public EnvironmentSnapshot getEnvironmentSnapshot() {
+        return configurationUtil.getEnvironmentSnapshot();
+    }
+
+    /**
+     * Returns the configuration functions for the resolved environment.
+     *
+     * @return the configuration util.
+     */
+    public ConfigurationUtil getConfigurationUtil() {
+        return configurationUtil;
+    }
+}
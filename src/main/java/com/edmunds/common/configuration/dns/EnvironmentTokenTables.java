@@ -0,0 +1,82 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.dns;
+
+import com.edmunds.common.configuration.api.EnvironmentSnapshot;
+import com.edmunds.common.configuration.token.EnvironmentToken;
+import com.edmunds.common.configuration.token.TokenTable;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Builds the {@link TokenTable} of an environment, the same values {@code ConfigurationUtil} replaces at runtime.
+ * <p/>
+ * Copyright (C) 2011 Edmunds.com
+ */
+public final class EnvironmentTokenTables {
+
+    private EnvironmentTokenTables() {
+    }
+
+    /**
+     * Builds the token values of an environment without looking up the local host.
+     * <p/>
+     * This is intended for rendering values of other environments offline, the host name tokens are only replaced
+     * when a host name is given.
+     *
+     * @param environment       the environment.
+     * @param hostName          the value of the {@code _HOST_NAME_} token, null to leave the token untouched.
+     * @param canonicalHostName the value of the {@code _HOST_CANONICAL_NAME_} token, null to leave it untouched.
+     * @return the token values.
+     */
+    public static TokenTable build(EnvironmentSnapshot environment, String hostName, String canonicalHostName) {
+        final Map<EnvironmentToken, String> tokenMap = environmentTokens(environment);
+        if (hostName != null) {
+            tokenMap.put(EnvironmentToken.HOST_NAME, hostName);
+        }
+        if (canonicalHostName != null) {
+            tokenMap.put(EnvironmentToken.CANONICAL_HOST_NAME, canonicalHostName);
+        }
+        return new TokenTable(tokenMap);
+    }
+
+    /**
+     * Returns the token values derived from the environment, excluding the host names.
+     *
+     * @param environment the environment.
+     * @return a new, modifiable map of token values.
+     */
+    static Map<EnvironmentToken, String> environmentTokens(EnvironmentSnapshot environment) {
+        Map<EnvironmentToken, String> tokenMap = new EnumMap<EnvironmentToken, String>(EnvironmentToken.class);
+
+        tokenMap.put(EnvironmentToken.ENVIRONMENT_NAME,
+                DNSLegacyUtil.getLegacyEnvironmentName(environment.getEnvironmentName(), environment.getDataCenter()));
+        tokenMap.put(EnvironmentToken.URL_LEGACY_PREFIX, environment.getUrlLegacyPrefix());
+        tokenMap.put(EnvironmentToken.LOGICAL_ENVIRONMENT_NAME, environment.getLogicalEnvironmentName());
+        tokenMap.put(EnvironmentToken.ENVIRONMENT_INDEX, environment.getEnvironmentIndex());
+
+        final String urlPrefix = environment.getUrlPrefix();
+        tokenMap.put(EnvironmentToken.URL_PREFIX, urlPrefix);
+        tokenMap.put(EnvironmentToken.LOCAL_ENVIRONMENT_NAME, environment.getEnvironmentName());
+        tokenMap.put(EnvironmentToken.LOCAL_ENVIRONMENT_DATA_CENTER, environment.getDataCenter());
+        tokenMap.put(EnvironmentToken.LOCAL_ENVIRONMENT_SITE, environment.getSite());
+        tokenMap.put(EnvironmentToken.INTERNAL_ENVIRONMENT_NAME, environment.getInternalEnvironmentName());
+        tokenMap.put(EnvironmentToken.INTERNAL_ENVIRONMENT_DATA_CENTER, environment.getInternalDataCenter());
+        tokenMap.put(EnvironmentToken.URL_PREFIX_NODASH, TokenTable.urlPrefixNoDash(urlPrefix));
+        return tokenMap;
+    }
+}
@@ -19,6 +19,10 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 import java.util.Properties;
+import java.util.SortedMap;
+import java.util.SortedSet;
+
+import com.edmunds.common.configuration.logging.ThrottledLogger;
 import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.Logger;
 
@@ -41,16 +45,23 @@ import org.apache.log4j.Logger;
  * (See {@link ConfigurationEntryReaderFactory for details}. The properties file would typically be deployed and
  * maintained by a configuration management tool (e.g. Chef).
  *
+ * The file may also hold hierarchical entries such as {@code search.pool.size}. Names are looked up in full first and
+ * then with the domain name (everything after the first dot) removed, and the entries can be enumerated by prefix or
+ * dot-path through {@link IndexedConfigurationEntryReader}.
+ *
  * @author Ryan Holmes
  */
-public class FileConfigurationEntryReader implements ConfigurationEntryReader {
+public class FileConfigurationEntryReader implements IndexedConfigurationEntryReader {
 
     private static final Logger log = Logger.getLogger(FileConfigurationEntryReader.class);
+    private static final ThrottledLogger throttledLog = new ThrottledLogger(log);
     private static final String PROPERTY_FILE_PATH
         = "/deployments/edmunds/properties/common/configuration-dns.properties";
 
     private Properties properties;
 
+    private volatile ConfigurationEntryIndex index;
+
     /**
      * Returns true if the configuration-dns properties file exists.
      * @return true if properties file exists, false otherwise
@@ -66,27 +77,58 @@ public class FileConfigurationEntryReader implements ConfigurationEntryReader {
      */
     @Override
     public String getEntry(String entryName) {
-        // Strip domain name from entry
-        String name;
-        int dotIndex = entryName.indexOf(".");
-        if(dotIndex > 0) {
-            name = entryName.substring(0, dotIndex);
-        } else {
-            name = entryName;
-        }
         Properties props = getProperties();
+        String name = entryName;
         String value = props.getProperty(name);
+
+        // Strip domain name from entry, also when the full name is present but blank
+        int dotIndex = entryName.indexOf(".");
+        if(StringUtils.isBlank(value) && dotIndex > 0) {
+            String strippedName = entryName.substring(0, dotIndex);
+            String strippedValue = props.getProperty(strippedName);
+            if(strippedValue != null) {
+                name = strippedName;
+                value = strippedValue;
+            }
+        }
         if(StringUtils.isBlank(value)) {
-            String msg = String.format("No property found for environment attribute: %s", name);
-            log.warn(msg);
-        } else {
-            String msg = String.format("Found property %s with value %s", name, value);
-            log.debug(msg);
+            throttledLog.warn(name, "No property found for environment attribute: %s", name);
+        } else if(log.isDebugEnabled()) {
+            log.debug("Found property " + name + " with value " + value);
         }
 
         return value;
     }
 
+    @Override
+    public SortedSet<String> getEntryNames() {
+        return getIndex().getNames();
+    }
+
+    @Override
+    public SortedMap<String, String> getEntriesByPrefix(String prefix) {
+        return getIndex().getEntriesByPrefix(prefix);
+    }
+
+    @Override
+    public SortedMap<String, String> getEntriesByPath(String path) {
+        return getIndex().getEntriesByPath(path);
+    }
+
+    @Override
+    public SortedSet<String> getChildNames(String path) {
+        return getIndex().getChildNames(path);
+    }
+
+    private ConfigurationEntryIndex getIndex() {
+        ConfigurationEntryIndex current = index;
+        if (current == null) {
+            current = ConfigurationEntryIndex.of(getProperties());
+            index = current;
+        }
+        return current;
+    }
+
     private Properties getProperties() {
         if (properties == null) {
             properties = new Properties();
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.dns;
+
+import java.util.SortedMap;
+import java.util.SortedSet;
+
+/**
+ * A {@link ConfigurationEntryReader} that can enumerate its entries.
+ * <p/>
+ * Entry names may be hierarchical, using {@code .} to separate their segments, so a component can fetch a whole
+ * subtree of its configuration with one call instead of one lookup per entry. DNS cannot be enumerated, so only
+ * readers backed by a local source implement this interface; use
+ * {@link ConfigurationEntryReaderFactory#findIndexedReader(ConfigurationEntryReader)} to find one behind the
+ * decorators added by the factory.
+ * <p/>
+ * Copyright (C) 2011 Edmunds.com
+ */
+public interface IndexedConfigurationEntryReader extends ConfigurationEntryReader {
+
+    /**
+     * Returns the names of all entries.
+     *
+     * @return the sorted entry names.
+     */
+    SortedSet<String> getEntryNames();
+
+    /**
+     * Returns the entries whose names start with a prefix.
+     *
+     * @param prefix the prefix, the empty string returns every entry.
+     * @return the matching entries sorted by name.
+     */
+    SortedMap<String, String> getEntriesByPrefix(String prefix);
+
+    /**
+     * Returns the entries below a dot-path (see {@link ConfigurationEntryIndex#getEntriesByPath(String)}).
+     *
+     * @param path the path, the empty string returns every entry.
+     * @return the entries below the path sorted by full name.
+     */
+    SortedMap<String, String> getEntriesByPath(String path);
+
+    /**
+     * Returns the names of the immediate children of a dot-path (see
+     * {@link ConfigurationEntryIndex#getChildNames(String)}).
+     *
+     * @param path the path, the empty string returns the top level segments.
+     * @return the sorted child segment names.
+     */
+    SortedSet<String> getChildNames(String path);
+}
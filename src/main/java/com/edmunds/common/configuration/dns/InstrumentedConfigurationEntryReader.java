@@ -0,0 +1,131 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.dns;
+
+import com.edmunds.common.configuration.metrics.ConfigurationMetrics;
+import com.edmunds.common.configuration.metrics.LatencyHistogram;
+import com.edmunds.common.configuration.metrics.Timer;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Decorator that records the number and duration of lookups in {@link ConfigurationMetrics}.
+ * <p/>
+ * Lookups are timed per reader type ({@code reader.<type>.getEntry}) and per entry name
+ * ({@code reader.<type>.entry.<entryName>}), where the type is the simple class name of the decorated reader.
+ * The per entry latencies are also recorded in a {@link LatencyHistogram} of the same name so that tail latencies of
+ * individual DNS lookups can be monitored.
+ * <p/>
+ * Only the first {@link #MAX_ENTRY_METRICS} distinct entry names get their own timer and histogram, lookups of any
+ * other name are recorded under {@code reader.<type>.entry.other}, so readers that serve an open ended set of keys
+ * do not grow the metrics registry without limit.
+ * <p/>
+ * Copyright (C) 2011 Edmunds.com
+ */
+public class InstrumentedConfigurationEntryReader implements ConfigurationEntryReader {
+
+    /**
+     * Maximum number of entry names recorded individually by each reader.
+     */
+    static final int MAX_ENTRY_METRICS = 32;
+
+    /**
+     * Entry name suffix used for the lookups of all the other names.
+     */
+    static final String OTHER_ENTRIES = "other";
+
+    private final ConfigurationEntryReader delegate;
+    private final ConfigurationMetrics metrics;
+    private final String prefix;
+    private final Timer readerTimer;
+    private final Timer otherEntriesTimer;
+    private final LatencyHistogram otherEntriesHistogram;
+    private final ConcurrentMap<String, Timer> entryTimers = new ConcurrentHashMap<String, Timer>();
+    private final ConcurrentMap<String, LatencyHistogram> entryHistograms =
+            new ConcurrentHashMap<String, LatencyHistogram>();
+
+    /**
+     * Creates a reader that records to the process wide metrics.
+     *
+     * @param delegate the reader that performs the lookups.
+     */
+    public InstrumentedConfigurationEntryReader(ConfigurationEntryReader delegate) {
+        this(delegate, ConfigurationMetrics.getInstance());
+    }
+
+    InstrumentedConfigurationEntryReader(ConfigurationEntryReader delegate, ConfigurationMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+        this.prefix = "reader." + readerType(delegate);
+        this.readerTimer = metrics.timer(prefix + ".getEntry");
+        this.otherEntriesTimer = metrics.timer(prefix + ".entry." + OTHER_ENTRIES);
+        this.otherEntriesHistogram = metrics.histogram(prefix + ".entry." + OTHER_ENTRIES);
+    }
+
+    @Override
+    public String getEntry(String entryName) {
+        final long start = System.nanoTime();
+        try {
+            return delegate.getEntry(entryName);
+        } finally {
+            final long nanos = System.nanoTime() - start;
+            readerTimer.record(nanos);
+            if (entryName != null) {
+                entryTimer(entryName).record(nanos);
+                entryHistogram(entryName).record(nanos);
+            }
+        }
+    }
+
+    /**
+     * Returns the reader that performs the lookups.
+     *
+     * @return the decorated reader.
+     */
+    ConfigurationEntryReader getDelegate() {
+        return delegate;
+    }
+
+    private Timer entryTimer(String entryName) {
+        Timer timer = entryTimers.get(entryName);
+        if (timer == null) {
+            if (entryTimers.size() >= MAX_ENTRY_METRICS) {
+                return otherEntriesTimer;
+            }
+            timer = metrics.timer(prefix + ".entry." + entryName);
+            entryTimers.putIfAbsent(entryName, timer);
+        }
+        return timer;
+    }
+
+    private LatencyHistogram entryHistogram(String entryName) {
+        LatencyHistogram histogram = entryHistograms.get(entryName);
+        if (histogram == null) {
+            if (entryHistograms.size() >= MAX_ENTRY_METRICS) {
+                return otherEntriesHistogram;
+            }
+            histogram = metrics.histogram(prefix + ".entry." + entryName);
+            entryHistograms.putIfAbsent(entryName, histogram);
+        }
+        return histogram;
+    }
+
+    private static String readerType(ConfigurationEntryReader reader) {
+        final String name = reader.getClass().getSimpleName();
+        return name.length() == 0 ? reader.getClass().getName() : name;
+    }
+}
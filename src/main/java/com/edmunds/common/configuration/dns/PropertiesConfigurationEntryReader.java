@@ -0,0 +1,88 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.dns;
+
+import java.util.Properties;
+import java.util.SortedMap;
+import java.util.SortedSet;
+
+/**
+ * A ConfigurationEntryReader that reads environment configuration values from an in-memory {@link Properties}
+ * object, using the same keys as {@link FileConfigurationEntryReader}.
+ * <p/>
+ * This is used to resolve synthetic or archived environments offline, for example when rendering the values of
+ * every environment for a deployment.
+ * <p/>
+ * Names are looked up in full first and then with everything after the first dot removed, so both hierarchical
+ * entries such as {@code search.pool.size} and DNS style names such as {@code environment-name.edmunds.com} are
+ * found. The entries are indexed on first enumeration, the properties should not be changed after that.
+ * <p/>
+ * Copyright (C) 2011 Edmunds.com
+ */
+public class PropertiesConfigurationEntryReader implements IndexedConfigurationEntryReader {
+
+    private final Properties properties;
+
+    private volatile ConfigurationEntryIndex index;
+
+    /**
+     * Creates a reader over the given entries.
+     *
+     * @param properties the entries keyed by the "host name" part of the DNS name, e.g. {@code environment-name}.
+     */
+    public PropertiesConfigurationEntryReader(Properties properties) {
+        this.properties = properties;
+    }
+
+    @Override
+    public String getEntry(String entryName) {
+        final String value = properties.getProperty(entryName);
+        if (value != null) {
+            return value;
+        }
+        final int dotIndex = entryName.indexOf('.');
+        return dotIndex > 0 ? properties.getProperty(entryName.substring(0, dotIndex)) : null;
+    }
+
+    @Override
+    public SortedSet<String> getEntryNames() {
+        return getIndex().getNames();
+    }
+
+    @Override
+    public SortedMap<String, String> getEntriesByPrefix(String prefix) {
+        return getIndex().getEntriesByPrefix(prefix);
+    }
+
+    @Override
+    public SortedMap<String, String> getEntriesByPath(String path) {
+        return getIndex().getEntriesByPath(path);
+    }
+
+    @Override
+    public SortedSet<String> getChildNames(String path) {
+        return getIndex().getChildNames(path);
+    }
+
+    private ConfigurationEntryIndex getIndex() {
+        ConfigurationEntryIndex current = index;
+        if (current == null) {
+            current = ConfigurationEntryIndex.of(properties);
+            index = current;
+        }
+        return current;
+    }
+}
@@ -0,0 +1,389 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.dns;
+
+import com.edmunds.common.configuration.api.ConfigurationUtil;
+import com.edmunds.common.configuration.api.EnvironmentSnapshot;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Read-only map of configuration entries whose values are read and have their tokens replaced on first access.
+ * <p/>
+ * Each value is read from a {@link ConfigurationEntryReader}, passed through
+ * {@link ConfigurationUtil#replaceTokens(String)} and memoized until the environment snapshot changes, so keys that
+ * are never read cost nothing. Lookups use a concurrent map and take no lock; two threads reading the same key for
+ * the first time may both resolve it, one result is kept.
+ * <p/>
+ * The keys of the map are the names given at construction, or listed by an {@link IndexedConfigurationEntryReader},
+ * for which the reader has a value, so iterating the map or asking for its size resolves every key.
+ * {@link #get(Object)} and {@link #containsKey(Object)} accept any name the reader knows. Legacy code that expects
+ * {@link Properties} can use {@link #toProperties()}.
+ * <p/>
+ * Copyright (C) 2011 Edmunds.com
+ */
+public class ResolvedConfigurationMap extends AbstractMap<String, String> {
+
+    /**
+     * Marker for names the reader has no value for, since the concurrent map cannot hold null.
+     */
+    private static final String MISSING = new String("");
+
+    /**
+     * Upper bound on the number of values cached per snapshot for names the map was not created with.
+     */
+    static final int MAX_CACHED_VALUES = 16384;
+
+    private final ConfigurationEntryReader reader;
+    private final ConfigurationUtil configurationUtil;
+    private final Set<String> names;
+    private final Set<Map.Entry<String, String>> entrySet = new EntrySet();
+
+    private final AtomicReference<VersionCache> cache = new AtomicReference<VersionCache>();
+
+    /**
+     * Creates a view over the named entries of a reader.
+     *
+     * @param reader            the reader that supplies the raw values.
+     * @param configurationUtil used to replace the tokens in the values and to detect environment changes.
+     * @param names             the entry names that make up the keys of the map.
+     */
+    public ResolvedConfigurationMap(
+            ConfigurationEntryReader reader, ConfigurationUtil configurationUtil, Collection<String> names) {
+        this.reader = reader;
+        this.configurationUtil = configurationUtil;
+        this.names = Collections.unmodifiableSet(new LinkedHashSet<String>(names));
+    }
+
+    /**
+     * Creates a view over the entries of an indexed reader whose names start with a prefix.
+     *
+     * @param reader            the reader that supplies the raw values and the entry names.
+     * @param configurationUtil used to replace the tokens in the values and to detect environment changes.
+     * @param prefix            the prefix of the entry names, the empty string includes every entry.
+     */
+    public ResolvedConfigurationMap(
+            IndexedConfigurationEntryReader reader, ConfigurationUtil configurationUtil, String prefix) {
+        this(reader, configurationUtil, reader.getEntriesByPrefix(prefix).keySet());
+    }
+
+    @Override
+    public String get(Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+
+        final String name = (String) key;
+        final ConcurrentMap<String, String> values = getCache();
+        String value = values.get(name);
+        if (value == null) {
+            value = resolve(name);
+            if (names.contains(name) || values.size() < MAX_CACHED_VALUES) {
+                final String existing = values.putIfAbsent(name, value);
+                if (existing != null) {
+                    value = existing;
+                }
+            }
+        }
+        return value == MISSING ? null : value;
+    }
+
+    private String resolve(String name) {
+        final String value = reader.getEntry(name);
+        return value == null ? MISSING : configurationUtil.replaceTokens(value);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public Set<Map.Entry<String, String>> entrySet() {
+        return entrySet;
+    }
+
+    /**
+     * Returns the names the map was created with, whether or not the reader has a value for them.
+     *
+     * @return the entry names.
+     */
+    public Set<String> getNames() {
+        return names;
+    }
+
+    /**
+     * Returns a read-only {@link Properties} view of this map.
+     * <p/>
+     * The view reads through to this map, its values are resolved lazily and reading them takes no lock. Methods
+     * that modify the properties throw {@link UnsupportedOperationException}.
+     *
+     * @return the properties view.
+     */
+    public Properties toProperties() {
+        return new PropertiesView(this);
+    }
+
+    private ConcurrentMap<String, String> getCache() {
+        final long version = EnvironmentSnapshot.of(configurationUtil).getVersion();
+        final VersionCache current = cache.get();
+
+        if (current != null && current.version == version) {
+            return current.values;
+        }
+
+        final VersionCache created = new VersionCache(version);
+        return cache.compareAndSet(current, created) ? created.values : getCache();
+    }
+
+    private static final class VersionCache {
+        private final long version;
+        private final ConcurrentMap<String, String> values = new ConcurrentHashMap<String, String>();
+
+        VersionCache(long version) {
+            this.version = version;
+        }
+    }
+
+    private final class EntrySet extends AbstractSet<Map.Entry<String, String>> {
+
+        @Override
+        public Iterator<Map.Entry<String, String>> iterator() {
+            final Iterator<String> iterator = names.iterator();
+
+            return new Iterator<Map.Entry<String, String>>() {
+                private Map.Entry<String, String> next = advance();
+
+                private Map.Entry<String, String> advance() {
+                    while (iterator.hasNext()) {
+                        final String name = iterator.next();
+                        final String value = get(name);
+                        if (value != null) {
+                            return new SimpleImmutableEntry<String, String>(name, value);
+                        }
+                    }
+                    return null;
+                }
+
+                @Override
+                public boolean hasNext() {
+                    return next != null;
+                }
+
+                @Override
+                public Map.Entry<String, String> next() {
+                    if (next == null) {
+                        throw new NoSuchElementException();
+                    }
+                    final Map.Entry<String, String> current = next;
+                    next = advance();
+                    return current;
+                }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            int size = 0;
+            for (String name : names) {
+                if (get(name) != null) {
+                    size++;
+                }
+            }
+            return size;
+        }
+    }
+
+    /**
+     * Properties that read through to the map.
+     * <p/>
+     * {@code Properties} extends {@code Hashtable}, whose methods are synchronized; the read methods are overridden
+     * without synchronization and the inherited, empty table is never used. The methods that take functions, such as
+     * {@code compute} and {@code merge}, are not overridden since their parameter types do not exist before Java 8.
+     */
+    private static final class PropertiesView extends Properties {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient ResolvedConfigurationMap map;
+
+        PropertiesView(ResolvedConfigurationMap map) {
+            this.map = map;
+        }
+
+        @Override
+        public String getProperty(String key) {
+            return map.get(key);
+        }
+
+        @Override
+        public String getProperty(String key, String defaultValue) {
+            final String value = map.get(key);
+            return value == null ? defaultValue : value;
+        }
+
+        @Override
+        public Object get(Object key) {
+            return map.get(key);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return map.containsKey(key);
+        }
+
+        @Override
+        public boolean contains(Object value) {
+            return map.containsValue(value);
+        }
+
+        @Override
+        public boolean containsValue(Object value) {
+            return map.containsValue(value);
+        }
+
+        @Override
+        public int size() {
+            return map.size();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return map.isEmpty();
+        }
+
+        @Override
+        public Set<String> stringPropertyNames() {
+            return Collections.unmodifiableSet(new LinkedHashSet<String>(map.keySet()));
+        }
+
+        @Override
+        public Enumeration<?> propertyNames() {
+            return keys();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Enumeration<Object> keys() {
+            return (Enumeration) Collections.enumeration(map.keySet());
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Enumeration<Object> elements() {
+            return (Enumeration) Collections.enumeration(map.values());
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Set<Object> keySet() {
+            return (Set) Collections.unmodifiableSet(map.keySet());
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Collection<Object> values() {
+            return (Collection) Collections.unmodifiableCollection(map.values());
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Set<Map.Entry<Object, Object>> entrySet() {
+            return (Set) Collections.unmodifiableSet(map.entrySet());
+        }
+
+        @Override
+        public Object setProperty(String key, String value) {
+            throw readOnly();
+        }
+
+        @Override
+        public Object put(Object key, Object value) {
+            throw readOnly();
+        }
+
+        @Override
+        public void putAll(Map<?, ?> t) {
+            throw readOnly();
+        }
+
+        @Override
+        public Object remove(Object key) {
+            throw readOnly();
+        }
+
+        @Override
+        public void clear() {
+            throw readOnly();
+        }
+
+        // The Map methods below were added to Hashtable in Java 8; they are declared without @Override so the view
+        // still compiles for Java 6, and reject writes on the JDKs that have them.
+
+        public Object putIfAbsent(Object key, Object value) {
+            throw readOnly();
+        }
+
+        public boolean remove(Object key, Object value) {
+            throw readOnly();
+        }
+
+        public boolean replace(Object key, Object oldValue, Object newValue) {
+            throw readOnly();
+        }
+
+        public Object replace(Object key, Object value) {
+            throw readOnly();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o == this || map.equals(o);
+        }
+
+        @Override
+        public int hashCode() {
+            return map.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return map.toString();
+        }
+
+        private static UnsupportedOperationException readOnly() {
+            return new UnsupportedOperationException("Resolved configuration is read-only");
+        }
+    }
+}
@@ -0,0 +1,265 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.dns;
+
+import com.edmunds.common.configuration.api.ConfigurationUtil;
+import com.edmunds.common.configuration.api.EnvironmentConfiguration;
+import com.edmunds.common.configuration.api.EnvironmentConnection;
+import com.edmunds.common.configuration.api.EnvironmentSnapshot;
+import com.edmunds.common.configuration.api.SnapshotConfigurationUtil;
+import com.edmunds.common.configuration.api.VariableConfigurationUtil;
+import com.edmunds.common.configuration.token.EnvironmentToken;
+import com.edmunds.common.configuration.token.TokenTable;
+import com.edmunds.common.configuration.token.TokenTemplate;
+import com.edmunds.common.configuration.token.TokenVariables;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A {@link ConfigurationUtil} that replaces some token values of a shared base, for example to render the values of
+ * one site when several sites are served from the same JVM.
+ * <p/>
+ * Only the overridden values are held by the scope, every other value is taken from the base. Overriding a token that
+ * is read from the environment, such as the site or the url prefix, also changes the {@link #getEnvironmentSnapshot()
+ * snapshot} of the scope and the tokens derived from that value. The scoped snapshot and token table are built once
+ * per base snapshot, so rendering costs the same as it does for the base and scopes follow any change to the base
+ * environment.
+ * <p/>
+ * Usage:
+ * <pre>
+ *  ConfigurationUtil insideline = ScopedConfigurationUtil.forSite(configurationUtil, "insideline");
+ *  String url = insideline.replaceTokens("http://[URL_PREFIX]www.[LOCAL_ENVIRONMENT_SITE].com/");
+ * </pre>
+ * <p/>
+ * Copyright (C) 2011 Edmunds.com
+ */
+public final class ScopedConfigurationUtil implements SnapshotConfigurationUtil, VariableConfigurationUtil {
+
+    /**
+     * Tokens looked up by the base rather than read from the environment.
+     */
+    private static final EnvironmentToken[] HOST_TOKENS = {
+            EnvironmentToken.HOST_NAME, EnvironmentToken.CANONICAL_HOST_NAME};
+
+    private final ConfigurationUtilImpl base;
+    private final Map<EnvironmentToken, String> overrides;
+
+    /**
+     * The scoped snapshot and token table together with the base snapshot they were built from.
+     */
+    private final AtomicReference<Overlay> overlay = new AtomicReference<Overlay>();
+
+    ScopedConfigurationUtil(ConfigurationUtilImpl base, Map<EnvironmentToken, String> overrides) {
+        this.base = base;
+        final Map<EnvironmentToken, String> copy = new EnumMap<EnvironmentToken, String>(EnvironmentToken.class);
+        copy.putAll(overrides);
+        this.overrides = Collections.unmodifiableMap(copy);
+    }
+
+    /**
+     * Returns a view of a configuration util with some token values replaced.
+     *
+     * @param configurationUtil the configuration util created by this library, or another scope.
+     * @param overrides         the token values to replace.
+     * @return the scoped configuration util.
+     */
+    public static ScopedConfigurationUtil withOverrides(
+            ConfigurationUtil configurationUtil, Map<EnvironmentToken, String> overrides) {
+
+        if (configurationUtil instanceof ConfigurationUtilImpl) {
+            return ((ConfigurationUtilImpl) configurationUtil).withOverrides(overrides);
+        }
+        if (configurationUtil instanceof ScopedConfigurationUtil) {
+            return ((ScopedConfigurationUtil) configurationUtil).withOverrides(overrides);
+        }
+        throw new IllegalArgumentException("Unsupported ConfigurationUtil: " + configurationUtil);
+    }
+
+    /**
+     * Returns a view of a configuration util that renders values for another site.
+     *
+     * @param configurationUtil the configuration util created by this library, or another scope.
+     * @param site              the site that replaces the {@code [LOCAL_ENVIRONMENT_SITE]} token.
+     * @return the scoped configuration util.
+     */
+    public static ScopedConfigurationUtil forSite(ConfigurationUtil configurationUtil, String site) {
+        return withOverrides(configurationUtil,
+                Collections.singletonMap(EnvironmentToken.LOCAL_ENVIRONMENT_SITE, site));
+    }
+
+    /**
+     * Returns a scope that applies further overrides on top of the overrides of this scope.
+     *
+     * @param additionalOverrides the values to replace.
+     * @return the new scope, sharing the base of this scope.
+     */
+    public ScopedConfigurationUtil withOverrides(Map<EnvironmentToken, String> additionalOverrides) {
+        final Map<EnvironmentToken, String> combined = new EnumMap<EnvironmentToken, String>(EnvironmentToken.class);
+        combined.putAll(overrides);
+        combined.putAll(additionalOverrides);
+        return new ScopedConfigurationUtil(base, combined);
+    }
+
+    /**
+     * Returns the values replaced by this scope.
+     *
+     * @return the overridden token values.
+     */
+    public Map<EnvironmentToken, String> getOverrides() {
+        return overrides;
+    }
+
+    /**
+     * Returns the legacy environment name, overridden by the {@code _ENVIRONMENT_NAME_} token if the scope sets it.
+     *
+     * @return the legacy environment name.
+     */
+    @Override
+    public String getLegacyEnvironmentName() {
+        if (overrides.containsKey(EnvironmentToken.ENVIRONMENT_NAME)) {
+            return overrides.get(EnvironmentToken.ENVIRONMENT_NAME);
+        }
+        final EnvironmentSnapshot environment = getEnvironmentSnapshot();
+        return DNSLegacyUtil.getLegacyEnvironmentName(environment.getEnvironmentName(), environment.getDataCenter());
+    }
+
+    @Override
+    public String replaceTokens(String value) {
+        if (value == null) {
+            return null;
+        }
+        return TokenTemplate.valueOf(value).render(getTokenTable());
+    }
+
+    @Override
+    public String replaceTokens(String value, TokenVariables variables, String... variableValues) {
+        if (value == null) {
+            return null;
+        }
+        return TokenTemplate.valueOf(value, variables).render(getTokenTable(), variableValues);
+    }
+
+    @Override
+    public String replacePropertyTokens(String local, String managed) {
+        final String value = getEnvironmentSnapshot().isLocalEnvironment() ? local : managed;
+        return replaceTokens(value);
+    }
+
+    /**
+     * Returns the snapshot of the base environment with the overrides applied.
+     * <p/>
+     * The snapshot is captured once per base snapshot, so it can be used to key derived values like the base snapshot.
+     *
+     * @return the scoped environment snapshot.
+     */
+    @Override
+    public EnvironmentSnapshot getEnvironmentSnapshot() {
+        return getOverlay().environment;
+    }
+
+    /**
+     * Returns the token values of the base with the overrides applied.
+     *
+     * @return the current token values.
+     */
+    TokenTable getTokenTable() {
+        return getOverlay().table;
+    }
+
+    private Overlay getOverlay() {
+        final EnvironmentSnapshot baseEnvironment = base.getEnvironmentSnapshot();
+        final Overlay current = overlay.get();
+
+        if (current != null && current.baseEnvironment == baseEnvironment) {
+            return current;
+        }
+
+        final EnvironmentSnapshot environment = applyOverrides(baseEnvironment);
+        final Map<EnvironmentToken, String> tokenMap = EnvironmentTokenTables.environmentTokens(environment);
+        final TokenTable baseTable = base.getTokenTable();
+        for (EnvironmentToken token : HOST_TOKENS) {
+            if (baseTable.get(token) != null) {
+                tokenMap.put(token, baseTable.get(token));
+            }
+        }
+
+        final Overlay rebuilt = new Overlay(baseEnvironment, environment,
+                new TokenTable(tokenMap).withOverrides(overrides));
+        overlay.compareAndSet(current, rebuilt);
+        return rebuilt;
+    }
+
+    /**
+     * Captures a copy of the base environment with the values of the overridden tokens replaced.
+     * <p/>
+     * Tokens that are not read from the environment, such as the host names, only override the token value.
+     */
+    private EnvironmentSnapshot applyOverrides(EnvironmentSnapshot baseEnvironment) {
+        final EnvironmentConfiguration configuration = baseEnvironment.toEnvironmentConfiguration();
+        final EnvironmentConnection connection = baseEnvironment.toEnvironmentConnection();
+
+        for (Map.Entry<EnvironmentToken, String> entry : overrides.entrySet()) {
+            final String value = entry.getValue();
+            switch (entry.getKey()) {
+                case LOCAL_ENVIRONMENT_NAME:
+                    configuration.setEnvironmentName(value);
+                    break;
+                case LOGICAL_ENVIRONMENT_NAME:
+                    configuration.setLogicalEnvironmentName(value);
+                    break;
+                case ENVIRONMENT_INDEX:
+                    configuration.setEnvironmentIndex(value);
+                    break;
+                case LOCAL_ENVIRONMENT_DATA_CENTER:
+                    configuration.setDataCenter(value);
+                    break;
+                case LOCAL_ENVIRONMENT_SITE:
+                    configuration.setSite(value);
+                    break;
+                case URL_PREFIX:
+                    configuration.setUrlPrefix(value);
+                    break;
+                case URL_LEGACY_PREFIX:
+                    configuration.setUrlLegacyPrefix(value);
+                    break;
+                case INTERNAL_ENVIRONMENT_NAME:
+                    connection.setInternalEnvironmentName(value);
+                    break;
+                case INTERNAL_ENVIRONMENT_DATA_CENTER:
+                    connection.setInternalDataCenter(value);
+                    break;
+                default:
+                    break;
+            }
+        }
+        return EnvironmentSnapshot.capture(configuration, connection);
+    }
+
+    private static final class Overlay {
+        private final EnvironmentSnapshot baseEnvironment;
+        private final EnvironmentSnapshot environment;
+        private final TokenTable table;
+
+        Overlay(EnvironmentSnapshot baseEnvironment, EnvironmentSnapshot environment, TokenTable table) {
+            this.baseEnvironment = baseEnvironment;
+            this.environment = environment;
+            this.table = table;
+        }
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.logging;
+
+import com.edmunds.common.configuration.metrics.ConfigurationMetrics;
+import com.edmunds.common.configuration.metrics.StripedCounter;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Wraps a log4j {@link Logger} so that repeated messages are logged at most once per time window.
+ * <p/>
+ * Each message is identified by a key supplied by the caller, typically the entry or value the message is about.
+ * The first occurrence of a key in a window is logged, later occurrences are only counted and the count is appended to
+ * the next message logged for that key. Messages are only formatted, using {@link String#format(String, Object...)},
+ * when they are actually written.
+ * <p/>
+ * The number of distinct keys tracked is bounded, once the limit is reached all new keys share a single window.
+ * Suppressed messages are counted in the {@code log.suppressed} metric.
+ * <p/>
+ * Copyright (C) 2011 Edmunds.com
+ */
+public final class ThrottledLogger {
+
+    /**
+     * Default length of the window in which a key is logged at most once.
+     */
+    public static final long DEFAULT_WINDOW_MILLIS = 60000L;
+
+    /**
+     * Upper bound on the number of keys tracked individually.
+     */
+    static final int MAX_KEYS = 1024;
+
+    private static final Object NULL_KEY = new Object();
+    private static final Object OVERFLOW_KEY = new Object();
+
+    private static final ConfigurationMetrics METRICS = ConfigurationMetrics.getInstance();
+    private static final StripedCounter SUPPRESSED = METRICS.counter("log.suppressed");
+
+    private final Logger logger;
+    private final long windowMillis;
+    private final ConcurrentMap<Object, Window> windows = new ConcurrentHashMap<Object, Window>();
+
+    /**
+     * Creates a logger that logs each key at most once per {@link #DEFAULT_WINDOW_MILLIS}.
+     *
+     * @param logger the logger to write to.
+     */
+    public ThrottledLogger(Logger logger) {
+        this(logger, DEFAULT_WINDOW_MILLIS);
+    }
+
+    /**
+     * Creates a logger that logs each key at most once per window.
+     *
+     * @param logger       the logger to write to.
+     * @param windowMillis the window length in milliseconds, zero to log every message.
+     */
+    public ThrottledLogger(Logger logger, long windowMillis) {
+        this.logger = logger;
+        this.windowMillis = windowMillis;
+    }
+
+    /**
+     * Logs a warning with no arguments.
+     *
+     * @param key     identifies repeats of the message.
+     * @param message the message.
+     */
+    public void warn(Object key, String message) {
+        if (logger.isEnabledFor(Level.WARN) && acquire(key)) {
+            write(Level.WARN, key, message, null);
+        }
+    }
+
+    /**
+     * Logs a warning with one argument.
+     *
+     * @param key    identifies repeats of the message.
+     * @param format the message format.
+     * @param arg    the format argument.
+     */
+    public void warn(Object key, String format, Object arg) {
+        if (logger.isEnabledFor(Level.WARN) && acquire(key)) {
+            write(Level.WARN, key, String.format(format, arg), null);
+        }
+    }
+
+    /**
+     * Logs a warning with two arguments.
+     *
+     * @param key    identifies repeats of the message.
+     * @param format the message format.
+     * @param arg1   the first format argument.
+     * @param arg2   the second format argument.
+     */
+    public void warn(Object key, String format, Object arg1, Object arg2) {
+        if (logger.isEnabledFor(Level.WARN) && acquire(key)) {
+            write(Level.WARN, key, String.format(format, arg1, arg2), null);
+        }
+    }
+
+    /**
+     * Logs a warning with one argument and the exception that caused it.
+     *
+     * @param key       identifies repeats of the message.
+     * @param throwable the exception, logged with its stack trace.
+     * @param format    the message format.
+     * @param arg       the format argument.
+     */
+    public void warn(Object key, Throwable throwable, String format, Object arg) {
+        if (logger.isEnabledFor(Level.WARN) && acquire(key)) {
+            write(Level.WARN, key, String.format(format, arg), throwable);
+        }
+    }
+
+    /**
+     * Logs an error with one argument.
+     *
+     * @param key    identifies repeats of the message.
+     * @param format the message format.
+     * @param arg    the format argument.
+     */
+    public void error(Object key, String format, Object arg) {
+        if (logger.isEnabledFor(Level.ERROR) && acquire(key)) {
+            write(Level.ERROR, key, String.format(format, arg), null);
+        }
+    }
+
+    /**
+     * Returns the number of messages suppressed for a key since it was last logged.
+     *
+     * @param key the message key.
+     * @return the number of suppressed messages.
+     */
+    public long getSuppressedCount(Object key) {
+        final Window window = windows.get(key != null ? key : NULL_KEY);
+        return window == null ? 0L : window.suppressed.get();
+    }
+
+    /**
+     * Returns the underlying logger.
+     *
+     * @return the log4j logger.
+     */
+    public Logger getLogger() {
+        return logger;
+    }
+
+    /**
+     * Decides if a message should be written, counting it as suppressed if not.
+     */
+    private boolean acquire(Object key) {
+        final Window window = window(key);
+        final long now = System.currentTimeMillis();
+        final long start = window.start.get();
+
+        if ((start == Long.MIN_VALUE || now - start >= windowMillis) && window.start.compareAndSet(start, now)) {
+            return true;
+        }
+
+        window.suppressed.incrementAndGet();
+        METRICS.increment(SUPPRESSED);
+        return false;
+    }
+
+    private void write(Level level, Object key, String message, Throwable throwable) {
+        final long suppressed = window(key).suppressed.getAndSet(0L);
+        if (suppressed == 0) {
+            logger.log(level, message, throwable);
+        } else {
+            logger.log(level, message + " (" + suppressed + " similar messages suppressed)", throwable);
+        }
+    }
+
+    private Window window(Object key) {
+        final Object mapKey = key != null ? key : NULL_KEY;
+        Window window = windows.get(mapKey);
+        if (window == null && windows.size() >= MAX_KEYS) {
+            window = windows.get(OVERFLOW_KEY);
+        }
+        if (window == null) {
+            final Window created = new Window();
+            window = windows.putIfAbsent(windows.size() < MAX_KEYS ? mapKey : OVERFLOW_KEY, created);
+            if (window == null) {
+                window = created;
+            }
+        }
+        return window;
+    }
+
+    /**
+     * Logging state of a single key.
+     */
+    private static final class Window {
+        private final AtomicLong start = new AtomicLong(Long.MIN_VALUE);
+        private final AtomicLong suppressed = new AtomicLong();
+    }
+}
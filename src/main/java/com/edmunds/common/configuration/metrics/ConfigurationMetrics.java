@@ -0,0 +1,278 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.metrics;
+
+import org.apache.log4j.Logger;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Process wide registry of the counters, timers and latency histograms recorded by the configuration library.
+ * <p/>
+ * Metric names are dotted lower case strings, for example {@code tokens.replaceTokens} or
+ * {@code reader.DNSConfigurationEntryReader.entry.environment-name.edmunds.com}. Each timer is reported as three
+ * values with the suffixes {@code .count}, {@code .totalNanos} and {@code .maxNanos}, and each histogram as its
+ * percentiles with the suffixes {@code .p50Nanos}, {@code .p90Nanos}, {@code .p99Nanos} and {@code .p999Nanos}.
+ * <p/>
+ * The values can be read with {@link #snapshot()}, pushed to {@link MetricsExporter}s with {@link #export()} or
+ * viewed over JMX after calling {@link #registerMBean()}.
+ * <p/>
+ * Copyright (C) 2011 Edmunds.com
+ */
+public final class ConfigurationMetrics {
+
+    /**
+     * Name the metrics MBean is registered under.
+     */
+    public static final String OBJECT_NAME = "com.edmunds.common.configuration:type=ConfigurationMetrics";
+
+    /**
+     * Logger for this class.
+     */
+    private static final Logger log = Logger.getLogger(ConfigurationMetrics.class);
+
+    private static final ConfigurationMetrics INSTANCE = new ConfigurationMetrics();
+
+    private final ConcurrentMap<String, StripedCounter> counters = new ConcurrentHashMap<String, StripedCounter>();
+    private final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<String, Timer>();
+    private final ConcurrentMap<String, LatencyHistogram> histograms =
+            new ConcurrentHashMap<String, LatencyHistogram>();
+    private final List<MetricsExporter> exporters = new CopyOnWriteArrayList<MetricsExporter>();
+
+    private volatile boolean enabled = true;
+
+    ConfigurationMetrics() {
+    }
+
+    /**
+     * Returns the process wide metrics registry.
+     *
+     * @return the metrics registry.
+     */
+    public static ConfigurationMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the counter with the given name, creating it if necessary.
+     * <p/>
+     * Callers on hot paths should look the counter up once and keep a reference to it.
+     *
+     * @param name the metric name.
+     * @return the counter.
+     */
+    public StripedCounter counter(String name) {
+        StripedCounter counter = counters.get(name);
+        if (counter == null) {
+            final StripedCounter created = new StripedCounter();
+            counter = counters.putIfAbsent(name, created);
+            if (counter == null) {
+                counter = created;
+            }
+        }
+        return counter;
+    }
+
+    /**
+     * Returns the timer with the given name, creating it if necessary.
+     * <p/>
+     * Callers on hot paths should look the timer up once and keep a reference to it.
+     *
+     * @param name the metric name.
+     * @return the timer.
+     */
+    public Timer timer(String name) {
+        Timer timer = timers.get(name);
+        if (timer == null) {
+            final Timer created = new Timer(this);
+            timer = timers.putIfAbsent(name, created);
+            if (timer == null) {
+                timer = created;
+            }
+        }
+        return timer;
+    }
+
+    /**
+     * Returns the latency histogram with the given name, creating it if necessary.
+     * <p/>
+     * Each histogram holds a fixed block of counters, callers on hot paths should look the histogram up once and keep
+     * a reference to it.
+     *
+     * @param name the metric name.
+     * @return the histogram.
+     */
+    public LatencyHistogram histogram(String name) {
+        LatencyHistogram histogram = histograms.get(name);
+        if (histogram == null) {
+            final LatencyHistogram created = new LatencyHistogram(this);
+            histogram = histograms.putIfAbsent(name, created);
+            if (histogram == null) {
+                histogram = created;
+            }
+        }
+        return histogram;
+    }
+
+    /**
+     * Increments a counter if metrics are enabled.
+     *
+     * @param counter the counter to increment.
+     */
+    public void increment(StripedCounter counter) {
+        if (enabled) {
+            counter.increment();
+        }
+    }
+
+    /**
+     * Indicates if timers and counters are being recorded.
+     *
+     * @return true if metrics are recorded (default: true).
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Sets if timers and counters should be recorded.
+     *
+     * @param enabled false to stop recording.
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Returns the current value of all metrics.
+     *
+     * @return the metric values keyed by name.
+     */
+    public SortedMap<String, Long> snapshot() {
+        final SortedMap<String, Long> snapshot = new TreeMap<String, Long>();
+
+        for (Map.Entry<String, StripedCounter> entry : counters.entrySet()) {
+            snapshot.put(entry.getKey(), entry.getValue().sum());
+        }
+        for (Map.Entry<String, Timer> entry : timers.entrySet()) {
+            final Timer timer = entry.getValue();
+            snapshot.put(entry.getKey() + ".count", timer.getCount());
+            snapshot.put(entry.getKey() + ".totalNanos", timer.getTotalNanos());
+            snapshot.put(entry.getKey() + ".maxNanos", timer.getMaxNanos());
+        }
+        for (Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+            final HistogramSnapshot histogram = entry.getValue().snapshot();
+            snapshot.put(entry.getKey() + ".p50Nanos", histogram.getValueAtPercentile(50.0));
+            snapshot.put(entry.getKey() + ".p90Nanos", histogram.getValueAtPercentile(90.0));
+            snapshot.put(entry.getKey() + ".p99Nanos", histogram.getValueAtPercentile(99.0));
+            snapshot.put(entry.getKey() + ".p999Nanos", histogram.getValueAtPercentile(99.9));
+        }
+        return snapshot;
+    }
+
+    /**
+     * Resets all metrics to zero.
+     */
+    public void reset() {
+        for (StripedCounter counter : counters.values()) {
+            counter.reset();
+        }
+        for (Timer timer : timers.values()) {
+            timer.reset();
+        }
+        for (LatencyHistogram histogram : histograms.values()) {
+            histogram.reset();
+        }
+    }
+
+    /**
+     * Adds an exporter that receives the metric values each time {@link #export()} is called.
+     *
+     * @param exporter the exporter.
+     */
+    public void addExporter(MetricsExporter exporter) {
+        exporters.add(exporter);
+    }
+
+    /**
+     * Removes an exporter.
+     *
+     * @param exporter the exporter.
+     */
+    public void removeExporter(MetricsExporter exporter) {
+        exporters.remove(exporter);
+    }
+
+    /**
+     * Sends the current metric values to all registered exporters.
+     */
+    public void export() {
+        if (exporters.isEmpty()) {
+            return;
+        }
+
+        final SortedMap<String, Long> snapshot = snapshot();
+        for (MetricsExporter exporter : exporters) {
+            try {
+                exporter.export(snapshot);
+            } catch (RuntimeException e) {
+                log.warn("Metrics exporter failed: " + exporter, e);
+            }
+        }
+    }
+
+    /**
+     * Registers the metrics MBean with the platform MBean server under {@link #OBJECT_NAME}.
+     * <p/>
+     * Registering more than once has no effect.
+     *
+     * @return the name the MBean is registered under.
+     */
+    public ObjectName registerMBean() {
+        return registerMBean(ManagementFactory.getPlatformMBeanServer());
+    }
+
+    /**
+     * Registers the metrics MBean with the given MBean server under {@link #OBJECT_NAME}.
+     *
+     * @param server the MBean server.
+     * @return the name the MBean is registered under.
+     */
+    public ObjectName registerMBean(MBeanServer server) {
+        try {
+            final ObjectName name = new ObjectName(OBJECT_NAME);
+            try {
+                server.registerMBean(new MetricsDynamicMBean(this), name);
+            } catch (InstanceAlreadyExistsException e) {
+                log.debug("Configuration metrics MBean already registered");
+            }
+            return name;
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot register configuration metrics MBean", e);
+        }
+    }
+}
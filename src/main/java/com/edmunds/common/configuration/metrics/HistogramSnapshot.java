@@ -0,0 +1,129 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.metrics;
+
+/**
+ * Immutable copy of the counts held by a {@link LatencyHistogram}.
+ * <p/>
+ * Copyright (C) 2011 Edmunds.com
+ */
+public final class HistogramSnapshot {
+
+    private final long[] counts;
+    private final long totalCount;
+    private final long maxValue;
+
+    HistogramSnapshot(long[] counts, long maxValue) {
+        this.counts = counts;
+
+        long total = 0L;
+        int highest = -1;
+        for (int i = 0; i < counts.length; i++) {
+            total += counts[i];
+            if (counts[i] != 0) {
+                highest = i;
+            }
+        }
+        this.totalCount = total;
+
+        if (highest < 0) {
+            this.maxValue = 0L;
+        } else {
+            this.maxValue = Math.min(Math.max(maxValue, LatencyHistogram.lowestValue(highest)),
+                    LatencyHistogram.highestValue(highest));
+        }
+    }
+
+    /**
+     * Combines this snapshot with another, for example to report histograms kept per thread as one.
+     *
+     * @param other the snapshot to add.
+     * @return a new snapshot holding the values of both.
+     */
+    public HistogramSnapshot merge(HistogramSnapshot other) {
+        final long[] merged = new long[counts.length];
+        for (int i = 0; i < merged.length; i++) {
+            merged[i] = counts[i] + other.counts[i];
+        }
+        return new HistogramSnapshot(merged, Math.max(maxValue, other.maxValue));
+    }
+
+    /**
+     * Returns the number of values in the snapshot.
+     *
+     * @return the number of recorded values.
+     */
+    public long getCount() {
+        return totalCount;
+    }
+
+    /**
+     * Returns the largest value in the snapshot.
+     *
+     * @return the maximum value, zero if the snapshot is empty.
+     */
+    public long getMax() {
+        return maxValue;
+    }
+
+    /**
+     * Returns the mean of the values in the snapshot, using the midpoint of each bucket.
+     *
+     * @return the approximate mean, zero if the snapshot is empty.
+     */
+    public double getMean() {
+        if (totalCount == 0) {
+            return 0.0;
+        }
+
+        double sum = 0.0;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] != 0) {
+                final long low = LatencyHistogram.lowestValue(i);
+                final double mid = low + (Math.min(LatencyHistogram.highestValue(i), maxValue) - low) / 2.0;
+                sum += mid * counts[i];
+            }
+        }
+        return sum / totalCount;
+    }
+
+    /**
+     * Returns the value at or below which the given percentage of values fall.
+     * <p/>
+     * The highest value of the matching bucket is returned, capped at the maximum recorded value, so the result never
+     * under-reports.
+     *
+     * @param percentile the percentile, between 0 and 100.
+     * @return the value at the percentile, zero if the snapshot is empty.
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (totalCount == 0) {
+            return 0L;
+        }
+
+        final double clamped = Math.min(Math.max(percentile, 0.0), 100.0);
+        final long rank = Math.max(1L, (long) Math.ceil(clamped / 100.0 * totalCount));
+
+        long cumulative = 0L;
+        for (int i = 0; i < counts.length; i++) {
+            cumulative += counts[i];
+            if (cumulative >= rank) {
+                return Math.min(LatencyHistogram.highestValue(i), maxValue);
+            }
+        }
+        return maxValue;
+    }
+}
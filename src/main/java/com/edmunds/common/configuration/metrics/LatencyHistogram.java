@@ -0,0 +1,189 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed size, log-linear histogram of latencies in nanoseconds.
+ * <p/>
+ * Values are grouped by power of two and each group is split into {@value #SUB_BUCKETS} linear sub-buckets, so any
+ * recorded value is reported within about 3% of its true value. The full range of {@code long} values is covered by
+ * {@value #BUCKETS} counters allocated up front.
+ * <p/>
+ * Recording is a single lock-free increment and never allocates. Reading is done through
+ * {@link HistogramSnapshot}s, either cumulative ({@link #snapshot()}) or covering only the values recorded since the
+ * previous interval ({@link #intervalSnapshot()}).
+ * <p/>
+ * Copyright (C) 2011 Edmunds.com
+ */
+public final class LatencyHistogram {
+
+    /**
+     * Number of bits of precision kept for each value.
+     */
+    static final int SUB_BUCKET_BITS = 5;
+
+    /**
+     * Number of linear sub-buckets per power of two.
+     */
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * Total number of buckets needed to cover all positive long values.
+     */
+    static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final ConfigurationMetrics metrics;
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong maxValue = new AtomicLong();
+
+    /**
+     * Cumulative counts at the time of the last interval snapshot, guarded by {@code this}.
+     */
+    private long[] intervalStart = new long[BUCKETS];
+
+    /**
+     * Creates a histogram that is always recording.
+     */
+    public LatencyHistogram() {
+        this(null);
+    }
+
+    LatencyHistogram(ConfigurationMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Records a latency.
+     *
+     * @param nanos the latency in nanoseconds, negative values are recorded as zero.
+     */
+    public void record(long nanos) {
+        if (metrics != null && !metrics.isEnabled()) {
+            return;
+        }
+
+        final long value = nanos < 0 ? 0 : nanos;
+        counts.incrementAndGet(bucketIndex(value));
+
+        long max = maxValue.get();
+        while (value > max && !maxValue.compareAndSet(max, value)) {
+            max = maxValue.get();
+        }
+    }
+
+    /**
+     * Records a call that started at the given time and has just finished.
+     *
+     * @param startNanos the {@link System#nanoTime()} at the start of the call.
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Returns all values recorded since the histogram was created or last reset.
+     *
+     * @return the cumulative snapshot.
+     */
+    public HistogramSnapshot snapshot() {
+        final long[] copy = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+        }
+        return new HistogramSnapshot(copy, maxValue.get());
+    }
+
+    /**
+     * Returns the values recorded since the previous call to this method.
+     * <p/>
+     * The maximum reported is the cumulative maximum unless it falls outside the interval's highest bucket.
+     *
+     * @return the interval snapshot.
+     */
+    public synchronized HistogramSnapshot intervalSnapshot() {
+        final long[] current = new long[BUCKETS];
+        final long[] interval = new long[BUCKETS];
+
+        for (int i = 0; i < BUCKETS; i++) {
+            current[i] = counts.get(i);
+            interval[i] = current[i] - intervalStart[i];
+        }
+        intervalStart = current;
+
+        return new HistogramSnapshot(interval, maxValue.get());
+    }
+
+    /**
+     * Clears all recorded values.
+     */
+    public synchronized void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0L);
+        }
+        maxValue.set(0L);
+        intervalStart = new long[BUCKETS];
+    }
+
+    /**
+     * Returns the bucket a value is counted in.
+     *
+     * @param value a non-negative value.
+     * @return the bucket index.
+     */
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        final int exponent = 63 - Long.numberOfLeadingZeros(value);
+        final int shift = exponent - SUB_BUCKET_BITS;
+        final int mantissa = (int) (value >>> shift);
+        return (shift + 1) * SUB_BUCKETS + (mantissa - SUB_BUCKETS);
+    }
+
+    /**
+     * Returns the lowest value counted in a bucket.
+     *
+     * @param index the bucket index.
+     * @return the lowest value of the bucket.
+     */
+    static long lowestValue(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        final int shift = index / SUB_BUCKETS - 1;
+        final long mantissa = index % SUB_BUCKETS + SUB_BUCKETS;
+        return mantissa << shift;
+    }
+
+    /**
+     * Returns the highest value counted in a bucket.
+     *
+     * @param index the bucket index.
+     * @return the highest value of the bucket.
+     */
+    static long highestValue(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        if (index == BUCKETS - 1) {
+            return Long.MAX_VALUE;
+        }
+        return lowestValue(index + 1) - 1;
+    }
+}
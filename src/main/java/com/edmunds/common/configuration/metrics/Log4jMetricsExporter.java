@@ -0,0 +1,47 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.metrics;
+
+import org.apache.log4j.Logger;
+
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * Exporter that writes the metric values to the log at INFO level.
+ * <p/>
+ * Copyright (C) 2011 Edmunds.com
+ */
+public class Log4jMetricsExporter implements MetricsExporter {
+
+    /**
+     * Logger for this class.
+     */
+    private static final Logger log = Logger.getLogger(Log4jMetricsExporter.class);
+
+    @Override
+    public void export(SortedMap<String, Long> metrics) {
+        if (!log.isInfoEnabled()) {
+            return;
+        }
+
+        final StringBuilder sb = new StringBuilder("Configuration metrics:");
+        for (Map.Entry<String, Long> entry : metrics.entrySet()) {
+            sb.append("\n  ").append(entry.getKey()).append('=').append(entry.getValue());
+        }
+        log.info(sb.toString());
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.metrics;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanParameterInfo;
+import javax.management.ReflectionException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * Exposes every metric in {@link ConfigurationMetrics} as a read-only JMX attribute.
+ * <p/>
+ * The attribute list is rebuilt each time the MBean info is requested, so metrics created after registration appear
+ * automatically.
+ * <p/>
+ * Copyright (C) 2011 Edmunds.com
+ */
+class MetricsDynamicMBean implements DynamicMBean {
+
+    private static final String RESET_OPERATION = "reset";
+
+    private final ConfigurationMetrics metrics;
+
+    MetricsDynamicMBean(ConfigurationMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        final Long value = metrics.snapshot().get(attribute);
+        if (value == null) {
+            throw new AttributeNotFoundException(attribute);
+        }
+        return value;
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+        final SortedMap<String, Long> snapshot = metrics.snapshot();
+        final AttributeList list = new AttributeList();
+
+        for (String attribute : attributes) {
+            final Long value = snapshot.get(attribute);
+            if (value != null) {
+                list.add(new Attribute(attribute, value));
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("Configuration metrics are read-only: " + attribute.getName());
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+        if (RESET_OPERATION.equals(actionName)) {
+            metrics.reset();
+            return null;
+        }
+        throw new ReflectionException(new NoSuchMethodException(actionName));
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        final List<MBeanAttributeInfo> attributes = new ArrayList<MBeanAttributeInfo>();
+
+        for (Map.Entry<String, Long> entry : metrics.snapshot().entrySet()) {
+            attributes.add(new MBeanAttributeInfo(
+                    entry.getKey(), Long.class.getName(), entry.getKey(), true, false, false));
+        }
+
+        final MBeanOperationInfo reset = new MBeanOperationInfo(
+                RESET_OPERATION, "Resets all metrics to zero", new MBeanParameterInfo[0], "void",
+                MBeanOperationInfo.ACTION);
+
+        return new MBeanInfo(getClass().getName(), "Edmunds configuration metrics",
+                attributes.toArray(new MBeanAttributeInfo[attributes.size()]), null,
+                new MBeanOperationInfo[]{reset}, null);
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.metrics;
+
+import java.util.SortedMap;
+
+/**
+ * Receives the current metric values when {@link ConfigurationMetrics#export()} is called.
+ * <p/>
+ * Implement this interface to forward the library metrics to a monitoring system.
+ * <p/>
+ * Copyright (C) 2011 Edmunds.com
+ */
+public interface MetricsExporter {
+
+    /**
+     * Publishes the metric values.
+     *
+     * @param metrics the current values keyed by metric name.
+     */
+    void export(SortedMap<String, Long> metrics);
+}
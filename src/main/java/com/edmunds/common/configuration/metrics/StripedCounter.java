@@ -0,0 +1,96 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free counter that spreads updates over several cache lines to avoid contention between threads.
+ * <p/>
+ * Updates are a single atomic add on a slot chosen from the calling thread's id, reading the value sums all slots.
+ * <p/>
+ * Copyright (C) 2011 Edmunds.com
+ */
+public final class StripedCounter {
+
+    /**
+     * Number of longs per slot, keeps each slot on its own 64 byte cache line.
+     */
+    private static final int PADDING = 8;
+
+    private static final int STRIPES = stripes(Runtime.getRuntime().availableProcessors());
+
+    private final AtomicLongArray cells = new AtomicLongArray(STRIPES * PADDING);
+
+    /**
+     * Adds one to the counter.
+     */
+    public void increment() {
+        add(1L);
+    }
+
+    /**
+     * Adds the given amount to the counter.
+     *
+     * @param amount the amount to add.
+     */
+    public void add(long amount) {
+        cells.getAndAdd(slot(), amount);
+    }
+
+    /**
+     * Returns the current value of the counter.
+     * <p/>
+     * The value is not an atomic snapshot when updates are in progress.
+     *
+     * @return the sum of all updates.
+     */
+    public long sum() {
+        long sum = 0L;
+        for (int i = 0; i < STRIPES; i++) {
+            sum += cells.get(i * PADDING);
+        }
+        return sum;
+    }
+
+    /**
+     * Resets the counter to zero.
+     */
+    public void reset() {
+        for (int i = 0; i < STRIPES; i++) {
+            cells.set(i * PADDING, 0L);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return Long.toString(sum());
+    }
+
+    private static int slot() {
+        final long id = Thread.currentThread().getId();
+        final int hash = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+        return ((hash >>> 16) & (STRIPES - 1)) * PADDING;
+    }
+
+    private static int stripes(int processors) {
+        int stripes = 1;
+        while (stripes < processors * 2 && stripes < 64) {
+            stripes <<= 1;
+        }
+        return stripes;
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records the number and duration of calls to an operation.
+ * <p/>
+ * Copyright (C) 2011 Edmunds.com
+ */
+public final class Timer {
+
+    private final ConfigurationMetrics metrics;
+    private final StripedCounter count = new StripedCounter();
+    private final StripedCounter totalNanos = new StripedCounter();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    Timer(ConfigurationMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Records a single call.
+     *
+     * @param nanos the duration of the call in nanoseconds.
+     */
+    public void record(long nanos) {
+        if (!metrics.isEnabled()) {
+            return;
+        }
+
+        count.increment();
+        totalNanos.add(nanos);
+
+        long max = maxNanos.get();
+        while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+            max = maxNanos.get();
+        }
+    }
+
+    /**
+     * Records a call that started at the given time and has just finished.
+     *
+     * @param startNanos the {@link System#nanoTime()} at the start of the call.
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Returns the number of calls recorded.
+     *
+     * @return the number of calls.
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Returns the total duration of all calls recorded.
+     *
+     * @return the total time in nanoseconds.
+     */
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    /**
+     * Returns the duration of the longest call recorded.
+     *
+     * @return the maximum time in nanoseconds.
+     */
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    void reset() {
+        count.reset();
+        totalNanos.reset();
+        maxNanos.set(0L);
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.render;
+
+import com.edmunds.common.configuration.api.EnvironmentSnapshot;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * The properties whose rendered values changed when a new environment snapshot was applied.
+ * <p/>
+ * Copyright (C) 2011 Edmunds.com
+ */
+public final class ConfigurationChange {
+
+    private final EnvironmentSnapshot previous;
+    private final EnvironmentSnapshot current;
+    private final int changedTokenMask;
+    private final int renderedCount;
+    private final Set<String> changedKeys;
+
+    ConfigurationChange(EnvironmentSnapshot previous, EnvironmentSnapshot current, int changedTokenMask,
+                        int renderedCount, Set<String> changedKeys) {
+        this.previous = previous;
+        this.current = current;
+        this.changedTokenMask = changedTokenMask;
+        this.renderedCount = renderedCount;
+        this.changedKeys = Collections.unmodifiableSet(changedKeys);
+    }
+
+    /**
+     * Returns the environment the values were rendered for before the change.
+     *
+     * @return the previous environment.
+     */
+    public EnvironmentSnapshot getPrevious() {
+        return previous;
+    }
+
+    /**
+     * Returns the environment the values are now rendered for.
+     *
+     * @return the current environment.
+     */
+    public EnvironmentSnapshot getCurrent() {
+        return current;
+    }
+
+    /**
+     * Returns a mask of the tokens whose values changed (see
+     * {@link com.edmunds.common.configuration.token.EnvironmentToken#mask()}).
+     *
+     * @return the changed token mask.
+     */
+    public int getChangedTokenMask() {
+        return changedTokenMask;
+    }
+
+    /**
+     * Returns the number of properties that were rendered again.
+     *
+     * @return the number of rendered properties.
+     */
+    public int getRenderedCount() {
+        return renderedCount;
+    }
+
+    /**
+     * Returns the names of the properties whose values changed, in template order.
+     *
+     * @return the changed property names.
+     */
+    public Set<String> getChangedKeys() {
+        return changedKeys;
+    }
+
+    /**
+     * Indicates if any property changed value.
+     *
+     * @return true if no property changed.
+     */
+    public boolean isEmpty() {
+        return changedKeys.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "ConfigurationChange{version=" + previous.getVersion() + "->" + current.getVersion()
+                + ", changedKeys=" + changedKeys + "}";
+    }
+}
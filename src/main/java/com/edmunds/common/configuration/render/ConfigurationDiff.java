@@ -0,0 +1,210 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.render;
+
+import com.edmunds.common.configuration.api.EnvironmentSnapshot;
+import com.edmunds.common.configuration.dns.EnvironmentTokenTables;
+import com.edmunds.common.configuration.token.EnvironmentToken;
+import com.edmunds.common.configuration.token.TokenTable;
+import com.edmunds.common.configuration.token.TokenTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The properties of a {@link TemplateSet} that render differently in two environments.
+ * <p/>
+ * Only templates that reference a token whose value differs between the environments are rendered, so comparing
+ * large template sets between similar environments costs little more than a scan of the template token masks.
+ * When one environment is local and the other is not every template is compared since different values are used.
+ * <p/>
+ * Usage:
+ * <pre>
+ *  ConfigurationDiff diff = ConfigurationDiff.compare(templates, pi, prod);
+ *  for (ConfigurationDiff.Difference difference : diff.getDifferences()) {
+ *      ...
+ *  }
+ * </pre>
+ * <p/>
+ * Copyright (C) 2011 Edmunds.com
+ */
+public final class ConfigurationDiff {
+
+    private static final EnvironmentToken[] TOKENS = EnvironmentToken.values();
+
+    private final EnvironmentSnapshot left;
+    private final EnvironmentSnapshot right;
+    private final int changedTokenMask;
+    private final int comparedCount;
+    private final List<Difference> differences;
+
+    private ConfigurationDiff(EnvironmentSnapshot left, EnvironmentSnapshot right, int changedTokenMask,
+                              int comparedCount, List<Difference> differences) {
+        this.left = left;
+        this.right = right;
+        this.changedTokenMask = changedTokenMask;
+        this.comparedCount = comparedCount;
+        this.differences = Collections.unmodifiableList(differences);
+    }
+
+    /**
+     * Compares the values a template set renders to in two environments.
+     * <p/>
+     * The host name tokens are not replaced.
+     *
+     * @param templates the templates.
+     * @param left      the first environment.
+     * @param right     the second environment.
+     * @return the differences.
+     */
+    public static ConfigurationDiff compare(
+            TemplateSet templates, EnvironmentSnapshot left, EnvironmentSnapshot right) {
+
+        final TokenTable leftTable = EnvironmentTokenTables.build(left, null, null);
+        final TokenTable rightTable = EnvironmentTokenTables.build(right, null, null);
+        final int changedTokenMask = changedTokens(leftTable, rightTable);
+
+        final boolean leftLocal = left.isLocalEnvironment();
+        final boolean rightLocal = right.isLocalEnvironment();
+        final boolean compareAll = leftLocal != rightLocal;
+
+        final List<Difference> differences = new ArrayList<Difference>();
+        int compared = 0;
+        for (int i = 0; i < templates.size(); i++) {
+            if (!compareAll && (templates.getTokenMask(i) & changedTokenMask) == 0) {
+                continue;
+            }
+            compared++;
+
+            final String leftValue = render(templates.getTemplate(i, leftLocal), leftTable);
+            final String rightValue = render(templates.getTemplate(i, rightLocal), rightTable);
+            if (leftValue == null ? rightValue != null : !leftValue.equals(rightValue)) {
+                differences.add(new Difference(templates.getName(i), leftValue, rightValue));
+            }
+        }
+        return new ConfigurationDiff(left, right, changedTokenMask, compared, differences);
+    }
+
+    /**
+     * Returns a mask of the tokens that have different values in two tables (see {@link EnvironmentToken#mask()}).
+     *
+     * @param left  the first table.
+     * @param right the second table.
+     * @return the mask of changed tokens.
+     */
+    public static int changedTokens(TokenTable left, TokenTable right) {
+        int mask = 0;
+        for (EnvironmentToken token : TOKENS) {
+            final String leftValue = left.get(token);
+            final String rightValue = right.get(token);
+            if (leftValue == null ? rightValue != null : !leftValue.equals(rightValue)) {
+                mask |= token.mask();
+            }
+        }
+        return mask;
+    }
+
+    private static String render(TokenTemplate template, TokenTable table) {
+        return template == null ? null : template.render(table);
+    }
+
+    /**
+     * Returns the first environment.
+     *
+     * @return the left environment.
+     */
+    public EnvironmentSnapshot getLeft() {
+        return left;
+    }
+
+    /**
+     * Returns the second environment.
+     *
+     * @return the right environment.
+     */
+    public EnvironmentSnapshot getRight() {
+        return right;
+    }
+
+    /**
+     * Returns a mask of the tokens whose values differ between the environments.
+     *
+     * @return the changed token mask.
+     */
+    public int getChangedTokenMask() {
+        return changedTokenMask;
+    }
+
+    /**
+     * Returns the number of templates that had to be rendered, the others reference no changed token.
+     *
+     * @return the number of compared templates.
+     */
+    public int getComparedCount() {
+        return comparedCount;
+    }
+
+    /**
+     * Returns the properties whose values differ, in template order.
+     *
+     * @return the differences.
+     */
+    public List<Difference> getDifferences() {
+        return differences;
+    }
+
+    /**
+     * Indicates if any property differs.
+     *
+     * @return true if there are no differences.
+     */
+    public boolean isEmpty() {
+        return differences.isEmpty();
+    }
+
+    /**
+     * A property that renders to different values.
+     */
+    public static final class Difference {
+        private final String name;
+        private final String leftValue;
+        private final String rightValue;
+
+        Difference(String name, String leftValue, String rightValue) {
+            this.name = name;
+            this.leftValue = leftValue;
+            this.rightValue = rightValue;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getLeftValue() {
+            return leftValue;
+        }
+
+        public String getRightValue() {
+            return rightValue;
+        }
+
+        @Override
+        public String toString() {
+            return name + ": " + leftValue + " -> " + rightValue;
+        }
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.render;
+
+import com.edmunds.common.configuration.api.EnvironmentSnapshot;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Command line entry point for the offline configuration tools.
+ * <p/>
+ * Usage:
+ * <pre>
+ *  java -cp ... com.edmunds.common.configuration.render.ConfigurationTool render [options]
+ *          &lt;configuration.properties&gt; &lt;template-directory&gt; &lt;output-directory&gt;
+ * </pre>
+ * The configuration file uses the format of the configuration-dns properties file, for example:
+ * <pre>
+ *  environment-name=prod
+ *  environment-datacenter=lax1
+ *  environment-site=edmunds
+ *  url-prefix=prod
+ * </pre>
+ * Options: {@code --threads <n>}, {@code --host-name <name>}, {@code --canonical-host-name <name>} and
+ * {@code --encoding <charset>}. The host name tokens are left untouched unless their option is given. Any other
+ * option prints the usage and exits with status 2.
+ * <p/>
+ * To list the properties that resolve differently in two environments:
+ * <pre>
+ *  java -cp ... com.edmunds.common.configuration.render.ConfigurationTool diff
+ *          &lt;left.properties&gt; &lt;right.properties&gt; &lt;templates.properties&gt;
+ * </pre>
+ * The templates file holds one templated value per property name. Each differing property is printed as
+ * {@code name: left -> right}.
+ * <p/>
+ * Copyright (C) 2011 Edmunds.com
+ */
+public final class ConfigurationTool {
+
+    private static final int EXIT_SUCCESS = 0;
+    private static final int EXIT_ERROR = 1;
+    private static final int EXIT_USAGE = 2;
+
+    private static final String USAGE = "Usage: ConfigurationTool render [--threads <n>] [--host-name <name>]"
+            + " [--canonical-host-name <name>] [--encoding <charset>]"
+            + " <configuration.properties> <template-directory> <output-directory>\n"
+            + "       ConfigurationTool diff <left.properties> <right.properties> <templates.properties>";
+
+    private static final Set<String> OPTIONS = new HashSet<String>(
+            Arrays.asList("threads", "host-name", "canonical-host-name", "encoding"));
+
+    private ConfigurationTool() {
+    }
+
+    public static void main(String[] args) {
+        System.exit(run(args, System.out, System.err));
+    }
+
+    /**
+     * Runs a command.
+     *
+     * @param args the command line.
+     * @param out  receives the command output.
+     * @param err  receives errors and usage.
+     * @return the process exit code.
+     */
+    static int run(String[] args, PrintStream out, PrintStream err) {
+        final Map<String, String> options = new HashMap<String, String>();
+        final List<String> arguments = new ArrayList<String>();
+        if (!parse(args, options, arguments, err) || arguments.isEmpty()) {
+            err.println(USAGE);
+            return EXIT_USAGE;
+        }
+
+        try {
+            final String command = arguments.remove(0);
+            if ("render".equals(command) && arguments.size() == 3) {
+                return render(options, arguments, out);
+            }
+            if ("diff".equals(command) && arguments.size() == 3) {
+                return diff(arguments, out);
+            }
+            err.println(USAGE);
+            return EXIT_USAGE;
+        } catch (IOException e) {
+            err.println("Error: " + e.getMessage());
+            return EXIT_ERROR;
+        } catch (IllegalArgumentException e) {
+            err.println("Error: " + e.getMessage());
+            return EXIT_USAGE;
+        }
+    }
+
+    private static int render(Map<String, String> options, List<String> arguments, PrintStream out)
+            throws IOException {
+
+        final EnvironmentSnapshot environment = loadEnvironment(new File(arguments.get(0)));
+        final PropertyFileRenderer renderer = new PropertyFileRenderer(environment, options.get("host-name"),
+                options.get("canonical-host-name"), intOption(options, "threads", defaultThreads()));
+        if (options.containsKey("encoding")) {
+            renderer.setEncoding(options.get("encoding"));
+        }
+
+        final long start = System.nanoTime();
+        final int files = renderer.renderDirectory(new File(arguments.get(1)), new File(arguments.get(2)));
+        out.println("Rendered " + files + " files for " + environment.getEnvironmentName() + " in "
+                + (System.nanoTime() - start) / 1000000L + "ms");
+        return EXIT_SUCCESS;
+    }
+
+    private static int diff(List<String> arguments, PrintStream out) throws IOException {
+        final EnvironmentSnapshot left = loadEnvironment(new File(arguments.get(0)));
+        final EnvironmentSnapshot right = loadEnvironment(new File(arguments.get(1)));
+        final Map<String, String> values = new TreeMap<String, String>();
+        for (Map.Entry<Object, Object> entry : loadProperties(new File(arguments.get(2))).entrySet()) {
+            values.put((String) entry.getKey(), (String) entry.getValue());
+        }
+
+        final ConfigurationDiff diff = ConfigurationDiff.compare(TemplateSet.of(values), left, right);
+        for (ConfigurationDiff.Difference difference : diff.getDifferences()) {
+            out.println(difference);
+        }
+        out.println(diff.getDifferences().size() + " of " + values.size() + " properties differ ("
+                + diff.getComparedCount() + " compared)");
+        return EXIT_SUCCESS;
+    }
+
+    /**
+     * Resolves an environment from a configuration-dns properties file.
+     *
+     * @param file the properties file.
+     * @return the environment.
+     * @throws IOException if the file cannot be read.
+     */
+    static EnvironmentSnapshot loadEnvironment(File file) throws IOException {
+        return EnvironmentMatrix.resolve(loadProperties(file));
+    }
+
+    private static Properties loadProperties(File file) throws IOException {
+        final Properties properties = new Properties();
+        final InputStream in = new FileInputStream(file);
+        try {
+            properties.load(in);
+        } finally {
+            in.close();
+        }
+        return properties;
+    }
+
+    private static boolean parse(String[] args, Map<String, String> options, List<String> arguments,
+                                 PrintStream err) {
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].startsWith("--")) {
+                final String name = args[i].substring(2);
+                if (!OPTIONS.contains(name)) {
+                    err.println("Unknown option: " + args[i]);
+                    return false;
+                }
+                if (i + 1 == args.length) {
+                    return false;
+                }
+                options.put(name, args[++i]);
+            } else {
+                arguments.add(args[i]);
+            }
+        }
+        return true;
+    }
+
+    private static int intOption(Map<String, String> options, String name, int defaultValue) {
+        final String value = options.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("--" + name + " must be a number: " + value);
+        }
+    }
+
+    private static int defaultThreads() {
+        return Runtime.getRuntime().availableProcessors();
+    }
+}
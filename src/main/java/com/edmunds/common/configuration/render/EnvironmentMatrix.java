@@ -0,0 +1,123 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.render;
+
+import com.edmunds.common.configuration.api.EnvironmentSnapshot;
+import com.edmunds.common.configuration.dns.EnvironmentBootstrap;
+import com.edmunds.common.configuration.dns.PropertiesConfigurationEntryReader;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Builds synthetic environments for every combination of environment name, data center and site.
+ * <p/>
+ * Each combination is resolved by the same factories that resolve the DNS entries at runtime, so the resulting
+ * snapshots hold exactly the values a server in that environment would see. The environment name is also used as
+ * the url prefix (so {@code prod} has an empty prefix) and the logical environment name, unless set explicitly
+ * with {@link #setEntry(String, String)}.
+ * <p/>
+ * Usage:
+ * <pre>
+ *  EnvironmentMatrix matrix = new EnvironmentMatrix(
+ *          Arrays.asList("di", "ti", "pi", "prod"), Arrays.asList("lax1", "las1"), Arrays.asList("edmunds"));
+ *  List&lt;RenderedEnvironment&gt; rendered = new FleetRenderer(templates).render(matrix.getSnapshots());
+ * </pre>
+ * <p/>
+ * Copyright (C) 2011 Edmunds.com
+ */
+public class EnvironmentMatrix {
+
+    static final String ENVIRONMENT_NAME = "environment-name";
+    static final String URL_PREFIX = "url-prefix";
+    static final String DATA_CENTER = "environment-datacenter";
+    static final String SITE = "environment-site";
+
+    private final List<String> environmentNames;
+    private final List<String> dataCenters;
+    private final List<String> sites;
+    private final Properties entries = new Properties();
+
+    /**
+     * Creates a matrix.
+     *
+     * @param environmentNames the environment names.
+     * @param dataCenters      the data centers.
+     * @param sites            the sites.
+     */
+    public EnvironmentMatrix(List<String> environmentNames, List<String> dataCenters, List<String> sites) {
+        this.environmentNames = new ArrayList<String>(environmentNames);
+        this.dataCenters = new ArrayList<String>(dataCenters);
+        this.sites = new ArrayList<String>(sites);
+    }
+
+    /**
+     * Sets a configuration entry shared by every combination, for example {@code environment-index}.
+     *
+     * @param entryName the entry name as used in the configuration properties file.
+     * @param value     the value.
+     */
+    public void setEntry(String entryName, String value) {
+        entries.setProperty(entryName, value);
+    }
+
+    /**
+     * Returns the number of combinations.
+     *
+     * @return the number of combinations.
+     */
+    public int size() {
+        return environmentNames.size() * dataCenters.size() * sites.size();
+    }
+
+    /**
+     * Resolves every combination.
+     *
+     * @return the environments, ordered by environment name, then data center, then site.
+     */
+    public List<EnvironmentSnapshot> getSnapshots() {
+        final List<EnvironmentSnapshot> snapshots = new ArrayList<EnvironmentSnapshot>(size());
+
+        for (String environmentName : environmentNames) {
+            for (String dataCenter : dataCenters) {
+                for (String site : sites) {
+                    final Properties combination = new Properties();
+                    combination.setProperty(ENVIRONMENT_NAME, environmentName);
+                    combination.setProperty(URL_PREFIX, environmentName);
+                    combination.setProperty(DATA_CENTER, dataCenter);
+                    combination.setProperty(SITE, site);
+                    combination.putAll(entries);
+                    snapshots.add(resolve(combination));
+                }
+            }
+        }
+        return snapshots;
+    }
+
+    /**
+     * Resolves a single environment from configuration entries.
+     * <p/>
+     * The snapshot is captured from the resolved configuration and connection, without the host name lookups and
+     * token table of a configuration util.
+     *
+     * @param entries the entries, using the keys of the configuration properties file.
+     * @return the environment.
+     */
+    public static EnvironmentSnapshot resolve(Properties entries) {
+        return EnvironmentBootstrap.capture(new PropertiesConfigurationEntryReader(entries));
+    }
+}
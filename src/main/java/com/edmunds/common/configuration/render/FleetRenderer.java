@@ -0,0 +1,200 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.render;
+
+import com.edmunds.common.configuration.api.EnvironmentSnapshot;
+import com.edmunds.common.configuration.dns.EnvironmentTokenTables;
+import com.edmunds.common.configuration.metrics.ConfigurationMetrics;
+import com.edmunds.common.configuration.metrics.Timer;
+import com.edmunds.common.configuration.token.TokenTable;
+import com.edmunds.common.configuration.token.TokenTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Renders a {@link TemplateSet} for many environments in parallel without creating a Spring context per
+ * environment.
+ * <p/>
+ * The templates are compiled once and shared by all threads, each environment only costs building its token table
+ * and one pass over each template. The host name tokens are left untouched unless host names are given since the
+ * environments are not the one the renderer runs in.
+ * <p/>
+ * Copyright (C) 2011 Edmunds.com
+ */
+public class FleetRenderer {
+
+    /**
+     * Number of chunks each thread is given, so a slow chunk does not leave the other threads idle.
+     */
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private static final Timer RENDER_TIMER = ConfigurationMetrics.getInstance().timer("render.fleet");
+
+    private final TemplateSet templates;
+    private final int threads;
+
+    private String hostName;
+    private String canonicalHostName;
+
+    /**
+     * Creates a renderer that uses one thread per available processor.
+     *
+     * @param templates the templates to render.
+     */
+    public FleetRenderer(TemplateSet templates) {
+        this(templates, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a renderer.
+     *
+     * @param templates the templates to render.
+     * @param threads   the number of rendering threads.
+     */
+    public FleetRenderer(TemplateSet templates, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be positive: " + threads);
+        }
+        this.templates = templates;
+        this.threads = threads;
+    }
+
+    /**
+     * Renders the templates for a single environment on the calling thread.
+     *
+     * @param environment the environment.
+     * @return the rendered values.
+     */
+    public RenderedEnvironment render(EnvironmentSnapshot environment) {
+        final TokenTable table = EnvironmentTokenTables.build(environment, hostName, canonicalHostName);
+        final boolean local = environment.isLocalEnvironment();
+
+        final String[] values = new String[templates.size()];
+        for (int i = 0; i < values.length; i++) {
+            final TokenTemplate template = templates.getTemplate(i, local);
+            values[i] = template == null ? null : template.render(table);
+        }
+        return new RenderedEnvironment(environment, templates, values);
+    }
+
+    /**
+     * Renders the templates for every environment.
+     *
+     * @param environments the environments.
+     * @return the rendered values, in the same order as the environments.
+     */
+    public List<RenderedEnvironment> render(final List<EnvironmentSnapshot> environments) {
+        final long start = System.nanoTime();
+        final int size = environments.size();
+        final int chunks = Math.min(size, threads * CHUNKS_PER_THREAD);
+
+        if (threads == 1 || chunks <= 1) {
+            final List<RenderedEnvironment> rendered = renderRange(environments, 0, size);
+            RENDER_TIMER.recordSince(start);
+            return rendered;
+        }
+
+        final RenderedEnvironment[] results = new RenderedEnvironment[size];
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, chunks));
+        try {
+            final List<Future<List<RenderedEnvironment>>> futures = new ArrayList<Future<List<RenderedEnvironment>>>();
+            final int[] offsets = new int[chunks];
+            for (int chunk = 0; chunk < chunks; chunk++) {
+                final int from = (int) ((long) size * chunk / chunks);
+                final int to = (int) ((long) size * (chunk + 1) / chunks);
+                offsets[chunk] = from;
+                futures.add(executor.submit(new Callable<List<RenderedEnvironment>>() {
+                    @Override
+                    public List<RenderedEnvironment> call() {
+                        return renderRange(environments, from, to);
+                    }
+                }));
+            }
+
+            for (int chunk = 0; chunk < chunks; chunk++) {
+                final List<RenderedEnvironment> rendered = getResult(futures.get(chunk));
+                for (int i = 0; i < rendered.size(); i++) {
+                    results[offsets[chunk] + i] = rendered.get(i);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        RENDER_TIMER.recordSince(start);
+        return Arrays.asList(results);
+    }
+
+    private List<RenderedEnvironment> renderRange(List<EnvironmentSnapshot> environments, int from, int to) {
+        final List<RenderedEnvironment> rendered = new ArrayList<RenderedEnvironment>(to - from);
+        for (int i = from; i < to; i++) {
+            rendered.add(render(environments.get(i)));
+        }
+        return rendered;
+    }
+
+    private static <T> T getResult(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while rendering", e);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException("Rendering failed", cause);
+        }
+    }
+
+    /**
+     * Returns the templates rendered by this renderer.
+     *
+     * @return the templates.
+     */
+    public TemplateSet getTemplates() {
+        return templates;
+    }
+
+    /**
+     * Sets the value of the {@code _HOST_NAME_} token, by default the token is not replaced.
+     *
+     * @param hostName the host name.
+     */
+    public void setHostName(String hostName) {
+        this.hostName = hostName;
+    }
+
+    /**
+     * Sets the value of the {@code _HOST_CANONICAL_NAME_} token, by default the token is not replaced.
+     *
+     * @param canonicalHostName the canonical host name.
+     */
+    public void setCanonicalHostName(String canonicalHostName) {
+        this.canonicalHostName = canonicalHostName;
+    }
+}
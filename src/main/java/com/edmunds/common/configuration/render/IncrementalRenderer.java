@@ -0,0 +1,258 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.render;
+
+import com.edmunds.common.configuration.api.ConfigurationUtil;
+import com.edmunds.common.configuration.api.EnvironmentSnapshot;
+import com.edmunds.common.configuration.dns.EnvironmentTokenTables;
+import com.edmunds.common.configuration.metrics.ConfigurationMetrics;
+import com.edmunds.common.configuration.metrics.StripedCounter;
+import com.edmunds.common.configuration.token.TokenTable;
+import com.edmunds.common.configuration.token.TokenTemplate;
+import org.apache.log4j.Logger;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.BitSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Keeps the rendered values of a {@link TemplateSet} up to date as the environment changes, rendering again only
+ * the properties that depend on a changed token.
+ * <p/>
+ * Each compiled template records the tokens it references, so when a new snapshot is applied the changed tokens
+ * select exactly the properties that can change. Listeners are told the names of the properties whose values
+ * actually changed. Reads never lock, the values are replaced as a whole when an update completes.
+ * <p/>
+ * Usage:
+ * <pre>
+ *  IncrementalRenderer renderer = new IncrementalRenderer(templates, configurationUtil);
+ *  renderer.addListener(listener);
+ *  ...
+ *  renderer.refresh(); // after the environment may have changed
+ * </pre>
+ * <p/>
+ * Copyright (C) 2011 Edmunds.com
+ */
+public class IncrementalRenderer {
+
+    /**
+     * Logger for this class.
+     */
+    private static final Logger log = Logger.getLogger(IncrementalRenderer.class);
+
+    private static final ConfigurationMetrics METRICS = ConfigurationMetrics.getInstance();
+    private static final StripedCounter RENDERED = METRICS.counter("render.incremental.rendered");
+    private static final StripedCounter SKIPPED = METRICS.counter("render.incremental.skipped");
+
+    private final TemplateSet templates;
+    private final ConfigurationUtil configurationUtil;
+    private final String hostName;
+    private final String canonicalHostName;
+    private final List<ConfigurationChangeListener> listeners =
+            new CopyOnWriteArrayList<ConfigurationChangeListener>();
+
+    private volatile State state;
+
+    /**
+     * Creates a renderer that follows the environment of a configuration util, replacing the host name tokens with
+     * the names of the local host.
+     *
+     * @param templates         the templates to render.
+     * @param configurationUtil the source of environment snapshots.
+     */
+    public IncrementalRenderer(TemplateSet templates, ConfigurationUtil configurationUtil) {
+        this.templates = templates;
+        this.configurationUtil = configurationUtil;
+
+        String localHostName = null;
+        String localCanonicalHostName = null;
+        try {
+            final InetAddress localHost = InetAddress.getLocalHost();
+            localHostName = localHost.getHostName();
+            localCanonicalHostName = localHost.getCanonicalHostName();
+        } catch (UnknownHostException e) {
+            log.warn("Error looking up host name. No substitution will be performed: " + e.getMessage());
+        }
+        this.hostName = localHostName;
+        this.canonicalHostName = localCanonicalHostName;
+        this.state = renderAll(EnvironmentSnapshot.of(configurationUtil));
+    }
+
+    /**
+     * Creates a renderer for environments supplied with {@link #update(EnvironmentSnapshot)}.
+     *
+     * @param templates         the templates to render.
+     * @param environment       the initial environment.
+     * @param hostName          the value of the {@code _HOST_NAME_} token, null to leave the token untouched.
+     * @param canonicalHostName the value of the {@code _HOST_CANONICAL_NAME_} token, null to leave it untouched.
+     */
+    public IncrementalRenderer(
+            TemplateSet templates, EnvironmentSnapshot environment, String hostName, String canonicalHostName) {
+        this.templates = templates;
+        this.configurationUtil = null;
+        this.hostName = hostName;
+        this.canonicalHostName = canonicalHostName;
+        this.state = renderAll(environment);
+    }
+
+    /**
+     * Applies the current environment of the configuration util, if it changed.
+     *
+     * @return the change, empty if no property changed.
+     */
+    public ConfigurationChange refresh() {
+        if (configurationUtil == null) {
+            throw new IllegalStateException("No ConfigurationUtil to refresh from");
+        }
+        return update(EnvironmentSnapshot.of(configurationUtil));
+    }
+
+    /**
+     * Applies a new environment, rendering only the properties that reference a changed token.
+     *
+     * @param environment the new environment.
+     * @return the change, empty if no property changed.
+     */
+    public synchronized ConfigurationChange update(EnvironmentSnapshot environment) {
+        final State previous = state;
+        if (previous.environment.getVersion() == environment.getVersion()) {
+            return new ConfigurationChange(previous.environment, environment, 0, 0, new LinkedHashSet<String>());
+        }
+
+        final TokenTable table = EnvironmentTokenTables.build(environment, hostName, canonicalHostName);
+        final int changedTokenMask = ConfigurationDiff.changedTokens(previous.table, table);
+        final boolean local = environment.isLocalEnvironment();
+
+        final BitSet affected;
+        if (local != previous.environment.isLocalEnvironment()) {
+            affected = new BitSet(templates.size());
+            affected.set(0, templates.size());
+        } else {
+            affected = templates.getDependents(changedTokenMask);
+        }
+
+        final String[] values = previous.values.clone();
+        final Set<String> changedKeys = new LinkedHashSet<String>();
+        int rendered = 0;
+        for (int i = affected.nextSetBit(0); i >= 0; i = affected.nextSetBit(i + 1)) {
+            final String value = render(templates.getTemplate(i, local), table);
+            rendered++;
+            if (value == null ? values[i] != null : !value.equals(values[i])) {
+                values[i] = value;
+                changedKeys.add(templates.getName(i));
+            }
+        }
+        state = new State(environment, table, values);
+
+        if (METRICS.isEnabled()) {
+            RENDERED.add(rendered);
+            SKIPPED.add(templates.size() - rendered);
+        }
+
+        final ConfigurationChange change =
+                new ConfigurationChange(previous.environment, environment, changedTokenMask, rendered, changedKeys);
+        if (!change.isEmpty()) {
+            for (ConfigurationChangeListener listener : listeners) {
+                try {
+                    listener.configurationChanged(change);
+                } catch (RuntimeException e) {
+                    log.warn("Configuration change listener failed: " + listener, e);
+                }
+            }
+        }
+        return change;
+    }
+
+    private State renderAll(EnvironmentSnapshot environment) {
+        final TokenTable table = EnvironmentTokenTables.build(environment, hostName, canonicalHostName);
+        final boolean local = environment.isLocalEnvironment();
+
+        final String[] values = new String[templates.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = render(templates.getTemplate(i, local), table);
+        }
+        return new State(environment, table, values);
+    }
+
+    private static String render(TokenTemplate template, TokenTable table) {
+        return template == null ? null : template.render(table);
+    }
+
+    /**
+     * Returns a rendered value.
+     *
+     * @param name the property name.
+     * @return the current value, null if there is no such property or it has no value.
+     */
+    public String getValue(String name) {
+        final int index = templates.indexOf(name);
+        return index < 0 ? null : state.values[index];
+    }
+
+    /**
+     * Returns all rendered values as of the last update.
+     *
+     * @return the values and the environment they were rendered for.
+     */
+    public RenderedEnvironment getRendered() {
+        final State current = state;
+        return new RenderedEnvironment(current.environment, templates, current.values);
+    }
+
+    /**
+     * Returns the rendered values keyed by property name.
+     *
+     * @return the current values, in template order.
+     */
+    public Map<String, String> asMap() {
+        return getRendered().asMap();
+    }
+
+    /**
+     * Adds a listener that is told about every change.
+     *
+     * @param listener the listener.
+     */
+    public void addListener(ConfigurationChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes a listener.
+     *
+     * @param listener the listener.
+     */
+    public void removeListener(ConfigurationChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    private static final class State {
+        private final EnvironmentSnapshot environment;
+        private final TokenTable table;
+        private final String[] values;
+
+        State(EnvironmentSnapshot environment, TokenTable table, String[] values) {
+            this.environment = environment;
+            this.table = table;
+            this.values = values;
+        }
+    }
+}
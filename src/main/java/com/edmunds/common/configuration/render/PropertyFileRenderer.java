@@ -0,0 +1,250 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.render;
+
+import com.edmunds.common.configuration.api.EnvironmentSnapshot;
+import com.edmunds.common.configuration.dns.EnvironmentTokenTables;
+import com.edmunds.common.configuration.metrics.ConfigurationMetrics;
+import com.edmunds.common.configuration.metrics.Timer;
+import com.edmunds.common.configuration.token.TokenTable;
+import com.edmunds.common.configuration.token.TokenTemplate;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Writes copies of templated property and configuration files with all environment tokens replaced, so that
+ * deployment artifacts can ship values that need no resolution at runtime.
+ * <p/>
+ * Files are streamed a line at a time and rendered with the same token semantics as
+ * {@link com.edmunds.common.configuration.api.ConfigurationUtil#replaceTokens(String)}. Line terminators and all
+ * other characters are preserved; the files are read and written as ISO-8859-1 by default, which passes the bytes of
+ * any ASCII compatible encoding (including UTF-8) through unchanged. The files of a directory are rendered in
+ * parallel.
+ * <p/>
+ * Copyright (C) 2011 Edmunds.com
+ */
+public class PropertyFileRenderer {
+
+    /**
+     * Default character set, byte transparent for ASCII compatible encodings since all tokens are ASCII.
+     */
+    public static final String DEFAULT_ENCODING = "ISO-8859-1";
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private static final Timer RENDER_FILE_TIMER = ConfigurationMetrics.getInstance().timer("render.file");
+
+    private final TokenTable table;
+    private final int threads;
+    private String encoding = DEFAULT_ENCODING;
+
+    /**
+     * Creates a renderer that leaves the {@code _HOST_CANONICAL_NAME_} token untouched.
+     *
+     * @param environment the environment to render the files for.
+     * @param hostName    the value of the {@code _HOST_NAME_} token, null to leave the token untouched.
+     * @param threads     the number of files rendered in parallel.
+     */
+    public PropertyFileRenderer(EnvironmentSnapshot environment, String hostName, int threads) {
+        this(environment, hostName, null, threads);
+    }
+
+    /**
+     * Creates a renderer.
+     *
+     * @param environment       the environment to render the files for.
+     * @param hostName          the value of the {@code _HOST_NAME_} token, null to leave the token untouched.
+     * @param canonicalHostName the value of the {@code _HOST_CANONICAL_NAME_} token, null to leave it untouched.
+     * @param threads           the number of files rendered in parallel.
+     */
+    public PropertyFileRenderer(EnvironmentSnapshot environment, String hostName, String canonicalHostName,
+                                int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be positive: " + threads);
+        }
+        this.table = EnvironmentTokenTables.build(environment, hostName, canonicalHostName);
+        this.threads = threads;
+    }
+
+    /**
+     * Renders every file below a directory, writing the results to the same relative path below another directory.
+     *
+     * @param templateDirectory the directory holding the templates.
+     * @param outputDirectory   the directory to write to, created if necessary.
+     * @return the number of files written.
+     * @throws IOException if a file cannot be read or written.
+     */
+    public int renderDirectory(final File templateDirectory, final File outputDirectory) throws IOException {
+        if (!templateDirectory.isDirectory()) {
+            throw new IOException("Not a directory: " + templateDirectory);
+        }
+
+        final List<String> paths = new ArrayList<String>();
+        listFiles(templateDirectory, "", paths);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<Void>> futures = new ArrayList<Future<Void>>(paths.size());
+            for (final String path : paths) {
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws IOException {
+                        renderFile(new File(templateDirectory, path), new File(outputDirectory, path));
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> future : futures) {
+                getResult(future);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return paths.size();
+    }
+
+    /**
+     * Renders a single file.
+     *
+     * @param template the template file.
+     * @param output   the file to write, parent directories are created if necessary.
+     * @throws IOException if the file cannot be read or written.
+     */
+    public void renderFile(File template, File output) throws IOException {
+        final long start = System.nanoTime();
+        final File parent = output.getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs() && !parent.isDirectory()) {
+            throw new IOException("Cannot create directory: " + parent);
+        }
+
+        final Reader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(template), encoding), BUFFER_SIZE);
+        try {
+            final Writer writer = new BufferedWriter(
+                    new OutputStreamWriter(new FileOutputStream(output), encoding), BUFFER_SIZE);
+            try {
+                render(reader, writer);
+            } finally {
+                writer.close();
+            }
+        } finally {
+            reader.close();
+        }
+        RENDER_FILE_TIMER.recordSince(start);
+    }
+
+    /**
+     * Renders a stream a line at a time.
+     *
+     * @param reader the template text.
+     * @param writer receives the rendered text, not closed.
+     * @throws IOException if the text cannot be read or written.
+     */
+    public void render(Reader reader, Writer writer) throws IOException {
+        final char[] buffer = new char[BUFFER_SIZE];
+        final StringBuilder line = new StringBuilder();
+
+        int read;
+        while ((read = reader.read(buffer)) >= 0) {
+            int lineStart = 0;
+            for (int i = 0; i < read; i++) {
+                if (buffer[i] == '\n') {
+                    line.append(buffer, lineStart, i + 1 - lineStart);
+                    writeLine(line, writer);
+                    lineStart = i + 1;
+                }
+            }
+            line.append(buffer, lineStart, read - lineStart);
+        }
+        writeLine(line, writer);
+        writer.flush();
+    }
+
+    private void writeLine(StringBuilder line, Writer writer) throws IOException {
+        if (line.length() != 0) {
+            // Lines are rarely repeated, compile without polluting the shared template cache.
+            writer.write(TokenTemplate.compile(line.toString()).render(table));
+            line.setLength(0);
+        }
+    }
+
+    private static void listFiles(File directory, String prefix, List<String> paths) throws IOException {
+        final File[] files = directory.listFiles();
+        if (files == null) {
+            throw new IOException("Cannot list directory: " + directory);
+        }
+        for (File file : files) {
+            final String path = prefix + file.getName();
+            if (file.isDirectory()) {
+                listFiles(file, path + File.separator, paths);
+            } else {
+                paths.add(path);
+            }
+        }
+    }
+
+    private static void getResult(Future<Void> future) throws IOException {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while rendering files");
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException("Rendering failed", cause);
+        }
+    }
+
+    /**
+     * Returns the character set the files are read and written with.
+     *
+     * @return the encoding name (default: ISO-8859-1).
+     */
+    public String getEncoding() {
+        return encoding;
+    }
+
+    /**
+     * Sets the character set the files are read and written with.
+     *
+     * @param encoding the encoding name.
+     */
+    public void setEncoding(String encoding) {
+        this.encoding = encoding;
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.render;
+
+import com.edmunds.common.configuration.api.EnvironmentSnapshot;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The values of a {@link TemplateSet} rendered for one environment.
+ * <p/>
+ * Copyright (C) 2011 Edmunds.com
+ */
+public final class RenderedEnvironment {
+
+    private final EnvironmentSnapshot environment;
+    private final TemplateSet templates;
+    private final String[] values;
+
+    RenderedEnvironment(EnvironmentSnapshot environment, TemplateSet templates, String[] values) {
+        this.environment = environment;
+        this.templates = templates;
+        this.values = values;
+    }
+
+    /**
+     * Returns the environment the values were rendered for.
+     *
+     * @return the environment.
+     */
+    public EnvironmentSnapshot getEnvironment() {
+        return environment;
+    }
+
+    /**
+     * Returns the templates that were rendered.
+     *
+     * @return the templates.
+     */
+    public TemplateSet getTemplates() {
+        return templates;
+    }
+
+    /**
+     * Returns a rendered value by template index.
+     *
+     * @param index the template index.
+     * @return the rendered value, null if the template has no value for the environment.
+     */
+    public String getValue(int index) {
+        return values[index];
+    }
+
+    /**
+     * Returns a rendered value by template name.
+     *
+     * @param name the template name.
+     * @return the rendered value, null if there is no such template or it has no value for the environment.
+     */
+    public String getValue(String name) {
+        final int index = templates.indexOf(name);
+        return index < 0 ? null : values[index];
+    }
+
+    /**
+     * Returns all rendered values.
+     *
+     * @return the values keyed by template name, in template order.
+     */
+    public Map<String, String> asMap() {
+        final Map<String, String> map = new LinkedHashMap<String, String>();
+        for (int i = 0; i < values.length; i++) {
+            map.put(templates.getName(i), values[i]);
+        }
+        return map;
+    }
+
+    @Override
+    public String toString() {
+        return "RenderedEnvironment{environment=" + environment + ", values=" + values.length + "}";
+    }
+}
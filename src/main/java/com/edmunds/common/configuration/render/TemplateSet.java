@@ -0,0 +1,229 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.render;
+
+import com.edmunds.common.configuration.token.EnvironmentToken;
+import com.edmunds.common.configuration.token.TokenTemplate;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An immutable, ordered set of named property templates compiled once so they can be rendered for any number of
+ * environments.
+ * <p/>
+ * Each template has a local and a managed value, matching {@code EnvironmentPropertyFactory}, and the value used
+ * depends on whether the environment is local. Identical values share the same compiled template.
+ * <p/>
+ * Copyright (C) 2011 Edmunds.com
+ */
+public final class TemplateSet {
+
+    private static final EnvironmentToken[] TOKENS = EnvironmentToken.values();
+
+    private final String[] names;
+    private final TokenTemplate[] localTemplates;
+    private final TokenTemplate[] managedTemplates;
+    private final int[] tokenMasks;
+    private final int tokenMask;
+    private final Map<String, Integer> indexes;
+
+    /**
+     * Indexes of the templates referencing each token, by token ordinal.
+     */
+    private final int[][] dependents;
+
+    private TemplateSet(Map<String, String> localValues, Map<String, String> managedValues) {
+        final Set<String> allNames = new LinkedHashSet<String>(managedValues.keySet());
+        allNames.addAll(localValues.keySet());
+
+        final int size = allNames.size();
+        this.names = allNames.toArray(new String[size]);
+        this.localTemplates = new TokenTemplate[size];
+        this.managedTemplates = new TokenTemplate[size];
+        this.tokenMasks = new int[size];
+        this.indexes = new HashMap<String, Integer>(size * 2);
+
+        final Map<String, TokenTemplate> compiled = new HashMap<String, TokenTemplate>();
+        int mask = 0;
+        for (int i = 0; i < size; i++) {
+            localTemplates[i] = compile(localValues.get(names[i]), compiled);
+            managedTemplates[i] = compile(managedValues.get(names[i]), compiled);
+            tokenMasks[i] = mask(localTemplates[i]) | mask(managedTemplates[i]);
+            mask |= tokenMasks[i];
+            indexes.put(names[i], i);
+        }
+        this.tokenMask = mask;
+        this.dependents = buildDependents(tokenMasks);
+    }
+
+    private static int[][] buildDependents(int[] tokenMasks) {
+        final int[][] dependents = new int[TOKENS.length][];
+        for (EnvironmentToken token : TOKENS) {
+            int count = 0;
+            for (int mask : tokenMasks) {
+                if ((mask & token.mask()) != 0) {
+                    count++;
+                }
+            }
+            final int[] indexes = new int[count];
+            int next = 0;
+            for (int i = 0; i < tokenMasks.length; i++) {
+                if ((tokenMasks[i] & token.mask()) != 0) {
+                    indexes[next++] = i;
+                }
+            }
+            dependents[token.ordinal()] = indexes;
+        }
+        return dependents;
+    }
+
+    /**
+     * Creates a template set where each template has the same local and managed value.
+     *
+     * @param values the template values keyed by name, in the order they should be rendered.
+     * @return the template set.
+     */
+    public static TemplateSet of(Map<String, String> values) {
+        return new TemplateSet(values, values);
+    }
+
+    /**
+     * Creates a template set from separate local and managed values.
+     * <p/>
+     * A template missing from one of the maps renders as null in that mode.
+     *
+     * @param localValues   the values used in local environments, keyed by name.
+     * @param managedValues the values used in managed environments, keyed by name.
+     * @return the template set.
+     */
+    public static TemplateSet of(Map<String, String> localValues, Map<String, String> managedValues) {
+        return new TemplateSet(localValues, managedValues);
+    }
+
+    private static TokenTemplate compile(String value, Map<String, TokenTemplate> compiled) {
+        if (value == null) {
+            return null;
+        }
+        TokenTemplate template = compiled.get(value);
+        if (template == null) {
+            template = TokenTemplate.valueOf(value);
+            compiled.put(value, template);
+        }
+        return template;
+    }
+
+    private static int mask(TokenTemplate template) {
+        return template == null ? 0 : template.getTokenMask();
+    }
+
+    /**
+     * Returns the number of templates.
+     *
+     * @return the number of templates.
+     */
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * Returns the name of a template.
+     *
+     * @param index the template index.
+     * @return the template name.
+     */
+    public String getName(int index) {
+        return names[index];
+    }
+
+    /**
+     * Returns the index of a template.
+     *
+     * @param name the template name.
+     * @return the index or -1 if there is no such template.
+     */
+    public int indexOf(String name) {
+        final Integer index = indexes.get(name);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * Returns the compiled template used in the given mode.
+     *
+     * @param index            the template index.
+     * @param localEnvironment true for the local value, false for the managed value.
+     * @return the compiled template, null if the template has no value in that mode.
+     */
+    public TokenTemplate getTemplate(int index, boolean localEnvironment) {
+        return localEnvironment ? localTemplates[index] : managedTemplates[index];
+    }
+
+    /**
+     * Returns a mask of the tokens referenced by the local or managed value of a template.
+     *
+     * @param index the template index.
+     * @return the token mask.
+     */
+    public int getTokenMask(int index) {
+        return tokenMasks[index];
+    }
+
+    /**
+     * Returns the templates that reference any of the given tokens.
+     *
+     * @param tokenMask the tokens (see {@link EnvironmentToken#mask()}).
+     * @return the template indexes in ascending order.
+     */
+    public BitSet getDependents(int tokenMask) {
+        final BitSet indexes = new BitSet(names.length);
+        for (EnvironmentToken token : TOKENS) {
+            if ((tokenMask & token.mask()) != 0) {
+                for (int index : dependents[token.ordinal()]) {
+                    indexes.set(index);
+                }
+            }
+        }
+        return indexes;
+    }
+
+    /**
+     * Returns a mask of the tokens referenced by any template in the set.
+     *
+     * @return the token mask.
+     */
+    public int getTokenMask() {
+        return tokenMask;
+    }
+
+    /**
+     * Returns the source values of the templates in the given mode.
+     *
+     * @param localEnvironment true for the local values, false for the managed values.
+     * @return the values keyed by name.
+     */
+    public Map<String, String> getValues(boolean localEnvironment) {
+        final Map<String, String> values = new LinkedHashMap<String, String>();
+        for (int i = 0; i < names.length; i++) {
+            final TokenTemplate template = getTemplate(i, localEnvironment);
+            values.put(names[i], template == null ? null : template.getSource());
+        }
+        return values;
+    }
+}
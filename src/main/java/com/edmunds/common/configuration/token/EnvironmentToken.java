@@ -0,0 +1,81 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.token;
+
+import static com.edmunds.common.configuration.api.EnvironmentPropertyFactory.CANONICAL_HOST_REPLACE_TOKEN;
+import static com.edmunds.common.configuration.api.EnvironmentPropertyFactory.ENVIRONMENT_REPLACE_TOKEN;
+import static com.edmunds.common.configuration.api.EnvironmentPropertyFactory.HOST_REPLACE_TOKEN;
+import static com.edmunds.common.configuration.api.EnvironmentPropertyFactory.TOKEN_ENVIRONMENT_INDEX;
+import static com.edmunds.common.configuration.api.EnvironmentPropertyFactory.TOKEN_INTERNAL_ENVIRONMENT_DATA_CENTER;
+import static com.edmunds.common.configuration.api.EnvironmentPropertyFactory.TOKEN_INTERNAL_ENVIRONMENT_NAME;
+import static com.edmunds.common.configuration.api.EnvironmentPropertyFactory.TOKEN_LOCAL_ENVIRONMENT_DATA_CENTER;
+import static com.edmunds.common.configuration.api.EnvironmentPropertyFactory.TOKEN_LOCAL_ENVIRONMENT_NAME;
+import static com.edmunds.common.configuration.api.EnvironmentPropertyFactory.TOKEN_LOCAL_ENVIRONMENT_SITE;
+import static com.edmunds.common.configuration.api.EnvironmentPropertyFactory.TOKEN_LOGICAL_ENVIRONMENT_NAME;
+import static com.edmunds.common.configuration.api.EnvironmentPropertyFactory.TOKEN_URL_PREFIX;
+import static com.edmunds.common.configuration.api.EnvironmentPropertyFactory.TOKEN_URL_PREFIX_NODASH;
+import static com.edmunds.common.configuration.api.EnvironmentPropertyFactory.URL_PREFIX_REPLACE_TOKEN;
+
+/**
+ * The standard tokens that can be embedded in property values.
+ * <p/>
+ * The token strings themselves are defined on {@link com.edmunds.common.configuration.api.EnvironmentPropertyFactory},
+ * this enum gives each of them a stable index so that compiled templates can refer to tokens without string lookups.
+ * <p/>
+ * Copyright (C) 2011 Edmunds.com
+ */
+public enum EnvironmentToken {
+    ENVIRONMENT_NAME(ENVIRONMENT_REPLACE_TOKEN),
+    URL_LEGACY_PREFIX(URL_PREFIX_REPLACE_TOKEN),
+    LOGICAL_ENVIRONMENT_NAME(TOKEN_LOGICAL_ENVIRONMENT_NAME),
+    ENVIRONMENT_INDEX(TOKEN_ENVIRONMENT_INDEX),
+    URL_PREFIX(TOKEN_URL_PREFIX),
+    URL_PREFIX_NODASH(TOKEN_URL_PREFIX_NODASH),
+    LOCAL_ENVIRONMENT_NAME(TOKEN_LOCAL_ENVIRONMENT_NAME),
+    LOCAL_ENVIRONMENT_DATA_CENTER(TOKEN_LOCAL_ENVIRONMENT_DATA_CENTER),
+    LOCAL_ENVIRONMENT_SITE(TOKEN_LOCAL_ENVIRONMENT_SITE),
+    INTERNAL_ENVIRONMENT_NAME(TOKEN_INTERNAL_ENVIRONMENT_NAME),
+    INTERNAL_ENVIRONMENT_DATA_CENTER(TOKEN_INTERNAL_ENVIRONMENT_DATA_CENTER),
+    HOST_NAME(HOST_REPLACE_TOKEN),
+    CANONICAL_HOST_NAME(CANONICAL_HOST_REPLACE_TOKEN);
+
+    /**
+     * The literal text of the token as it appears in property values.
+     */
+    private final String token;
+
+    EnvironmentToken(String token) {
+        this.token = token;
+    }
+
+    /**
+     * Returns the literal text of the token.
+     *
+     * @return the token text, e.g. {@code [URL_PREFIX]}.
+     */
+    public String getToken() {
+        return token;
+    }
+
+    /**
+     * Returns the bit representing this token in a token mask.
+     *
+     * @return a single bit mask for this token.
+     */
+    public int mask() {
+        return 1 << ordinal();
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.token;
+
+import org.apache.commons.lang.StringUtils;
+
+import java.util.Map;
+
+/**
+ * Immutable set of replacement values for the {@link EnvironmentToken}s.
+ * <p/>
+ * A token that has no entry in the table is left untouched when a template is rendered, a token whose value is blank
+ * is replaced with the empty string.
+ * <p/>
+ * Copyright (C) 2011 Edmunds.com
+ */
+public final class TokenTable {
+
+    private static final EnvironmentToken[] TOKENS = EnvironmentToken.values();
+
+    /**
+     * Replacement values indexed by token ordinal, null when the token should not be replaced.
+     */
+    private final String[] values;
+
+    /**
+     * Creates a table from the given token values.
+     *
+     * @param tokenValues the replacement values, tokens missing from the map will not be replaced.
+     */
+    public TokenTable(Map<EnvironmentToken, String> tokenValues) {
+        this.values = new String[TOKENS.length];
+
+        for (Map.Entry<EnvironmentToken, String> entry : tokenValues.entrySet()) {
+            final String value = entry.getValue();
+            values[entry.getKey().ordinal()] = StringUtils.isBlank(value) ? "" : value;
+        }
+    }
+
+    private TokenTable(String[] values) {
+        this.values = values;
+    }
+
+    /**
+     * Returns a table holding the values of this table with some of them replaced.
+     * <p/>
+     * The values that are not overridden are shared with this table, which is left unchanged. Overriding
+     * {@code [URL_PREFIX]} also replaces {@code [URL_PREFIX_NODASH]}, unless that token is overridden as well.
+     *
+     * @param overrides the values to replace, a null value removes the token from the table.
+     * @return the new table, or this table if there are no overrides.
+     */
+    public TokenTable withOverrides(Map<EnvironmentToken, String> overrides) {
+        if (overrides.isEmpty()) {
+            return this;
+        }
+
+        final String[] copy = values.clone();
+        for (Map.Entry<EnvironmentToken, String> entry : overrides.entrySet()) {
+            final String value = entry.getValue();
+            copy[entry.getKey().ordinal()] = value == null ? null : StringUtils.isBlank(value) ? "" : value;
+        }
+        if (overrides.containsKey(EnvironmentToken.URL_PREFIX)
+                && !overrides.containsKey(EnvironmentToken.URL_PREFIX_NODASH)) {
+            copy[EnvironmentToken.URL_PREFIX_NODASH.ordinal()] =
+                    urlPrefixNoDash(copy[EnvironmentToken.URL_PREFIX.ordinal()]);
+        }
+        return new TokenTable(copy);
+    }
+
+    /**
+     * Derives the value of the {@code [URL_PREFIX_NODASH]} token from the url prefix.
+     *
+     * @param urlPrefix the url prefix, may be null.
+     * @return the url prefix without its trailing dash, null if the url prefix is null.
+     */
+    public static String urlPrefixNoDash(String urlPrefix) {
+        if (urlPrefix == null) {
+            return null;
+        }
+        return urlPrefix.endsWith("-") ? urlPrefix.substring(0, urlPrefix.length() - 1) : urlPrefix;
+    }
+
+    /**
+     * Returns the replacement value for a token.
+     *
+     * @param token the token.
+     * @return the replacement value or null if the token is not replaced.
+     */
+    public String get(EnvironmentToken token) {
+        return values[token.ordinal()];
+    }
+
+    /**
+     * Returns the replacement text for a token, which is the token itself when the table has no value for it.
+     *
+     * @param ordinal the token ordinal.
+     * @return the text to substitute.
+     */
+    String replacement(int ordinal) {
+        final String value = values[ordinal];
+        return value != null ? value : TOKENS[ordinal].getToken();
+    }
+}
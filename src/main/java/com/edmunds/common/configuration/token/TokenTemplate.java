@@ -0,0 +1,301 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.token;
+
+import com.edmunds.common.configuration.metrics.ConfigurationMetrics;
+import com.edmunds.common.configuration.metrics.StripedCounter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A property value that has been parsed once into literal text and {@link EnvironmentToken} references.
+ * <p/>
+ * Rendering a compiled template is a single pass over its segments, no searching of the value is performed.
+ * Templates are immutable and can be shared between threads and between {@link TokenTable}s.
+ * <p/>
+ * Copyright (C) 2011 Edmunds.com
+ */
+public final class TokenTemplate {
+
+    /**
+     * Upper bound on the number of templates held by the shared cache.
+     * <p/>
+     * Once reached, further values are compiled on every call rather than growing the cache without limit.
+     */
+    static final int MAX_CACHED_TEMPLATES = 16384;
+
+    private static final ConcurrentMap<String, TokenTemplate> CACHE = new ConcurrentHashMap<String, TokenTemplate>();
+
+    private static final EnvironmentToken[] TOKENS = EnvironmentToken.values();
+
+    private static final ConfigurationMetrics METRICS = ConfigurationMetrics.getInstance();
+    private static final StripedCounter CACHE_HITS = METRICS.counter("cache.template.hit");
+    private static final StripedCounter CACHE_MISSES = METRICS.counter("cache.template.miss");
+
+    private static final int[] NO_TOKENS = new int[0];
+
+    /**
+     * The original value.
+     */
+    private final String source;
+
+    /**
+     * Ordinals of the tokens in the order they appear, variables are numbered after the environment tokens.
+     */
+    private final int[] tokens;
+
+    /**
+     * Start offset (inclusive) of each token within the source, parallel to {@code tokens}.
+     */
+    private final int[] starts;
+
+    /**
+     * Mask of all the tokens referenced by this template.
+     */
+    private final int tokenMask;
+
+    /**
+     * Number of characters of literal text.
+     */
+    private final int literalLength;
+
+    /**
+     * The variables the template was compiled against, null if only environment tokens are replaced.
+     */
+    private final TokenVariables variables;
+
+    private TokenTemplate(String source, int[] tokens, int[] starts, TokenVariables variables) {
+        this.source = source;
+        this.tokens = tokens;
+        this.starts = starts;
+        this.variables = variables;
+
+        int mask = 0;
+        int tokenLength = 0;
+        for (int ordinal : tokens) {
+            if (ordinal < TOKENS.length) {
+                mask |= 1 << ordinal;
+            }
+            tokenLength += tokenText(ordinal).length();
+        }
+        this.tokenMask = mask;
+        this.literalLength = source.length() - tokenLength;
+    }
+
+    /**
+     * Returns the compiled template for a value, using the shared template cache.
+     *
+     * @param value the value to compile, must not be null.
+     * @return the compiled template.
+     */
+    public static TokenTemplate valueOf(String value) {
+        return valueOf(value, null, CACHE);
+    }
+
+    /**
+     * Returns the compiled template for a value that may contain caller defined variables, using the template cache
+     * of the variables.
+     *
+     * @param value     the value to compile, must not be null.
+     * @param variables the variables to recognise in addition to the environment tokens.
+     * @return the compiled template.
+     */
+    public static TokenTemplate valueOf(String value, TokenVariables variables) {
+        return valueOf(value, variables, variables.getCache());
+    }
+
+    private static TokenTemplate valueOf(
+            String value, TokenVariables variables, ConcurrentMap<String, TokenTemplate> cache) {
+        TokenTemplate template = cache.get(value);
+
+        if (template != null) {
+            METRICS.increment(CACHE_HITS);
+        } else {
+            METRICS.increment(CACHE_MISSES);
+            template = compile(value, variables);
+            if (cache.size() < MAX_CACHED_TEMPLATES) {
+                final TokenTemplate existing = cache.putIfAbsent(value, template);
+                if (existing != null) {
+                    template = existing;
+                }
+            }
+        }
+        return template;
+    }
+
+    /**
+     * Compiles a value without consulting the shared template cache.
+     *
+     * @param value the value to compile, must not be null.
+     * @return the compiled template.
+     */
+    public static TokenTemplate compile(String value) {
+        return compile(value, null);
+    }
+
+    /**
+     * Compiles a value that may contain caller defined variables without consulting any template cache.
+     *
+     * @param value     the value to compile, must not be null.
+     * @param variables the variables to recognise in addition to the environment tokens, may be null.
+     * @return the compiled template.
+     */
+    public static TokenTemplate compile(String value, TokenVariables variables) {
+        List<Integer> tokenList = null;
+        List<Integer> startList = null;
+
+        final int length = value.length();
+        int i = 0;
+        while (i < length) {
+            final char c = value.charAt(i);
+            int match = -1;
+
+            if (c == '_' || c == '[') {
+                for (EnvironmentToken token : TOKENS) {
+                    if (value.startsWith(token.getToken(), i)) {
+                        match = token.ordinal();
+                        break;
+                    }
+                }
+            }
+
+            if (match < 0 && variables != null) {
+                final int index = variables.match(value, i);
+                if (index >= 0) {
+                    match = TOKENS.length + index;
+                }
+            }
+
+            if (match < 0) {
+                i++;
+            } else {
+                if (tokenList == null) {
+                    tokenList = new ArrayList<Integer>();
+                    startList = new ArrayList<Integer>();
+                }
+                tokenList.add(match);
+                startList.add(i);
+                i += (match < TOKENS.length ? TOKENS[match].getToken() : variables.getName(match - TOKENS.length))
+                        .length();
+            }
+        }
+
+        if (tokenList == null) {
+            return new TokenTemplate(value, NO_TOKENS, NO_TOKENS, variables);
+        }
+        return new TokenTemplate(value, toArray(tokenList), toArray(startList), variables);
+    }
+
+    /**
+     * Renders the template using the given token values.
+     *
+     * @param table the token values.
+     * @return the value with all tokens replaced, the original instance if the template has no tokens.
+     */
+    public String render(TokenTable table) {
+        return render(table, null);
+    }
+
+    /**
+     * Renders the template using the given token and variable values.
+     * <p/>
+     * A variable whose value is null is left untouched.
+     *
+     * @param table          the token values.
+     * @param variableValues the values of the variables the template was compiled against, indexed as the variables.
+     * @return the value with all tokens and variables replaced, the original instance if the template has none.
+     */
+    public String render(TokenTable table, String[] variableValues) {
+        if (tokens.length == 0) {
+            return source;
+        }
+        if (variables != null && (variableValues == null || variableValues.length < variables.size())) {
+            throw new IllegalArgumentException("Expected " + variables.size() + " values for variables " + variables);
+        }
+
+        int length = literalLength;
+        for (int ordinal : tokens) {
+            length += replacement(ordinal, table, variableValues).length();
+        }
+
+        final StringBuilder sb = new StringBuilder(length);
+        int position = 0;
+        for (int i = 0; i < tokens.length; i++) {
+            final int ordinal = tokens[i];
+            sb.append(source, position, starts[i]);
+            sb.append(replacement(ordinal, table, variableValues));
+            position = starts[i] + tokenText(ordinal).length();
+        }
+        sb.append(source, position, source.length());
+
+        return sb.toString();
+    }
+
+    private String replacement(int ordinal, TokenTable table, String[] variableValues) {
+        if (ordinal < TOKENS.length) {
+            return table.replacement(ordinal);
+        }
+        final String value = variableValues[ordinal - TOKENS.length];
+        return value != null ? value : variables.getName(ordinal - TOKENS.length);
+    }
+
+    private String tokenText(int ordinal) {
+        return ordinal < TOKENS.length ? TOKENS[ordinal].getToken() : variables.getName(ordinal - TOKENS.length);
+    }
+
+    /**
+     * Returns the original, uncompiled value.
+     *
+     * @return the source value.
+     */
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * Returns a mask of the tokens that appear in this template (see {@link EnvironmentToken#mask()}).
+     *
+     * @return the token mask, zero if the template contains no tokens.
+     */
+    public int getTokenMask() {
+        return tokenMask;
+    }
+
+    /**
+     * Indicates if the template contains any tokens.
+     *
+     * @return true if rendering can change the value.
+     */
+    public boolean hasTokens() {
+        return tokens.length != 0;
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        final int[] array = new int[list.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = list.get(i);
+        }
+        return array;
+    }
+}
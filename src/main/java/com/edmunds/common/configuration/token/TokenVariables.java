@@ -0,0 +1,181 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.token;
+
+import com.edmunds.common.configuration.api.ConfigurationUtil;
+import com.edmunds.common.configuration.api.VariableConfigurationUtil;
+import org.apache.commons.lang.StringUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A fixed set of caller defined tokens, such as {@code [TENANT]} or {@code [LOCALE]}, that are replaced in the same
+ * pass as the {@link EnvironmentToken}s.
+ * <p/>
+ * Each variable is identified by its index, the values are supplied per call as an array in the same order so that
+ * rendering needs no lookups. Instances are immutable and are expected to be created once and shared, each keeps its
+ * own cache of compiled templates.
+ * <p/>
+ * Usage:
+ * <pre>
+ *  static final TokenVariables VARIABLES = TokenVariables.of("[TENANT]", "[LOCALE]");
+ *  ...
+ *  VARIABLES.replaceTokens(util, "http://[URL_PREFIX]www.edmunds.com/[LOCALE]/[TENANT]", tenant, locale);
+ * </pre>
+ * An {@link EnvironmentToken} takes precedence over a variable that starts at the same position.
+ * <p/>
+ * Copyright (C) 2011 Edmunds.com
+ */
+public final class TokenVariables {
+
+    /**
+     * Table that leaves every standard variable untouched.
+     */
+    private static final TokenTable NO_TOKENS = new TokenTable(Collections.<EnvironmentToken, String>emptyMap());
+
+    private final String[] names;
+
+    /**
+     * Indicates for each ASCII character if a variable starts with it, characters above 127 are always checked.
+     */
+    private final boolean[] firstChars = new boolean[128];
+
+    private final ConcurrentMap<String, TokenTemplate> cache = new ConcurrentHashMap<String, TokenTemplate>();
+
+    private TokenVariables(String[] names) {
+        this.names = names;
+        for (String name : names) {
+            final char c = name.charAt(0);
+            if (c < firstChars.length) {
+                firstChars[c] = true;
+            }
+        }
+    }
+
+    /**
+     * Creates a set of variables.
+     *
+     * @param names the literal text of each variable, the position of a name is its index.
+     * @return the variables.
+     */
+    public static TokenVariables of(String... names) {
+        final String[] copy = names.clone();
+        for (int i = 0; i < copy.length; i++) {
+            if (StringUtils.isEmpty(copy[i])) {
+                throw new IllegalArgumentException("Variable name " + i + " is empty");
+            }
+            for (int j = 0; j < i; j++) {
+                if (copy[i].equals(copy[j])) {
+                    throw new IllegalArgumentException("Duplicate variable name: " + copy[i]);
+                }
+            }
+        }
+        return new TokenVariables(copy);
+    }
+
+    /**
+     * Returns the number of variables.
+     *
+     * @return the number of variables.
+     */
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * Returns the literal text of a variable.
+     *
+     * @param index the variable index.
+     * @return the variable name.
+     */
+    public String getName(int index) {
+        return names[index];
+    }
+
+    /**
+     * Returns the index of a variable.
+     *
+     * @param name the literal text of the variable.
+     * @return the index or -1 if there is no such variable.
+     */
+    public int indexOf(String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Replaces the standard variables and these variables in a value.
+     * <p/>
+     * A {@link VariableConfigurationUtil} replaces both in a single pass. For any other configuration util the
+     * standard variables are replaced first and these variables in the result.
+     *
+     * @param configurationUtil the configuration util that supplies the standard values.
+     * @param value             the value to parse.
+     * @param variableValues    the value of each variable, in the order of the variables.
+     * @return the parsed value.
+     */
+    public String replaceTokens(ConfigurationUtil configurationUtil, String value, String... variableValues) {
+        if (configurationUtil instanceof VariableConfigurationUtil) {
+            return ((VariableConfigurationUtil) configurationUtil).replaceTokens(value, this, variableValues);
+        }
+        final String replaced = configurationUtil.replaceTokens(value);
+        if (replaced == null) {
+            return null;
+        }
+        return TokenTemplate.valueOf(replaced, this).render(NO_TOKENS, variableValues);
+    }
+
+    /**
+     * Returns the index of the variable that starts at the given position.
+     *
+     * @param value    the value being compiled.
+     * @param position the position to check.
+     * @return the variable index or -1 if no variable starts there.
+     */
+    int match(String value, int position) {
+        final char c = value.charAt(position);
+        if (c < firstChars.length && !firstChars[c]) {
+            return -1;
+        }
+        for (int i = 0; i < names.length; i++) {
+            if (value.startsWith(names[i], position)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the cache of templates compiled against these variables.
+     *
+     * @return the template cache.
+     */
+    ConcurrentMap<String, TokenTemplate> getCache() {
+        return cache;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(names);
+    }
+}
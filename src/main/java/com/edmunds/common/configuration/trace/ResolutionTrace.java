@@ -0,0 +1,309 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.trace;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Opt-in record of how the environment configuration was resolved.
+ * <p/>
+ * Each event records the component and attribute, the value and the source that supplied it, whether a default was
+ * used and the time spent. Events are written into a ring buffer that is allocated when the trace is created, once
+ * it is full the oldest events are overwritten.
+ * <p/>
+ * The trace is disabled unless the {@value #ENABLED_PROPERTY} system property is {@code true} or
+ * {@link #setEnabled(boolean)} is called. Callers check {@link #isEnabled()} before doing any work for the trace, so a
+ * disabled trace costs a single volatile read.
+ * <p/>
+ * Copyright (C) 2011 Edmunds.com
+ */
+public final class ResolutionTrace {
+
+    /**
+     * System property that enables the process wide trace.
+     */
+    public static final String ENABLED_PROPERTY = "edmunds.configuration.trace";
+
+    /**
+     * System property that sets the number of events kept by the process wide trace.
+     */
+    public static final String CAPACITY_PROPERTY = "edmunds.configuration.trace.capacity";
+
+    /**
+     * Number of events kept by default.
+     */
+    public static final int DEFAULT_CAPACITY = 256;
+
+    private static final ResolutionTrace INSTANCE = new ResolutionTrace(
+            Integer.getInteger(CAPACITY_PROPERTY, DEFAULT_CAPACITY), Boolean.getBoolean(ENABLED_PROPERTY));
+
+    private final int mask;
+    private final AtomicLong nextSequence = new AtomicLong();
+
+    /**
+     * Sequence number of the event held in each slot, -1 while a slot is being written.
+     */
+    private final AtomicLongArray slotSequences;
+    private final long[] timestamps;
+    private final String[] components;
+    private final String[] attributes;
+    private final String[] values;
+    private final String[] sources;
+    private final boolean[] defaulted;
+    private final long[] durations;
+
+    private volatile boolean enabled;
+
+    /**
+     * Creates a trace.
+     *
+     * @param capacity the number of events to keep, rounded up to a power of two.
+     * @param enabled  true to start recording immediately.
+     */
+    public ResolutionTrace(int capacity, boolean enabled) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        final int size = Integer.highestOneBit(capacity) == capacity ? capacity : Integer.highestOneBit(capacity) << 1;
+
+        this.mask = size - 1;
+        this.slotSequences = new AtomicLongArray(size);
+        this.timestamps = new long[size];
+        this.components = new String[size];
+        this.attributes = new String[size];
+        this.values = new String[size];
+        this.sources = new String[size];
+        this.defaulted = new boolean[size];
+        this.durations = new long[size];
+        this.enabled = enabled;
+
+        for (int i = 0; i < size; i++) {
+            slotSequences.set(i, -1L);
+        }
+    }
+
+    /**
+     * Returns the process wide trace.
+     *
+     * @return the trace.
+     */
+    public static ResolutionTrace getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Indicates if events are being recorded.
+     *
+     * @return true if the trace is enabled.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Sets if events should be recorded.
+     *
+     * @param enabled true to start recording.
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Returns the number of events that can be kept.
+     *
+     * @return the ring buffer size.
+     */
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Returns the number of events recorded, including those that have since been overwritten.
+     *
+     * @return the total number of events.
+     */
+    public long getRecordedCount() {
+        return nextSequence.get();
+    }
+
+    /**
+     * Records the resolution of a single attribute.
+     *
+     * @param component     the component resolving the attribute.
+     * @param attribute     the attribute name.
+     * @param value         the resolved value.
+     * @param source        where the value came from.
+     * @param defaulted     true if the source had no value and a default was used.
+     * @param durationNanos the time spent.
+     */
+    public void record(
+            String component, String attribute, String value, String source, boolean defaulted, long durationNanos) {
+
+        if (!enabled) {
+            return;
+        }
+
+        final long sequence = nextSequence.getAndIncrement();
+        final int slot = (int) (sequence & mask);
+
+        slotSequences.set(slot, -1L);
+        timestamps[slot] = System.currentTimeMillis();
+        components[slot] = component;
+        attributes[slot] = attribute;
+        values[slot] = value;
+        sources[slot] = source;
+        this.defaulted[slot] = defaulted;
+        durations[slot] = durationNanos;
+        slotSequences.set(slot, sequence);
+    }
+
+    /**
+     * Records the time spent on a whole step.
+     *
+     * @param component     the component performing the step.
+     * @param step          the step name.
+     * @param durationNanos the time spent.
+     */
+    public void recordStep(String component, String step, long durationNanos) {
+        record(component, step, null, null, false, durationNanos);
+    }
+
+    /**
+     * Returns the events currently held, oldest first.
+     * <p/>
+     * Events that are being overwritten while the trace is read are skipped.
+     *
+     * @return the events.
+     */
+    public List<TraceEvent> getEvents() {
+        final long end = nextSequence.get();
+        final long begin = Math.max(0L, end - getCapacity());
+        final List<TraceEvent> events = new ArrayList<TraceEvent>((int) (end - begin));
+
+        for (long sequence = begin; sequence < end; sequence++) {
+            final int slot = (int) (sequence & mask);
+            if (slotSequences.get(slot) != sequence) {
+                continue;
+            }
+
+            final TraceEvent event = new TraceEvent(sequence, timestamps[slot], components[slot], attributes[slot],
+                    values[slot], sources[slot], defaulted[slot], durations[slot]);
+
+            if (slotSequences.get(slot) == sequence) {
+                events.add(event);
+            }
+        }
+        return events;
+    }
+
+    /**
+     * Discards all events.
+     */
+    public void clear() {
+        for (int i = 0; i <= mask; i++) {
+            slotSequences.set(i, -1L);
+        }
+    }
+
+    /**
+     * Returns the events currently held as a JSON array.
+     *
+     * @return the JSON text.
+     */
+    public String toJson() {
+        final StringBuilder sb = new StringBuilder(256);
+        try {
+            writeJson(sb);
+        } catch (IOException e) {
+            // StringBuilder does not throw.
+            throw new IllegalStateException(e);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Writes the events currently held as a JSON array.
+     *
+     * @param out where to write the JSON text.
+     * @throws IOException if the output cannot be written.
+     */
+    public void writeJson(Appendable out) throws IOException {
+        out.append('[');
+        boolean first = true;
+        for (TraceEvent event : getEvents()) {
+            if (!first) {
+                out.append(',');
+            }
+            first = false;
+
+            out.append("{\"sequence\":").append(String.valueOf(event.getSequence()));
+            out.append(",\"timestamp\":").append(String.valueOf(event.getTimestamp()));
+            out.append(",\"component\":");
+            appendString(out, event.getComponent());
+            out.append(",\"attribute\":");
+            appendString(out, event.getAttribute());
+            out.append(",\"value\":");
+            appendString(out, event.getValue());
+            out.append(",\"source\":");
+            appendString(out, event.getSource());
+            out.append(",\"defaulted\":").append(String.valueOf(event.isDefaulted()));
+            out.append(",\"durationNanos\":").append(String.valueOf(event.getDurationNanos()));
+            out.append('}');
+        }
+        out.append(']');
+    }
+
+    private static void appendString(Appendable out, String value) throws IOException {
+        if (value == null) {
+            out.append("null");
+            return;
+        }
+
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+    }
+}
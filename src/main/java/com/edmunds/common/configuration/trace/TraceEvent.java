@@ -0,0 +1,123 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.trace;
+
+/**
+ * A single step recorded by the {@link ResolutionTrace}.
+ * <p/>
+ * Copyright (C) 2011 Edmunds.com
+ */
+public final class TraceEvent {
+
+    private final long sequence;
+    private final long timestamp;
+    private final String component;
+    private final String attribute;
+    private final String value;
+    private final String source;
+    private final boolean defaulted;
+    private final long durationNanos;
+
+    TraceEvent(long sequence, long timestamp, String component, String attribute, String value, String source,
+               boolean defaulted, long durationNanos) {
+        this.sequence = sequence;
+        this.timestamp = timestamp;
+        this.component = component;
+        this.attribute = attribute;
+        this.value = value;
+        this.source = source;
+        this.defaulted = defaulted;
+        this.durationNanos = durationNanos;
+    }
+
+    /**
+     * Returns the position of the event in the trace, starting at zero.
+     *
+     * @return the sequence number.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Returns the time the event was recorded.
+     *
+     * @return the time in milliseconds since the epoch.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Returns the component that performed the step, e.g. {@code DNSConfigurationFactory}.
+     *
+     * @return the component name.
+     */
+    public String getComponent() {
+        return component;
+    }
+
+    /**
+     * Returns the attribute that was resolved, or the name of the step for events that cover a whole step.
+     *
+     * @return the attribute name.
+     */
+    public String getAttribute() {
+        return attribute;
+    }
+
+    /**
+     * Returns the resolved value.
+     *
+     * @return the value, null for events that cover a whole step.
+     */
+    public String getValue() {
+        return value;
+    }
+
+    /**
+     * Returns where the value came from, e.g. the reader that answered a lookup.
+     *
+     * @return the source, null for events that cover a whole step.
+     */
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * Indicates if the source had no value and a default was used.
+     *
+     * @return true if the value was defaulted.
+     */
+    public boolean isDefaulted() {
+        return defaulted;
+    }
+
+    /**
+     * Returns the time spent on the step.
+     *
+     * @return the duration in nanoseconds.
+     */
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    @Override
+    public String toString() {
+        return component + "." + attribute + "=" + value + " (source: " + source + ", defaulted: " + defaulted
+                + ", " + durationNanos + "ns)";
+    }
+}
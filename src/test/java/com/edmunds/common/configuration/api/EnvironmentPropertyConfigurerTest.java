@@ -0,0 +1,188 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.api;
+
+import org.springframework.beans.MutablePropertyValues;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
+import org.springframework.beans.factory.support.ChildBeanDefinition;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+@Test(groups = {"ConfigurationApi"})
+public class EnvironmentPropertyConfigurerTest {
+
+    private DefaultListableBeanFactory beanFactory;
+    private StubConfigurationUtil configurationUtil;
+
+    @BeforeMethod
+    public void setup() {
+        beanFactory = new DefaultListableBeanFactory();
+        configurationUtil = new StubConfigurationUtil();
+    }
+
+    @Test
+    public void resolveFactoryTest() {
+        registerFactory("url", "http://localhost/", "http://[LOCAL_ENVIRONMENT_SITE].com/");
+
+        new EnvironmentPropertyConfigurer(configurationUtil).postProcessBeanFactory(beanFactory);
+
+        assertTrue(beanFactory.getBeanDefinition("url").getPropertyValues().contains("property"));
+        assertEquals(beanFactory.getBean("url"), "http://edmunds.com/");
+        assertEquals(configurationUtil.propertyCalls, 1);
+    }
+
+    @Test
+    public void resolveChildFactoryTest() {
+        final RootBeanDefinition parent = new RootBeanDefinition(EnvironmentPropertyFactory.class);
+        parent.setAbstract(true);
+        parent.getPropertyValues().addPropertyValue("local", "local");
+        beanFactory.registerBeanDefinition("parent", parent);
+
+        final MutablePropertyValues values = new MutablePropertyValues();
+        values.addPropertyValue("managed", "[LOCAL_ENVIRONMENT_SITE]");
+        beanFactory.registerBeanDefinition("child", new ChildBeanDefinition("parent", values));
+
+        new EnvironmentPropertyConfigurer(configurationUtil).postProcessBeanFactory(beanFactory);
+
+        assertFalse(beanFactory.getBeanDefinition("parent").getPropertyValues().contains("property"));
+        assertEquals(beanFactory.getBeanDefinition("child").getPropertyValues().getPropertyValue("property").getValue(),
+                "edmunds");
+    }
+
+    @Test
+    public void skipReferenceTest() {
+        final RootBeanDefinition definition = new RootBeanDefinition(EnvironmentPropertyFactory.class);
+        definition.getPropertyValues().addPropertyValue("local", "local");
+        definition.getPropertyValues().addPropertyValue("managed", new RuntimeBeanReference("other"));
+        beanFactory.registerBeanDefinition("url", definition);
+
+        new EnvironmentPropertyConfigurer(configurationUtil).postProcessBeanFactory(beanFactory);
+
+        assertFalse(beanFactory.getBeanDefinition("url").getPropertyValues().contains("property"));
+        assertEquals(configurationUtil.propertyCalls, 0);
+    }
+
+    @Test
+    public void resolveInlineTokensTest() {
+        final RootBeanDefinition definition = new RootBeanDefinition(Property.class);
+        definition.getPropertyValues().addPropertyValue("property", "www.[LOCAL_ENVIRONMENT_SITE].com");
+        beanFactory.registerBeanDefinition("inline", definition);
+
+        new EnvironmentPropertyConfigurer(configurationUtil).postProcessBeanFactory(beanFactory);
+
+        assertEquals(beanFactory.getBean("inline").toString(), "www.edmunds.com");
+    }
+
+    @Test
+    public void resolveInlineTokensDisabledTest() {
+        final RootBeanDefinition definition = new RootBeanDefinition(Property.class);
+        definition.getPropertyValues().addPropertyValue("property", "www.[LOCAL_ENVIRONMENT_SITE].com");
+        beanFactory.registerBeanDefinition("inline", definition);
+
+        final EnvironmentPropertyConfigurer configurer = new EnvironmentPropertyConfigurer(configurationUtil);
+        configurer.setResolveInlineTokens(false);
+        configurer.postProcessBeanFactory(beanFactory);
+
+        assertEquals(beanFactory.getBean("inline").toString(), "www.[LOCAL_ENVIRONMENT_SITE].com");
+    }
+
+    @Test
+    public void lookupConfigurationUtilTest() {
+        beanFactory.registerSingleton("configurationUtil", configurationUtil);
+        registerFactory("url", "local", "[LOCAL_ENVIRONMENT_SITE]");
+
+        new EnvironmentPropertyConfigurer().postProcessBeanFactory(beanFactory);
+
+        assertEquals(beanFactory.getBean("url"), "edmunds");
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void lookupConfigurationUtilMissingTest() {
+        new EnvironmentPropertyConfigurer().postProcessBeanFactory(beanFactory);
+    }
+
+    @Test
+    public void lookupPrimaryConfigurationUtilTest() {
+        registerConfigurationUtil("insidelineConfigurationUtil", "insideline").setPrimary(true);
+        registerConfigurationUtil("edmundsConfigurationUtil", "edmunds");
+        registerFactory("url", "local", "[LOCAL_ENVIRONMENT_SITE]");
+
+        new EnvironmentPropertyConfigurer().postProcessBeanFactory(beanFactory);
+
+        assertTrue(beanFactory.getBeanDefinition("url").getPropertyValues().contains("property"));
+        assertEquals(beanFactory.getBean("url"), "insideline");
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void lookupAmbiguousConfigurationUtilTest() {
+        registerConfigurationUtil("insidelineConfigurationUtil", "insideline");
+        registerConfigurationUtil("edmundsConfigurationUtil", "edmunds");
+
+        new EnvironmentPropertyConfigurer().postProcessBeanFactory(beanFactory);
+    }
+
+    private RootBeanDefinition registerConfigurationUtil(String name, String site) {
+        final RootBeanDefinition definition = new RootBeanDefinition(StubConfigurationUtil.class);
+        definition.getConstructorArgumentValues().addIndexedArgumentValue(0, site);
+        beanFactory.registerBeanDefinition(name, definition);
+        return definition;
+    }
+
+    private void registerFactory(String name, String local, String managed) {
+        final RootBeanDefinition definition = new RootBeanDefinition(EnvironmentPropertyFactory.class);
+        definition.getPropertyValues().addPropertyValue("local", local);
+        definition.getPropertyValues().addPropertyValue("managed", managed);
+        beanFactory.registerBeanDefinition(name, definition);
+    }
+
+    /**
+     * Managed mode configuration util that only knows about the site token.
+     */
+    private static class StubConfigurationUtil implements ConfigurationUtil {
+        private final String site;
+        private int propertyCalls;
+
+        StubConfigurationUtil() {
+            this("edmunds");
+        }
+
+        StubConfigurationUtil(String site) {
+            this.site = site;
+        }
+
+        @Override
+        public String getLegacyEnvironmentName() {
+            return "DEV-EPE3";
+        }
+
+        @Override
+        public String replaceTokens(String value) {
+            return value == null ? null : value.replace("[LOCAL_ENVIRONMENT_SITE]", site);
+        }
+
+        @Override
+        public String replacePropertyTokens(String local, String managed) {
+            propertyCalls++;
+            return replaceTokens(managed);
+        }
+    }
+}
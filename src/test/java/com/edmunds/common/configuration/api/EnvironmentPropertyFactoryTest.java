@@ -75,6 +75,35 @@ public class EnvironmentPropertyFactoryTest {
         assertEquals(environmentPropertyFactory.getObject(), "objectResultValue");
     }
 
+    @Test
+    public void getObjectCachedTest() {
+        expect(configurationUtil.replacePropertyTokens("localValue", "managedValue")).andReturn("objectResultValue");
+        replay(configurationUtil);
+
+        assertEquals(environmentPropertyFactory.getObject(), "objectResultValue");
+        assertEquals(environmentPropertyFactory.getObject(), "objectResultValue");
+    }
+
+    @Test
+    public void getObjectResetTest() {
+        expect(configurationUtil.replacePropertyTokens("localValue", "managedValue")).andReturn("objectResultValue");
+        expect(configurationUtil.replacePropertyTokens("localValue", "otherValue")).andReturn("otherResultValue");
+        replay(configurationUtil);
+
+        assertEquals(environmentPropertyFactory.getObject(), "objectResultValue");
+        environmentPropertyFactory.setManaged("otherValue");
+        assertEquals(environmentPropertyFactory.getObject(), "otherResultValue");
+    }
+
+    @Test
+    public void getObjectResolvedTest() {
+        // Assert no calls to configurationUtil.
+        replay(configurationUtil);
+
+        environmentPropertyFactory.setProperty("resolvedValue");
+        assertEquals(environmentPropertyFactory.getObject(), "resolvedValue");
+    }
+
     @Test
     public void getObjectTypeTest() {
         // Assert no calls to configurationUtil.
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.api;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+
+import static org.easymock.classextension.EasyMock.createMock;
+import static org.easymock.classextension.EasyMock.expect;
+import static org.easymock.classextension.EasyMock.replay;
+import static org.easymock.classextension.EasyMock.verify;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+@Test(groups = {"ConfigurationApi"})
+public class EnvironmentRulesTest {
+
+    private static final String RULES = "# search urls\n"
+            + "prod && lax1 -> http://search-lax1.edmunds.com/\n"
+            + "prod -> http://search.edmunds.com/\n"
+            + "logical=qa || logical=pi -> http://[URL_PREFIX]search.edmunds.com/\n"
+            + "!local && site=insideline -> http://search.insideline.com/\n"
+            + "* -> http://localhost/search/\n";
+
+    private EnvironmentConfiguration configuration;
+
+    @BeforeMethod
+    public void setup() {
+        configuration = new EnvironmentConfiguration();
+        configuration.setLocalEnvironment(false);
+        configuration.setEnvironmentName("prod");
+        configuration.setLogicalEnvironmentName("prod");
+        configuration.setDataCenter("lax1");
+        configuration.setSite("edmunds");
+        configuration.setEnvironmentIndex("a");
+    }
+
+    private EnvironmentSnapshot snapshot() {
+        return EnvironmentSnapshot.capture(configuration, new EnvironmentConnection());
+    }
+
+    @Test
+    public void selectTest() {
+        final EnvironmentRules rules = EnvironmentRules.compile(RULES);
+        assertEquals(rules.size(), 5);
+
+        assertEquals(rules.select(snapshot()), "http://search-lax1.edmunds.com/");
+
+        configuration.setDataCenter("las1");
+        assertEquals(rules.select(snapshot()), "http://search.edmunds.com/");
+
+        configuration.setEnvironmentName("qa-2");
+        configuration.setLogicalEnvironmentName("QA");
+        assertEquals(rules.select(snapshot()), "http://[URL_PREFIX]search.edmunds.com/");
+
+        configuration.setLogicalEnvironmentName("dev");
+        configuration.setSite("insideline");
+        assertEquals(rules.select(snapshot()), "http://search.insideline.com/");
+
+        configuration.setLocalEnvironment(true);
+        assertEquals(rules.select(snapshot()), "http://localhost/search/");
+        assertEquals(rules.indexOf(snapshot()), 4);
+    }
+
+    @Test
+    public void attributeTest() {
+        final EnvironmentRules rules = EnvironmentRules.compile(Arrays.asList(
+                "index=b -> second", "dc=las1 && !index=a -> las1", "env=prod && local=false -> managed"));
+
+        assertEquals(rules.select(snapshot()), "managed");
+
+        configuration.setEnvironmentIndex("b");
+        assertEquals(rules.select(snapshot()), "second");
+
+        configuration.setDataCenter("las1");
+        configuration.setEnvironmentIndex("c");
+        assertEquals(rules.select(snapshot()), "las1");
+
+        configuration.setDataCenter("lax1");
+        configuration.setEnvironmentName("dev");
+        assertNull(rules.select(snapshot()));
+        assertEquals(rules.indexOf(snapshot()), -1);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void missingArrowTest() {
+        EnvironmentRules.compile("prod = value");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void unknownAttributeTest() {
+        EnvironmentRules.compile("region=west -> value");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void emptyTermTest() {
+        EnvironmentRules.compile("prod && -> value");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void tooManyTermsTest() {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i <= 64; i++) {
+            sb.append("env").append(i).append(" -> ").append(i).append('\n');
+        }
+        EnvironmentRules.compile(sb.toString());
+    }
+
+    @Test
+    public void factoryCachesPerSnapshotTest() {
+        final EnvironmentSnapshot first = snapshot();
+        configuration.setEnvironmentName("qa-2");
+        configuration.setLogicalEnvironmentName("qa");
+        final EnvironmentSnapshot second = snapshot();
+
+        final SnapshotConfigurationUtil configurationUtil =
+                createMock("configurationUtil", SnapshotConfigurationUtil.class);
+        expect(configurationUtil.getEnvironmentSnapshot()).andReturn(first).times(2);
+        expect(configurationUtil.replaceTokens("http://search-lax1.edmunds.com/"))
+                .andReturn("http://search-lax1.edmunds.com/");
+        expect(configurationUtil.getEnvironmentSnapshot()).andReturn(second);
+        expect(configurationUtil.replaceTokens("http://[URL_PREFIX]search.edmunds.com/"))
+                .andReturn("http://qa-2-search.edmunds.com/");
+        replay(configurationUtil);
+
+        final ConditionalPropertyFactory factory = new ConditionalPropertyFactory(configurationUtil);
+        factory.setRules(RULES);
+        factory.afterPropertiesSet();
+
+        assertEquals(factory.getObject(), "http://search-lax1.edmunds.com/");
+        assertEquals(factory.getObject(), "http://qa-2-search.edmunds.com/");
+        verify(configurationUtil);
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void factoryNoMatchTest() {
+        final SnapshotConfigurationUtil configurationUtil =
+                createMock("configurationUtil", SnapshotConfigurationUtil.class);
+        expect(configurationUtil.getEnvironmentSnapshot()).andReturn(snapshot());
+        replay(configurationUtil);
+
+        final ConditionalPropertyFactory factory = new ConditionalPropertyFactory(configurationUtil);
+        factory.setRules("dev -> value");
+        factory.afterPropertiesSet();
+    }
+}
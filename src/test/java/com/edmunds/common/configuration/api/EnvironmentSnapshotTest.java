@@ -0,0 +1,107 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.api;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.easymock.classextension.EasyMock.createMock;
+import static org.easymock.classextension.EasyMock.expect;
+import static org.easymock.classextension.EasyMock.replay;
+import static org.easymock.classextension.EasyMock.verify;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+@Test(groups = {"ConfigurationApi"})
+public class EnvironmentSnapshotTest {
+
+    private EnvironmentConfiguration configuration;
+    private EnvironmentConnection connection;
+
+    @BeforeMethod
+    public void setup() {
+        configuration = new EnvironmentConfiguration();
+        configuration.setEnvironmentName("prod");
+        configuration.setDataCenter("lax1");
+        configuration.setSite("edmunds");
+        configuration.setUrlPrefix("");
+        connection = new EnvironmentConnection();
+        connection.setInternalEnvironmentName("prod");
+        connection.setInternalDataCenter("lax1");
+    }
+
+    @Test
+    public void versionIncreasesTest() {
+        final EnvironmentSnapshot first = EnvironmentSnapshot.capture(configuration, connection);
+        final EnvironmentSnapshot second = EnvironmentSnapshot.capture(configuration, connection);
+
+        assertTrue(second.getVersion() > first.getVersion());
+    }
+
+    @Test
+    public void sameContentTest() {
+        final EnvironmentSnapshot first = EnvironmentSnapshot.capture(configuration, connection);
+        final EnvironmentSnapshot second = EnvironmentSnapshot.capture(configuration, connection);
+
+        assertEquals(second.getContentHash(), first.getContentHash());
+        assertTrue(first.hasSameContent(second));
+    }
+
+    @Test
+    public void differentContentTest() {
+        final EnvironmentSnapshot first = EnvironmentSnapshot.capture(configuration, connection);
+        configuration.setDataCenter("las1");
+        final EnvironmentSnapshot second = EnvironmentSnapshot.capture(configuration, connection);
+
+        assertFalse(first.hasSameContent(second));
+        assertFalse(first.hasSameContent(null));
+        assertEquals(first.getDataCenter(), "lax1");
+        assertEquals(second.getDataCenter(), "las1");
+    }
+
+    @Test
+    public void copyTest() {
+        final EnvironmentSnapshot snapshot = EnvironmentSnapshot.capture(configuration, connection);
+
+        final EnvironmentConfiguration copy = snapshot.toEnvironmentConfiguration();
+        assertNotSame(copy, configuration);
+        assertEquals(copy.getEnvironmentName(), "prod");
+        assertEquals(copy.getSite(), "edmunds");
+        assertEquals(snapshot.toEnvironmentConnection().getInternalDataCenter(), "lax1");
+
+        final EnvironmentSnapshot recaptured = EnvironmentSnapshot.capture(copy, snapshot.toEnvironmentConnection());
+        assertTrue(snapshot.hasSameContent(recaptured));
+    }
+
+    @Test
+    public void ofTest() {
+        final EnvironmentSnapshot snapshot = EnvironmentSnapshot.capture(configuration, connection);
+        final SnapshotConfigurationUtil configurationUtil = createMock(SnapshotConfigurationUtil.class);
+        expect(configurationUtil.getEnvironmentSnapshot()).andReturn(snapshot);
+        replay(configurationUtil);
+
+        assertSame(EnvironmentSnapshot.of(configurationUtil), snapshot);
+        verify(configurationUtil);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void ofUnsupportedTest() {
+        EnvironmentSnapshot.of(createMock(ConfigurationUtil.class));
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.api;
+
+import org.easymock.IAnswer;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.easymock.classextension.EasyMock.anyObject;
+import static org.easymock.classextension.EasyMock.createMock;
+import static org.easymock.classextension.EasyMock.expect;
+import static org.easymock.classextension.EasyMock.getCurrentArguments;
+import static org.easymock.classextension.EasyMock.replay;
+import static org.easymock.classextension.EasyMock.verify;
+import static org.testng.Assert.assertEquals;
+
+@Test(groups = {"ConfigurationApi"})
+public class EnvironmentTablePropertyFactoryTest {
+
+    private EnvironmentConfiguration configuration;
+    private Map<String, String> values;
+
+    @BeforeMethod
+    public void setup() {
+        configuration = new EnvironmentConfiguration();
+        configuration.setLocalEnvironment(false);
+        configuration.setEnvironmentName("qa-2");
+        configuration.setLogicalEnvironmentName("qa");
+        configuration.setDataCenter("lax1");
+
+        values = new HashMap<String, String>();
+        values.put("local", "http://localhost/");
+        values.put("Prod/LAX1", "http://lax1.edmunds.com/");
+        values.put("prod", "http://www.edmunds.com/");
+        values.put("qa/las1", "http://qa-las1.edmunds.com/");
+        values.put("default", "http://[URL_PREFIX]www.edmunds.com/");
+    }
+
+    private EnvironmentSnapshot snapshot() {
+        return EnvironmentSnapshot.capture(configuration, new EnvironmentConnection());
+    }
+
+    private String select(EnvironmentSnapshot snapshot) {
+        final SnapshotConfigurationUtil configurationUtil =
+                createMock("configurationUtil", SnapshotConfigurationUtil.class);
+        expect(configurationUtil.getEnvironmentSnapshot()).andReturn(snapshot);
+        expect(configurationUtil.replaceTokens((String) anyObject())).andAnswer(
+                new IAnswer<String>() {
+                    @Override
+                    public String answer() {
+                        return (String) getCurrentArguments()[0];
+                    }
+                });
+        replay(configurationUtil);
+
+        final EnvironmentTablePropertyFactory factory = new EnvironmentTablePropertyFactory(configurationUtil);
+        factory.setValues(values);
+        final String value = factory.getProperty();
+        verify(configurationUtil);
+        return value;
+    }
+
+    @Test
+    public void selectionKeysTest() {
+        assertEquals(snapshot().getSelectionKeys(),
+                Arrays.asList("qa-2/lax1", "qa-2", "qa/lax1", "qa", "lax1", "default"));
+
+        configuration.setLocalEnvironment(true);
+        configuration.setEnvironmentName("local");
+        configuration.setLogicalEnvironmentName("local");
+        configuration.setDataCenter(null);
+        assertEquals(snapshot().getSelectionKeys(), Arrays.asList("local", "default"));
+    }
+
+    @Test
+    public void fallbackTest() {
+        assertEquals(select(snapshot()), "http://[URL_PREFIX]www.edmunds.com/");
+
+        configuration.setDataCenter("las1");
+        assertEquals(select(snapshot()), "http://qa-las1.edmunds.com/");
+
+        configuration.setEnvironmentName("prod");
+        configuration.setLogicalEnvironmentName("prod");
+        assertEquals(select(snapshot()), "http://www.edmunds.com/");
+
+        configuration.setDataCenter("lax1");
+        assertEquals(select(snapshot()), "http://lax1.edmunds.com/");
+
+        configuration.setLocalEnvironment(true);
+        assertEquals(select(snapshot()), "http://localhost/");
+    }
+
+    @Test
+    public void cachedPerSnapshotTest() {
+        final EnvironmentSnapshot snapshot = snapshot();
+        final SnapshotConfigurationUtil configurationUtil =
+                createMock("configurationUtil", SnapshotConfigurationUtil.class);
+        expect(configurationUtil.getEnvironmentSnapshot()).andReturn(snapshot).times(3);
+        expect(configurationUtil.replaceTokens("http://[URL_PREFIX]www.edmunds.com/"))
+                .andReturn("http://qa-2-www.edmunds.com/");
+        replay(configurationUtil);
+
+        final EnvironmentTablePropertyFactory factory = new EnvironmentTablePropertyFactory(configurationUtil);
+        factory.setValues(values);
+        factory.afterPropertiesSet();
+
+        assertEquals(factory.getObject(), "http://qa-2-www.edmunds.com/");
+        assertEquals(factory.getObject(), "http://qa-2-www.edmunds.com/");
+        verify(configurationUtil);
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void noValueTest() {
+        values.remove("default");
+        select(snapshot());
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void duplicateKeyTest() {
+        values.put("PROD", "http://duplicate/");
+        select(snapshot());
+    }
+}
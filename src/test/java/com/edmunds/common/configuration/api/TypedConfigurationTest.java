@@ -0,0 +1,145 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.api;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.easymock.classextension.EasyMock.createMock;
+import static org.easymock.classextension.EasyMock.expect;
+import static org.easymock.classextension.EasyMock.replay;
+import static org.easymock.classextension.EasyMock.verify;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+@Test(groups = {"ConfigurationApi"})
+public class TypedConfigurationTest {
+
+    private SnapshotConfigurationUtil configurationUtil;
+    private EnvironmentSnapshot snapshot;
+
+    @BeforeMethod
+    public void setup() {
+        configurationUtil = createMock("configurationUtil", SnapshotConfigurationUtil.class);
+        snapshot = EnvironmentSnapshot.capture(new EnvironmentConfiguration(), new EnvironmentConnection());
+    }
+
+    @Test
+    public void parseTest() {
+        assertEquals(PropertyType.INTEGER.parse(" 42 "), Integer.valueOf(42));
+        assertEquals(PropertyType.LONG.parse("10000000000"), Long.valueOf(10000000000L));
+        assertEquals(PropertyType.BOOLEAN.parse("TRUE"), Boolean.TRUE);
+        assertEquals(PropertyType.DURATION.parse("250"), Long.valueOf(250L));
+        assertEquals(PropertyType.DURATION.parse("30s"), Long.valueOf(30000L));
+        assertEquals(PropertyType.DURATION.parse("2 m"), Long.valueOf(120000L));
+        assertEquals(PropertyType.DURATION.parse("1d"), Long.valueOf(86400000L));
+        assertEquals(PropertyType.URI.parse("http://www.edmunds.com/").getHost(), "www.edmunds.com");
+        assertEquals(PropertyType.LIST.parse("a, b,,c "), Arrays.asList("a", "b", "c"));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void invalidBooleanTest() {
+        PropertyType.BOOLEAN.parse("yes");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void invalidDurationUnitTest() {
+        PropertyType.DURATION.parse("5 weeks");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void missingValueTest() {
+        PropertyType.INTEGER.parse(null);
+    }
+
+    @Test
+    public void invalidMessageTest() {
+        try {
+            PropertyType.INTEGER.parse("ten");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().startsWith("Invalid integer property value 'ten'"), e.getMessage());
+            return;
+        }
+        throw new AssertionError("Expected IllegalArgumentException");
+    }
+
+    @Test
+    public void cachedPerSnapshotTest() {
+        expect(configurationUtil.getEnvironmentSnapshot()).andReturn(snapshot).times(3);
+        expect(configurationUtil.replacePropertyTokens("a", "b,c")).andReturn("b,c").once();
+        expect(configurationUtil.replacePropertyTokens("1s", "[ENVIRONMENT_INDEX]0s")).andReturn("20s").once();
+        replay(configurationUtil);
+
+        final TypedConfiguration typed = new TypedConfiguration(configurationUtil);
+        final List<String> list = typed.getList("a", "b,c");
+        assertSame(typed.getList("a", "b,c"), list);
+        assertEquals(typed.getDuration("1s", "[ENVIRONMENT_INDEX]0s", TimeUnit.SECONDS), 20L);
+        verify(configurationUtil);
+    }
+
+    @Test
+    public void snapshotChangedTest() {
+        final EnvironmentSnapshot changed =
+                EnvironmentSnapshot.capture(new EnvironmentConfiguration(), new EnvironmentConnection());
+        expect(configurationUtil.getEnvironmentSnapshot()).andReturn(snapshot);
+        expect(configurationUtil.getEnvironmentSnapshot()).andReturn(changed);
+        expect(configurationUtil.replacePropertyTokens("8080", "80")).andReturn("80").times(2);
+        replay(configurationUtil);
+
+        final TypedConfiguration typed = new TypedConfiguration(configurationUtil);
+        assertEquals(typed.getInt("8080", "80"), 80);
+        assertEquals(typed.getInt("8080", "80"), 80);
+        verify(configurationUtil);
+    }
+
+    @Test
+    public void factoryTest() throws Exception {
+        expect(configurationUtil.replacePropertyTokens("localhost", "http://www.edmunds.com/"))
+                .andReturn("http://www.edmunds.com/").once();
+        replay(configurationUtil);
+
+        final UriPropertyFactory factory = new UriPropertyFactory(configurationUtil);
+        factory.setLocal("localhost");
+        factory.setManaged("http://www.edmunds.com/");
+        factory.afterPropertiesSet();
+
+        assertEquals(factory.getObject(), new URI("http://www.edmunds.com/"));
+        assertEquals(factory.getObjectType(), URI.class);
+        verify(configurationUtil);
+    }
+
+    @Test
+    public void durationFactoryTest() {
+        final DurationPropertyFactory factory = new DurationPropertyFactory(configurationUtil);
+        factory.setProperty("90s");
+        factory.setUnit(TimeUnit.MINUTES);
+
+        assertEquals(factory.getObject(), Long.valueOf(1L));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void factoryFailFastTest() {
+        final BooleanPropertyFactory factory = new BooleanPropertyFactory(configurationUtil);
+        factory.setProperty("maybe");
+        factory.afterPropertiesSet();
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.dns;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+@Test(groups = {"DNSConfiguration"})
+public class CircuitBreakerConfigurationEntryReaderTest {
+
+    private AtomicInteger lookups;
+    private volatile boolean failing;
+    private volatile boolean missing;
+    private volatile long latencyMillis;
+    private ConfigurationEntryReader delegate;
+
+    @BeforeMethod
+    public void setup() {
+        lookups = new AtomicInteger();
+        failing = false;
+        missing = false;
+        latencyMillis = 0L;
+        delegate = new ConfigurationEntryReader() {
+            @Override
+            public String getEntry(String entryName) {
+                lookups.incrementAndGet();
+                if (latencyMillis > 0) {
+                    try {
+                        Thread.sleep(latencyMillis);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                if (failing) {
+                    throw new IllegalStateException("resolver down");
+                }
+                return missing ? null : "value";
+            }
+        };
+    }
+
+    @Test
+    public void opensAfterConsecutiveFailuresTest() {
+        final CircuitBreakerConfigurationEntryReader reader =
+                new CircuitBreakerConfigurationEntryReader(delegate, 2, 60000L, 60000L);
+        assertEquals(reader.getEntry("a"), "value");
+
+        failing = true;
+        lookupFails(reader);
+        assertEquals(reader.getState(), CircuitBreakerConfigurationEntryReader.State.CLOSED);
+        lookupFails(reader);
+        assertEquals(reader.getState(), CircuitBreakerConfigurationEntryReader.State.OPEN);
+        assertEquals(reader.getConsecutiveFailures(), 2);
+
+        lookupRejected(reader);
+        assertEquals(lookups.get(), 3);
+    }
+
+    @Test
+    public void slowMissingLookupIsFailureTest() {
+        final CircuitBreakerConfigurationEntryReader reader =
+                new CircuitBreakerConfigurationEntryReader(delegate, 1, 60000L, 20L);
+        latencyMillis = 30L;
+        missing = true;
+
+        assertNull(reader.getEntry("a"));
+        assertEquals(reader.getState(), CircuitBreakerConfigurationEntryReader.State.OPEN);
+        lookupRejected(reader);
+        assertEquals(lookups.get(), 1);
+    }
+
+    @Test
+    public void slowLookupWithValueIsSuccessTest() {
+        final CircuitBreakerConfigurationEntryReader reader =
+                new CircuitBreakerConfigurationEntryReader(delegate, 1, 60000L, 20L);
+        latencyMillis = 30L;
+
+        assertEquals(reader.getEntry("a"), "value");
+        assertEquals(reader.getState(), CircuitBreakerConfigurationEntryReader.State.CLOSED);
+        assertEquals(reader.getConsecutiveFailures(), 0);
+    }
+
+    @Test
+    public void trialLookupTest() throws Exception {
+        final CircuitBreakerConfigurationEntryReader reader =
+                new CircuitBreakerConfigurationEntryReader(delegate, 1, 20L, 60000L);
+        failing = true;
+        lookupFails(reader);
+        lookupRejected(reader);
+
+        Thread.sleep(30L);
+        lookupFails(reader);
+        assertEquals(reader.getState(), CircuitBreakerConfigurationEntryReader.State.OPEN);
+
+        Thread.sleep(30L);
+        failing = false;
+        assertEquals(reader.getEntry("a"), "value");
+        assertEquals(reader.getState(), CircuitBreakerConfigurationEntryReader.State.CLOSED);
+        assertEquals(reader.getConsecutiveFailures(), 0);
+        assertEquals(lookups.get(), 3);
+    }
+
+    private static void lookupRejected(CircuitBreakerConfigurationEntryReader reader) {
+        assertNull(reader.getEntry("a"));
+        assertTrue(reader.isRejectingLookups());
+    }
+
+    private static void lookupFails(ConfigurationEntryReader reader) {
+        try {
+            reader.getEntry("a");
+            fail("Expected the lookup to fail");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+}
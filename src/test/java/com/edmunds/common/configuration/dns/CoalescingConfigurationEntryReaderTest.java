@@ -0,0 +1,153 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.dns;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+@Test(groups = {"DNSConfiguration"})
+public class CoalescingConfigurationEntryReaderTest {
+
+    private static final int THREADS = 64;
+
+    private CountDownLatch release;
+    private AtomicInteger lookups;
+    private volatile RuntimeException failure;
+    private ConfigurationEntryReader slowReader;
+
+    @BeforeMethod
+    public void setup() {
+        release = new CountDownLatch(1);
+        lookups = new AtomicInteger();
+        failure = null;
+        slowReader = new ConfigurationEntryReader() {
+            @Override
+            public String getEntry(String entryName) {
+                lookups.incrementAndGet();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                if (failure != null) {
+                    throw failure;
+                }
+                return entryName + "-value";
+            }
+        };
+    }
+
+    @Test
+    public void singleLookupTest() {
+        final CoalescingConfigurationEntryReader reader = new CoalescingConfigurationEntryReader(slowReader);
+        release.countDown();
+
+        assertEquals(reader.getEntry("a.edmunds.com"), "a.edmunds.com-value");
+        assertEquals(reader.getEntry("a.edmunds.com"), "a.edmunds.com-value");
+        assertEquals(lookups.get(), 2);
+        assertEquals(reader.getCoalescedCount(), 0);
+    }
+
+    @Test
+    public void contentionTest() throws Exception {
+        final CoalescingConfigurationEntryReader reader = new CoalescingConfigurationEntryReader(slowReader);
+        final List<Future<String>> results = runConcurrently(reader, "a.edmunds.com");
+
+        waitForWaiters(reader, THREADS - 1);
+        release.countDown();
+
+        for (Future<String> result : results) {
+            assertEquals(result.get(10, TimeUnit.SECONDS), "a.edmunds.com-value");
+        }
+        assertEquals(lookups.get(), 1);
+        assertEquals(reader.getCoalescedCount(), THREADS - 1);
+    }
+
+    @Test
+    public void contentionFailureTest() throws Exception {
+        failure = new IllegalStateException("resolver down");
+        final CoalescingConfigurationEntryReader reader = new CoalescingConfigurationEntryReader(slowReader);
+        final List<Future<String>> results = runConcurrently(reader, "a.edmunds.com");
+
+        waitForWaiters(reader, THREADS - 1);
+        release.countDown();
+
+        for (Future<String> result : results) {
+            try {
+                result.get(10, TimeUnit.SECONDS);
+                fail("Expected the lookup failure to be shared");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof IllegalStateException);
+            }
+        }
+        assertEquals(lookups.get(), 1);
+    }
+
+    @Test
+    public void timeoutTest() throws Exception {
+        final CoalescingConfigurationEntryReader reader = new CoalescingConfigurationEntryReader(slowReader, 20);
+        final List<Future<String>> results = runConcurrently(reader, "a.edmunds.com");
+
+        waitForWaiters(reader, THREADS - 1);
+        Thread.sleep(100);
+        release.countDown();
+
+        for (Future<String> result : results) {
+            assertEquals(result.get(10, TimeUnit.SECONDS), "a.edmunds.com-value");
+        }
+        assertEquals(reader.getTimeoutCount(), THREADS - 1);
+        assertEquals(lookups.get(), THREADS);
+    }
+
+    private List<Future<String>> runConcurrently(final ConfigurationEntryReader reader, final String entryName) {
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        final List<Future<String>> results = new ArrayList<Future<String>>();
+
+        for (int i = 0; i < THREADS; i++) {
+            results.add(executor.submit(new Callable<String>() {
+                @Override
+                public String call() {
+                    return reader.getEntry(entryName);
+                }
+            }));
+        }
+        executor.shutdown();
+        return results;
+    }
+
+    private void waitForWaiters(CoalescingConfigurationEntryReader reader, long count) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 10000;
+        while (reader.getCoalescedCount() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(reader.getCoalescedCount(), count);
+    }
+}
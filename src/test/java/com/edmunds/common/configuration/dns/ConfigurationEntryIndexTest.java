@@ -0,0 +1,94 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.dns;
+
+import com.edmunds.common.configuration.api.EnvironmentConfiguration;
+import com.edmunds.common.configuration.api.EnvironmentConnection;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Properties;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+@Test(groups = {"DNSConfiguration"})
+public class ConfigurationEntryIndexTest {
+
+    private PropertiesConfigurationEntryReader reader;
+
+    @BeforeMethod
+    public void setup() {
+        final Properties properties = new Properties();
+        properties.setProperty("environment-name", "qa-2");
+        properties.setProperty("search", "enabled");
+        properties.setProperty("search.url", "http://search/");
+        properties.setProperty("search.pool.size", "10");
+        properties.setProperty("search.pool.timeout", "5s");
+        properties.setProperty("search-legacy.url", "http://legacy/");
+        properties.setProperty("searchable", "true");
+        reader = new PropertiesConfigurationEntryReader(properties);
+    }
+
+    @Test
+    public void getEntryTest() {
+        assertEquals(reader.getEntry("search.pool.size"), "10");
+        assertEquals(reader.getEntry("environment-name.edmunds.com"), "qa-2");
+        assertEquals(reader.getEntry("search.missing"), "enabled");
+        assertNull(reader.getEntry("missing.edmunds.com"));
+    }
+
+    @Test
+    public void prefixTest() {
+        assertEquals(new ArrayList<String>(reader.getEntriesByPrefix("search.pool").keySet()),
+                Arrays.asList("search.pool.size", "search.pool.timeout"));
+        assertEquals(reader.getEntriesByPrefix("search").size(), 6);
+        assertEquals(reader.getEntriesByPrefix("").size(), 7);
+        assertTrue(reader.getEntriesByPrefix("zzz").isEmpty());
+    }
+
+    @Test
+    public void pathTest() {
+        assertEquals(new ArrayList<String>(reader.getEntriesByPath("search").keySet()),
+                Arrays.asList("search.pool.size", "search.pool.timeout", "search.url"));
+        assertEquals(new ArrayList<String>(reader.getChildNames("search")), Arrays.asList("pool", "url"));
+        assertEquals(new ArrayList<String>(reader.getChildNames("search.pool")), Arrays.asList("size", "timeout"));
+        assertEquals(new ArrayList<String>(reader.getChildNames("")),
+                Arrays.asList("environment-name", "search", "search-legacy", "searchable"));
+        assertTrue(reader.getChildNames("search.url").isEmpty());
+    }
+
+    @Test
+    public void findIndexedReaderTest() {
+        final ConfigurationEntryReader decorated = new CoalescingConfigurationEntryReader(
+                new InstrumentedConfigurationEntryReader(reader));
+        assertSame(ConfigurationEntryReaderFactory.findIndexedReader(decorated), reader);
+        assertNull(ConfigurationEntryReaderFactory.findIndexedReader(new DNSConfigurationEntryReader()));
+    }
+
+    @Test
+    public void resolvedMapTest() {
+        final ConfigurationUtilImpl configurationUtil = new ConfigurationUtilImpl(
+                new EnvironmentConfiguration(), new EnvironmentConnection());
+        final ResolvedConfigurationMap map = new ResolvedConfigurationMap(reader, configurationUtil, "search.pool.");
+        assertEquals(new ArrayList<String>(map.keySet()), Arrays.asList("search.pool.size", "search.pool.timeout"));
+        assertEquals(map.get("search.pool.timeout"), "5s");
+    }
+}
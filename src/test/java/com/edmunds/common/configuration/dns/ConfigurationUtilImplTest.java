@@ -17,6 +17,7 @@ package com.edmunds.common.configuration.dns;
 
 import com.edmunds.common.configuration.api.EnvironmentConfiguration;
 import com.edmunds.common.configuration.api.EnvironmentConnection;
+import com.edmunds.common.configuration.api.EnvironmentSnapshot;
 import org.apache.log4j.BasicConfigurator;
 import org.apache.log4j.Level;
 import org.apache.log4j.Logger;
@@ -31,6 +32,7 @@ import static org.easymock.classextension.EasyMock.verify;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
 
 @Test(groups = {"DNSConfiguration"})
@@ -195,6 +197,66 @@ public class ConfigurationUtilImplTest {
                 "local[PRE]_ENVIRONMENT_NAME_[POST]", null));
     }
 
+    @Test
+    public void replaceTokensTestConfigurationChanged() {
+        expectGetConfiguration(false, "dev-epe3", "lax1", "insideline", "dev-epe3-");
+        assertEquals(configurationUtil.replaceTokens("[LOCAL_ENVIRONMENT_SITE]"), "insideline");
+        assertSame(configurationUtil.getTokenTable(), configurationUtil.getTokenTable());
+
+        configuration.setSite("edmunds");
+        assertEquals(configurationUtil.replaceTokens("[LOCAL_ENVIRONMENT_SITE]"), "edmunds");
+
+        connection.setInternalDataCenter("ord");
+        assertEquals(configurationUtil.replaceTokens("[INTERNAL_ENVIRONMENT_DATA_CENTER]"), "ord");
+    }
+
+    @Test
+    public void replacePropertyTokensTestInterned() {
+        expectGetConfiguration(false, "dev-epe3", "lax1", "insideline", "dev-epe3-");
+
+        final String first = configurationUtil.replacePropertyTokens("local", new String("[URL_PREFIX]www"));
+        final String second = configurationUtil.replacePropertyTokens("local", new String("[URL_PREFIX]www"));
+
+        assertEquals(first, "dev-epe3-www");
+        assertSame(first, second);
+    }
+
+    @Test
+    public void replacePropertyTokensTestModeChanged() {
+        expectGetConfiguration(false, "dev-epe3", "lax1", "insideline", "dev-epe3-");
+        final long version = configurationUtil.getSnapshotVersion();
+        assertEquals(configurationUtil.replacePropertyTokens("local", "[URL_PREFIX]www"), "dev-epe3-www");
+
+        configuration.setLocalEnvironment(true);
+        assertEquals(configurationUtil.replacePropertyTokens("local", "[URL_PREFIX]www"), "local");
+        assertTrue(configurationUtil.getSnapshotVersion() > version);
+    }
+
+    @Test
+    public void getEnvironmentSnapshotTest() {
+        expectGetConfiguration(false, "dev-epe3", "lax1", "insideline", "dev-epe3-");
+        final EnvironmentSnapshot snapshot = configurationUtil.getEnvironmentSnapshot();
+
+        assertEquals(snapshot.getEnvironmentName(), "dev-epe3");
+        assertEquals(snapshot.getSite(), "insideline");
+        assertSame(configurationUtil.getEnvironmentSnapshot(), snapshot);
+    }
+
+    @Test
+    public void getEnvironmentSnapshotTestEqualValue() {
+        expectGetConfiguration(false, "dev-epe3", "lax1", "insideline", "dev-epe3-");
+        final EnvironmentSnapshot snapshot = configurationUtil.getEnvironmentSnapshot();
+
+        // A new but equal instance does not change the version.
+        configuration.setSite(new String("insideline"));
+        assertSame(configurationUtil.getEnvironmentSnapshot(), snapshot);
+
+        configuration.setSite("edmunds");
+        final EnvironmentSnapshot changed = configurationUtil.getEnvironmentSnapshot();
+        assertTrue(changed.getVersion() > snapshot.getVersion());
+        assertEquals(configurationUtil.replaceTokens("[LOCAL_ENVIRONMENT_SITE]"), "edmunds");
+    }
+
     @AfterMethod
     public void tearDown() {
         configurationUtil = null;
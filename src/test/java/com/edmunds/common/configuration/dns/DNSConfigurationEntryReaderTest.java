@@ -0,0 +1,164 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.dns;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Random;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+@Test(groups = {"DNSConfiguration"})
+public class DNSConfigurationEntryReaderTest {
+
+    private StubDnsServer server;
+    private DNSConfigurationEntryReader reader;
+
+    @BeforeClass
+    public void startServer() throws Exception {
+        server = new StubDnsServer(new Random(42L));
+        server.start();
+    }
+
+    @AfterClass
+    public void stopServer() {
+        server.stop();
+    }
+
+    @BeforeMethod
+    public void setup() {
+        server.clearRecords();
+        server.setLatencyMillis(0L);
+        server.setLossRate(0.0);
+        server.setTruncateUdp(false);
+        server.setResponseCode(-1);
+        reader = new DNSConfigurationEntryReader(server.getProviderUrl(), 200, 1);
+    }
+
+    @Test
+    public void getEntryTest() {
+        server.setTxtValue("environment-name.edmunds.com", "prod-a");
+
+        assertEquals(reader.getEntry("environment-name.edmunds.com"), "prod-a");
+        assertEquals(reader.getEntry("ENVIRONMENT-NAME.edmunds.com"), "prod-a");
+    }
+
+    @Test
+    public void getEntryTestNull() {
+        assertNull(reader.getEntry(null));
+    }
+
+    @Test
+    public void getEntryTestNxDomain() {
+        assertNull(reader.getEntry("environment-site.edmunds.com"));
+    }
+
+    @Test
+    public void getEntryTestServerFailure() {
+        server.setTxtValue("environment-name.edmunds.com", "prod-a");
+        server.setResponseCode(StubDnsServer.SERVFAIL);
+
+        assertNull(reader.getEntry("environment-name.edmunds.com"));
+    }
+
+    @Test
+    public void getEntryTestMultipleStrings() {
+        server.addTxtRecord("url-prefix.edmunds.com", "prod", "a");
+
+        // JNDI joins the character strings of a record with spaces.
+        assertEquals(reader.getEntry("url-prefix.edmunds.com"), "prod a");
+    }
+
+    @Test
+    public void getEntryTestTruncated() {
+        server.setTxtValue("environment-name.edmunds.com", "prod-a");
+        server.setTruncateUdp(true);
+        final long tcpQueries = server.getTcpQueryCount();
+
+        assertEquals(reader.getEntry("environment-name.edmunds.com"), "prod-a");
+        assertTrue(server.getTcpQueryCount() > tcpQueries);
+    }
+
+    @Test
+    public void getEntryTestLargeRecord() {
+        final StringBuilder value = new StringBuilder();
+        for (int i = 0; i < 600; i++) {
+            value.append((char) ('a' + i % 26));
+        }
+        server.setTxtValue("environment-name.edmunds.com", value.toString());
+        final long truncated = server.getTruncatedResponseCount();
+
+        final String entry = reader.getEntry("environment-name.edmunds.com");
+        assertEquals(entry.replace(" ", ""), value.toString());
+        assertTrue(server.getTruncatedResponseCount() > truncated);
+    }
+
+    @Test
+    public void getEntryTestPacketLoss() {
+        server.setTxtValue("environment-name.edmunds.com", "prod-a");
+        server.setLossRate(0.5);
+        reader = new DNSConfigurationEntryReader(server.getProviderUrl(), 50, 6);
+
+        int found = 0;
+        for (int i = 0; i < 10; i++) {
+            if ("prod-a".equals(reader.getEntry("environment-name.edmunds.com"))) {
+                found++;
+            }
+        }
+        assertTrue(found >= 8, "found " + found);
+        assertTrue(server.getDroppedResponseCount() > 0);
+    }
+
+    @Test
+    public void getEntryTestTimeout() {
+        server.setTxtValue("environment-name.edmunds.com", "prod-a");
+        server.setLatencyMillis(1000L);
+        reader = new DNSConfigurationEntryReader(server.getProviderUrl(), 50, 0);
+
+        final long start = System.currentTimeMillis();
+        assertNull(reader.getEntry("environment-name.edmunds.com"));
+        assertTrue(System.currentTimeMillis() - start < 1000L);
+    }
+
+    @Test
+    public void faultInjectingReaderTest() {
+        server.setTxtValue("environment-name.edmunds.com", "prod-a");
+        final FaultInjectingConfigurationEntryReader faulty = new FaultInjectingConfigurationEntryReader(reader, 1L);
+
+        assertEquals(faulty.getEntry("environment-name.edmunds.com"), "prod-a");
+
+        faulty.setMissingRate(1.0);
+        assertNull(faulty.getEntry("environment-name.edmunds.com"));
+
+        faulty.setMissingRate(0.0);
+        faulty.setFailureRate(1.0);
+        try {
+            faulty.getEntry("environment-name.edmunds.com");
+            fail("Expected IllegalStateException");
+        } catch (IllegalStateException e) {
+            // Expected
+        }
+
+        assertEquals(faulty.getLookupCount(), 3);
+        assertEquals(faulty.getFaultCount(), 2);
+    }
+}
@@ -17,6 +17,8 @@ package com.edmunds.common.configuration.dns;
 
 import com.edmunds.common.configuration.api.EnvironmentConfiguration;
 import com.edmunds.common.configuration.api.EnvironmentConnection;
+import com.edmunds.common.configuration.trace.ResolutionTrace;
+import com.edmunds.common.configuration.trace.TraceEvent;
 import org.apache.log4j.BasicConfigurator;
 import org.apache.log4j.Level;
 import org.apache.log4j.Logger;
@@ -25,11 +27,17 @@ import org.testng.annotations.BeforeClass;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
 import static org.easymock.classextension.EasyMock.createMock;
 import static org.easymock.classextension.EasyMock.replay;
 import static org.easymock.classextension.EasyMock.verify;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
 @Test(groups = {"DNSConfiguration"})
@@ -91,6 +99,43 @@ public class DNSConfigurationFactoryTest {
             "[PRE]a[POST]");
     }
 
+    @Test
+    public void afterPropertiesSetTestTraced() throws Exception {
+        TestUtils.expectEnvironment(configurationEntryReader, null, "DEV-EPE3", "DEV-EPE3", null, "insideline");
+        TestUtils.expectLogicalEnvironment(configurationEntryReader, null, "a");
+        replay(configurationEntryReader);
+
+        final ResolutionTrace trace = ResolutionTrace.getInstance();
+        trace.clear();
+        trace.setEnabled(true);
+        try {
+            configurationFactory.afterPropertiesSet();
+        } finally {
+            trace.setEnabled(false);
+        }
+
+        final Map<String, TraceEvent> events = new HashMap<String, TraceEvent>();
+        for (TraceEvent event : trace.getEvents()) {
+            events.put(event.getAttribute(), event);
+        }
+
+        final TraceEvent site = events.get("environment-site.edmunds.com");
+        assertEquals(site.getComponent(), "DNSConfigurationFactory");
+        assertEquals(site.getValue(), "insideline");
+        assertFalse(site.isDefaulted());
+
+        final TraceEvent dataCenter = events.get("environment-datacenter.edmunds.com");
+        assertEquals(dataCenter.getValue(), "lax1");
+        assertTrue(dataCenter.isDefaulted());
+
+        final TraceEvent logical = events.get("logical-environment-name.edmunds.com");
+        assertEquals(logical.getValue(), "dev-epe3");
+        assertTrue(logical.isDefaulted());
+
+        assertTrue(events.containsKey("resolve"));
+        trace.clear();
+    }
+
     @Test
     public void afterPropertiesSetTestInvalidLegacy() throws Exception {
         TestUtils.expectInvalidEnvironment(configurationEntryReader, "DEV-EPE3", null);
@@ -212,6 +257,137 @@ public class DNSConfigurationFactoryTest {
             "[PRE]b[POST]");
     }
 
+    @Test
+    public void resolutionDeadlineMetTest() throws Exception {
+        final Properties entries = new Properties();
+        entries.setProperty("environment-name", "qa-2");
+        entries.setProperty("url-prefix", "qa-2");
+        configurationEntryReader = null;
+        configurationFactory = new DNSConfigurationFactory(new PropertiesConfigurationEntryReader(entries));
+        configurationFactory.setResolutionDeadlineMillis(5000L);
+
+        configurationFactory.afterPropertiesSet();
+
+        assertFalse(configurationFactory.isFallback());
+        TestUtils.assertConfiguration(
+                configurationFactory.getEnvironmentConfiguration(), false, "qa-2", "lax1", "edmunds", "qa-2-");
+    }
+
+    @Test
+    public void resolutionDeadlineDefaultsTest() throws Exception {
+        configurationEntryReader = null;
+        configurationFactory = new DNSConfigurationFactory(slowReader());
+        configurationFactory.setResolutionDeadlineMillis(50L);
+
+        final long start = System.nanoTime();
+        configurationFactory.afterPropertiesSet();
+
+        assertTrue(System.nanoTime() - start < 5000000000L);
+        assertTrue(configurationFactory.isFallback());
+        TestUtils.assertConfiguration(
+                configurationFactory.getEnvironmentConfiguration(), true, "local", "lax1", "edmunds", "");
+    }
+
+    @Test
+    public void resolutionDeadlineCancelsResolverTest() throws Exception {
+        final FaultInjectingConfigurationEntryReader reader = new FaultInjectingConfigurationEntryReader(
+                new PropertiesConfigurationEntryReader(new Properties()), 1L);
+        reader.setLatencyMillis(200L);
+        configurationEntryReader = null;
+        configurationFactory = new DNSConfigurationFactory(reader);
+        configurationFactory.setResolutionDeadlineMillis(50L);
+
+        configurationFactory.afterPropertiesSet();
+        final EnvironmentConfiguration fallback = configurationFactory.getEnvironmentConfiguration();
+        Thread.sleep(500L);
+
+        assertEquals(reader.getLookupCount(), 1L);
+        assertSame(configurationFactory.getEnvironmentConfiguration(), fallback);
+    }
+
+    @Test
+    public void resolutionDeadlineFallbackConfigurationTest() throws Exception {
+        final EnvironmentConfiguration previous = new EnvironmentConfiguration();
+        previous.setLocalEnvironment(false);
+        previous.setEnvironmentName("prod");
+
+        configurationEntryReader = null;
+        configurationFactory = new DNSConfigurationFactory(slowReader());
+        configurationFactory.setResolutionDeadlineMillis(50L);
+        configurationFactory.setFallbackConfiguration(previous);
+
+        configurationFactory.afterPropertiesSet();
+
+        assertTrue(configurationFactory.isFallback());
+        assertSame(configurationFactory.getEnvironmentConfiguration(), previous);
+    }
+
+    @Test
+    public void prodHostWithSlowResolverTest() throws Exception {
+        final Properties entries = new Properties();
+        entries.setProperty("environment-name", "prod");
+        entries.setProperty("url-prefix", "prod");
+        entries.setProperty("environment-site", "insideline");
+
+        // The data center lookup times out, which opens the circuit before the site is read.
+        final CircuitBreakerConfigurationEntryReader breaker = slowlyMissing(entries, "environment-datacenter");
+        configurationEntryReader = null;
+        configurationFactory = new DNSConfigurationFactory(new CoalescingConfigurationEntryReader(breaker));
+        configurationFactory.afterPropertiesSet();
+
+        assertEquals(breaker.getState(), CircuitBreakerConfigurationEntryReader.State.OPEN);
+        assertFalse(configurationFactory.isFallback());
+        TestUtils.assertConfiguration(
+                configurationFactory.getEnvironmentConfiguration(), false, "prod", "lax1", "edmunds", "");
+    }
+
+    @Test
+    public void environmentNameRejectedTest() throws Exception {
+        final Properties entries = new Properties();
+        entries.setProperty("environment-name", "prod");
+        entries.setProperty("url-prefix", "prod");
+
+        // The legacy environment name lookup times out, so the environment name lookup is rejected.
+        final CircuitBreakerConfigurationEntryReader breaker = slowlyMissing(entries, "environment.");
+        configurationEntryReader = null;
+        configurationFactory = new DNSConfigurationFactory(new CoalescingConfigurationEntryReader(breaker));
+        configurationFactory.afterPropertiesSet();
+
+        assertTrue(configurationFactory.isFallback());
+        TestUtils.assertConfiguration(
+                configurationFactory.getEnvironmentConfiguration(), true, "local", "lax1", "edmunds", "");
+    }
+
+    /**
+     * Returns a breaker that opens on the first lookup of an entry starting with the given prefix, which is slow and
+     * finds nothing.
+     */
+    private static CircuitBreakerConfigurationEntryReader slowlyMissing(Properties entries, final String prefix) {
+        final ConfigurationEntryReader properties = new PropertiesConfigurationEntryReader(entries);
+        final ConfigurationEntryReader resolver = new ConfigurationEntryReader() {
+            @Override
+            public String getEntry(String entryName) {
+                if (entryName.startsWith(prefix)) {
+                    try {
+                        Thread.sleep(30L);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return null;
+                }
+                return properties.getEntry(entryName);
+            }
+        };
+        return new CircuitBreakerConfigurationEntryReader(resolver, 1, 60000L, 10L);
+    }
+
+    private static ConfigurationEntryReader slowReader() {
+        final FaultInjectingConfigurationEntryReader reader = new FaultInjectingConfigurationEntryReader(
+                new PropertiesConfigurationEntryReader(new Properties()), 1L);
+        reader.setLatencyMillis(10000L);
+        return reader;
+    }
+
     private void testConfigurationUtil(String legacyEnvironmentName, String url, String environmentName,
                                        String logicalEnvName, String envIndex) {
         final EnvironmentConfiguration configuration = configurationFactory.getEnvironmentConfiguration();
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.dns;
+
+import com.edmunds.common.configuration.api.EnvironmentConfiguration;
+import com.edmunds.common.configuration.api.EnvironmentConnection;
+import org.apache.log4j.BasicConfigurator;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+@Test(groups = {"DNSConfiguration"})
+public class DeferredEnvironmentConfigurationTest {
+
+    private CountDownLatch latch;
+    private Map<String, String> entries;
+    private DNSConfigurationFactory configurationFactory;
+
+    @BeforeClass
+    public void initLogging() {
+        BasicConfigurator.configure();
+        // Don't output debug.
+        Logger.getRootLogger().setLevel(Level.INFO);
+    }
+
+    @BeforeMethod
+    public void setup() {
+        latch = new CountDownLatch(1);
+        entries = new HashMap<String, String>();
+        entries.put("environment-name.edmunds.com", "di");
+        entries.put("url-prefix.edmunds.com", "di");
+        entries.put("environment-datacenter.edmunds.com", "ord");
+        entries.put("environment-site.edmunds.com", "insideline");
+
+        configurationFactory = new DNSConfigurationFactory(new ConfigurationEntryReader() {
+            @Override
+            public String getEntry(String entryName) {
+                try {
+                    latch.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return entries.get(entryName);
+            }
+        });
+        configurationFactory.setBackgroundResolution(true);
+    }
+
+    @Test
+    public void backgroundResolutionTest() throws Exception {
+        configurationFactory.afterPropertiesSet();
+
+        final DeferredEnvironmentConfiguration configuration =
+                (DeferredEnvironmentConfiguration) configurationFactory.getEnvironmentConfiguration();
+        assertFalse(configuration.isResolved());
+
+        // Building the connection must not wait for the configuration.
+        final DNSConnectionFactory connectionFactory = new DNSConnectionFactory(configuration);
+        connectionFactory.afterPropertiesSet();
+        final EnvironmentConnection connection = connectionFactory.getEnvironmentConnection();
+
+        releaseLater(50);
+        TestUtils.assertConfiguration(configuration, false, "di", "ord", "insideline", "di-");
+        assertTrue(configuration.isResolved());
+        assertEquals(configuration.getWaitCount(), 1);
+        assertTrue(configuration.getWaitNanos() > 0);
+
+        assertEquals(connection.getInternalEnvironmentName(), "di");
+        assertEquals(connection.getInternalDataCenter(), "ord");
+
+        // No further waiting once resolved.
+        configuration.getSite();
+        assertEquals(configuration.getWaitCount(), 1);
+    }
+
+    @Test
+    public void backgroundResolutionFailureTest() throws Exception {
+        entries.remove("url-prefix.edmunds.com");
+        latch.countDown();
+        configurationFactory.afterPropertiesSet();
+
+        final EnvironmentConfiguration configuration = configurationFactory.getEnvironmentConfiguration();
+        try {
+            configuration.getEnvironmentName();
+            fail("Expected IllegalStateException");
+        } catch (IllegalStateException e) {
+            // No op
+        }
+    }
+
+    private void releaseLater(final long millis) {
+        new Thread() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(millis);
+                } catch (InterruptedException e) {
+                    // Release anyway.
+                }
+                latch.countDown();
+            }
+        }.start();
+    }
+}
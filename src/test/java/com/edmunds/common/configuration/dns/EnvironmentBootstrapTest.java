@@ -0,0 +1,186 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.dns;
+
+import com.edmunds.common.configuration.api.ConfigurationUtil;
+import com.edmunds.common.configuration.api.EnvironmentConfiguration;
+import com.edmunds.common.configuration.api.EnvironmentConnection;
+import com.edmunds.common.configuration.api.EnvironmentPropertyConfigurer;
+import com.edmunds.common.configuration.api.EnvironmentPropertyFactory;
+import com.edmunds.common.configuration.api.EnvironmentSnapshot;
+import org.apache.log4j.BasicConfigurator;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.config.ConstructorArgumentValues;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.beans.factory.xml.XmlBeanDefinitionReader;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.core.io.ClassPathResource;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.easymock.classextension.EasyMock.createMock;
+import static org.easymock.classextension.EasyMock.replay;
+import static org.easymock.classextension.EasyMock.verify;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+@Test(groups = {"DNSConfiguration"})
+public class EnvironmentBootstrapTest {
+
+    private ConfigurationEntryReader configurationEntryReader;
+
+    @BeforeClass
+    public void initLogging() {
+        BasicConfigurator.configure();
+        // Don't output debug.
+        Logger.getRootLogger().setLevel(Level.INFO);
+    }
+
+    @BeforeMethod
+    public void setup() {
+        configurationEntryReader = createMock("configurationEntryReader", ConfigurationEntryReader.class);
+        TestUtils.expectEnvironment(configurationEntryReader, null, "ti", "TI", "lax1", "insideline");
+        TestUtils.expectLogicalEnvironment(configurationEntryReader, "qa", "b");
+        replay(configurationEntryReader);
+    }
+
+    @Test
+    public void resolveTest() {
+        final EnvironmentBootstrap bootstrap = EnvironmentBootstrap.resolve(configurationEntryReader);
+
+        final EnvironmentConfiguration configuration = bootstrap.getEnvironmentConfiguration();
+        TestUtils.assertConfiguration(configuration, false, "ti", "lax1", "insideline", "ti-");
+        TestUtils.assertLogicalEnvironment(configuration, "qa", "b");
+        assertEquals(bootstrap.getEnvironmentConnection().getInternalEnvironmentName(), "ti");
+        assertEquals(bootstrap.getConfigurationUtil().replaceTokens(
+                "http://[URL_PREFIX]www.[LOCAL_ENVIRONMENT_SITE].com/"), "http://ti-www.insideline.com/");
+    }
+
+    @Test
+    public void captureTest() {
+        final EnvironmentSnapshot snapshot = EnvironmentBootstrap.capture(configurationEntryReader);
+
+        TestUtils.assertConfiguration(snapshot.toEnvironmentConfiguration(), false, "ti", "lax1", "insideline", "ti-");
+        TestUtils.assertLogicalEnvironment(snapshot.toEnvironmentConfiguration(), "qa", "b");
+        assertEquals(snapshot.toEnvironmentConnection().getInternalEnvironmentName(), "ti");
+        verify(configurationEntryReader);
+    }
+
+    @Test
+    public void explicitSpringConfigurationTest() {
+        final GenericApplicationContext context = new GenericApplicationContext();
+        new XmlBeanDefinitionReader(context).loadBeanDefinitions(
+                new ClassPathResource("configuration-common-spring-explicit.xml"));
+
+        // Replace the real reader with the mock.
+        context.removeBeanDefinition("configurationEntryReaderFactory");
+        context.getBeanFactory().registerSingleton("configurationEntryReaderFactory", configurationEntryReader);
+
+        final RootBeanDefinition property = new RootBeanDefinition(EnvironmentPropertyFactory.class);
+        property.getPropertyValues().addPropertyValue("local", "local");
+        property.getPropertyValues().addPropertyValue("managed", "[URL_PREFIX]www");
+        context.registerBeanDefinition("property", property);
+        context.refresh();
+
+        try {
+            final ConfigurationUtil configurationUtil = (ConfigurationUtil) context.getBean("configurationUtilImpl");
+            final EnvironmentConnection connection = (EnvironmentConnection) context.getBean("environmentConnection");
+
+            assertEquals(configurationUtil.getLegacyEnvironmentName(), "TI");
+            assertEquals(connection.getInternalEnvironmentName(), "ti");
+            assertEquals(context.getBean("property"), "ti-www");
+        } finally {
+            context.close();
+        }
+    }
+
+    @Test
+    public void scanningSpringConfigurationWithConfigurerTest() {
+        final GenericApplicationContext context = new GenericApplicationContext();
+        new XmlBeanDefinitionReader(context).loadBeanDefinitions(
+                new ClassPathResource("configuration-common-spring.xml"));
+
+        // Replace the real reader with the mock.
+        context.removeBeanDefinition("configurationEntryReaderFactory");
+        context.getBeanFactory().registerSingleton("configurationEntryReaderFactory", configurationEntryReader);
+
+        context.registerBeanDefinition("configurer", new RootBeanDefinition(EnvironmentPropertyConfigurer.class));
+
+        final RootBeanDefinition property = new RootBeanDefinition(EnvironmentPropertyFactory.class);
+        property.getPropertyValues().addPropertyValue("local", "local");
+        property.getPropertyValues().addPropertyValue("managed", "[URL_PREFIX]www");
+        context.registerBeanDefinition("property", property);
+
+        final RootBeanDefinition inline = new RootBeanDefinition(String.class);
+        inline.getConstructorArgumentValues().addIndexedArgumentValue(0, "[LOCAL_ENVIRONMENT_SITE].com");
+        context.registerBeanDefinition("inline", inline);
+        context.refresh();
+
+        try {
+            // Resolved in a single pass while the bean factory was post-processed, not deferred to the factory.
+            assertTrue(context.getBeanDefinition("property").getPropertyValues().contains("property"));
+            assertEquals(context.getBean("property"), "ti-www");
+            assertEquals(context.getBean("inline"), "insideline.com");
+        } finally {
+            context.close();
+        }
+    }
+
+    @Test
+    public void scanningSpringConfigurationWithScopedUtilTest() {
+        final GenericApplicationContext context = new GenericApplicationContext();
+        new XmlBeanDefinitionReader(context).loadBeanDefinitions(
+                new ClassPathResource("configuration-common-spring.xml"));
+
+        // Replace the real reader with the mock.
+        context.removeBeanDefinition("configurationEntryReaderFactory");
+        context.getBeanFactory().registerSingleton("configurationEntryReaderFactory", configurationEntryReader);
+
+        context.registerBeanDefinition("configurer", new RootBeanDefinition(EnvironmentPropertyConfigurer.class));
+
+        final RootBeanDefinition scoped = new RootBeanDefinition(ScopedConfigurationUtil.class);
+        scoped.setFactoryMethodName("forSite");
+        final ConstructorArgumentValues arguments = scoped.getConstructorArgumentValues();
+        arguments.addIndexedArgumentValue(0, new RuntimeBeanReference("configurationUtilImpl"));
+        arguments.addIndexedArgumentValue(1, "edmunds");
+        context.registerBeanDefinition("edmundsConfigurationUtil", scoped);
+
+        final RootBeanDefinition property = new RootBeanDefinition(EnvironmentPropertyFactory.class);
+        property.getPropertyValues().addPropertyValue("local", "local");
+        property.getPropertyValues().addPropertyValue("managed", "[LOCAL_ENVIRONMENT_SITE]");
+        context.registerBeanDefinition("property", property);
+        context.refresh();
+
+        try {
+            assertTrue(context.getBeanDefinition("property").getPropertyValues().contains("property"));
+            assertEquals(context.getBean("property"), "insideline");
+            assertEquals(((ConfigurationUtil) context.getBean("edmundsConfigurationUtil"))
+                    .replaceTokens("[LOCAL_ENVIRONMENT_SITE]"), "edmunds");
+        } finally {
+            context.close();
+        }
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        verify(configurationEntryReader);
+        configurationEntryReader = null;
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.dns;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decorator that injects latency, missing entries and failures into lookups.
+ * <p/>
+ * Faults are drawn from a seeded random sequence so that test runs are repeatable. All settings can be changed while
+ * lookups are in progress.
+ * <p/>
+ * Copyright (C) 2011 Edmunds.com
+ */
+public class FaultInjectingConfigurationEntryReader implements ConfigurationEntryReader {
+
+    private final ConfigurationEntryReader delegate;
+    private final Random random;
+    private final AtomicLong lookupCount = new AtomicLong();
+    private final AtomicLong faultCount = new AtomicLong();
+
+    private volatile long latencyMillis;
+    private volatile long jitterMillis;
+    private volatile double missingRate;
+    private volatile double failureRate;
+
+    /**
+     * Creates a reader that injects no faults until configured.
+     *
+     * @param delegate the reader that performs the lookups.
+     * @param seed     seed of the random fault sequence.
+     */
+    public FaultInjectingConfigurationEntryReader(ConfigurationEntryReader delegate, long seed) {
+        this.delegate = delegate;
+        this.random = new Random(seed);
+    }
+
+    @Override
+    public String getEntry(String entryName) {
+        lookupCount.incrementAndGet();
+
+        final double draw;
+        final long jitter;
+        synchronized (random) {
+            draw = random.nextDouble();
+            jitter = jitterMillis > 0 ? (long) (random.nextDouble() * jitterMillis) : 0L;
+        }
+
+        sleep(latencyMillis + jitter);
+
+        if (draw < failureRate) {
+            faultCount.incrementAndGet();
+            throw new IllegalStateException("Injected failure looking up: " + entryName);
+        }
+        if (draw < failureRate + missingRate) {
+            faultCount.incrementAndGet();
+            return null;
+        }
+        return delegate.getEntry(entryName);
+    }
+
+    private static void sleep(long millis) {
+        if (millis > 0) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Sets the fixed delay added to every lookup.
+     *
+     * @param latencyMillis the delay in milliseconds.
+     */
+    public void setLatencyMillis(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    /**
+     * Sets the maximum random delay added on top of the fixed latency.
+     *
+     * @param jitterMillis the maximum extra delay in milliseconds.
+     */
+    public void setJitterMillis(long jitterMillis) {
+        this.jitterMillis = jitterMillis;
+    }
+
+    /**
+     * Sets the fraction of lookups that return null without consulting the delegate.
+     *
+     * @param missingRate between 0 and 1.
+     */
+    public void setMissingRate(double missingRate) {
+        this.missingRate = missingRate;
+    }
+
+    /**
+     * Sets the fraction of lookups that throw an {@link IllegalStateException}.
+     *
+     * @param failureRate between 0 and 1.
+     */
+    public void setFailureRate(double failureRate) {
+        this.failureRate = failureRate;
+    }
+
+    public long getLookupCount() {
+        return lookupCount.get();
+    }
+
+    public long getFaultCount() {
+        return faultCount.get();
+    }
+}
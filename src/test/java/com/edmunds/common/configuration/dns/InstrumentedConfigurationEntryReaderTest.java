@@ -0,0 +1,76 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.dns;
+
+import com.edmunds.common.configuration.metrics.ConfigurationMetrics;
+import org.testng.annotations.Test;
+
+import java.util.Properties;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+
+@Test(groups = {"DNSConfiguration"})
+public class InstrumentedConfigurationEntryReaderTest {
+
+    @Test
+    public void getEntryTest() {
+        final ConfigurationEntryReader delegate = createMock("delegate", ConfigurationEntryReader.class);
+        expect(delegate.getEntry("environment-name.edmunds.com")).andReturn("di").times(2);
+        replay(delegate);
+
+        final ConfigurationMetrics metrics = ConfigurationMetrics.getInstance();
+        final InstrumentedConfigurationEntryReader reader = new InstrumentedConfigurationEntryReader(delegate, metrics);
+        final String prefix = "reader." + delegate.getClass().getSimpleName();
+        final long readerCount = metrics.timer(prefix + ".getEntry").getCount();
+        final long entryCount = metrics.timer(prefix + ".entry.environment-name.edmunds.com").getCount();
+        final long histogramCount =
+                metrics.histogram(prefix + ".entry.environment-name.edmunds.com").snapshot().getCount();
+
+        assertEquals(reader.getEntry("environment-name.edmunds.com"), "di");
+        assertEquals(reader.getEntry("environment-name.edmunds.com"), "di");
+
+        assertEquals(metrics.timer(prefix + ".getEntry").getCount(), readerCount + 2);
+        assertEquals(metrics.timer(prefix + ".entry.environment-name.edmunds.com").getCount(), entryCount + 2);
+        assertEquals(metrics.histogram(prefix + ".entry.environment-name.edmunds.com").snapshot().getCount(),
+                histogramCount + 2);
+        verify(delegate);
+    }
+
+    @Test
+    public void entryMetricsBoundedTest() {
+        final ConfigurationMetrics metrics = ConfigurationMetrics.getInstance();
+        final InstrumentedConfigurationEntryReader reader = new InstrumentedConfigurationEntryReader(
+                new PropertiesConfigurationEntryReader(new Properties()), metrics);
+        final String prefix = "reader.PropertiesConfigurationEntryReader.entry.";
+        final long otherCount = metrics.timer(prefix + "other").getCount();
+        final long otherHistogramCount = metrics.histogram(prefix + "other").snapshot().getCount();
+
+        for (int i = 0; i < InstrumentedConfigurationEntryReader.MAX_ENTRY_METRICS + 10; i++) {
+            reader.getEntry("bounded-" + i);
+        }
+
+        assertEquals(metrics.timer(prefix + "other").getCount(), otherCount + 10);
+        assertEquals(metrics.histogram(prefix + "other").snapshot().getCount(), otherHistogramCount + 10);
+        final String untracked = prefix + "bounded-" + InstrumentedConfigurationEntryReader.MAX_ENTRY_METRICS;
+        assertFalse(metrics.snapshot().containsKey(untracked + ".count"));
+        assertFalse(metrics.snapshot().containsKey(untracked + ".p50Nanos"));
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.dns;
+
+import com.edmunds.common.configuration.api.EnvironmentConfiguration;
+import com.edmunds.common.configuration.api.EnvironmentConnection;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+@Test(groups = {"DNSConfiguration"})
+public class ResolvedConfigurationMapTest {
+
+    private EnvironmentConfiguration configuration;
+    private ConfigurationUtilImpl configurationUtil;
+    private Map<String, String> entries;
+    private AtomicInteger reads;
+    private ConfigurationEntryReader reader;
+
+    @BeforeMethod
+    public void setup() {
+        configuration = new EnvironmentConfiguration();
+        configuration.setLocalEnvironment(false);
+        configuration.setEnvironmentName("qa-2");
+        configuration.setUrlPrefix("qa-2-");
+        configurationUtil = new ConfigurationUtilImpl(configuration, new EnvironmentConnection());
+
+        entries = new HashMap<String, String>();
+        entries.put("search-url", "http://[URL_PREFIX]search.edmunds.com/");
+        entries.put("pool-size", "10");
+        reads = new AtomicInteger();
+        reader = new ConfigurationEntryReader() {
+            @Override
+            public String getEntry(String entryName) {
+                reads.incrementAndGet();
+                return entries.get(entryName);
+            }
+        };
+    }
+
+    @Test
+    public void lazyTest() {
+        final ResolvedConfigurationMap map = new ResolvedConfigurationMap(
+                reader, configurationUtil, Arrays.asList("search-url", "pool-size", "missing"));
+        assertEquals(reads.get(), 0);
+
+        assertEquals(map.get("search-url"), "http://qa-2-search.edmunds.com/");
+        assertEquals(map.get("search-url"), "http://qa-2-search.edmunds.com/");
+        assertEquals(reads.get(), 1);
+
+        assertNull(map.get("missing"));
+        assertNull(map.get("missing"));
+        assertFalse(map.containsKey("missing"));
+        assertEquals(reads.get(), 2);
+
+        assertEquals(map.size(), 2);
+        assertEquals(reads.get(), 3);
+        assertEquals(new ArrayList<String>(map.keySet()), Arrays.asList("search-url", "pool-size"));
+    }
+
+    @Test
+    public void snapshotChangeTest() {
+        final ResolvedConfigurationMap map = new ResolvedConfigurationMap(
+                reader, configurationUtil, Collections.singleton("search-url"));
+        assertEquals(map.get("search-url"), "http://qa-2-search.edmunds.com/");
+
+        configuration.setUrlPrefix("qa-3-");
+        assertEquals(map.get("search-url"), "http://qa-3-search.edmunds.com/");
+        assertEquals(reads.get(), 2);
+    }
+
+    @Test
+    public void propertiesTest() {
+        final Properties properties = new ResolvedConfigurationMap(
+                reader, configurationUtil, Arrays.asList("search-url", "pool-size")).toProperties();
+
+        assertEquals(properties.getProperty("pool-size"), "10");
+        assertEquals(properties.getProperty("missing", "default"), "default");
+        assertTrue(properties.containsKey("search-url"));
+        assertEquals(properties.stringPropertyNames().size(), 2);
+        assertEquals(properties.size(), 2);
+    }
+
+    @Test(expectedExceptions = UnsupportedOperationException.class)
+    public void propertiesReadOnlyTest() {
+        new ResolvedConfigurationMap(reader, configurationUtil, Collections.<String>emptySet())
+                .toProperties().setProperty("pool-size", "20");
+    }
+
+    @Test
+    public void cacheBoundedTest() {
+        final ResolvedConfigurationMap map = new ResolvedConfigurationMap(
+                reader, configurationUtil, Collections.singleton("pool-size"));
+        for (int i = 0; i < ResolvedConfigurationMap.MAX_CACHED_VALUES; i++) {
+            assertNull(map.get("missing-" + i));
+        }
+        reads.set(0);
+
+        assertNull(map.get("missing"));
+        assertNull(map.get("missing"));
+        assertEquals(reads.get(), 2);
+
+        assertEquals(map.get("pool-size"), "10");
+        assertEquals(map.get("pool-size"), "10");
+        assertEquals(reads.get(), 3);
+    }
+
+    @Test(expectedExceptions = UnsupportedOperationException.class)
+    public void mapReadOnlyTest() {
+        new ResolvedConfigurationMap(reader, configurationUtil, Collections.<String>emptySet()).put("a", "b");
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.dns;
+
+import com.edmunds.common.configuration.api.ConditionalPropertyFactory;
+import com.edmunds.common.configuration.api.ConfigurationUtil;
+import com.edmunds.common.configuration.api.EnvironmentConfiguration;
+import com.edmunds.common.configuration.api.EnvironmentConnection;
+import com.edmunds.common.configuration.api.EnvironmentSnapshot;
+import com.edmunds.common.configuration.token.EnvironmentToken;
+import com.edmunds.common.configuration.token.TokenVariables;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Collections;
+
+import static org.easymock.classextension.EasyMock.createMock;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+
+@Test(groups = {"DNSConfiguration"})
+public class ScopedConfigurationUtilTest {
+
+    private EnvironmentConfiguration configuration;
+    private ConfigurationUtilImpl configurationUtil;
+
+    @BeforeMethod
+    public void setup() {
+        configuration = new EnvironmentConfiguration();
+        configuration.setLocalEnvironment(false);
+        configuration.setEnvironmentName("dev-epe3");
+        configuration.setDataCenter("lax1");
+        configuration.setSite("edmunds");
+        configuration.setUrlPrefix("dev-epe3-");
+        configurationUtil = new ConfigurationUtilImpl(configuration, new EnvironmentConnection());
+    }
+
+    @Test
+    public void forSiteTest() {
+        final ScopedConfigurationUtil insideline = configurationUtil.forSite("insideline");
+        final String value = "http://[URL_PREFIX]www.[LOCAL_ENVIRONMENT_SITE].com/";
+
+        assertEquals(insideline.replaceTokens(value), "http://dev-epe3-www.insideline.com/");
+        assertEquals(configurationUtil.replaceTokens(value), "http://dev-epe3-www.edmunds.com/");
+        assertEquals(insideline.replacePropertyTokens("local", value), "http://dev-epe3-www.insideline.com/");
+        assertEquals(insideline.getLegacyEnvironmentName(), "DEV-EPE3");
+    }
+
+    @Test
+    public void tableReusedTest() {
+        final ScopedConfigurationUtil insideline = configurationUtil.forSite("insideline");
+        assertSame(insideline.getTokenTable(), insideline.getTokenTable());
+        assertEquals(insideline.getTokenTable().get(EnvironmentToken.URL_PREFIX), "dev-epe3-");
+    }
+
+    @Test
+    public void baseChangedTest() {
+        final ScopedConfigurationUtil insideline = configurationUtil.forSite("insideline");
+        assertEquals(insideline.replaceTokens("[URL_PREFIX]"), "dev-epe3-");
+
+        configuration.setUrlPrefix("qa-");
+        assertEquals(insideline.replaceTokens("[URL_PREFIX][LOCAL_ENVIRONMENT_SITE]"), "qa-insideline");
+    }
+
+    @Test
+    public void scopedSnapshotTest() {
+        final ScopedConfigurationUtil insideline = configurationUtil.forSite("insideline");
+        final EnvironmentSnapshot snapshot = insideline.getEnvironmentSnapshot();
+
+        assertEquals(snapshot.getSite(), "insideline");
+        assertEquals(snapshot.getUrlPrefix(), "dev-epe3-");
+        assertSame(insideline.getEnvironmentSnapshot(), snapshot);
+        assertEquals(configurationUtil.getEnvironmentSnapshot().getSite(), "edmunds");
+
+        configuration.setUrlPrefix("qa-");
+        final EnvironmentSnapshot changed = insideline.getEnvironmentSnapshot();
+        assertNotSame(changed, snapshot);
+        assertEquals(changed.getSite(), "insideline");
+        assertEquals(changed.getUrlPrefix(), "qa-");
+    }
+
+    @Test
+    public void scopedRulesTest() {
+        final ScopedConfigurationUtil insideline = configurationUtil.forSite("insideline");
+        final ConditionalPropertyFactory factory = new ConditionalPropertyFactory(insideline);
+        factory.setRules("site=insideline -> http://[URL_PREFIX]www.insideline.com/\n* -> http://localhost/");
+
+        assertEquals(factory.getProperty(), "http://dev-epe3-www.insideline.com/");
+    }
+
+    @Test
+    public void derivedTokensTest() {
+        final ScopedConfigurationUtil scoped = configurationUtil.withOverrides(
+                Collections.singletonMap(EnvironmentToken.URL_PREFIX, "qa-"));
+        assertEquals(scoped.replaceTokens("[URL_PREFIX]|[URL_PREFIX_NODASH]"), "qa-|qa");
+
+        final ScopedConfigurationUtil prod = configurationUtil.withOverrides(
+                Collections.singletonMap(EnvironmentToken.LOCAL_ENVIRONMENT_NAME, "prod"));
+        assertEquals(prod.replaceTokens("_ENVIRONMENT_NAME_"), prod.getLegacyEnvironmentName());
+        assertEquals(prod.getLegacyEnvironmentName(), "LAX1-PROD");
+        assertEquals(prod.getEnvironmentSnapshot().getEnvironmentName(), "prod");
+    }
+
+    @Test
+    public void nestedOverridesTest() {
+        final ScopedConfigurationUtil scoped = configurationUtil.forSite("insideline")
+                .withOverrides(Collections.singletonMap(EnvironmentToken.ENVIRONMENT_NAME, "QA-1"));
+
+        assertEquals(scoped.replaceTokens("_ENVIRONMENT_NAME_.[LOCAL_ENVIRONMENT_SITE]"), "QA-1.insideline");
+        assertEquals(scoped.getLegacyEnvironmentName(), "QA-1");
+        assertEquals(scoped.getOverrides().size(), 2);
+    }
+
+    @Test
+    public void localModeTest() {
+        configuration.setLocalEnvironment(true);
+        assertEquals(configurationUtil.forSite("insideline").replacePropertyTokens("local", "managed"), "local");
+    }
+
+    @Test
+    public void replaceTokensVariablesTest() {
+        final TokenVariables variables = TokenVariables.of("[TENANT]");
+        final String value = "[LOCAL_ENVIRONMENT_SITE]/[TENANT]";
+
+        assertEquals(configurationUtil.replaceTokens(value, variables, "acme"), "edmunds/acme");
+        assertEquals(configurationUtil.forSite("insideline").replaceTokens(value, variables, "acme"),
+                "insideline/acme");
+        assertNull(configurationUtil.replaceTokens(null, variables, "acme"));
+    }
+
+    @Test
+    public void staticFactoryTest() {
+        final ConfigurationUtil util = configurationUtil;
+        final ScopedConfigurationUtil scoped = ScopedConfigurationUtil.forSite(
+                ScopedConfigurationUtil.forSite(util, "insideline"), "carspace");
+
+        assertEquals(scoped.replaceTokens("[LOCAL_ENVIRONMENT_SITE]"), "carspace");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void unsupportedBaseTest() {
+        ScopedConfigurationUtil.forSite(createMock(ConfigurationUtil.class), "insideline");
+    }
+}
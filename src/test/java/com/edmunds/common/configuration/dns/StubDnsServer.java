@@ -0,0 +1,506 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.dns;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.BindException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Minimal DNS server that answers TXT queries on the loopback interface, over both UDP and TCP.
+ * <p/>
+ * Intended for tests and benchmarks of {@link DNSConfigurationEntryReader}, point the reader at
+ * {@link #getProviderUrl()}. Faults can be injected at any time:
+ * <ul>
+ * <li>{@link #setLatencyMillis(long)} delays every response.
+ * <li>{@link #setLossRate(double)} drops a fraction of UDP responses, so the client has to retry.
+ * <li>{@link #setTruncateUdp(boolean)} answers UDP queries with the truncated flag set and no records, so the client
+ * has to retry over TCP. Responses larger than 512 bytes are always truncated over UDP.
+ * <li>{@link #setResponseCode(int)} answers every query with the given response code, e.g. {@link #SERVFAIL}.
+ * </ul>
+ * Names without records are answered with {@link #NXDOMAIN}.
+ * <p/>
+ * Copyright (C) 2011 Edmunds.com
+ */
+public class StubDnsServer {
+
+    public static final int NOERROR = 0;
+    public static final int SERVFAIL = 2;
+    public static final int NXDOMAIN = 3;
+
+    private static final int TYPE_TXT = 16;
+    private static final int TYPE_ANY = 255;
+    private static final int CLASS_IN = 1;
+    private static final int HEADER_LENGTH = 12;
+    private static final int MAX_UDP_LENGTH = 512;
+    private static final int MAX_STRING_LENGTH = 255;
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+
+    private final ConcurrentMap<String, List<List<String>>> records = new ConcurrentHashMap<String, List<List<String>>>();
+    private final Random random;
+
+    private final AtomicLong udpQueries = new AtomicLong();
+    private final AtomicLong tcpQueries = new AtomicLong();
+    private final AtomicLong droppedResponses = new AtomicLong();
+    private final AtomicLong truncatedResponses = new AtomicLong();
+
+    private volatile long latencyMillis;
+    private volatile double lossRate;
+    private volatile boolean truncateUdp;
+    private volatile int responseCode = -1;
+
+    private volatile boolean running;
+    private DatagramSocket udpSocket;
+    private ServerSocket tcpSocket;
+    private ScheduledExecutorService responder;
+
+    /**
+     * Creates a server whose packet loss is random.
+     */
+    public StubDnsServer() {
+        this(new Random());
+    }
+
+    /**
+     * Creates a server whose packet loss follows the given random sequence.
+     *
+     * @param random the source of packet loss decisions.
+     */
+    public StubDnsServer(Random random) {
+        this.random = random;
+    }
+
+    /**
+     * Binds the UDP and TCP sockets to the same free port on the loopback interface and starts answering.
+     *
+     * @throws IOException if no port can be bound.
+     */
+    public synchronized void start() throws IOException {
+        if (running) {
+            return;
+        }
+
+        final InetAddress loopback = InetAddress.getByName("127.0.0.1");
+        tcpSocket = null;
+        for (int attempt = 0; tcpSocket == null; attempt++) {
+            udpSocket = new DatagramSocket(new InetSocketAddress(loopback, 0));
+            try {
+                tcpSocket = new ServerSocket(udpSocket.getLocalPort(), 50, loopback);
+            } catch (BindException e) {
+                udpSocket.close();
+                if (attempt == 10) {
+                    throw e;
+                }
+            }
+        }
+
+        responder = Executors.newScheduledThreadPool(4, daemonThreads("stub-dns-responder"));
+        running = true;
+        daemonThreads("stub-dns-udp").newThread(new Runnable() {
+            @Override
+            public void run() {
+                serveUdp();
+            }
+        }).start();
+        daemonThreads("stub-dns-tcp").newThread(new Runnable() {
+            @Override
+            public void run() {
+                serveTcp();
+            }
+        }).start();
+    }
+
+    /**
+     * Stops answering and closes the sockets.
+     */
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        udpSocket.close();
+        try {
+            tcpSocket.close();
+        } catch (IOException e) {
+            // Already closed.
+        }
+        responder.shutdownNow();
+    }
+
+    /**
+     * Returns the port the server listens on, for both UDP and TCP.
+     *
+     * @return the port.
+     */
+    public int getPort() {
+        return udpSocket.getLocalPort();
+    }
+
+    /**
+     * Returns the JNDI provider URL of this server.
+     *
+     * @return the URL, e.g. {@code dns://127.0.0.1:53535}.
+     */
+    public String getProviderUrl() {
+        return "dns://127.0.0.1:" + getPort();
+    }
+
+    /**
+     * Sets the TXT value of a name, replacing any existing records.
+     * <p/>
+     * Values longer than 255 characters are split into several character strings, as a DNS server would.
+     *
+     * @param name  the DNS name, e.g. {@code environment-name.edmunds.com}.
+     * @param value the value.
+     */
+    public void setTxtValue(String name, String value) {
+        final List<String> strings = new ArrayList<String>();
+        for (int i = 0; i < value.length(); i += MAX_STRING_LENGTH) {
+            strings.add(value.substring(i, Math.min(value.length(), i + MAX_STRING_LENGTH)));
+        }
+        if (strings.isEmpty()) {
+            strings.add("");
+        }
+        records.put(key(name), Collections.singletonList(strings));
+    }
+
+    /**
+     * Adds a TXT record made of the given character strings to a name.
+     *
+     * @param name    the DNS name.
+     * @param strings the character strings of the record, each at most 255 characters.
+     */
+    public synchronized void addTxtRecord(String name, String... strings) {
+        for (String string : strings) {
+            if (string.length() > MAX_STRING_LENGTH) {
+                throw new IllegalArgumentException("TXT strings are limited to 255 characters: " + string);
+            }
+        }
+
+        final List<List<String>> existing = records.get(key(name));
+        final List<List<String>> updated = existing == null
+                ? new ArrayList<List<String>>() : new ArrayList<List<String>>(existing);
+        updated.add(Arrays.asList(strings.clone()));
+        records.put(key(name), updated);
+    }
+
+    /**
+     * Removes all records of a name, so it is answered with {@link #NXDOMAIN}.
+     *
+     * @param name the DNS name.
+     */
+    public void removeRecords(String name) {
+        records.remove(key(name));
+    }
+
+    /**
+     * Removes all records.
+     */
+    public void clearRecords() {
+        records.clear();
+    }
+
+    public void setLatencyMillis(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    /**
+     * Sets the fraction of UDP responses that are dropped.
+     *
+     * @param lossRate between 0 (default) and 1.
+     */
+    public void setLossRate(double lossRate) {
+        this.lossRate = lossRate;
+    }
+
+    /**
+     * Sets if every UDP response should be truncated, forcing the client to retry over TCP.
+     *
+     * @param truncateUdp true to truncate.
+     */
+    public void setTruncateUdp(boolean truncateUdp) {
+        this.truncateUdp = truncateUdp;
+    }
+
+    /**
+     * Sets the response code for every query.
+     *
+     * @param responseCode the response code, negative (default) to answer normally.
+     */
+    public void setResponseCode(int responseCode) {
+        this.responseCode = responseCode;
+    }
+
+    public long getUdpQueryCount() {
+        return udpQueries.get();
+    }
+
+    public long getTcpQueryCount() {
+        return tcpQueries.get();
+    }
+
+    public long getDroppedResponseCount() {
+        return droppedResponses.get();
+    }
+
+    public long getTruncatedResponseCount() {
+        return truncatedResponses.get();
+    }
+
+    private void serveUdp() {
+        final byte[] buffer = new byte[MAX_UDP_LENGTH];
+        while (running) {
+            final DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+            try {
+                udpSocket.receive(packet);
+            } catch (IOException e) {
+                // Closed by stop().
+                continue;
+            }
+            udpQueries.incrementAndGet();
+
+            final byte[] query = Arrays.copyOf(packet.getData(), packet.getLength());
+            final InetSocketAddress client = (InetSocketAddress) packet.getSocketAddress();
+            if (drop()) {
+                droppedResponses.incrementAndGet();
+                continue;
+            }
+
+            respond(new Runnable() {
+                @Override
+                public void run() {
+                    final byte[] response = answer(query, true);
+                    if (response != null) {
+                        try {
+                            udpSocket.send(new DatagramPacket(response, response.length, client));
+                        } catch (IOException e) {
+                            // Client gone or server stopped.
+                        }
+                    }
+                }
+            });
+        }
+    }
+
+    private void serveTcp() {
+        while (running) {
+            final Socket socket;
+            try {
+                socket = tcpSocket.accept();
+            } catch (IOException e) {
+                // Closed by stop().
+                continue;
+            }
+
+            respond(new Runnable() {
+                @Override
+                public void run() {
+                    serveConnection(socket);
+                }
+            });
+        }
+    }
+
+    private void serveConnection(Socket socket) {
+        try {
+            final DataInputStream in = new DataInputStream(socket.getInputStream());
+            final DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            while (running) {
+                final byte[] query = new byte[in.readUnsignedShort()];
+                in.readFully(query);
+                tcpQueries.incrementAndGet();
+
+                final byte[] response = answer(query, false);
+                if (response == null) {
+                    break;
+                }
+                out.writeShort(response.length);
+                out.write(response);
+                out.flush();
+            }
+        } catch (EOFException e) {
+            // Client closed the connection.
+        } catch (SocketException e) {
+            // Client closed the connection.
+        } catch (IOException e) {
+            // Malformed query.
+        } finally {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Ignore.
+            }
+        }
+    }
+
+    private void respond(Runnable response) {
+        try {
+            final long latency = latencyMillis;
+            if (latency > 0) {
+                responder.schedule(response, latency, TimeUnit.MILLISECONDS);
+            } else {
+                responder.execute(response);
+            }
+        } catch (RuntimeException e) {
+            // Rejected after stop().
+        }
+    }
+
+    private boolean drop() {
+        final double rate = lossRate;
+        if (rate <= 0.0) {
+            return false;
+        }
+        synchronized (random) {
+            return random.nextDouble() < rate;
+        }
+    }
+
+    /**
+     * Builds the response to a query, null if the query cannot be parsed.
+     */
+    byte[] answer(byte[] query, boolean udp) {
+        if (query.length < HEADER_LENGTH) {
+            return null;
+        }
+
+        // Question name, type and class.
+        final StringBuilder name = new StringBuilder();
+        int offset = HEADER_LENGTH;
+        while (offset < query.length && query[offset] != 0) {
+            final int length = query[offset] & 0xff;
+            if (name.length() > 0) {
+                name.append('.');
+            }
+            name.append(new String(query, offset + 1, length, ASCII));
+            offset += length + 1;
+        }
+        offset++;
+        if (offset + 4 > query.length) {
+            return null;
+        }
+        final int type = readShort(query, offset);
+        final int questionClass = readShort(query, offset + 2);
+        final int questionEnd = offset + 4;
+
+        final List<List<String>> answers = records.get(key(name.toString()));
+        int rcode = responseCode;
+        if (rcode < 0) {
+            rcode = answers == null ? NXDOMAIN : NOERROR;
+        }
+        final boolean matches =
+                rcode == NOERROR && answers != null && (type == TYPE_TXT || type == TYPE_ANY) && questionClass == CLASS_IN;
+
+        byte[] response = encode(query, questionEnd, rcode, matches ? answers : null, false);
+        if (udp && (truncateUdp || response.length > MAX_UDP_LENGTH)) {
+            truncatedResponses.incrementAndGet();
+            response = encode(query, questionEnd, rcode, null, true);
+        }
+        return response;
+    }
+
+    private static byte[] encode(
+            byte[] query, int questionEnd, int rcode, List<List<String>> answers, boolean truncated) {
+
+        final ByteArrayOutputStream buffer = new ByteArrayOutputStream(MAX_UDP_LENGTH);
+        final DataOutputStream out = new DataOutputStream(buffer);
+        final int queryFlags = readShort(query, 2);
+
+        try {
+            int flags = 0x8000 | (queryFlags & 0x7800) | 0x0400 | (queryFlags & 0x0100) | 0x0080 | (rcode & 0xf);
+            if (truncated) {
+                flags |= 0x0200;
+            }
+
+            out.writeShort(readShort(query, 0));
+            out.writeShort(flags);
+            out.writeShort(1);
+            out.writeShort(answers == null ? 0 : answers.size());
+            out.writeShort(0);
+            out.writeShort(0);
+            out.write(query, HEADER_LENGTH, questionEnd - HEADER_LENGTH);
+
+            if (answers != null) {
+                for (List<String> record : answers) {
+                    final ByteArrayOutputStream data = new ByteArrayOutputStream();
+                    for (String string : record) {
+                        final byte[] bytes = string.getBytes(ASCII);
+                        data.write(bytes.length);
+                        data.write(bytes, 0, bytes.length);
+                    }
+
+                    // Pointer to the question name.
+                    out.writeShort(0xc000 | HEADER_LENGTH);
+                    out.writeShort(TYPE_TXT);
+                    out.writeShort(CLASS_IN);
+                    out.writeInt(0);
+                    out.writeShort(data.size());
+                    data.writeTo(out);
+                }
+            }
+            out.flush();
+        } catch (IOException e) {
+            // ByteArrayOutputStream does not throw.
+            throw new IllegalStateException(e);
+        }
+        return buffer.toByteArray();
+    }
+
+    private static int readShort(byte[] bytes, int offset) {
+        return ((bytes[offset] & 0xff) << 8) | (bytes[offset + 1] & 0xff);
+    }
+
+    private static String key(String name) {
+        final String lower = name.toLowerCase();
+        return lower.endsWith(".") ? lower.substring(0, lower.length() - 1) : lower;
+    }
+
+    private static ThreadFactory daemonThreads(final String name) {
+        return new ThreadFactory() {
+            private final AtomicLong count = new AtomicLong();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                final Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+}
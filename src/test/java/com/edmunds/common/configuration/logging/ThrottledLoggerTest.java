@@ -0,0 +1,146 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.logging;
+
+import org.apache.log4j.AppenderSkeleton;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.spi.LoggingEvent;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+
+@Test(groups = {"Logging"})
+public class ThrottledLoggerTest {
+
+    private Logger logger;
+    private List<String> messages;
+    private List<Throwable> throwables;
+
+    @BeforeMethod
+    public void setup() {
+        messages = new ArrayList<String>();
+        throwables = new ArrayList<Throwable>();
+        logger = Logger.getLogger(ThrottledLoggerTest.class.getName() + "." + System.nanoTime());
+        logger.setAdditivity(false);
+        logger.setLevel(Level.WARN);
+        logger.addAppender(new AppenderSkeleton() {
+            @Override
+            protected void append(LoggingEvent event) {
+                messages.add(event.getRenderedMessage());
+                throwables.add(event.getThrowableInformation() == null
+                        ? null : event.getThrowableInformation().getThrowable());
+            }
+
+            @Override
+            public void close() {
+            }
+
+            @Override
+            public boolean requiresLayout() {
+                return false;
+            }
+        });
+    }
+
+    @Test
+    public void suppressTest() {
+        final ThrottledLogger throttled = new ThrottledLogger(logger, 60000L);
+
+        for (int i = 0; i < 5; i++) {
+            throttled.warn("a", "Missing %s", "a");
+        }
+        throttled.warn("b", "Missing %s", "b");
+
+        assertEquals(messages.size(), 2);
+        assertEquals(messages.get(0), "Missing a");
+        assertEquals(messages.get(1), "Missing b");
+        assertEquals(throttled.getSuppressedCount("a"), 4);
+        assertEquals(throttled.getSuppressedCount("b"), 0);
+    }
+
+    @Test
+    public void throwableTest() {
+        final ThrottledLogger throttled = new ThrottledLogger(logger, 60000L);
+        final IllegalStateException exception = new IllegalStateException("lookup failed");
+
+        throttled.warn("a", exception, "Missing %s", "a");
+        throttled.warn("a", exception, "Missing %s", "a");
+
+        assertEquals(messages.size(), 1);
+        assertEquals(messages.get(0), "Missing a");
+        assertSame(throwables.get(0), exception);
+    }
+
+    @Test
+    public void windowTest() {
+        final ThrottledLogger throttled = new ThrottledLogger(logger, 0L);
+
+        throttled.warn("a", "first");
+        throttled.warn("a", "second");
+
+        assertEquals(messages.size(), 2);
+        assertEquals(throttled.getSuppressedCount("a"), 0);
+    }
+
+    @Test
+    public void suppressedCountReportedTest() throws InterruptedException {
+        final ThrottledLogger throttled = new ThrottledLogger(logger, 20L);
+
+        throttled.warn("a", "first");
+        throttled.warn("a", "second");
+        throttled.warn("a", "third");
+        Thread.sleep(50L);
+        throttled.warn("a", "fourth %s", 4);
+
+        assertEquals(messages.size(), 2);
+        assertEquals(messages.get(1), "fourth 4 (2 similar messages suppressed)");
+    }
+
+    @Test
+    public void disabledLevelTest() {
+        logger.setLevel(Level.ERROR);
+        final ThrottledLogger throttled = new ThrottledLogger(logger);
+
+        throttled.warn("a", "not formatted %s %s", new Object() {
+            @Override
+            public String toString() {
+                throw new AssertionError("message should not be formatted");
+            }
+        }, null);
+        throttled.error(null, "error %s", "x");
+
+        assertEquals(messages.size(), 1);
+        assertEquals(messages.get(0), "error x");
+        assertEquals(throttled.getSuppressedCount("a"), 0);
+    }
+
+    @Test
+    public void maxKeysTest() {
+        final ThrottledLogger throttled = new ThrottledLogger(logger, 60000L);
+
+        for (int i = 0; i < ThrottledLogger.MAX_KEYS + 10; i++) {
+            throttled.warn(i, "key %s", i);
+        }
+
+        assertEquals(messages.size(), ThrottledLogger.MAX_KEYS + 1);
+    }
+}
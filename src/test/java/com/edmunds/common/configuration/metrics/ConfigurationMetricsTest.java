@@ -0,0 +1,113 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.metrics;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import java.util.SortedMap;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+@Test(groups = {"Metrics"})
+public class ConfigurationMetricsTest {
+
+    private ConfigurationMetrics metrics;
+
+    @BeforeMethod
+    public void setup() {
+        metrics = new ConfigurationMetrics();
+    }
+
+    @Test
+    public void timerTest() {
+        final Timer timer = metrics.timer("test.timer");
+        assertSame(metrics.timer("test.timer"), timer);
+
+        timer.record(10);
+        timer.record(30);
+        timer.record(20);
+
+        assertEquals(timer.getCount(), 3);
+        assertEquals(timer.getTotalNanos(), 60);
+        assertEquals(timer.getMaxNanos(), 30);
+    }
+
+    @Test
+    public void disabledTest() {
+        final Timer timer = metrics.timer("test.timer");
+        final StripedCounter counter = metrics.counter("test.counter");
+        metrics.setEnabled(false);
+
+        timer.record(10);
+        metrics.increment(counter);
+
+        assertEquals(timer.getCount(), 0);
+        assertEquals(counter.sum(), 0);
+    }
+
+    @Test
+    public void snapshotTest() {
+        metrics.timer("test.timer").record(5);
+        metrics.increment(metrics.counter("test.counter"));
+
+        final SortedMap<String, Long> snapshot = metrics.snapshot();
+        assertEquals(snapshot.get("test.counter"), Long.valueOf(1));
+        assertEquals(snapshot.get("test.timer.count"), Long.valueOf(1));
+        assertEquals(snapshot.get("test.timer.totalNanos"), Long.valueOf(5));
+        assertEquals(snapshot.get("test.timer.maxNanos"), Long.valueOf(5));
+
+        metrics.reset();
+        assertEquals(metrics.snapshot().get("test.timer.count"), Long.valueOf(0));
+    }
+
+    @Test
+    public void exportTest() {
+        final SortedMap<?, ?>[] exported = new SortedMap<?, ?>[1];
+        metrics.increment(metrics.counter("test.counter"));
+        metrics.addExporter(new MetricsExporter() {
+            @Override
+            public void export(SortedMap<String, Long> values) {
+                exported[0] = values;
+            }
+        });
+
+        metrics.export();
+        assertEquals(exported[0].get("test.counter"), Long.valueOf(1));
+    }
+
+    @Test
+    public void mbeanTest() throws Exception {
+        final MBeanServer server = MBeanServerFactory.newMBeanServer();
+        metrics.increment(metrics.counter("test.counter"));
+
+        final ObjectName name = metrics.registerMBean(server);
+        assertTrue(server.isRegistered(name));
+        assertEquals(server.getAttribute(name, "test.counter"), Long.valueOf(1));
+        assertEquals(server.getMBeanInfo(name).getAttributes().length, 1);
+
+        server.invoke(name, "reset", new Object[0], new String[0]);
+        assertEquals(server.getAttribute(name, "test.counter"), Long.valueOf(0));
+
+        // Registering again is a no-op.
+        metrics.registerMBean(server);
+    }
+}
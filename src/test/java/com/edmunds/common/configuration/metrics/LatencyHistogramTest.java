@@ -0,0 +1,148 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.metrics;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+@Test(groups = {"Metrics"})
+public class LatencyHistogramTest {
+
+    @Test
+    public void bucketIndexTest() {
+        int previous = -1;
+        for (long value = 0; value < 100000; value++) {
+            final int index = LatencyHistogram.bucketIndex(value);
+            assertTrue(index == previous || index == previous + 1, "value " + value);
+            assertTrue(LatencyHistogram.lowestValue(index) <= value);
+            assertTrue(LatencyHistogram.highestValue(index) >= value);
+            previous = index;
+        }
+        assertEquals(LatencyHistogram.bucketIndex(Long.MAX_VALUE), LatencyHistogram.BUCKETS - 1);
+        assertEquals(LatencyHistogram.highestValue(LatencyHistogram.BUCKETS - 1), Long.MAX_VALUE);
+    }
+
+    @Test
+    public void precisionTest() {
+        for (long value = 1; value > 0 && value < Long.MAX_VALUE / 3; value = value * 3 + 1) {
+            final int index = LatencyHistogram.bucketIndex(value);
+            final long width = LatencyHistogram.highestValue(index) - LatencyHistogram.lowestValue(index);
+            assertTrue(width <= value / 16, "value " + value + " width " + width);
+        }
+    }
+
+    @Test
+    public void percentileTest() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 1000; value++) {
+            histogram.record(value * 1000L);
+        }
+
+        final HistogramSnapshot snapshot = histogram.snapshot();
+        assertEquals(snapshot.getCount(), 1000);
+        assertEquals(snapshot.getMax(), 1000000L);
+        assertWithin(snapshot.getValueAtPercentile(50.0), 500000L);
+        assertWithin(snapshot.getValueAtPercentile(99.0), 990000L);
+        assertWithin(snapshot.getValueAtPercentile(99.9), 999000L);
+        assertEquals(snapshot.getValueAtPercentile(100.0), 1000000L);
+        assertWithin((long) snapshot.getMean(), 500500L);
+    }
+
+    @Test
+    public void emptyTest() {
+        final HistogramSnapshot snapshot = new LatencyHistogram().snapshot();
+        assertEquals(snapshot.getCount(), 0);
+        assertEquals(snapshot.getMax(), 0);
+        assertEquals(snapshot.getValueAtPercentile(99.0), 0);
+        assertEquals(snapshot.getMean(), 0.0);
+    }
+
+    @Test
+    public void intervalSnapshotTest() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(100);
+        histogram.record(200);
+        assertEquals(histogram.intervalSnapshot().getCount(), 2);
+
+        histogram.record(5000);
+        final HistogramSnapshot interval = histogram.intervalSnapshot();
+        assertEquals(interval.getCount(), 1);
+        assertWithin(interval.getValueAtPercentile(50.0), 5000L);
+        assertEquals(histogram.snapshot().getCount(), 3);
+
+        assertEquals(histogram.intervalSnapshot().getCount(), 0);
+
+        histogram.reset();
+        assertEquals(histogram.snapshot().getCount(), 0);
+    }
+
+    @Test
+    public void mergeTest() {
+        final LatencyHistogram first = new LatencyHistogram();
+        final LatencyHistogram second = new LatencyHistogram();
+        first.record(10);
+        second.record(10);
+        second.record(9000);
+
+        final HistogramSnapshot merged = first.snapshot().merge(second.snapshot());
+        assertEquals(merged.getCount(), 3);
+        assertEquals(merged.getMax(), 9000L);
+        assertEquals(merged.getValueAtPercentile(50.0), 10L);
+    }
+
+    @Test
+    public void disabledTest() {
+        final ConfigurationMetrics metrics = new ConfigurationMetrics();
+        final LatencyHistogram histogram = metrics.histogram("test");
+        metrics.setEnabled(false);
+        histogram.record(100);
+        assertEquals(histogram.snapshot().getCount(), 0);
+
+        metrics.setEnabled(true);
+        histogram.record(100);
+        assertEquals(metrics.snapshot().get("test.p99Nanos").longValue(), 100L);
+    }
+
+    @Test
+    public void concurrentRecordTest() throws InterruptedException {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        final Thread[] threads = new Thread[8];
+
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 100000; j++) {
+                        histogram.record(j);
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(histogram.snapshot().getCount(), 8L * 100000L);
+        assertEquals(histogram.snapshot().getMax(), 99999L);
+    }
+
+    private static void assertWithin(long actual, long expected) {
+        assertTrue(Math.abs(actual - expected) <= expected / 16, "expected " + expected + " but was " + actual);
+    }
+}
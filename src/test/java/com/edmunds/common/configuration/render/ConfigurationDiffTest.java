@@ -0,0 +1,86 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.render;
+
+import com.edmunds.common.configuration.api.EnvironmentSnapshot;
+import com.edmunds.common.configuration.token.EnvironmentToken;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+@Test(groups = {"Render"})
+public class ConfigurationDiffTest {
+
+    private TemplateSet templates;
+
+    @BeforeMethod
+    public void setup() {
+        final Map<String, String> values = new LinkedHashMap<String, String>();
+        values.put("url", "http://[URL_PREFIX]www.edmunds.com/");
+        values.put("dataCenter", "[LOCAL_ENVIRONMENT_DATA_CENTER]");
+        values.put("site", "[LOCAL_ENVIRONMENT_SITE]");
+        values.put("static", "value");
+        templates = TemplateSet.of(values);
+    }
+
+    @Test
+    public void compareTest() {
+        final ConfigurationDiff diff = ConfigurationDiff.compare(templates,
+                environment("pi", "lax1"), environment("prod", "lax1"));
+
+        assertEquals(diff.getDifferences().size(), 1);
+        assertEquals(diff.getDifferences().get(0).getName(), "url");
+        assertEquals(diff.getDifferences().get(0).getLeftValue(), "http://pi-www.edmunds.com/");
+        assertEquals(diff.getDifferences().get(0).getRightValue(), "http://www.edmunds.com/");
+        assertEquals(diff.getComparedCount(), 1);
+        assertTrue((diff.getChangedTokenMask() & EnvironmentToken.URL_PREFIX.mask()) != 0);
+        assertEquals(diff.getChangedTokenMask() & EnvironmentToken.LOCAL_ENVIRONMENT_SITE.mask(), 0);
+    }
+
+    @Test
+    public void sameEnvironmentTest() {
+        final ConfigurationDiff diff = ConfigurationDiff.compare(templates,
+                environment("prod", "las1"), environment("prod", "las1"));
+
+        assertTrue(diff.isEmpty());
+        assertEquals(diff.getComparedCount(), 0);
+    }
+
+    @Test
+    public void localEnvironmentTest() {
+        final Map<String, String> local = new LinkedHashMap<String, String>();
+        local.put("static", "local");
+        final ConfigurationDiff diff = ConfigurationDiff.compare(TemplateSet.of(local, templates.getValues(false)),
+                EnvironmentMatrix.resolve(new Properties()), environment("prod", "lax1"));
+
+        assertEquals(diff.getComparedCount(), 4);
+        assertEquals(diff.getDifferences().size(), 4);
+    }
+
+    private static EnvironmentSnapshot environment(String environmentName, String dataCenter) {
+        final Properties entries = new Properties();
+        entries.setProperty("environment-name", environmentName);
+        entries.setProperty("url-prefix", environmentName);
+        entries.setProperty("environment-datacenter", dataCenter);
+        return EnvironmentMatrix.resolve(entries);
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.render;
+
+import com.edmunds.common.configuration.api.EnvironmentSnapshot;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+
+@Test(groups = {"Render"})
+public class FleetRendererTest {
+
+    private TemplateSet templates;
+
+    @BeforeMethod
+    public void setup() {
+        final Map<String, String> values = new LinkedHashMap<String, String>();
+        values.put("url", "http://[URL_PREFIX]www.[LOCAL_ENVIRONMENT_SITE].com/");
+        values.put("env", "_ENVIRONMENT_NAME_");
+        values.put("internal", "[INTERNAL_ENVIRONMENT_NAME]-[INTERNAL_ENVIRONMENT_DATA_CENTER]");
+        values.put("host", "_HOST_NAME_");
+        values.put("static", "value");
+        templates = TemplateSet.of(values);
+    }
+
+    @Test
+    public void renderMatrixTest() {
+        final EnvironmentMatrix matrix = new EnvironmentMatrix(
+                Arrays.asList("ti", "prod"), Arrays.asList("lax1", "las1"), Arrays.asList("edmunds", "insideline"));
+        assertEquals(matrix.size(), 8);
+
+        final List<EnvironmentSnapshot> snapshots = matrix.getSnapshots();
+        final List<RenderedEnvironment> rendered = new FleetRenderer(templates, 3).render(snapshots);
+        assertEquals(rendered.size(), 8);
+
+        for (int i = 0; i < rendered.size(); i++) {
+            assertSame(rendered.get(i).getEnvironment(), snapshots.get(i));
+        }
+
+        final RenderedEnvironment ti = rendered.get(1);
+        assertEquals(ti.getValue("url"), "http://ti-www.insideline.com/");
+        assertEquals(ti.getValue("env"), "TI");
+        assertEquals(ti.getValue("internal"), "ti-lax1");
+
+        final RenderedEnvironment prod = rendered.get(6);
+        assertEquals(prod.getValue("url"), "http://www.edmunds.com/");
+        assertEquals(prod.getValue("env"), "LAS1-PROD");
+        assertEquals(prod.getValue("internal"), "pi-las1");
+        assertEquals(prod.getValue("host"), "_HOST_NAME_");
+        assertEquals(prod.asMap().size(), 5);
+    }
+
+    @Test
+    public void renderSingleThreadTest() {
+        final FleetRenderer renderer = new FleetRenderer(templates, 1);
+        renderer.setHostName("web01");
+
+        final Properties entries = new Properties();
+        entries.setProperty("environment-name", "pi");
+        entries.setProperty("url-prefix", "pi");
+        final List<RenderedEnvironment> rendered =
+                renderer.render(Collections.singletonList(EnvironmentMatrix.resolve(entries)));
+
+        assertEquals(rendered.get(0).getValue("host"), "web01");
+        assertEquals(rendered.get(0).getValue("static"), "value");
+        assertNull(rendered.get(0).getValue("missing"));
+    }
+
+    @Test
+    public void localValuesTest() {
+        final Map<String, String> local = Collections.singletonMap("url", "http://localhost/");
+        final Map<String, String> managed = new LinkedHashMap<String, String>();
+        managed.put("url", "http://[URL_PREFIX]www.edmunds.com/");
+        managed.put("managedOnly", "x");
+        final TemplateSet dual = TemplateSet.of(local, managed);
+
+        // No environment name resolves to the local environment.
+        final RenderedEnvironment rendered = new FleetRenderer(dual).render(EnvironmentMatrix.resolve(new Properties()));
+
+        assertEquals(rendered.getValue("url"), "http://localhost/");
+        assertNull(rendered.getValue("managedOnly"));
+    }
+
+    @Test
+    public void sharedTemplatesTest() {
+        final Map<String, String> values = new LinkedHashMap<String, String>();
+        values.put("a", "[URL_PREFIX]x");
+        values.put("b", "[URL_PREFIX]x");
+        final TemplateSet set = TemplateSet.of(values);
+
+        assertSame(set.getTemplate(0, false), set.getTemplate(1, false));
+        assertEquals(set.indexOf("b"), 1);
+        assertEquals(set.indexOf("c"), -1);
+    }
+}
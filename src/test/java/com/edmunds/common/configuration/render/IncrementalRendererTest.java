@@ -0,0 +1,112 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.render;
+
+import com.edmunds.common.configuration.api.EnvironmentSnapshot;
+import com.edmunds.common.configuration.dns.EnvironmentBootstrap;
+import com.edmunds.common.configuration.dns.PropertiesConfigurationEntryReader;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+@Test(groups = {"Render"})
+public class IncrementalRendererTest {
+
+    private TemplateSet templates;
+    private Properties entries;
+
+    @BeforeMethod
+    public void setup() {
+        final Map<String, String> values = new LinkedHashMap<String, String>();
+        values.put("url", "http://[URL_PREFIX]www.edmunds.com/");
+        values.put("dataCenter", "[LOCAL_ENVIRONMENT_DATA_CENTER]");
+        values.put("environment", "_ENVIRONMENT_NAME_");
+        values.put("site", "[LOCAL_ENVIRONMENT_SITE]");
+        values.put("static", "value");
+        templates = TemplateSet.of(values);
+
+        entries = new Properties();
+        entries.setProperty("environment-name", "prod");
+        entries.setProperty("url-prefix", "prod");
+        entries.setProperty("environment-datacenter", "lax1");
+    }
+
+    @Test
+    public void updateTest() {
+        final IncrementalRenderer renderer =
+                new IncrementalRenderer(templates, EnvironmentMatrix.resolve(entries), null, null);
+        final List<ConfigurationChange> changes = new ArrayList<ConfigurationChange>();
+        renderer.addListener(new ConfigurationChangeListener() {
+            @Override
+            public void configurationChanged(ConfigurationChange change) {
+                changes.add(change);
+            }
+        });
+        assertEquals(renderer.getValue("environment"), "LAX1-PROD");
+
+        entries.setProperty("environment-datacenter", "las1");
+        final ConfigurationChange change = renderer.update(EnvironmentMatrix.resolve(entries));
+
+        // Only the properties referencing the data center or the legacy environment name are rendered.
+        assertEquals(change.getRenderedCount(), 2);
+        assertEquals(new ArrayList<String>(change.getChangedKeys()).toString(), "[dataCenter, environment]");
+        assertEquals(renderer.getValue("environment"), "LAS1-PROD");
+        assertEquals(renderer.getValue("url"), "http://www.edmunds.com/");
+        assertEquals(changes.size(), 1);
+    }
+
+    @Test
+    public void unchangedTest() {
+        final IncrementalRenderer renderer =
+                new IncrementalRenderer(templates, EnvironmentMatrix.resolve(entries), null, null);
+        final ConfigurationChange change = renderer.update(EnvironmentMatrix.resolve(entries));
+
+        assertTrue(change.isEmpty());
+        assertEquals(change.getRenderedCount(), 0);
+    }
+
+    @Test
+    public void refreshTest() {
+        final EnvironmentBootstrap bootstrap =
+                EnvironmentBootstrap.resolve(new PropertiesConfigurationEntryReader(entries));
+        final IncrementalRenderer renderer = new IncrementalRenderer(templates, bootstrap.getConfigurationUtil());
+        assertTrue(renderer.refresh().isEmpty());
+
+        bootstrap.getEnvironmentConfiguration().setUrlPrefix("qa-");
+        final ConfigurationChange change = renderer.refresh();
+
+        assertEquals(change.getRenderedCount(), 1);
+        assertEquals(change.getChangedKeys().iterator().next(), "url");
+        assertEquals(renderer.asMap().get("url"), "http://qa-www.edmunds.com/");
+    }
+
+    @Test
+    public void localModeChangedTest() {
+        final EnvironmentSnapshot managed = EnvironmentMatrix.resolve(entries);
+        final IncrementalRenderer renderer = new IncrementalRenderer(templates, managed, null, null);
+
+        final ConfigurationChange change = renderer.update(EnvironmentMatrix.resolve(new Properties()));
+        assertEquals(change.getRenderedCount(), templates.size());
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.render;
+
+import com.edmunds.common.configuration.api.EnvironmentSnapshot;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Properties;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+@Test(groups = {"Render"})
+public class PropertyFileRendererTest {
+
+    private File directory;
+    private EnvironmentSnapshot environment;
+
+    @BeforeMethod
+    public void setup() throws IOException {
+        directory = File.createTempFile("renderer", "");
+        assertTrue(directory.delete() && directory.mkdir());
+
+        final Properties entries = new Properties();
+        entries.setProperty("environment-name", "qa-1");
+        entries.setProperty("url-prefix", "qa-1");
+        entries.setProperty("environment-site", "insideline");
+        environment = EnvironmentMatrix.resolve(entries);
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        delete(directory);
+    }
+
+    @Test
+    public void renderStreamTest() throws IOException {
+        final PropertyFileRenderer renderer = new PropertyFileRenderer(environment, "web01", 1);
+        final StringWriter writer = new StringWriter();
+
+        renderer.render(new StringReader("url=http://[URL_PREFIX]www.[LOCAL_ENVIRONMENT_SITE].com/\r\n"
+                + "# _HOST_NAME_\n\nlast=[LOGICAL_ENVIRONMENT_NAME]"), writer);
+
+        assertEquals(writer.toString(), "url=http://qa-1-www.insideline.com/\r\n# web01\n\nlast=qa-1");
+    }
+
+    @Test
+    public void canonicalHostNameTest() throws IOException {
+        final String template = "_HOST_NAME_ _HOST_CANONICAL_NAME_";
+
+        final StringWriter untouched = new StringWriter();
+        new PropertyFileRenderer(environment, "web01", 1).render(new StringReader(template), untouched);
+        assertEquals(untouched.toString(), "web01 _HOST_CANONICAL_NAME_");
+
+        final StringWriter writer = new StringWriter();
+        new PropertyFileRenderer(environment, "web01", "web01.lax1.edmunds.com", 1)
+                .render(new StringReader(template), writer);
+        assertEquals(writer.toString(), "web01 web01.lax1.edmunds.com");
+    }
+
+    @Test
+    public void renderDirectoryTest() throws IOException {
+        final File templates = new File(directory, "templates");
+        write(new File(templates, "app.properties"), "site=[LOCAL_ENVIRONMENT_SITE]\n");
+        write(new File(templates, "nested/db.xml"), "<url>jdbc://db.[URL_PREFIX]edmunds.com</url>\u00e9");
+
+        final File output = new File(directory, "output");
+        final int files = new PropertyFileRenderer(environment, null, 2).renderDirectory(templates, output);
+
+        assertEquals(files, 2);
+        assertEquals(read(new File(output, "app.properties")), "site=insideline\n");
+        assertEquals(read(new File(output, "nested/db.xml")), "<url>jdbc://db.qa-1-edmunds.com</url>\u00e9");
+    }
+
+    @Test
+    public void commandTest() throws IOException {
+        final File configuration = new File(directory, "configuration-dns.properties");
+        write(configuration, "environment-name=prod\nurl-prefix=prod\nenvironment-datacenter=las1\n");
+        write(new File(directory, "templates/app.properties"), "env=_ENVIRONMENT_NAME_");
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final int exitCode = ConfigurationTool.run(new String[]{"render", "--threads", "1", configuration.getPath(),
+                new File(directory, "templates").getPath(), new File(directory, "output").getPath()},
+                new PrintStream(out), new PrintStream(new ByteArrayOutputStream()));
+
+        assertEquals(exitCode, 0);
+        assertEquals(read(new File(directory, "output/app.properties")), "env=LAS1-PROD");
+        assertTrue(out.toString().startsWith("Rendered 1 files for prod"));
+    }
+
+    @Test
+    public void diffCommandTest() throws IOException {
+        write(new File(directory, "left.properties"), "environment-name=pi\nurl-prefix=pi\n");
+        write(new File(directory, "right.properties"), "environment-name=prod\nurl-prefix=prod\n");
+        write(new File(directory, "templates.properties"), "url=http://[URL_PREFIX]www.edmunds.com/\nsite=x\n");
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final int exitCode = ConfigurationTool.run(new String[]{"diff",
+                new File(directory, "left.properties").getPath(), new File(directory, "right.properties").getPath(),
+                new File(directory, "templates.properties").getPath()},
+                new PrintStream(out), new PrintStream(new ByteArrayOutputStream()));
+
+        assertEquals(exitCode, 0);
+        assertTrue(out.toString().startsWith("url: http://pi-www.edmunds.com/ -> http://www.edmunds.com/"));
+    }
+
+    @Test
+    public void commandUsageTest() {
+        final ByteArrayOutputStream err = new ByteArrayOutputStream();
+        final int exitCode = ConfigurationTool.run(new String[]{"render", "only-one"},
+                new PrintStream(new ByteArrayOutputStream()), new PrintStream(err));
+
+        assertEquals(exitCode, 2);
+        assertTrue(err.toString().startsWith("Usage:"));
+    }
+
+    @Test
+    public void unknownOptionTest() {
+        final ByteArrayOutputStream err = new ByteArrayOutputStream();
+        final int exitCode = ConfigurationTool.run(new String[]{"render", "--host-nmae", "web1", "a", "b", "c"},
+                new PrintStream(new ByteArrayOutputStream()), new PrintStream(err));
+
+        assertEquals(exitCode, 2);
+        assertTrue(err.toString().startsWith("Unknown option: --host-nmae"));
+        assertTrue(err.toString().contains("Usage:"));
+    }
+
+    private static void write(File file, String content) throws IOException {
+        file.getParentFile().mkdirs();
+        final OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content.getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+    }
+
+    private static String read(File file) throws IOException {
+        final InputStream in = new FileInputStream(file);
+        try {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[1024];
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                bytes.write(buffer, 0, read);
+            }
+            return bytes.toString("UTF-8");
+        } finally {
+            in.close();
+        }
+    }
+
+    private static void delete(File file) {
+        final File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
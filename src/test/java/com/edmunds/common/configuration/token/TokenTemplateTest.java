@@ -0,0 +1,177 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.token;
+
+import com.edmunds.common.configuration.api.ConfigurationUtil;
+import com.edmunds.common.configuration.api.VariableConfigurationUtil;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import static org.easymock.classextension.EasyMock.createMock;
+import static org.easymock.classextension.EasyMock.expect;
+import static org.easymock.classextension.EasyMock.replay;
+import static org.easymock.classextension.EasyMock.verify;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+@Test(groups = {"Token"})
+public class TokenTemplateTest {
+
+    private Map<EnvironmentToken, String> values;
+
+    @BeforeMethod
+    public void setup() {
+        values = new EnumMap<EnvironmentToken, String>(EnvironmentToken.class);
+        values.put(EnvironmentToken.ENVIRONMENT_NAME, "DEV-EPE3");
+        values.put(EnvironmentToken.URL_PREFIX, "dev-epe3-");
+        values.put(EnvironmentToken.URL_PREFIX_NODASH, "dev-epe3");
+        values.put(EnvironmentToken.LOCAL_ENVIRONMENT_SITE, "insideline");
+        values.put(EnvironmentToken.ENVIRONMENT_INDEX, " ");
+    }
+
+    @Test
+    public void renderTest() {
+        final TokenTemplate template = TokenTemplate.compile("http://[URL_PREFIX]www.[LOCAL_ENVIRONMENT_SITE].com/");
+        assertEquals(template.render(new TokenTable(values)), "http://dev-epe3-www.insideline.com/");
+    }
+
+    @Test
+    public void renderAdjacentTokensTest() {
+        final TokenTemplate template = TokenTemplate.compile("[URL_PREFIX_NODASH][URL_PREFIX]_ENVIRONMENT_NAME_");
+        assertEquals(template.render(new TokenTable(values)), "dev-epe3dev-epe3-DEV-EPE3");
+    }
+
+    @Test
+    public void renderOverlappingPrefixTest() {
+        final TokenTemplate template = TokenTemplate.compile("__ENVIRONMENT_NAME_[[URL_PREFIX]");
+        assertEquals(template.render(new TokenTable(values)), "_DEV-EPE3[dev-epe3-");
+    }
+
+    @Test
+    public void renderBlankValueTest() {
+        final TokenTemplate template = TokenTemplate.compile("[PRE][ENVIRONMENT_INDEX][POST]");
+        assertEquals(template.render(new TokenTable(values)), "[PRE][POST]");
+    }
+
+    @Test
+    public void renderMissingValueTest() {
+        final TokenTemplate template = TokenTemplate.compile("[PRE]_HOST_NAME_[POST]");
+        assertEquals(template.render(new TokenTable(values)), "[PRE]_HOST_NAME_[POST]");
+    }
+
+    @Test
+    public void renderNoTokensTest() {
+        final String value = "plain [value] _with_ brackets";
+        final TokenTemplate template = TokenTemplate.compile(value);
+
+        assertFalse(template.hasTokens());
+        assertEquals(template.getTokenMask(), 0);
+        assertSame(template.render(new TokenTable(values)), value);
+    }
+
+    @Test
+    public void tokenMaskTest() {
+        final TokenTemplate template = TokenTemplate.compile("[URL_PREFIX]x[LOCAL_ENVIRONMENT_SITE]y[URL_PREFIX]");
+
+        assertTrue(template.hasTokens());
+        assertEquals(template.getTokenMask(),
+                EnvironmentToken.URL_PREFIX.mask() | EnvironmentToken.LOCAL_ENVIRONMENT_SITE.mask());
+    }
+
+    @Test
+    public void valueOfCachesTest() {
+        final String value = "cached[URL_PREFIX]";
+        assertSame(TokenTemplate.valueOf(value), TokenTemplate.valueOf(value));
+    }
+
+    @Test
+    public void renderVariablesTest() {
+        final TokenVariables variables = TokenVariables.of("[TENANT]", "{locale}");
+        final TokenTemplate template = TokenTemplate.compile("http://[URL_PREFIX]www.edmunds.com/{locale}/[TENANT]",
+                variables);
+
+        assertEquals(template.render(new TokenTable(values), new String[]{"acme", "en"}),
+                "http://dev-epe3-www.edmunds.com/en/acme");
+        assertEquals(template.getTokenMask(), EnvironmentToken.URL_PREFIX.mask());
+    }
+
+    @Test
+    public void renderNullVariableTest() {
+        final TokenVariables variables = TokenVariables.of("[TENANT]");
+        final TokenTemplate template = TokenTemplate.compile("[TENANT][URL_PREFIX_NODASH]", variables);
+
+        assertEquals(template.render(new TokenTable(values), new String[]{null}), "[TENANT]dev-epe3");
+    }
+
+    @Test
+    public void environmentTokenPrecedenceTest() {
+        final TokenVariables variables = TokenVariables.of("[URL_PREFIX]X");
+        final TokenTemplate template = TokenTemplate.compile("[URL_PREFIX]X", variables);
+
+        assertEquals(template.render(new TokenTable(values), new String[]{"variable"}), "dev-epe3-X");
+    }
+
+    @Test
+    public void variablesCacheTest() {
+        final TokenVariables variables = TokenVariables.of("[TENANT]");
+        final TokenTemplate template = TokenTemplate.valueOf("a[TENANT]b", variables);
+
+        assertSame(TokenTemplate.valueOf("a[TENANT]b", variables), template);
+        assertFalse(TokenTemplate.valueOf("a[TENANT]b").hasTokens());
+        assertEquals(variables.indexOf("[TENANT]"), 0);
+    }
+
+    @Test
+    public void replaceTokensTest() {
+        final TokenVariables variables = TokenVariables.of("[TENANT]");
+        final VariableConfigurationUtil configurationUtil = createMock(VariableConfigurationUtil.class);
+        expect(configurationUtil.replaceTokens("[URL_PREFIX][TENANT]", variables, "acme")).andReturn("dev-epe3-acme");
+        replay(configurationUtil);
+
+        assertEquals(variables.replaceTokens(configurationUtil, "[URL_PREFIX][TENANT]", "acme"), "dev-epe3-acme");
+        verify(configurationUtil);
+    }
+
+    @Test
+    public void replaceTokensPlainUtilTest() {
+        final TokenVariables variables = TokenVariables.of("[TENANT]");
+        final ConfigurationUtil configurationUtil = createMock(ConfigurationUtil.class);
+        expect(configurationUtil.replaceTokens("[URL_PREFIX][TENANT]")).andReturn("dev-epe3-[TENANT]");
+        expect(configurationUtil.replaceTokens(null)).andReturn(null);
+        replay(configurationUtil);
+
+        assertEquals(variables.replaceTokens(configurationUtil, "[URL_PREFIX][TENANT]", "acme"), "dev-epe3-acme");
+        assertNull(variables.replaceTokens(configurationUtil, null, "acme"));
+        verify(configurationUtil);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void missingVariableValuesTest() {
+        final TokenVariables variables = TokenVariables.of("[TENANT]", "[LOCALE]");
+        TokenTemplate.compile("[LOCALE]", variables).render(new TokenTable(values), new String[]{"acme"});
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void duplicateVariableTest() {
+        TokenVariables.of("[TENANT]", "[TENANT]");
+    }
+}
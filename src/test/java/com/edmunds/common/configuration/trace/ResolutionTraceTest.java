@@ -0,0 +1,100 @@
+/*
+ * Copyright 2011 Edmunds.com, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.edmunds.common.configuration.trace;
+
+import org.testng.annotations.Test;
+
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+@Test(groups = {"Trace"})
+public class ResolutionTraceTest {
+
+    @Test
+    public void disabledTest() {
+        final ResolutionTrace trace = new ResolutionTrace(4, false);
+        trace.record("component", "attribute", "value", "source", false, 1L);
+
+        assertFalse(trace.isEnabled());
+        assertEquals(trace.getRecordedCount(), 0);
+        assertTrue(trace.getEvents().isEmpty());
+        assertEquals(trace.toJson(), "[]");
+    }
+
+    @Test
+    public void recordTest() {
+        final ResolutionTrace trace = new ResolutionTrace(4, true);
+        trace.record("DNSConfigurationFactory", "environment-site.edmunds.com", "edmunds", "reader", true, 10L);
+        trace.recordStep("DNSConfigurationFactory", "resolve", 20L);
+
+        final List<TraceEvent> events = trace.getEvents();
+        assertEquals(events.size(), 2);
+
+        final TraceEvent event = events.get(0);
+        assertEquals(event.getSequence(), 0);
+        assertEquals(event.getComponent(), "DNSConfigurationFactory");
+        assertEquals(event.getAttribute(), "environment-site.edmunds.com");
+        assertEquals(event.getValue(), "edmunds");
+        assertEquals(event.getSource(), "reader");
+        assertTrue(event.isDefaulted());
+        assertEquals(event.getDurationNanos(), 10L);
+
+        final TraceEvent step = events.get(1);
+        assertEquals(step.getAttribute(), "resolve");
+        assertNull(step.getValue());
+        assertNull(step.getSource());
+        assertEquals(step.getDurationNanos(), 20L);
+    }
+
+    @Test
+    public void wrapTest() {
+        final ResolutionTrace trace = new ResolutionTrace(3, true);
+        assertEquals(trace.getCapacity(), 4);
+
+        for (int i = 0; i < 10; i++) {
+            trace.recordStep("component", "step" + i, i);
+        }
+
+        final List<TraceEvent> events = trace.getEvents();
+        assertEquals(trace.getRecordedCount(), 10);
+        assertEquals(events.size(), 4);
+        assertEquals(events.get(0).getAttribute(), "step6");
+        assertEquals(events.get(3).getAttribute(), "step9");
+
+        trace.clear();
+        assertTrue(trace.getEvents().isEmpty());
+    }
+
+    @Test
+    public void toJsonTest() {
+        final ResolutionTrace trace = new ResolutionTrace(2, true);
+        trace.record("c", "a", "x\"y\\z\n", null, false, 5L);
+
+        final String json = trace.toJson();
+        assertTrue(json.startsWith("[{\"sequence\":0,\"timestamp\":"), json);
+        assertTrue(json.endsWith(",\"component\":\"c\",\"attribute\":\"a\",\"value\":\"x\\\"y\\\\z\\n\","
+                + "\"source\":null,\"defaulted\":false,\"durationNanos\":5}]"), json);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void invalidCapacityTest() {
+        new ResolutionTrace(0, true);
+    }
+}